@@ -40,6 +40,34 @@ public class Config {
     }
   }
 
+  /**
+   * Get the integer value associated with this attribute from the config.
+   * @param attributeName The name of the attribute to get the value for.
+   * @param defaultValue  The value returned when the attribute is missing or not an integer.
+   * @return The integer value of the attribute.
+   */
+  public final int getInt(String attributeName, int defaultValue) {
+    try {
+      return Integer.parseInt(getValue(attributeName).trim());
+    } catch (NumberFormatException | NullPointerException e) {
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Get the long value associated with this attribute from the config.
+   * @param attributeName The name of the attribute to get the value for.
+   * @param defaultValue  The value returned when the attribute is missing or not a long.
+   * @return The long value of the attribute.
+   */
+  public final long getLong(String attributeName, long defaultValue) {
+    try {
+      return Long.parseLong(getValue(attributeName).trim());
+    } catch (NumberFormatException | NullPointerException e) {
+      return defaultValue;
+    }
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -3,6 +3,8 @@ package com.benine.backend;
 import com.benine.backend.camera.CameraController;
 import com.benine.backend.database.DatabaseController;
 import com.benine.backend.http.HTTPServer;
+import com.benine.backend.metrics.JvmMetrics;
+import com.benine.backend.metrics.MetricRegistry;
 import com.benine.backend.performance.PresetQueueController;
 import com.benine.backend.preset.PresetController;
 import com.benine.backend.video.StreamController;
@@ -22,6 +24,8 @@ public class ServerController {
 
   private final Config config;
 
+  private final MetricRegistry metricRegistry;
+
   private static CameraController cameraController;
 
   private static StreamController streamController;
@@ -44,6 +48,8 @@ public class ServerController {
    */
   private ServerController(String configPath) {
     config = setUpConfig(configPath);
+    metricRegistry = new MetricRegistry();
+    JvmMetrics.register(metricRegistry);
     running = false;
     logger = setupLogger(); 
   }
@@ -89,6 +95,7 @@ public class ServerController {
    */
   public void start() throws Exception {
     cameraController.loadConfigCameras();
+    cameraController.startStatePoller();
     databaseController.start();
     httpServer = new HTTPServer(Integer.parseInt(config.getValue("serverport")), this);
 
@@ -105,6 +112,8 @@ public class ServerController {
   public void stop() throws Exception {
     if (running) {
       httpServer.destroy();
+      streamController.stop();
+      cameraController.stop();
       running = false;
       getLogger().log("Server stopped", LogEvent.Type.INFO);
     }
@@ -201,6 +210,15 @@ public class ServerController {
     return presetQueueController;
   }
 
+  /**
+   * Returns the registry containing the metrics exported on /metrics.
+   *
+   * @return the metric registry.
+   */
+  public MetricRegistry getMetricRegistry() {
+    return metricRegistry;
+  }
+
   /**
    * Get the main config file.
    *
@@ -5,13 +5,27 @@ import com.benine.backend.LogEvent;
 import com.benine.backend.Logger;
 
 import com.benine.backend.ServerController;
+import com.benine.backend.camera.ipcameracontrol.IPCamera;
+import com.benine.backend.camera.ipcameracontrol.IPCameraState;
+import com.benine.backend.camera.ipcameracontrol.IPCameraStatePoller;
 import com.benine.backend.video.StreamController;
+import com.benine.backend.video.StreamState;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class to control the camera's.
@@ -19,6 +33,16 @@ import java.util.List;
  */
 public class CameraController {
 
+  /**
+   * Default time in milliseconds the JSON of all cameras is waited for.
+   */
+  private static final long DEFAULT_JSON_DEADLINE = 500;
+
+  /**
+   * Amount of poll intervals after which the state of an IP camera is outdated.
+   */
+  private static final int OUTDATED_AFTER_POLLS = 3;
+
   private ArrayList<Camera> cameras = new ArrayList<>();
 
   private int highestIdInUse = 1;
@@ -30,6 +54,32 @@ public class CameraController {
   private Logger logger;
   
   private StreamController streamController;
+
+  private IPCameraStatePoller statePoller;
+
+  /**
+   * Creates the JSON representations of the cameras concurrently.
+   */
+  private ExecutorService jsonExecutor;
+
+  private long jsonDeadline;
+
+  /**
+   * The JSON representation being created per camera, so a camera which does not respond
+   * is not asked again until it does.
+   */
+  private Map<Camera, CompletableFuture<JSONObject>> pendingJSON = new ConcurrentHashMap<>();
+
+  /**
+   * The last JSON representation created per camera, without its stream state.
+   */
+  private Map<Camera, JSONObject> lastJSON = new ConcurrentHashMap<>();
+
+  /**
+   * The type of the problem last logged per camera while listing it, so a camera which
+   * stays unreachable is only logged when its problem changes.
+   */
+  private Map<Camera, LogEvent.Type> listingProblems = new ConcurrentHashMap<>();
   
   /**
    * Constructor of the camera controller which creates a camera factory producer.
@@ -40,6 +90,15 @@ public class CameraController {
     logger = serverController.getLogger();
     streamController = serverController.getStreamController();
     camFactoryProducer = new CameraFactoryProducer(this);
+    statePoller = new IPCameraStatePoller(this::getCameras,
+        config.getLong("camera_poll_interval", IPCameraStatePoller.DEFAULT_INTERVAL));
+    jsonDeadline = config.getLong("camera_json_deadline", DEFAULT_JSON_DEADLINE);
+    AtomicInteger threadCount = new AtomicInteger();
+    jsonExecutor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "CameraJSON-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   /**
@@ -104,37 +163,176 @@ public class CameraController {
 
   /**
    * Returns a json string of all the cameras.
+   * The JSON of the cameras is created concurrently. A camera which has not responded
+   * within the deadline is listed with its last JSON marked stale, or as unavailable if
+   * it never responded. An IP camera is listed stale when its state is outdated.
    * @return json string of all the cameras.
-   * @throws CameraConnectionException if a connection to a camera cannot be made.
    */
   public String getCamerasJSON() {
-    // Create expected json object
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(jsonDeadline);
+    List<Camera> cameraList = new ArrayList<>(getCameras());
+    List<CompletableFuture<JSONObject>> futures = new ArrayList<>();
+    for (Camera camera : cameraList) {
+      futures.add(requestCameraJSON(camera));
+    }
+
     JSONObject json = new JSONObject();
     JSONArray array = new JSONArray();
-    for (Camera camera : getCameras()) {
-      array.add(getCameraJSON(camera));
+    for (int i = 0; i < cameraList.size(); i++) {
+      array.add(getCameraJSON(cameraList.get(i), futures.get(i), deadline));
     }
     json.put("cameras", array);
     return json.toJSONString();
   }
-  
+
+  /**
+   * Starts creating the JSON representation of a camera,
+   * unless it is still being created for an earlier request.
+   * @param camera object to create a JSON of.
+   * @return A future completed with the JSON representation.
+   */
+  private CompletableFuture<JSONObject> requestCameraJSON(Camera camera) {
+    return pendingJSON.compute(camera, (cam, pending) -> {
+      if (pending != null && !pending.isDone()) {
+        return pending;
+      }
+      CompletableFuture<JSONObject> future = new CompletableFuture<>();
+      try {
+        jsonExecutor.execute(() -> createCameraJSON(camera, future));
+      } catch (RejectedExecutionException e) {
+        future.completeExceptionally(e);
+      }
+      return future;
+    });
+  }
+
   /**
-   * Get the JSON representation of this camera.
-   * If the connection fails return an empty camera.
+   * Creates the JSON representation of a camera, saving it as its last JSON.
    * @param camera object to create a JSON of.
+   * @param future The future to complete with the JSON representation.
+   */
+  private void createCameraJSON(Camera camera, CompletableFuture<JSONObject> future) {
+    try {
+      JSONObject json = camera.toJSON();
+      lastJSON.put(camera, copyJSON(json));
+      future.complete(json);
+    } catch (CameraConnectionException | CameraBusyException | RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+  }
+  
+  /**
+   * Get the JSON representation of this camera, including the state of its stream.
+   * If the connection fails return an empty camera, if the camera does not respond before
+   * the deadline return its last JSON marked as stale. The JSON of an IP camera is created
+   * from the state read by its last refresh, so it is marked stale when that state is outdated.
+   * The JSON of the future is shared by concurrent requests, so it is copied before the
+   * stream state is added. The stream state is read without locking, so it does not delay
+   * the listing after the deadline.
+   * @param camera    object to create a JSON of.
+   * @param future    The JSON representation being created.
+   * @param deadline  The time, as returned by System.nanoTime, the JSON is waited for.
    * @return String representation of the JSON.
    */
-  private JSONObject getCameraJSON(Camera camera) {
+  private JSONObject getCameraJSON(Camera camera, CompletableFuture<JSONObject> future,
+                                   long deadline) {
+    JSONObject json;
     try {
-      return camera.toJSON();
-    } catch (CameraConnectionException | CameraBusyException e ) {
-      getLogger().log("Failed to get the JSON representation of camera: " 
-          + camera.getId(), LogEvent.Type.CRITICAL);
-      JSONObject json = new JSONObject();
-      json.put("id", camera.getId());
-      json.put("unavailable", true);
-      return json;
+      json = copyJSON(
+          future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+      if (isOutdated(camera)) {
+        setListingProblem(camera, LogEvent.Type.WARNING, "State of camera " + camera.getId()
+            + " could not be refreshed, listing its last known state.");
+        json.put("stale", true);
+      } else {
+        setListingProblem(camera, null, "Camera " + camera.getId() + " responds again.");
+      }
+    } catch (ExecutionException e) {
+      setListingProblem(camera, LogEvent.Type.CRITICAL,
+          "Failed to get the JSON representation of camera: " + camera.getId());
+      json = createUnavailableJSON(camera);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      json = createStaleJSON(camera);
+    } catch (TimeoutException e) {
+      setListingProblem(camera, LogEvent.Type.WARNING, "Camera " + camera.getId()
+          + " did not respond in time, listing its last known state.");
+      json = createStaleJSON(camera);
     }
+
+    StreamState streamState = streamController.getStreamState(camera.getId());
+    if (streamState != null) {
+      json.put("streamstate", streamState.getName());
+    }
+    return json;
+  }
+
+  /**
+   * Returns if the state of a camera is outdated, which is when it is an IP camera of which
+   * the last refresh failed or which was not refreshed for a few poll intervals.
+   * @param camera The camera.
+   * @return true if the state of the camera is outdated.
+   */
+  private boolean isOutdated(Camera camera) {
+    if (!(camera instanceof IPCamera)) {
+      return false;
+    }
+    IPCamera ipCamera = (IPCamera) camera;
+    IPCameraState state = ipCamera.getState();
+    return ipCamera.isStateFailed() || state != null && System.currentTimeMillis()
+        - state.getTime() > OUTDATED_AFTER_POLLS * statePoller.getInterval();
+  }
+
+  /**
+   * Logs the problem of listing a camera, only if it differs from the last one logged.
+   * @param camera  The camera listed.
+   * @param problem The type of the problem, or null if the camera was listed without one.
+   * @param message The message logged when the problem changes.
+   */
+  private void setListingProblem(Camera camera, LogEvent.Type problem, String message) {
+    LogEvent.Type previous = problem == null
+        ? listingProblems.remove(camera) : listingProblems.put(camera, problem);
+    if (problem != previous) {
+      getLogger().log(message, problem == null ? LogEvent.Type.INFO : problem);
+    }
+  }
+
+  /**
+   * Creates the JSON of a camera which cannot be reached.
+   * @param camera object to create a JSON of.
+   * @return The JSON with the camera id, marked unavailable.
+   */
+  private JSONObject createUnavailableJSON(Camera camera) {
+    JSONObject json = new JSONObject();
+    json.put("id", camera.getId());
+    json.put("unavailable", true);
+    return json;
+  }
+
+  /**
+   * Creates the JSON of a camera from its last JSON, marked stale.
+   * @param camera object to create a JSON of.
+   * @return The last JSON marked stale, or the JSON marked unavailable if there is none.
+   */
+  private JSONObject createStaleJSON(Camera camera) {
+    JSONObject last = lastJSON.get(camera);
+    if (last == null) {
+      return createUnavailableJSON(camera);
+    }
+    JSONObject json = copyJSON(last);
+    json.put("stale", true);
+    return json;
+  }
+
+  /**
+   * Copies a JSON object, the values are not copied.
+   * @param json The JSON object.
+   * @return A new JSON object with the same keys and values.
+   */
+  private JSONObject copyJSON(JSONObject json) {
+    JSONObject copy = new JSONObject();
+    copy.putAll(json);
+    return copy;
   }
 
   /**
@@ -154,4 +352,28 @@ public class CameraController {
   public Config getConfig() {
     return config;
   }
+
+  /**
+   * Starts refreshing the state of the IP cameras in the background.
+   */
+  public void startStatePoller() {
+    statePoller.start();
+  }
+
+  /**
+   * Returns the poller refreshing the state of the IP cameras.
+   * @return The state poller.
+   */
+  public IPCameraStatePoller getStatePoller() {
+    return statePoller;
+  }
+
+  /**
+   * Stops polling the state of the cameras and stops the simulated camera's loaded from
+   * the config.
+   */
+  public void stop() {
+    statePoller.stop();
+    camFactoryProducer.stop();
+  }
 }
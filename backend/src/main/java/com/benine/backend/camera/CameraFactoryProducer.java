@@ -2,6 +2,7 @@ package com.benine.backend.camera;
 
 import com.benine.backend.LogEvent;
 import com.benine.backend.camera.ipcameracontrol.IPCameraFactory;
+import com.benine.backend.camera.simulator.SimulatedCameraFactory;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -9,6 +10,8 @@ import java.util.Map;
 public class CameraFactoryProducer {
   
   private CameraController cameraController;
+
+  private SimulatedCameraFactory simulatedCameraFactory;
   
   /**
    * Constructs a camera factory producer.
@@ -18,6 +21,8 @@ public class CameraFactoryProducer {
     this.cameraController = cameraController;
     CAMERA_TYPES.put("simplecamera", new SimpleCameraFactory(cameraController));
     CAMERA_TYPES.put("ipcamera", new IPCameraFactory(cameraController));
+    simulatedCameraFactory = new SimulatedCameraFactory(cameraController);
+    CAMERA_TYPES.put("simulatedcamera", simulatedCameraFactory);
   }
   
   /**
@@ -43,4 +48,11 @@ public class CameraFactoryProducer {
     }
     return (index) -> CAMERA_TYPES.get(type).createCamera(index);
   }
+
+  /**
+   * Stops the simulated camera's created by the factories of this producer.
+   */
+  public void stop() {
+    simulatedCameraFactory.stop();
+  }
 }
@@ -1,5 +1,7 @@
 package com.benine.backend.camera;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Decorator of a camera with functions to control the Focussing of the camera.
  */
@@ -31,6 +33,23 @@ public interface FocussingCamera extends ControllableCamera {
    */
   void moveFocus(int speed) throws CameraConnectionException, CameraBusyException;
 
+  /**
+   * Move the focus with the specified speed, see moveFocus.
+   * Cameras which queue their commands return before the command is sent.
+   * @param speed value with which speed is focusing.
+   * @return A future completed once the command is done, exceptionally if it failed.
+   */
+  default CompletableFuture<Void> moveFocusAsync(int speed) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      moveFocus(speed);
+      future.complete(null);
+    } catch (CameraConnectionException | CameraBusyException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   /**
    * Turn auto focus on or off.
    * @param on true for auto focus on.
@@ -1,5 +1,7 @@
 package com.benine.backend.camera;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Decorator of a camera with functions to control the iris of the camera.
  *
@@ -44,6 +46,23 @@ public interface IrisCamera extends ControllableCamera {
    */
   void moveIris(int speed) throws CameraConnectionException, CameraBusyException;
 
+  /**
+   * Move the iris with the specified speed, see moveIris.
+   * Cameras which queue their commands return before the command is sent.
+   * @param speed value with which speed iris is changing.
+   * @return A future completed once the command is done, exceptionally if it failed.
+   */
+  default CompletableFuture<Void> moveIrisAsync(int speed) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      moveIris(speed);
+      future.complete(null);
+    } catch (CameraConnectionException | CameraBusyException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   /**
    * Get the current iris position.
    * @return the current iris position.
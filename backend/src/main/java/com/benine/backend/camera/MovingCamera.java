@@ -1,5 +1,7 @@
 package com.benine.backend.camera;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Decorator of a camera with functions to control the movements of the camera.
  */
@@ -30,6 +32,24 @@ public interface MovingCamera extends ControllableCamera {
     */
   void move(int pan, int tilt) throws CameraConnectionException, CameraBusyException;
 
+  /**
+   * Move the camera with the specified speed, see move.
+   * Cameras which queue their commands return before the command is sent.
+   * @param pan movement direction over horizontal axis.
+   * @param tilt movement direction over vertical axis.
+   * @return A future completed once the command is done, exceptionally if it failed.
+   */
+  default CompletableFuture<Void> moveAsync(int pan, int tilt) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      move(pan, tilt);
+      future.complete(null);
+    } catch (CameraConnectionException | CameraBusyException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   /**
     * Get the absolute position of the camera at this moment.
     * @return array with two values 0: Pan, 1: Tilt both in degrees.
@@ -1,5 +1,7 @@
 package com.benine.backend.camera;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Decorator of a camera with functions to control the zooming of the camera.
  */
@@ -31,4 +33,21 @@ public interface ZoomingCamera extends ControllableCamera {
    */
   void zoom(int dir) throws CameraConnectionException, CameraBusyException;
 
+  /**
+   * Zoom with the specified speed, see zoom.
+   * Cameras which queue their commands return before the command is sent.
+   * @param dir zoom direction.
+   * @return A future completed once the command is done, exceptionally if it failed.
+   */
+  default CompletableFuture<Void> zoomAsync(int dir) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      zoom(dir);
+      future.complete(null);
+    } catch (CameraConnectionException | CameraBusyException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
 }
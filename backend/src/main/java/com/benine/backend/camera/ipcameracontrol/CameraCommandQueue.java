@@ -0,0 +1,178 @@
+package com.benine.backend.camera.ipcameracontrol;
+
+import com.benine.backend.camera.CameraBusyException;
+import com.benine.backend.camera.CameraConnectionException;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the calls to a single camera one at a time, in the order they are submitted.
+ * The calls run on threads shared by all cameras, which are only in use while a camera
+ * has calls queued. A call submitted by a running call runs immediately, so a call can
+ * use the methods of the camera which queue calls themselves.
+ * Background calls, like the refreshes of the camera state, only run while no other calls
+ * are queued, so they delay the commands of an operator by at most one call.
+ * A call whose future is cancelled before it runs is skipped.
+ */
+public class CameraCommandQueue {
+
+  /**
+   * A call to the camera.
+   * @param <T> The type of the result.
+   */
+  @FunctionalInterface
+  public interface Call<T> {
+
+    /**
+     * Performs the call.
+     * @return The result.
+     * @throws CameraConnectionException If the camera cannot be reached.
+     * @throws CameraBusyException       If the camera is busy.
+     */
+    T call() throws CameraConnectionException, CameraBusyException;
+  }
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private static final ExecutorService THREADS = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "CameraCommands-" + THREAD_COUNT.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Executor executor;
+
+  private final Queue<Runnable> calls = new ArrayDeque<>();
+
+  private final Queue<Runnable> backgroundCalls = new ArrayDeque<>();
+
+  private boolean running = false;
+
+  /**
+   * The thread running the calls, null while no calls are queued.
+   */
+  private volatile Thread worker;
+
+  /**
+   * Creates a queue running its calls on the shared camera command threads.
+   */
+  public CameraCommandQueue() {
+    this(THREADS);
+  }
+
+  /**
+   * Creates a queue running its calls on an executor.
+   * @param executor The executor.
+   */
+  public CameraCommandQueue(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Queues a call.
+   * @param call The call.
+   * @param <T>  The type of the result.
+   * @return A future completed with the result of the call, or exceptionally with the
+   *         exception thrown by the call.
+   */
+  public <T> CompletableFuture<T> submit(Call<T> call) {
+    return submit(call, calls);
+  }
+
+  /**
+   * Queues a call on one of the queues of calls.
+   * @param call  The call.
+   * @param queue The queue of calls to add it to.
+   * @param <T>   The type of the result.
+   * @return A future completed with the result of the call.
+   */
+  private <T> CompletableFuture<T> submit(Call<T> call, Queue<Runnable> queue) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Runnable task = () -> {
+      if (future.isDone()) {
+        return;
+      }
+      try {
+        future.complete(call.call());
+      } catch (CameraConnectionException | CameraBusyException | RuntimeException e) {
+        future.completeExceptionally(e);
+      }
+    };
+
+    if (isCurrent()) {
+      task.run();
+      return future;
+    }
+    synchronized (this) {
+      queue.add(task);
+      if (running) {
+        return future;
+      }
+      running = true;
+    }
+
+    try {
+      executor.execute(this::runCalls);
+    } catch (RejectedExecutionException e) {
+      synchronized (this) {
+        queue.remove(task);
+        running = false;
+      }
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Queues a background call, which runs once no other calls are queued.
+   * @param call The call.
+   * @param <T>  The type of the result.
+   * @return A future completed with the result of the call, or exceptionally with the
+   *         exception thrown by the call.
+   */
+  public <T> CompletableFuture<T> submitBackground(Call<T> call) {
+    return submit(call, backgroundCalls);
+  }
+
+  /**
+   * Runs the queued calls until the queue is empty.
+   */
+  private void runCalls() {
+    worker = Thread.currentThread();
+    while (true) {
+      Runnable task;
+      synchronized (this) {
+        task = calls.isEmpty() ? backgroundCalls.poll() : calls.poll();
+        if (task == null) {
+          worker = null;
+          running = false;
+          return;
+        }
+      }
+      task.run();
+    }
+  }
+
+  /**
+   * Returns if the current thread is running a call of this queue.
+   * @return true if called by a call of this queue.
+   */
+  public boolean isCurrent() {
+    return worker == Thread.currentThread();
+  }
+
+  /**
+   * Returns the amount of calls waiting to run, including the background calls.
+   * @return The amount of calls.
+   */
+  public synchronized int getQueued() {
+    return calls.size() + backgroundCalls.size();
+  }
+}
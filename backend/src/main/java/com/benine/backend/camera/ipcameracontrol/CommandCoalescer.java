@@ -0,0 +1,199 @@
+package com.benine.backend.camera.ipcameracontrol;
+
+import com.benine.backend.camera.CameraBusyException;
+import com.benine.backend.camera.CameraConnectionException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the continuous speed commands of a camera, like those of a joystick.
+ * Only the newest pending command per axis is kept and commands are sent at most once
+ * per interval. A command replaced by a newer one for the same axis before it was sent
+ * is dropped, so the last command of a burst, usually the stop, is always sent.
+ * The commands are sent by the command queue of the camera.
+ */
+public class CommandCoalescer {
+
+  /**
+   * The axes which are controlled by speed commands.
+   */
+  public enum Axis {
+    PAN_TILT, ZOOM, FOCUS, IRIS
+  }
+
+  /**
+   * A command sending itself to the camera.
+   */
+  @FunctionalInterface
+  public interface Command {
+
+    /**
+     * Sends the command.
+     * @throws CameraConnectionException If the camera cannot be reached.
+     * @throws CameraBusyException       If the camera is busy.
+     */
+    void send() throws CameraConnectionException, CameraBusyException;
+  }
+
+  /**
+   * Default minimum time in milliseconds between two commands,
+   * Panasonic advises to wait 130 ms between commands to its heads.
+   */
+  public static final long DEFAULT_INTERVAL = 130;
+
+  /**
+   * Queues the commands of all cameras once their interval has passed.
+   */
+  private static final ScheduledExecutorService SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CommandCoalescer");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final CameraCommandQueue queue;
+
+  private final long interval;
+
+  /**
+   * The newest command not sent yet per axis, in the order the axes were submitted.
+   */
+  private final Map<Axis, PendingCommand> pending = new LinkedHashMap<>();
+
+  /**
+   * True while sending the next pending command is scheduled or in progress.
+   */
+  private boolean scheduled = false;
+
+  /**
+   * Time in nanoseconds, as returned by System.nanoTime, before which nothing is sent.
+   */
+  private long nextSend;
+
+  /**
+   * Creates a coalescer.
+   * @param queue     The command queue of the camera sending the commands.
+   * @param interval  The minimum time in milliseconds between two commands.
+   */
+  public CommandCoalescer(CameraCommandQueue queue, long interval) {
+    this.queue = queue;
+    this.interval = TimeUnit.MILLISECONDS.toNanos(Math.max(0, interval));
+    this.nextSend = System.nanoTime();
+  }
+
+  /**
+   * Sends a command once the interval since the previous command has passed,
+   * unless a newer command for the same axis is submitted in the meantime.
+   * A command submitted by a call running on the command queue is sent immediately.
+   * @param axis    The axis controlled by the command.
+   * @param command The command.
+   * @return A future completed once the command is sent or replaced, or exceptionally
+   *         if sending failed. The command is not sent once the future is cancelled.
+   */
+  public CompletableFuture<Void> submit(Axis axis, Command command) {
+    if (queue.isCurrent()) {
+      return queue.submit(() -> {
+        command.send();
+        return null;
+      });
+    }
+
+    PendingCommand next = new PendingCommand(command);
+    PendingCommand replaced;
+    boolean schedule;
+    synchronized (this) {
+      replaced = pending.put(axis, next);
+      schedule = !scheduled;
+      scheduled = true;
+    }
+    if (replaced != null) {
+      replaced.future.complete(null);
+    }
+    if (schedule) {
+      schedule();
+    }
+    return next.future;
+  }
+
+  /**
+   * Queues sending the next pending command once the interval has passed.
+   */
+  private void schedule() {
+    long delay;
+    synchronized (this) {
+      delay = nextSend - System.nanoTime();
+    }
+    if (delay > 0) {
+      SCHEDULER.schedule(() -> queue.submit(this::sendNext), delay, TimeUnit.NANOSECONDS);
+    } else {
+      queue.submit(this::sendNext);
+    }
+  }
+
+  /**
+   * Sends the oldest pending command, called by the command queue.
+   * @return Nothing.
+   */
+  private Void sendNext() {
+    PendingCommand next = null;
+    synchronized (this) {
+      Iterator<PendingCommand> iterator = pending.values().iterator();
+      if (iterator.hasNext()) {
+        next = iterator.next();
+        iterator.remove();
+      }
+    }
+
+    if (next != null && !next.future.isDone()) {
+      try {
+        next.command.send();
+        next.future.complete(null);
+      } catch (CameraConnectionException | CameraBusyException | RuntimeException e) {
+        next.future.completeExceptionally(e);
+      }
+    }
+
+    boolean schedule;
+    synchronized (this) {
+      nextSend = System.nanoTime() + interval;
+      schedule = !pending.isEmpty();
+      scheduled = schedule;
+    }
+    if (schedule) {
+      schedule();
+    }
+    return null;
+  }
+
+  /**
+   * Returns the minimum time between two commands.
+   * @return The interval in milliseconds.
+   */
+  public long getInterval() {
+    return TimeUnit.NANOSECONDS.toMillis(interval);
+  }
+
+  /**
+   * A command waiting to be sent.
+   */
+  private static class PendingCommand {
+
+    private final Command command;
+
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    /**
+     * Creates a pending command.
+     * @param command The command.
+     */
+    PendingCommand(Command command) {
+      this.command = command;
+    }
+  }
+}
@@ -8,18 +8,21 @@ import com.benine.backend.preset.IPCameraPreset;
 import com.benine.backend.video.StreamType;
 import org.json.simple.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class to communicate with an IP Camera from .
@@ -29,7 +32,7 @@ public class IPCamera extends BasicCamera implements MovingCamera,
 
   private String ipaddress;
 
-  private boolean busy = false;
+  private volatile boolean busy = false;
 
 
   public static final double HORIZONTAL_FOV_MIN = 3.3;
@@ -43,11 +46,37 @@ public class IPCamera extends BasicCamera implements MovingCamera,
   public static final int HOME_TILT = 180;
   public static final int HOME_PAN = 0;
 
+  /**
+   * Default time in milliseconds a command is waited for, including the commands
+   * queued before it.
+   */
+  public static final long DEFAULT_COMMAND_TIMEOUT = 5000;
+
   
-  private Map<String, String> attributes = new HashMap<>();
-  private Map<String, Long> timeStamps = new HashMap<>();
+  private Map<String, String> attributes = new ConcurrentHashMap<>();
+  private Map<String, Long> timeStamps = new ConcurrentHashMap<>();
   private Logger logger;
   private Config config;
+  private IPCameraCommandClient commandClient;
+  private CameraCommandQueue queue;
+  private CommandCoalescer coalescer;
+  private long commandTimeout;
+
+  /**
+   * The state read by the last successful refresh, null before the first one.
+   */
+  private volatile IPCameraState state;
+
+  /**
+   * True if the last refresh of the state failed.
+   */
+  private volatile boolean stateFailed = false;
+
+  /**
+   * The refresh of the state in progress, null if none is.
+   */
+  private final AtomicReference<CompletableFuture<IPCameraState>> refreshing =
+      new AtomicReference<>();
 
   /**
    *  Create a new IP Camera object.
@@ -59,7 +88,15 @@ public class IPCamera extends BasicCamera implements MovingCamera,
     ipaddress = ip;
     logger = cameraController.getLogger();
     config = cameraController.getConfig();
+    commandClient = new IPCameraCommandClient(ip,
+        config.getLong("camera_connect_timeout", IPCameraCommandClient.DEFAULT_CONNECT_TIMEOUT),
+        config.getLong("camera_read_timeout", IPCameraCommandClient.DEFAULT_READ_TIMEOUT));
+    queue = new CameraCommandQueue();
+    coalescer = new CommandCoalescer(queue,
+        config.getLong("camera_command_interval", CommandCoalescer.DEFAULT_INTERVAL));
+    commandTimeout = config.getLong("camera_command_timeout", DEFAULT_COMMAND_TIMEOUT);
   }
+
   
   /**
    * Supported range:
@@ -90,6 +127,7 @@ public class IPCamera extends BasicCamera implements MovingCamera,
    * Values must be between 1 and 99 otherwise they will be rounded.
    * Hereby is 1 max speed to left or downward.
    * 99 is max speed to right or upward.
+   * A move replaced by a newer one before it is sent is dropped.
    * @param pan movement direction over horizontal axis.
    * @param tilt movement direction over vertical axis.
    * @throws CameraConnectionException when command can not be completed.
@@ -97,14 +135,27 @@ public class IPCamera extends BasicCamera implements MovingCamera,
    */
   @Override
   public void move(int pan, int tilt) throws CameraConnectionException, CameraBusyException {
-    checkBusy();
+    await(moveAsync(pan, tilt));
+  }
+
+  /**
+   * Queues a move with the specified speed, see move.
+   * @param pan movement direction over horizontal axis.
+   * @param tilt movement direction over vertical axis.
+   * @return A future completed once the move is sent or replaced.
+   */
+  @Override
+  public CompletableFuture<Void> moveAsync(int pan, int tilt) {
     pan = Math.max(1, pan);
     pan = Math.min(99, pan);
     tilt = Math.max(1, tilt);
     tilt = Math.min(99, tilt);
     NumberFormat formatter = new DecimalFormat("00");
-    String res = sendControlCommand("%23PTS" + formatter.format(pan) + formatter.format(tilt));
-    verifyResponse(res, "pTS");
+    String cmd = "%23PTS" + formatter.format(pan) + formatter.format(tilt);
+    return coalescer.submit(CommandCoalescer.Axis.PAN_TILT, () -> {
+      checkBusy();
+      verifyResponse(sendControlCommand(cmd), "pTS");
+    });
   }
 
   @Override
@@ -229,17 +280,30 @@ public class IPCamera extends BasicCamera implements MovingCamera,
    * Values between 1 and 99 where 50 is stop focusing.
    * 1 is focus nearer with max speed
    * 99 is focus further with max speed
+   * A focus movement replaced by a newer one before it is sent is dropped.
    * @param speed value with which speed is focusing.
    * @throws CameraConnectionException when command can not be completed.
    * @throws CameraBusyException if camera is busy.
    */
   public void moveFocus(int speed) throws CameraConnectionException, CameraBusyException {
-    checkBusy();
+    await(moveFocusAsync(speed));
+  }
+
+  /**
+   * Queues a focus movement with the specified speed, see moveFocus.
+   * @param speed value with which speed is focusing.
+   * @return A future completed once the focus movement is sent or replaced.
+   */
+  @Override
+  public CompletableFuture<Void> moveFocusAsync(int speed) {
     speed = Math.max(1, speed);
     speed = Math.min(99, speed);
     NumberFormat formatter = new DecimalFormat("00");
-    String res = sendControlCommand("%23F" + formatter.format(speed));
-    verifyResponse(res, "fS");
+    String cmd = "%23F" + formatter.format(speed);
+    return coalescer.submit(CommandCoalescer.Axis.FOCUS, () -> {
+      checkBusy();
+      verifyResponse(sendControlCommand(cmd), "fS");
+    });
   }
 
   /**
@@ -322,17 +386,29 @@ public class IPCamera extends BasicCamera implements MovingCamera,
    * Values between 1 and 99 where 50 is stop moving.
    * 1 is close iris with max speed
    * 99 is open iris with max speed
+   * An iris movement replaced by a newer one before it is sent is dropped.
    * @param speed value with which speed iris is changing.
    * @throws CameraConnectionException when command can not be completed.
    * @throws CameraBusyException if camera is busy.
    */
   public void moveIris(int speed) throws CameraConnectionException, CameraBusyException {
-    checkBusy();
+    await(moveIrisAsync(speed));
+  }
+
+  /**
+   * Queues an iris movement with the specified speed, see moveIris.
+   * @param speed value with which speed iris is changing.
+   * @return A future completed once the iris movement is sent or replaced.
+   */
+  @Override
+  public CompletableFuture<Void> moveIrisAsync(int speed) {
     speed = Math.max(1, speed);
     speed = Math.min(99, speed);
-    speed = speed - 50;
-    int pos = getIrisPosition() + speed * 27;
-    setIrisPosition(pos);
+    int step = (speed - 50) * 27;
+    return coalescer.submit(CommandCoalescer.Axis.IRIS, () -> {
+      checkBusy();
+      setIrisPosition(getIrisPosition() + step);
+    });
   }
   
   /**
@@ -366,17 +442,30 @@ public class IPCamera extends BasicCamera implements MovingCamera,
    * Value between 1 and 99 where 51 is stop zoom.
    * 99 is max speed in tele direction.
    * 1 is max speed in wide direction.
+   * A zoom replaced by a newer one before it is sent is dropped.
    * @param dir zoom direction.
    * @throws CameraConnectionException when command can not be completed.
    * @throws CameraBusyException if camera is busy.
    */
   public void zoom(int dir) throws CameraConnectionException, CameraBusyException {
-    checkBusy();
+    await(zoomAsync(dir));
+  }
+
+  /**
+   * Queues a zoom with the specified speed, see zoom.
+   * @param dir zoom direction.
+   * @return A future completed once the zoom is sent or replaced.
+   */
+  @Override
+  public CompletableFuture<Void> zoomAsync(int dir) {
     dir = Math.max(1, dir);
     dir = Math.min(99, dir);
     NumberFormat formatter = new DecimalFormat("00");
-    String res = sendControlCommand("%23Z" + formatter.format(dir));
-    verifyResponse(res, "zS");
+    String cmd = "%23Z" + formatter.format(dir);
+    return coalescer.submit(CommandCoalescer.Axis.ZOOM, () -> {
+      checkBusy();
+      verifyResponse(sendControlCommand(cmd), "zS");
+    });
   }
   
   /**
@@ -388,39 +477,83 @@ public class IPCamera extends BasicCamera implements MovingCamera,
   }
   
   /**
-   * Method to send an HTTP command to the IP address of this camera.
+   * Method to send an HTTP command to the IP address of this camera,
+   * over a kept alive connection if possible.
+   * The command is queued behind the commands sent to this camera before it.
    * @param cmd command to send to the camera.
    * @return Response of the request.
    * @throws IpcameraConnectionException when the request fails.
    */
   public String sendCommand(String cmd) throws IpcameraConnectionException {
-    String res = "";
     logger.log("Send command: " + cmd + " to camera: " + getId(), LogEvent.Type.INFO);
     try {
-      URL url = new URL("http://" + ipaddress + "/cgi-bin/" + cmd);
-      URLConnection con = url.openConnection();
-      con.setConnectTimeout(1000);
-      con.setReadTimeout(1000);
-      InputStream in = con.getInputStream();
-      BufferedReader buf = new BufferedReader(new InputStreamReader(in, "UTF8"));
-      try { 
-        while (buf.ready()) {
-          res = res.concat(buf.readLine()).concat(" ");
-        }
-        res = res.substring(0, res.length() - 1);
-      } catch (IOException | StringIndexOutOfBoundsException excep) {
-        throw 
-          new IpcameraConnectionException("Sending command to camera at " + ipaddress 
-                                                                      + " failed", getId());
-      } finally {
-        buf.close();
-        in.close();
-      }
+      return await(queue.submit(() -> request(cmd)));
+    } catch (IpcameraConnectionException e) {
+      throw e;
+    } catch (CameraConnectionException | CameraBusyException e) {
+      throw new IpcameraConnectionException(e.getMessage(), getId());
+    }
+  }
+
+  /**
+   * Sends an HTTP command to this camera, called by the command queue.
+   * @param cmd command to send to the camera.
+   * @return Response of the request.
+   * @throws IpcameraConnectionException when the request fails.
+   */
+  private String request(String cmd) throws IpcameraConnectionException {
+    try {
+      return commandClient.send(cmd);
     } catch (IOException e) {
       throw new IpcameraConnectionException("Sending command to camera at " + ipaddress 
                                                                       + " failed", getId());
     }
-    return res;
+  }
+
+  /**
+   * Queues a call to this camera, which runs after the calls queued before it.
+   * Commands sent by the call are sent without queueing them again.
+   * @param call The call, for example a sequence of commands which should not be interleaved
+   *             with those of others.
+   * @param <T>  The type of the result of the call.
+   * @return A future completed with the result of the call.
+   */
+  public <T> CompletableFuture<T> submit(CameraCommandQueue.Call<T> call) {
+    return queue.submit(call);
+  }
+
+  /**
+   * Waits for a queued call to this camera, at most the command timeout.
+   * On a timeout the future is cancelled, so a call which has not run yet is not sent
+   * once the camera responds again.
+   * @param future The future of the call.
+   * @param <T>    The type of the result.
+   * @return The result of the call.
+   * @throws CameraConnectionException If the call failed, timed out or was interrupted.
+   * @throws CameraBusyException       If the camera is busy.
+   */
+  private <T> T await(CompletableFuture<T> future)
+          throws CameraConnectionException, CameraBusyException {
+    try {
+      return future.get(commandTimeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IpcameraConnectionException("Interrupted while waiting for the camera", getId());
+    } catch (TimeoutException e) {
+      future.cancel(false);
+      throw new IpcameraConnectionException("Camera at " + ipaddress + " did not respond within "
+          + commandTimeout + " ms", getId());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CameraConnectionException) {
+        throw (CameraConnectionException) cause;
+      } else if (cause instanceof CameraBusyException) {
+        throw (CameraBusyException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IpcameraConnectionException(cause.toString(), getId());
+    }
   }
   
   /**
@@ -434,12 +567,151 @@ public class IPCamera extends BasicCamera implements MovingCamera,
   }
   
   /**
-   * Returns a JSON representation of this camera.
+   * Reads the position, zoom, focus, iris and auto modes of the camera.
+   * The values are read from the camera, not from the values saved in the last 2 seconds.
+   * @return The new state of the camera.
+   * @throws CameraConnectionException when the state can not be read.
+   */
+  public IPCameraState refreshState() throws CameraConnectionException {
+    try {
+      // The refresh is shared with other callers, so a timeout only cancels this wait.
+      return await(refreshStateAsync().thenApply(state -> state));
+    } catch (CameraBusyException e) {
+      throw new IpcameraConnectionException(e.getMessage(), getId());
+    }
+  }
+
+  /**
+   * Queues a refresh of the state, unless a refresh is queued already.
+   * Every value is read by a separate background call, so the commands of an operator
+   * are sent in between them.
+   * @return A future completed with the new state, or exceptionally if it can not be read.
+   */
+  public CompletableFuture<IPCameraState> refreshStateAsync() {
+    CompletableFuture<IPCameraState> running = refreshing.get();
+    while (running == null) {
+      CompletableFuture<IPCameraState> refresh = new CompletableFuture<>();
+      if (refreshing.compareAndSet(null, refresh)) {
+        readState(refresh);
+        return refresh;
+      }
+      running = refreshing.get();
+    }
+    return running;
+  }
+
+  /**
+   * Queues the background calls reading the state of the camera.
+   * @param refresh The future to complete with the new state.
+   */
+  private void readState(CompletableFuture<IPCameraState> refresh) {
+    timeStamps.clear();
+    AtomicBoolean failed = new AtomicBoolean();
+    CompletableFuture<Position> position = readInBackground(failed, this::getPosition);
+    CompletableFuture<Integer> zoom = readInBackground(failed, this::getZoom);
+    CompletableFuture<Integer> focus = readInBackground(failed, this::getFocusPosition);
+    CompletableFuture<Boolean> autoFocus = readInBackground(failed,
+        () -> Integer.parseInt(getValue("%23D1", "d1")) == 1);
+    CompletableFuture<Integer> iris = readInBackground(failed, this::getIrisPosition);
+    CompletableFuture<Boolean> autoIris = readInBackground(failed,
+        () -> Integer.parseInt(getValue("%23D3", "d3")) == 1);
+
+    CompletableFuture.allOf(position, zoom, focus, autoFocus, iris, autoIris)
+        .whenComplete((done, failure) -> {
+          try {
+            IPCameraState newState = new IPCameraState(
+                new ZoomPosition(position.join(), zoom.join()),
+                new FocusValue(focus.join(), autoFocus.join()),
+                new IrisValue(iris.join(), autoIris.join()), System.currentTimeMillis());
+            state = newState;
+            setStateFailed(false);
+            refreshing.set(null);
+            refresh.complete(newState);
+          } catch (CompletionException e) {
+            setStateFailed(true);
+            refreshing.set(null);
+            refresh.completeExceptionally(e.getCause());
+          }
+        });
+  }
+
+  /**
+   * Queues a background call reading a value of the state of the camera.
+   * Once a value could not be read, the values queued after it are not read.
+   * @param failed  Set when a value of the same refresh could not be read.
+   * @param read    The call reading the value.
+   * @param <T>     The type of the value.
+   * @return A future completed with the value.
+   */
+  private <T> CompletableFuture<T> readInBackground(AtomicBoolean failed,
+                                                   CameraCommandQueue.Call<T> read) {
+    return queue.submitBackground(() -> {
+      if (failed.get()) {
+        throw new IpcameraConnectionException("State of camera " + getId()
+            + " not read after an earlier failure", getId());
+      }
+      try {
+        return read.call();
+      } catch (CameraConnectionException | CameraBusyException | RuntimeException e) {
+        failed.set(true);
+        throw e;
+      }
+    });
+  }
+
+  /**
+   * Records if the last refresh of the state failed, logging when it starts or stops failing.
+   * @param failed true if the refresh failed.
+   */
+  private void setStateFailed(boolean failed) {
+    if (failed && !stateFailed) {
+      logger.log("State of camera " + getId() + " could not be read.", LogEvent.Type.WARNING);
+    } else if (!failed && stateFailed) {
+      logger.log("State of camera " + getId() + " can be read again.", LogEvent.Type.INFO);
+    }
+    stateFailed = failed;
+  }
+
+  /**
+   * Returns the state read by the last successful refresh.
+   * @return The state, or null if it was never read.
+   */
+  public IPCameraState getState() {
+    return state;
+  }
+
+  /**
+   * Returns if the state is known and the last refresh succeeded.
+   * @return true if the state is available.
+   */
+  public boolean isStateAvailable() {
+    return state != null && !stateFailed;
+  }
+
+  /**
+   * Returns if the last refresh of the state failed.
+   * The state read by the refresh before it is still returned by getState.
+   * @return true if the last refresh failed.
+   */
+  public boolean isStateFailed() {
+    return stateFailed;
+  }
+
+  /**
+   * Returns a JSON representation of this camera, from the state read by the last
+   * successful refresh. Whether that state is outdated can be read from isStateFailed
+   * and the time of the state.
    * @return A JSON representation of this camera.
+   * @throws CameraConnectionException when the state of the camera was never read.
    */
   @Override
-  public JSONObject toJSON() throws CameraConnectionException, CameraBusyException {
+  public JSONObject toJSON() throws CameraConnectionException {
     logger.log("JSON representation requested for camera " + getId(), LogEvent.Type.INFO);
+    IPCameraState snapshot = state;
+    if (snapshot == null) {
+      throw new IpcameraConnectionException("State of camera " + getId() + " is not available",
+          getId());
+    }
     JSONObject json = new JSONObject();
     json.put("id", this.getId());
     json.put("inuse", isInUse());
@@ -447,8 +719,8 @@ public class IPCamera extends BasicCamera implements MovingCamera,
     json.put("zoom", true);
     json.put("focus", true);
     json.put("iris", true);
-    json.put("autofocus", isAutoFocusOn());
-    json.put("autoiris", isAutoIrisOn());
+    json.put("autofocus", snapshot.getFocus().isAutofocus());
+    json.put("autoiris", snapshot.getIris().isAutoiris());
     json.put("busy", isBusy());
     return  json;
   }
@@ -0,0 +1,151 @@
+package com.benine.backend.camera.ipcameracontrol;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends the HTTP commands of one IP camera over persistent connections.
+ * All cameras share an HTTP client, which keeps a small pool of keep-alive connections
+ * to every camera, so a command does not have to set up a new connection.
+ * The responses are framed by their Content-Length or chunked encoding.
+ */
+public class IPCameraCommandClient {
+
+  /**
+   * Default time in milliseconds to wait for a connection to the camera.
+   */
+  public static final long DEFAULT_CONNECT_TIMEOUT = 1000;
+
+  /**
+   * Default time in milliseconds to wait for the response of the camera.
+   */
+  public static final long DEFAULT_READ_TIMEOUT = 1000;
+
+  /**
+   * Maximum amount of connections to a single camera.
+   */
+  private static final int MAX_CONNECTIONS = 2;
+
+  /**
+   * Time after which an unused connection is closed, cameras close theirs after a while too.
+   */
+  private static final long IDLE_TIMEOUT = 15000;
+
+  /**
+   * Amount of selectors of a client. Every selector holds a thread of the pool,
+   * so the client does not use its default of one per two processors.
+   */
+  private static final int SELECTORS = 1;
+
+  /**
+   * Maximum amount of threads handling the responses, next to the selector threads.
+   */
+  private static final int MAX_THREADS = 8;
+
+  /**
+   * The shared clients by their connect timeout, which can only be set per client.
+   */
+  private static final Map<Long, HttpClient> CLIENTS = new ConcurrentHashMap<>();
+
+  private final HttpClient client;
+
+  private final String address;
+
+  private final long readTimeout;
+
+  /**
+   * Creates a command client for a camera.
+   * @param address         The address of the camera, as host or host:port.
+   * @param connectTimeout  The time in milliseconds to wait for a connection.
+   * @param readTimeout     The time in milliseconds to wait for a response.
+   */
+  public IPCameraCommandClient(String address, long connectTimeout, long readTimeout) {
+    this.client = getClient(connectTimeout);
+    this.address = address;
+    this.readTimeout = readTimeout;
+  }
+
+  /**
+   * Returns the shared client with a connect timeout, starting it the first time.
+   * @param connectTimeout The connect timeout in milliseconds.
+   * @return The started HttpClient.
+   */
+  private static HttpClient getClient(long connectTimeout) {
+    return CLIENTS.computeIfAbsent(connectTimeout, IPCameraCommandClient::startClient);
+  }
+
+  /**
+   * Creates and starts an HTTP client.
+   * @param connectTimeout The connect timeout in milliseconds.
+   * @return The started HttpClient.
+   */
+  private static HttpClient startClient(long connectTimeout) {
+    HttpClient client = new HttpClient(new HttpClientTransportOverHTTP(SELECTORS), null);
+
+    QueuedThreadPool threads = new QueuedThreadPool(SELECTORS + MAX_THREADS, SELECTORS + 1);
+    threads.setName("IPCameraCommands");
+    threads.setDaemon(true);
+    client.setExecutor(threads);
+    client.setConnectTimeout(connectTimeout);
+    client.setIdleTimeout(IDLE_TIMEOUT);
+    client.setMaxConnectionsPerDestination(MAX_CONNECTIONS);
+    client.setFollowRedirects(false);
+
+    try {
+      client.start();
+    } catch (Exception e) {
+      throw new IllegalStateException("Could not start the IP camera command client", e);
+    }
+    return client;
+  }
+
+  /**
+   * Sends a command to the camera and waits for the response.
+   * @param cmd The command, the path and query after /cgi-bin/.
+   * @return The response, its lines separated by a space.
+   * @throws IOException If the camera cannot be reached, does not respond in time
+   *                     or responds with an error status.
+   */
+  public String send(String cmd) throws IOException {
+    ContentResponse response;
+    try {
+      Request request = client.newRequest("http://" + address + "/cgi-bin/" + cmd);
+      if (request.getHost() == null) {
+        throw new IOException("Invalid camera address " + address);
+      }
+      response = request.idleTimeout(readTimeout, TimeUnit.MILLISECONDS)
+              .timeout(client.getConnectTimeout() + readTimeout, TimeUnit.MILLISECONDS)
+              .send();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while sending " + cmd, e);
+    } catch (TimeoutException | ExecutionException | IllegalArgumentException e) {
+      throw new IOException("Could not send " + cmd + " to " + address, e);
+    }
+
+    if (response.getStatus() != HttpStatus.OK_200) {
+      throw new IOException("Camera at " + address + " responded with status "
+              + response.getStatus());
+    }
+    return String.join(" ", response.getContentAsString().split("\r?\n"));
+  }
+
+  /**
+   * Returns the address of the camera.
+   * @return The address.
+   */
+  public String getAddress() {
+    return address;
+  }
+}
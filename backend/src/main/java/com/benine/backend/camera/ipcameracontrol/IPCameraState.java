@@ -0,0 +1,56 @@
+package com.benine.backend.camera.ipcameracontrol;
+
+import com.benine.backend.camera.ZoomPosition;
+
+/**
+ * Snapshot of the state of an IP camera, as read by the camera state poller.
+ */
+public class IPCameraState {
+
+  private final ZoomPosition position;
+  private final FocusValue focus;
+  private final IrisValue iris;
+  private final long time;
+
+  /**
+   * Constructs a snapshot of the state of a camera.
+   * @param position  The position and zoom of the camera.
+   * @param focus     The focus position and auto focus of the camera.
+   * @param iris      The iris position and auto iris of the camera.
+   * @param time      The time the state was read in milliseconds since the epoch.
+   */
+  public IPCameraState(ZoomPosition position, FocusValue focus, IrisValue iris, long time) {
+    this.position = position;
+    this.focus = focus;
+    this.iris = iris;
+    this.time = time;
+  }
+
+  public ZoomPosition getPosition() {
+    return position;
+  }
+
+  public FocusValue getFocus() {
+    return focus;
+  }
+
+  public IrisValue getIris() {
+    return iris;
+  }
+
+  public long getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return "IPCameraState{"
+            + "position=" + position
+            + ",focus=" + focus.getFocus()
+            + ",autofocus=" + focus.isAutofocus()
+            + ",iris=" + iris.getIris()
+            + ",autoiris=" + iris.isAutoiris()
+            + ",time=" + time
+            + '}';
+  }
+}
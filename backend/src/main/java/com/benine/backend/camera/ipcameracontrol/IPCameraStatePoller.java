@@ -0,0 +1,94 @@
+package com.benine.backend.camera.ipcameracontrol;
+
+import com.benine.backend.camera.Camera;
+
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Refreshes the state of all IP cameras in the background, so their JSON representation
+ * can be served from the last state read instead of asking the camera on every request.
+ * The cameras are refreshed in parallel, each on its own command queue, and a camera still
+ * refreshing when the next poll starts is skipped.
+ */
+public class IPCameraStatePoller {
+
+  /**
+   * Default time in milliseconds between two refreshes of the state of a camera.
+   * A refresh sends six commands, and the web interface lists the cameras every two seconds.
+   */
+  public static final long DEFAULT_INTERVAL = 2000;
+
+  private final Supplier<Collection<? extends Camera>> cameras;
+
+  private final long interval;
+
+  private final ScheduledExecutorService scheduler;
+
+  private ScheduledFuture<?> polling;
+
+  /**
+   * Creates a poller.
+   * @param cameras   Supplies the cameras to poll, only the IP cameras are polled.
+   * @param interval  The time in milliseconds between two polls.
+   */
+  public IPCameraStatePoller(Supplier<Collection<? extends Camera>> cameras, long interval) {
+    this.cameras = cameras;
+    this.interval = Math.max(1, interval);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "IPCameraStatePoller");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts polling, the first poll starts immediately.
+   */
+  public synchronized void start() {
+    if (polling == null) {
+      polling = scheduler.scheduleWithFixedDelay(this::poll, 0, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Stops polling, refreshes in progress are completed.
+   */
+  public synchronized void stop() {
+    if (polling != null) {
+      polling.cancel(false);
+      polling = null;
+    }
+  }
+
+  /**
+   * Queues a refresh of the state of every IP camera.
+   */
+  public void poll() {
+    for (Camera camera : cameras.get()) {
+      if (camera instanceof IPCamera) {
+        ((IPCamera) camera).refreshStateAsync();
+      }
+    }
+  }
+
+  /**
+   * Returns if the poller is started.
+   * @return true if polling.
+   */
+  public synchronized boolean isPolling() {
+    return polling != null;
+  }
+
+  /**
+   * Returns the time between two polls.
+   * @return The interval in milliseconds.
+   */
+  public long getInterval() {
+    return interval;
+  }
+}
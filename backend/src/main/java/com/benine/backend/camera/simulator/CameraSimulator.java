@@ -0,0 +1,236 @@
+package com.benine.backend.camera.simulator;
+
+import com.benine.backend.LogEvent;
+import com.benine.backend.Logger;
+import com.benine.backend.http.MJPEGHeader;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves simulated Panasonic IP camera's on the loopback interface.
+ * Every camera gets its own port, on which it serves the cgi-bin/mjpeg stream,
+ * the cgi-bin/aw_ptz commands and the cgi-bin/getinfo information like a real camera,
+ * so an IPCamera can be pointed at it. All camera's share one server and thread pool.
+ */
+public class CameraSimulator {
+
+  private static final String HOST = "127.0.0.1";
+
+  /**
+   * Maximum amount of threads, every connected stream uses a thread.
+   */
+  private static final int MAX_THREADS = 512;
+
+  private static final String BOUNDARY = "--BOUNDARY";
+
+  private final Server server;
+
+  private final Logger logger;
+
+  /**
+   * The simulated camera's by their port.
+   */
+  private final Map<Integer, SimulatedCamera> cameras;
+
+  /**
+   * Creates a simulator, its server is started when the first camera is added.
+   * @param logger The logger to log the simulator events to.
+   */
+  public CameraSimulator(Logger logger) {
+    this.logger = logger;
+    this.cameras = new ConcurrentHashMap<>();
+
+    QueuedThreadPool threads = new QueuedThreadPool(MAX_THREADS, 2);
+    threads.setName("CameraSimulator");
+    threads.setDaemon(true);
+    this.server = new Server(threads);
+    server.setHandler(new SimulatorHandler());
+  }
+
+  /**
+   * Adds a simulated camera on a new port.
+   * @param fixture     The frames the camera streams.
+   * @param fps         The frames per second of the stream.
+   * @param macAddress  The MAC address the camera reports.
+   * @return The address of the camera, as host:port.
+   * @throws IOException If the camera cannot be served.
+   */
+  public synchronized String addCamera(MJPEGFixture fixture, double fps, String macAddress)
+          throws IOException {
+    ServerConnector connector = new ServerConnector(server, 0, 1);
+    connector.setHost(HOST);
+    connector.setPort(0);
+    server.addConnector(connector);
+
+    try {
+      if (server.isStarted()) {
+        connector.start();
+      } else {
+        server.start();
+      }
+    } catch (Exception e) {
+      server.removeConnector(connector);
+      throw new IOException("Could not start simulated camera", e);
+    }
+
+    int port = connector.getLocalPort();
+    cameras.put(port, new SimulatedCamera(fixture, fps, macAddress));
+    logger.log("Simulated camera " + macAddress + " running at " + HOST + ":" + port
+            + " with " + fixture.size() + " frames at " + fps + " fps.", LogEvent.Type.INFO);
+
+    return HOST + ":" + port;
+  }
+
+  /**
+   * Returns the amount of simulated camera's.
+   * @return The amount of camera's.
+   */
+  public int getCameraCount() {
+    return cameras.size();
+  }
+
+  /**
+   * Stops all simulated camera's.
+   */
+  public synchronized void stop() {
+    try {
+      server.stop();
+    } catch (Exception e) {
+      logger.log("Could not stop the camera simulator", e);
+    }
+    cameras.clear();
+  }
+
+  /**
+   * Dispatches the requests to the simulated camera of the port they were received on.
+   */
+  private class SimulatorHandler extends AbstractHandler {
+
+    @Override
+    public void handle(String target, Request request, HttpServletRequest req,
+                       HttpServletResponse res) throws IOException {
+      request.setHandled(true);
+      SimulatedCamera camera = cameras.get(request.getLocalPort());
+
+      if (camera == null) {
+        res.sendError(HttpServletResponse.SC_NOT_FOUND);
+      } else if (target.equals("/cgi-bin/mjpeg")) {
+        camera.stream(res);
+      } else if (target.equals("/cgi-bin/aw_ptz")) {
+        respond(res, camera.getResponder().respond(request.getParameter("cmd")));
+      } else if (target.equals("/cgi-bin/getinfo")) {
+        respond(res, "MAC=" + camera.getMacAddress() + " NAME=AW-SIMULATED");
+      } else {
+        res.sendError(HttpServletResponse.SC_NOT_FOUND);
+      }
+    }
+
+    /**
+     * Writes a plain text response.
+     * @param res   The response to write to.
+     * @param body  The body of the response.
+     * @throws IOException If the response cannot be written.
+     */
+    private void respond(HttpServletResponse res, String body) throws IOException {
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+      res.setStatus(HttpServletResponse.SC_OK);
+      res.setContentType("text/plain; charset=utf-8");
+      res.setContentLength(bytes.length);
+      res.getOutputStream().write(bytes);
+    }
+  }
+
+  /**
+   * A simulated camera, replaying its fixture to every connected stream.
+   */
+  private class SimulatedCamera {
+
+    private final MJPEGFixture fixture;
+
+    /**
+     * Time between two frames in nanoseconds.
+     */
+    private final long interval;
+
+    private final String macAddress;
+
+    private final PTZResponder responder;
+
+    /**
+     * Creates a simulated camera.
+     * @param fixture     The frames to stream.
+     * @param fps         The frames per second.
+     * @param macAddress  The MAC address of the camera.
+     */
+    SimulatedCamera(MJPEGFixture fixture, double fps, String macAddress) {
+      this.fixture = fixture;
+      this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / fps);
+      this.macAddress = macAddress;
+      this.responder = new PTZResponder();
+    }
+
+    /**
+     * Streams the fixture in a loop until the client disconnects or the simulator stops.
+     * Frames are sent on a fixed schedule, a client which falls behind skips the delay
+     * instead of receiving a burst of frames.
+     * @param res The response to stream to.
+     * @throws IOException If the response cannot be written.
+     */
+    void stream(HttpServletResponse res) throws IOException {
+      res.setStatus(HttpServletResponse.SC_OK);
+      res.setContentType(MJPEGHeader.CONTENT_TYPE.getContents() + BOUNDARY);
+      res.setHeader("Cache-Control", MJPEGHeader.CACHE_CONTROL.getContents());
+      OutputStream out = res.getOutputStream();
+
+      long next = System.nanoTime();
+      for (long frame = 0; server.isRunning(); frame++) {
+        fixture.getFrame(frame).writeTo(out);
+        out.flush();
+
+        next += interval;
+        long delay = next - System.nanoTime();
+        if (delay < 0) {
+          next -= delay;
+        } else if (!sleep(delay)) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Sleeps until the next frame is due.
+     * @param nanos The time to sleep in nanoseconds.
+     * @return false if interrupted, true otherwise.
+     */
+    private boolean sleep(long nanos) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(nanos);
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+
+    PTZResponder getResponder() {
+      return responder;
+    }
+
+    String getMacAddress() {
+      return macAddress;
+    }
+  }
+}
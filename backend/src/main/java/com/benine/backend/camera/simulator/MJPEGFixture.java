@@ -0,0 +1,119 @@
+package com.benine.backend.camera.simulator;
+
+import com.benine.backend.video.MJPEGFrameHeader;
+import com.benine.backend.video.MJPEGFrameParser;
+import com.benine.backend.video.MJPEGFrameResizer;
+import com.benine.backend.video.VideoFrame;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The frames of a recorded stream, replayed by a simulated camera.
+ * The frames are resized once when loaded, so replaying them costs no encoding.
+ */
+public class MJPEGFixture {
+
+  private final List<VideoFrame> frames;
+
+  /**
+   * Creates a fixture of frames.
+   * @param frames The frames, at least one.
+   */
+  public MJPEGFixture(List<VideoFrame> frames) {
+    if (frames.isEmpty()) {
+      throw new IllegalArgumentException("A fixture needs at least one frame");
+    }
+    this.frames = Collections.unmodifiableList(new ArrayList<>(frames));
+  }
+
+  /**
+   * Loads a fixture from a recorded MJPEG stream, or from a single JPEG image.
+   * @param file    The .mjpg file or .jpg image.
+   * @param width   The width to resize the frames to, 0 to keep their size.
+   * @param height  The height to resize the frames to, 0 to keep their size.
+   * @return The MJPEGFixture.
+   * @throws IOException If the file cannot be read or contains no frames.
+   */
+  public static MJPEGFixture load(File file, int width, int height) throws IOException {
+    List<VideoFrame> frames = isImage(file) ? readImage(file) : readStream(file);
+    if (frames.isEmpty()) {
+      throw new IOException("No frames found in " + file);
+    }
+
+    if (width > 0 && height > 0) {
+      MJPEGFrameResizer resizer = new MJPEGFrameResizer(width, height);
+      for (int i = 0; i < frames.size(); i++) {
+        frames.set(i, resizer.resize(frames.get(i)));
+      }
+    }
+    return new MJPEGFixture(frames);
+  }
+
+  /**
+   * Checks if a file is a single JPEG image by its extension.
+   * @param file The file.
+   * @return true if the file is an image, false if it is a stream.
+   */
+  private static boolean isImage(File file) {
+    String name = file.getName().toLowerCase();
+    return name.endsWith(".jpg") || name.endsWith(".jpeg");
+  }
+
+  /**
+   * Reads a single image as a frame.
+   * @param file The image file.
+   * @return A list containing the frame.
+   * @throws IOException If the file cannot be read.
+   */
+  private static List<VideoFrame> readImage(File file) throws IOException {
+    byte[] image = Files.readAllBytes(file.toPath());
+    List<VideoFrame> frames = new ArrayList<>();
+    frames.add(new VideoFrame(new MJPEGFrameHeader(image.length), image));
+    return frames;
+  }
+
+  /**
+   * Reads all frames of a recorded MJPEG stream.
+   * @param file The stream file.
+   * @return The frames in the file.
+   * @throws IOException If the file cannot be read.
+   */
+  private static List<VideoFrame> readStream(File file) throws IOException {
+    List<VideoFrame> frames = new ArrayList<>();
+    MJPEGFrameParser parser = new MJPEGFrameParser();
+
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      while (true) {
+        frames.add(parser.readFrame(in));
+      }
+    } catch (EOFException e) {
+      return frames;
+    }
+  }
+
+  /**
+   * Returns a frame of the fixture, the fixture loops after its last frame.
+   * @param index The index of the frame, any non negative number.
+   * @return The VideoFrame.
+   */
+  public VideoFrame getFrame(long index) {
+    return frames.get((int) (index % frames.size()));
+  }
+
+  /**
+   * Returns the amount of frames in the fixture.
+   * @return The amount of frames.
+   */
+  public int size() {
+    return frames.size();
+  }
+}
@@ -0,0 +1,209 @@
+package com.benine.backend.camera.simulator;
+
+/**
+ * Responds to the aw_ptz commands of a Panasonic camera like the real camera does,
+ * keeping track of the pan, tilt, zoom, focus and iris of a simulated camera.
+ * Continuous movements started with a speed command are applied over the elapsed time.
+ */
+public class PTZResponder {
+
+  private static final int MIN_PAN = 0x2D0A;
+  private static final int MAX_PAN = 0xD2F7;
+  private static final int MIN_TILT = 0x1C74;
+  private static final int MAX_TILT = 0x8E39;
+
+  /**
+   * Range of the zoom, focus and iris positions.
+   */
+  private static final int MIN_POSITION = 0x555;
+  private static final int MAX_POSITION = 0xFFF;
+
+  /**
+   * Speed value at which a continuous movement stops.
+   */
+  private static final int STOP = 50;
+
+  /**
+   * Position units moved per second at the maximum speed of a continuous movement.
+   */
+  private static final double PAN_TILT_RATE = 0x4000;
+  private static final double LENS_RATE = 0x400;
+
+  private static final String ERROR = "er1";
+
+  private double pan;
+  private double tilt;
+  private double zoom;
+  private double focus;
+  private int iris;
+
+  private boolean autoFocus;
+  private boolean autoIris;
+
+  private int panSpeed;
+  private int tiltSpeed;
+  private int zoomSpeed;
+  private int focusSpeed;
+
+  /**
+   * Time in nanoseconds up to which the continuous movements are applied.
+   */
+  private long updated;
+
+  /**
+   * Creates a responder for a camera looking straight ahead, fully zoomed out.
+   */
+  public PTZResponder() {
+    this.pan = 0x8000;
+    this.tilt = 0x2AAD;
+    this.zoom = MIN_POSITION;
+    this.focus = MIN_POSITION;
+    this.iris = 0x800;
+    this.autoFocus = true;
+    this.autoIris = true;
+    this.panSpeed = STOP;
+    this.tiltSpeed = STOP;
+    this.zoomSpeed = STOP;
+    this.focusSpeed = STOP;
+    this.updated = System.nanoTime();
+  }
+
+  /**
+   * Executes a command and returns the response of the camera.
+   * @param cmd The command, starting with #.
+   * @return The response, er1 if the command is not supported.
+   */
+  public synchronized String respond(String cmd) {
+    if (cmd == null || !cmd.startsWith("#")) {
+      return ERROR;
+    }
+    advance();
+
+    try {
+      return execute(cmd.substring(1));
+    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+      return ERROR;
+    }
+  }
+
+  /**
+   * Executes a command.
+   * @param cmd The command without #.
+   * @return The response.
+   */
+  private String execute(String cmd) {
+    if (cmd.startsWith("APS")) {
+      pan = clamp(parseHex(cmd, 3, 7), MIN_PAN, MAX_PAN);
+      tilt = clamp(parseHex(cmd, 7, 11), MIN_TILT, MAX_TILT);
+      return "aPS" + cmd.substring(3);
+    } else if (cmd.equals("APC")) {
+      return "aPC" + toHex((int) pan, 4) + toHex((int) tilt, 4);
+    } else if (cmd.startsWith("PTS")) {
+      panSpeed = Integer.parseInt(cmd.substring(3, 5));
+      tiltSpeed = Integer.parseInt(cmd.substring(5, 7));
+      return "pTS" + cmd.substring(3);
+    } else if (cmd.startsWith("AXZ")) {
+      zoom = clamp(parseHex(cmd, 3, cmd.length()), MIN_POSITION, MAX_POSITION);
+      return "axz" + cmd.substring(3);
+    } else if (cmd.equals("GZ")) {
+      return "gz" + toHex((int) zoom, 3);
+    } else if (cmd.startsWith("Z")) {
+      zoomSpeed = Integer.parseInt(cmd.substring(1));
+      return "zS" + cmd.substring(1);
+    } else if (cmd.startsWith("AXF")) {
+      focus = clamp(parseHex(cmd, 3, cmd.length()), MIN_POSITION, MAX_POSITION);
+      return "axf" + cmd.substring(3);
+    } else if (cmd.equals("GF")) {
+      return "gf" + toHex((int) focus, 3);
+    } else if (cmd.startsWith("F")) {
+      focusSpeed = Integer.parseInt(cmd.substring(1));
+      return "fS" + cmd.substring(1);
+    } else if (cmd.startsWith("AXI")) {
+      iris = (int) clamp(parseHex(cmd, 3, cmd.length()), MIN_POSITION, MAX_POSITION);
+      return "axi" + cmd.substring(3);
+    } else if (cmd.equals("GI")) {
+      return "gi" + toHex(iris, 3) + (autoIris ? "1" : "0");
+    } else if (cmd.startsWith("D1")) {
+      autoFocus = setOrGet(cmd, autoFocus);
+      return "d1" + (autoFocus ? "1" : "0");
+    } else if (cmd.startsWith("D3")) {
+      autoIris = setOrGet(cmd, autoIris);
+      return "d3" + (autoIris ? "1" : "0");
+    }
+    return ERROR;
+  }
+
+  /**
+   * Applies the continuous movements up to now.
+   */
+  private void advance() {
+    long now = System.nanoTime();
+    double seconds = (now - updated) / 1e9;
+    updated = now;
+
+    pan = clamp(pan + velocity(panSpeed, PAN_TILT_RATE) * seconds, MIN_PAN, MAX_PAN);
+    tilt = clamp(tilt + velocity(tiltSpeed, PAN_TILT_RATE) * seconds, MIN_TILT, MAX_TILT);
+    zoom = clamp(zoom + velocity(zoomSpeed, LENS_RATE) * seconds, MIN_POSITION, MAX_POSITION);
+    focus = clamp(focus + velocity(focusSpeed, LENS_RATE) * seconds, MIN_POSITION,
+            MAX_POSITION);
+  }
+
+  /**
+   * Converts a speed between 1 and 99 to the units moved per second.
+   * @param speed The speed, 50 is stopped.
+   * @param rate  The units per second at the maximum speed.
+   * @return The velocity, negative for speeds below 50.
+   */
+  private static double velocity(int speed, double rate) {
+    return (speed - STOP) / (double) (STOP - 1) * rate;
+  }
+
+  /**
+   * Sets a switch if the command has a value, else returns its current value.
+   * @param cmd     The command, with or without a value after its 2 characters.
+   * @param current The current value of the switch.
+   * @return The new value of the switch.
+   */
+  private static boolean setOrGet(String cmd, boolean current) {
+    if (cmd.length() > 2) {
+      return Integer.parseInt(cmd.substring(2)) == 1;
+    }
+    return current;
+  }
+
+  /**
+   * Parses a hexadecimal argument of a command.
+   * @param cmd   The command.
+   * @param start The position of the argument.
+   * @param end   The position after the argument.
+   * @return The value of the argument.
+   */
+  private static int parseHex(String cmd, int start, int end) {
+    return Integer.parseInt(cmd.substring(start, end), 16);
+  }
+
+  /**
+   * Limits a value to a range.
+   * @param value The value.
+   * @param min   The minimum.
+   * @param max   The maximum.
+   * @return The limited value.
+   */
+  private static double clamp(double value, int min, int max) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  /**
+   * Formats a value as upper case hexadecimal with leading zeros.
+   * @param value   The value.
+   * @param digits  The amount of digits.
+   * @return The hexadecimal representation.
+   */
+  private static String toHex(int value, int digits) {
+    String hex = Integer.toHexString(value).toUpperCase();
+    while (hex.length() < digits) {
+      hex = "0" + hex;
+    }
+    return hex;
+  }
+}
@@ -0,0 +1,170 @@
+package com.benine.backend.camera.simulator;
+
+import com.benine.backend.Config;
+import com.benine.backend.LogEvent;
+import com.benine.backend.Logger;
+import com.benine.backend.camera.CameraController;
+import com.benine.backend.camera.CameraFactory;
+import com.benine.backend.camera.InvalidCameraTypeException;
+import com.benine.backend.camera.ipcameracontrol.IPCamera;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates IP camera's connected to simulated camera's, which replay a recorded stream.
+ * The fixture, frame rate and resolution are read from camera_i_fixture, camera_i_fps and
+ * camera_i_resolution, falling back to simulator_fixture, simulator_fps and
+ * simulator_resolution so many camera's can share one configuration.
+ */
+public class SimulatedCameraFactory implements CameraFactory {
+
+  private static final double DEFAULT_FPS = 25;
+
+  private final CameraController cameraController;
+
+  private final Logger logger;
+
+  private CameraSimulator simulator;
+
+  /**
+   * Loaded fixtures by their file and resolution, shared by the camera's replaying them.
+   */
+  private final Map<String, MJPEGFixture> fixtures;
+
+  /**
+   * Constructs a SimulatedCameraFactory for the specified cameracontroller.
+   * @param cameraController this factory is used for.
+   */
+  public SimulatedCameraFactory(CameraController cameraController) {
+    this.cameraController = cameraController;
+    this.logger = cameraController.getLogger();
+    this.fixtures = new HashMap<>();
+  }
+
+  /**
+   * Creates a simulated camera as specified in the config.
+   * @param index of the camera in the config file.
+   * @return IPCamera object controlling the simulated camera.
+   * @throws InvalidCameraTypeException when the simulated camera can not be created.
+   */
+  @Override
+  public synchronized IPCamera createCamera(int index) throws InvalidCameraTypeException {
+    String fixturePath = getValue(index, "fixture");
+    if (fixturePath == null) {
+      logger.log("Simulated camera: " + index
+              + " has no fixture specified in the config", LogEvent.Type.CRITICAL);
+      throw new InvalidCameraTypeException("Type of camera is not right specified");
+    }
+
+    try {
+      double fps = parseFps(getValue(index, "fps"));
+      int[] resolution = parseResolution(getValue(index, "resolution"));
+      MJPEGFixture fixture = getFixture(new File(fixturePath), resolution[0], resolution[1]);
+
+      if (simulator == null) {
+        simulator = new CameraSimulator(logger);
+      }
+      String address = simulator.addCamera(fixture, fps, getMacAddress(index));
+      return new IPCamera(address, cameraController);
+
+    } catch (IOException | IllegalArgumentException e) {
+      logger.log("Simulated camera: " + index + " can not be created: " + e.getMessage(),
+              LogEvent.Type.CRITICAL);
+      throw new InvalidCameraTypeException("Simulated camera can not be created");
+    }
+  }
+
+  /**
+   * Returns a value of a camera, or the default value of all simulated camera's.
+   * @param index The index of the camera.
+   * @param key   The key of the value.
+   * @return The value, null if not specified.
+   */
+  private String getValue(int index, String key) {
+    Config config = cameraController.getConfig();
+    String value = config.getValue("camera_" + index + "_" + key);
+    if (value == null) {
+      value = config.getValue("simulator_" + key);
+    }
+    return value;
+  }
+
+  /**
+   * Parses the frames per second.
+   * @param fps The frames per second, null for the default.
+   * @return The positive frames per second.
+   */
+  static double parseFps(String fps) {
+    if (fps == null) {
+      return DEFAULT_FPS;
+    }
+    double value = Double.parseDouble(fps.trim());
+    if (value <= 0) {
+      throw new IllegalArgumentException("Invalid fps " + fps);
+    }
+    return value;
+  }
+
+  /**
+   * Parses a resolution formatted as widthxheight, for example 640x360.
+   * @param resolution The resolution, null to keep the size of the fixture.
+   * @return The width and height, 0 to keep the size of the fixture.
+   */
+  static int[] parseResolution(String resolution) {
+    if (resolution == null) {
+      return new int[] {0, 0};
+    }
+    String[] size = resolution.trim().toLowerCase().split("x");
+    if (size.length != 2) {
+      throw new IllegalArgumentException("Invalid resolution " + resolution);
+    }
+
+    int width = Integer.parseInt(size[0]);
+    int height = Integer.parseInt(size[1]);
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid resolution " + resolution);
+    }
+    return new int[] {width, height};
+  }
+
+  /**
+   * Returns a loaded fixture, loading it the first time.
+   * @param file    The fixture file.
+   * @param width   The width of the frames, 0 to keep their size.
+   * @param height  The height of the frames, 0 to keep their size.
+   * @return The MJPEGFixture.
+   * @throws IOException If the fixture cannot be loaded.
+   */
+  private MJPEGFixture getFixture(File file, int width, int height) throws IOException {
+    String key = file.getAbsolutePath() + "/" + width + "x" + height;
+    MJPEGFixture fixture = fixtures.get(key);
+
+    if (fixture == null) {
+      fixture = MJPEGFixture.load(file, width, height);
+      fixtures.put(key, fixture);
+    }
+    return fixture;
+  }
+
+  /**
+   * Returns a locally administered MAC address, unique for every index.
+   * @param index The index of the camera.
+   * @return The MAC address.
+   */
+  static String getMacAddress(int index) {
+    return String.format("02-00-00-00-%02X-%02X", (index >> 8) & 0xFF, index & 0xFF);
+  }
+
+  /**
+   * Stops all simulated camera's created by this factory.
+   */
+  public synchronized void stop() {
+    if (simulator != null) {
+      simulator.stop();
+      simulator = null;
+    }
+  }
+}
@@ -0,0 +1,5 @@
+/**
+ * Package containing a simulator of Panasonic IP camera's, which replays recorded MJPEG streams
+ * and responds to control commands, so the server can be tested without real camera's.
+ */
+package com.benine.backend.camera.simulator;
@@ -9,24 +9,67 @@ import com.benine.backend.camera.CameraController;
 import com.benine.backend.http.camerahandlers.CameraInfoHandler;
 import com.benine.backend.http.presethandlers.PresetsHandler;
 import com.benine.backend.http.presetqueue.PresetQueueHandler;
+import com.benine.backend.metrics.MetricRegistry;
 import com.benine.backend.performance.PresetQueueController;
 import com.benine.backend.preset.PresetController;
 import com.benine.backend.video.StreamController;
 
 import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.HandlerList;
 import org.eclipse.jetty.server.handler.ResourceHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class responsible for starting and mutating the HTTP Stream Server.
+ * Requests are handled by the thread pool of Jetty. MJPEG streams are written with
+ * non-blocking I/O, new frames are written by a separate small pool, so viewers do not hold
+ * a thread each and cannot take the threads needed by the other requests.
  */
 public class HTTPServer {
 
+  private static final int DEFAULT_MIN_THREADS = 8;
+
+  private static final int DEFAULT_MAX_THREADS = 200;
+
+  /**
+   * Default amount of acceptor and selector threads, -1 lets Jetty choose by the amount of cores.
+   */
+  private static final int DEFAULT_ACCEPTORS = -1;
+
+  private static final int DEFAULT_SELECTORS = -1;
+
+  /**
+   * Default time in milliseconds after which an idle connection or thread is closed.
+   */
+  private static final int DEFAULT_IDLE_TIMEOUT = 30000;
+
+  private static final int DEFAULT_OUTPUT_BUFFER_SIZE = 32 * 1024;
+
+  private static final int DEFAULT_MAX_STREAMS = 1024;
+
   private Server server;
 
+  private ExecutorService streamExecutor;
+
+  /**
+   * Permits of the MJPEG streams which may be sent at once, one per viewer.
+   */
+  private Semaphore streamPermits;
+
+  private int maxStreams;
+
   private CameraController cameraController;
   
   private PresetController presetController;
@@ -39,6 +82,8 @@ public class HTTPServer {
   
   private Config config;
 
+  private MetricRegistry metricRegistry;
+
   /**
    * Creates a new Jetty server for handling requests.
    * @param port        The port to start the server on.
@@ -46,15 +91,22 @@ public class HTTPServer {
    * @throws Exception  If the server cannot be started, thus rendering the application useless.
    */
   public HTTPServer(int port, ServerController serverController) throws Exception {
-    //The Jetty server object.
-    this.server = new Server(port);
     this.cameraController = serverController.getCameraController();
     this.streamController = serverController.getStreamController();
     this.presetController = serverController.getPresetController();
     this.presetQueueController = serverController.getPresetQueueController();
     this.logger = serverController.getLogger();
     this.config = serverController.getConfig();
-    
+    this.metricRegistry = serverController.getMetricRegistry();
+
+    //The Jetty server object.
+    this.server = new Server(createThreadPool());
+    server.addConnector(createConnector(port));
+    this.streamExecutor = createStreamExecutor();
+    this.maxStreams = config.getInt("stream_viewers_max", DEFAULT_MAX_STREAMS);
+    this.streamPermits = new Semaphore(maxStreams);
+    registerMetrics();
+
     setUpHandlers();
 
     getLogger().log("Successfully setup endpoints", LogEvent.Type.INFO);
@@ -62,6 +114,81 @@ public class HTTPServer {
     getLogger().log("Server running at: http://localhost:" + port , LogEvent.Type.INFO);
   }
 
+  /**
+   * Creates the thread pool handling the requests, configured by http_threads_min,
+   * http_threads_max and http_idle_timeout.
+   * @return The QueuedThreadPool.
+   */
+  private QueuedThreadPool createThreadPool() {
+    QueuedThreadPool threads = new QueuedThreadPool(
+            config.getInt("http_threads_max", DEFAULT_MAX_THREADS),
+            config.getInt("http_threads_min", DEFAULT_MIN_THREADS),
+            config.getInt("http_idle_timeout", DEFAULT_IDLE_TIMEOUT));
+    threads.setName("HTTPServer");
+    return threads;
+  }
+
+  /**
+   * Creates the connector listening on the port, configured by http_acceptors,
+   * http_selectors, http_idle_timeout and http_output_buffer_size.
+   * @param port The port to listen on.
+   * @return The ServerConnector.
+   */
+  private ServerConnector createConnector(int port) {
+    HttpConfiguration httpConfig = new HttpConfiguration();
+    httpConfig.setOutputBufferSize(
+            config.getInt("http_output_buffer_size", DEFAULT_OUTPUT_BUFFER_SIZE));
+
+    ServerConnector connector = new ServerConnector(server,
+            config.getInt("http_acceptors", DEFAULT_ACCEPTORS),
+            config.getInt("http_selectors", DEFAULT_SELECTORS),
+            new HttpConnectionFactory(httpConfig));
+    connector.setPort(port);
+    connector.setIdleTimeout(config.getInt("http_idle_timeout", DEFAULT_IDLE_TIMEOUT));
+    return connector;
+  }
+
+  /**
+   * Creates the pool writing new frames to the MJPEG viewers, with stream_threads threads,
+   * by default one per core.
+   * @return The ExecutorService.
+   */
+  private ExecutorService createStreamExecutor() {
+    AtomicInteger count = new AtomicInteger();
+
+    return Executors.newFixedThreadPool(
+        config.getInt("stream_threads", Runtime.getRuntime().availableProcessors()),
+        runnable -> createStreamThread(runnable, count));
+  }
+
+  /**
+   * Creates a daemon thread writing streams.
+   * @param runnable  The task of the thread.
+   * @param count     The amount of threads created so far.
+   * @return The Thread.
+   */
+  private static Thread createStreamThread(Runnable runnable, AtomicInteger count) {
+    Thread thread = new Thread(runnable, "StreamWriter-" + count.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Registers the use of the thread pools in the metrics.
+   */
+  private void registerMetrics() {
+    QueuedThreadPool threads = (QueuedThreadPool) server.getThreadPool();
+
+    metricRegistry.gauge("http_threads_busy", "Busy threads handling requests.",
+        () -> threads.getThreads() - threads.getIdleThreads());
+    metricRegistry.gauge("http_threads_max", "Maximum threads handling requests.",
+        threads::getMaxThreads);
+    metricRegistry.gauge("http_streams_active", "MJPEG streams being sent to viewers.",
+        () -> maxStreams - streamPermits.availablePermits());
+    metricRegistry.gauge("http_streams_max", "Maximum MJPEG streams sent at once.",
+        () -> maxStreams);
+  }
+
   /**
    * Sets up the server Context Handlers.
    */
@@ -75,6 +202,9 @@ public class HTTPServer {
     ContextHandler presetQueueContext = new ContextHandler("/presetqueues");
     presetQueueContext.setHandler(new PresetQueueHandler(this));
 
+    ContextHandler metricsContext = new ContextHandler("/metrics");
+    metricsContext.setHandler(new MetricsHandler(this));
+
     ContextHandler fileserverContext = new ContextHandler("/static");
     ResourceHandler fileHandler = new ResourceHandler();
     fileHandler.setResourceBase("static");
@@ -82,7 +212,8 @@ public class HTTPServer {
 
     ContextHandlerCollection contexts = new ContextHandlerCollection();
     contexts.setHandlers(
-            new Handler[] {cameraContext, presetContext, presetQueueContext, fileserverContext });
+            new Handler[] {cameraContext, presetContext, presetQueueContext, metricsContext,
+                fileserverContext });
 
     Handler logHandler = new LogHandler(this);
     HandlerList handlerList = new HandlerList();
@@ -98,6 +229,7 @@ public class HTTPServer {
    */
   public void destroy() throws Exception {
     server.stop();
+    streamExecutor.shutdownNow();
   }
 
   /**
@@ -143,4 +275,44 @@ public class HTTPServer {
   public Config getConfig() {
     return config;
   }
+
+  /**
+   * Returns the executor writing new frames to the MJPEG viewers.
+   * @return The executor.
+   */
+  public Executor getStreamExecutor() {
+    return streamExecutor;
+  }
+
+  /**
+   * Reserves a MJPEG stream for a new viewer, at most stream_viewers_max streams
+   * are sent at once.
+   * @return true if the stream may be sent, false if the maximum is reached.
+   */
+  public boolean acquireStream() {
+    return streamPermits.tryAcquire();
+  }
+
+  /**
+   * Releases a MJPEG stream reserved with acquireStream after the viewer left.
+   */
+  public void releaseStream() {
+    streamPermits.release();
+  }
+
+  /**
+   * Returns the Jetty server.
+   * @return The server.
+   */
+  Server getServer() {
+    return server;
+  }
+
+  /**
+   * Returns the registry of the metrics exported on /metrics.
+   * @return metric registry of the server.
+   */
+  public MetricRegistry getMetricRegistry() {
+    return metricRegistry;
+  }
 }
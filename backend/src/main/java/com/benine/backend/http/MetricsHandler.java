@@ -0,0 +1,39 @@
+package com.benine.backend.http;
+
+import com.benine.backend.metrics.MetricRegistry;
+import org.eclipse.jetty.server.Request;
+
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Handles the /metrics route, returning all metrics in the Prometheus text format.
+ */
+public class MetricsHandler extends RequestHandler {
+
+  /**
+   * Content type of the Prometheus text exposition format.
+   */
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private MetricRegistry metricRegistry;
+
+  /**
+   * Constructs the metrics handler for this server.
+   * @param httpserver for which the handler is created.
+   */
+  public MetricsHandler(HTTPServer httpserver) {
+    super(httpserver);
+    this.metricRegistry = httpserver.getMetricRegistry();
+  }
+
+  @Override
+  public void handle(String s, Request request, HttpServletRequest req, HttpServletResponse res)
+          throws IOException, ServletException {
+    res.setContentType(CONTENT_TYPE);
+    respond(request, res, metricRegistry.scrape());
+    request.setHandled(true);
+  }
+}
@@ -0,0 +1,276 @@
+package com.benine.backend.http.camerahandlers;
+
+import com.benine.backend.video.StreamDistributer;
+import com.benine.backend.video.VideoFrame;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+/**
+ * Writes the frames of a distributer to a client with non-blocking I/O.
+ * A frame is written in parts whenever the connection can take more data, the container
+ * calls back when a part has been sent. When the client has received all frames, the writer
+ * waits for the distributer to report a new frame. No thread is held while waiting,
+ * so a viewer only uses a thread of the executor while a frame is being written.
+ * The request times out when no frame was sent within the stall timeout, which also ends the
+ * stream of a client that disconnected while no frames arrived. While frames are sent,
+ * the request is dispatched again on a timeout to continue with a new timeout.
+ */
+public class AsyncStreamWriter implements WriteListener, AsyncListener {
+
+  /**
+   * The parts of a frame, written one at a time.
+   */
+  private enum Part {
+    HEADER, IMAGE, FLUSH
+  }
+
+  private final StreamDistributer distributer;
+
+  /**
+   * The context of the asynchronous request, replaced when the request is dispatched again.
+   */
+  private volatile AsyncContext async;
+
+  private final ServletOutputStream out;
+
+  private final Executor executor;
+
+  private final long stallTimeout;
+
+  /**
+   * Called once when the stream to the client has ended.
+   */
+  private final Runnable onComplete;
+
+  /**
+   * True when all frames have been written and the writer waits for a new frame.
+   */
+  private final AtomicBoolean waiting;
+
+  private final AtomicBoolean completed;
+
+  /**
+   * True when a frame has been sent since the last timeout.
+   */
+  private final AtomicBoolean sent;
+
+  /**
+   * The frame being written, null if none.
+   */
+  private VideoFrame frame;
+
+  private Part part;
+
+  /**
+   * Creates a writer for a stream.
+   * @param distributer The distributer of the frames sent to the client.
+   * @param async       The context of the asynchronous request.
+   * @param out         The outputstream of the response.
+   * @param executor    The executor writing new frames.
+   * @param stallTimeout The time in milliseconds a frame should be sent within.
+   * @param onComplete  Called once the stream has ended, after the request is completed.
+   */
+  public AsyncStreamWriter(StreamDistributer distributer, AsyncContext async,
+                           ServletOutputStream out, Executor executor, long stallTimeout,
+                           Runnable onComplete) {
+    this.distributer = distributer;
+    this.async = async;
+    this.out = out;
+    this.executor = executor;
+    this.stallTimeout = stallTimeout;
+    this.onComplete = onComplete;
+    this.waiting = new AtomicBoolean(false);
+    this.completed = new AtomicBoolean(false);
+    this.sent = new AtomicBoolean(false);
+  }
+
+  /**
+   * Starts writing, the container calls onWritePossible when the response can be written.
+   */
+  public void start() {
+    async.setTimeout(stallTimeout);
+    async.addListener(this);
+    distributer.setFrameListener(this::frameAvailable);
+    out.setWriteListener(this);
+  }
+
+  /**
+   * Writes the available frames until the connection cannot take more data
+   * or no new frame is available.
+   * @throws IOException If the response cannot be written.
+   */
+  @Override
+  public synchronized void onWritePossible() throws IOException {
+    while (!completed.get() && out.isReady()) {
+      if (frame == null && !nextFrame()) {
+        return;
+      }
+      writePart();
+    }
+  }
+
+  /**
+   * Ends the stream when the client disconnected or the response could not be written.
+   * @param throwable The cause of the error.
+   */
+  @Override
+  public void onError(Throwable throwable) {
+    complete();
+  }
+
+  /**
+   * Ends the stream when the container reports an error of the request.
+   * @param event The event of the failed request.
+   */
+  @Override
+  public void onError(AsyncEvent event) {
+    complete();
+  }
+
+  /**
+   * Ends the stream when the container completed the request.
+   * @param event The event of the completed request.
+   */
+  @Override
+  public void onComplete(AsyncEvent event) {
+    end(false);
+  }
+
+  /**
+   * Ends the stream when no frame was sent within the stall timeout,
+   * else dispatches the request again so the stream continues with a new timeout.
+   * @param event The event of the timed out request.
+   */
+  @Override
+  public void onTimeout(AsyncEvent event) {
+    if (!completed.get() && sent.getAndSet(false)) {
+      event.getAsyncContext().dispatch();
+    } else {
+      complete();
+    }
+  }
+
+  /**
+   * Continues the stream in the context of the request dispatched again.
+   * @param event The event of the new context.
+   */
+  @Override
+  public void onStartAsync(AsyncEvent event) {
+    async = event.getAsyncContext();
+    async.setTimeout(stallTimeout);
+    async.addListener(this);
+    if (completed.get()) {
+      // The stream ended while the request was dispatched.
+      async.complete();
+    }
+  }
+
+  /**
+   * Takes the next frame of the distributer.
+   * @return true if there is a frame to write, false if waiting for a new frame.
+   */
+  private boolean nextFrame() {
+    frame = distributer.poll();
+    if (frame == null) {
+      waiting.set(true);
+
+      // A frame published before waiting was set did not wake the writer, so check again.
+      frame = distributer.poll();
+      if (frame == null) {
+        return false;
+      }
+      waiting.set(false);
+    }
+    part = Part.HEADER;
+    return true;
+  }
+
+  /**
+   * Writes the next part of the current frame.
+   * @throws IOException If the response cannot be written.
+   */
+  private void writePart() throws IOException {
+    switch (part) {
+      case HEADER:
+        frame.getHeader().writeTo(out);
+        part = Part.IMAGE;
+        break;
+      case IMAGE:
+        frame.writeImageTo(out);
+        part = Part.FLUSH;
+        break;
+      default:
+        out.flush();
+        distributer.recordSentFrame(frame);
+        sent.set(true);
+        frame = null;
+        break;
+    }
+  }
+
+  /**
+   * Called by the distributer on a new frame, resumes writing if the writer was waiting.
+   */
+  private void frameAvailable() {
+    if (waiting.compareAndSet(true, false)) {
+      try {
+        executor.execute(this::resume);
+      } catch (RejectedExecutionException e) {
+        complete();
+      }
+    }
+  }
+
+  /**
+   * Resumes writing on the executor.
+   */
+  private void resume() {
+    try {
+      onWritePossible();
+    } catch (IOException e) {
+      onError(e);
+    }
+  }
+
+  /**
+   * Stops distributing and completes the request, only the first call has effect.
+   */
+  private void complete() {
+    end(true);
+  }
+
+  /**
+   * Stops distributing, only the first call has effect.
+   * @param completeRequest True if the request should be completed,
+   *                        false if the container already completed it.
+   */
+  private void end(boolean completeRequest) {
+    if (completed.compareAndSet(false, true)) {
+      distributer.deregister();
+      if (completeRequest) {
+        try {
+          async.complete();
+        } catch (IllegalStateException e) {
+          // The request is being dispatched again, onStartAsync completes it.
+        }
+      }
+      onComplete.run();
+    }
+  }
+
+  /**
+   * Returns if the stream to the client has ended.
+   * @return true if completed, false if still streaming.
+   */
+  public boolean isCompleted() {
+    return completed.get();
+  }
+}
@@ -38,7 +38,7 @@ public class CameraFocusHandler extends CameraRequestHandler {
     String speed = request.getParameter("speed");
     Boolean succes = true;
     try {
-      setFocus(focusCam, autoOn, setPos, speed);
+      succes = setFocus(focusCam, autoOn, setPos, speed);
     } catch (CameraConnectionException e) {
       getLogger().log("Cannot connect to camera: " + focusCam.getId(), LogEvent.Type.WARNING);
       succes = false;
@@ -54,16 +54,17 @@ public class CameraFocusHandler extends CameraRequestHandler {
   }
 
   /**
-   * Sets the focus of the supplied camera.
+   * Sets the focus of the supplied camera, a movement with a speed is not waited for.
    * @param focusCam  A Focussingcamera
    * @param autoOn    The autoOn parameter
    * @param setPos    The setPos parameter
    * @param speed     The speed of the focus movement.
+   * @return false if the movement failed already, true otherwise.
    * @throws CameraConnectionException If the camera cannot be reached.
    * @throws CameraBusyException        If the camera is busy.
    */
-  private void setFocus(FocussingCamera focusCam,
-                        String autoOn, String setPos, String speed)
+  private boolean setFocus(FocussingCamera focusCam,
+                           String autoOn, String setPos, String speed)
           throws CameraConnectionException, CameraBusyException {
     if (autoOn != null) {
       boolean autoOnBool = Boolean.parseBoolean(autoOn);
@@ -72,8 +73,9 @@ public class CameraFocusHandler extends CameraRequestHandler {
     if (setPos != null) {
       focusCam.setFocusPosition(Integer.parseInt(setPos));
     } else if (speed != null) {
-      focusCam.moveFocus(Integer.parseInt(speed));
+      return accept(focusCam.moveFocusAsync(Integer.parseInt(speed)), focusCam.getId());
     }
+    return true;
   }
 
   @Override
@@ -4,6 +4,7 @@ import com.benine.backend.camera.Camera;
 import com.benine.backend.http.HTTPServer;
 
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -28,6 +29,8 @@ public class CameraInfoHandler extends CameraRequestHandler {
     this.handlers = new HashMap<>();
 
     addHandler("mjpeg", new CameraStreamHandler(httpserver));
+    addHandler("ws", new CameraWebSocketHandler(httpserver));
+    addHandler("snapshot.jpg", new CameraSnapshotHandler(httpserver));
     addHandler("focus", new CameraFocusHandler(httpserver));
     addHandler("move", new CameraMovingHandler(httpserver));
     addHandler("iris", new CameraIrisHandler(httpserver));
@@ -73,12 +76,24 @@ public class CameraInfoHandler extends CameraRequestHandler {
   }
 
   /**
-   * Adds a handler to this cameraInfoHandler.
+   * Adds a handler to this cameraInfoHandler, it is started and stopped with this handler.
    * @param uri The endpoint location to add the handler.
    * @param handler a handler object.
    */
   public void addHandler(String uri, CameraRequestHandler handler) {
-    handlers.put(uri, handler);
+    CameraRequestHandler previous = handlers.put(uri, handler);
+    if (previous != null) {
+      removeBean(previous);
+    }
+    addBean(handler);
+  }
+
+  @Override
+  public void setServer(Server server) {
+    super.setServer(server);
+    for (CameraRequestHandler handler : handlers.values()) {
+      handler.setServer(server);
+    }
   }
 
 
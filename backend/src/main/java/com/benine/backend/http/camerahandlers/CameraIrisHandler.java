@@ -38,7 +38,7 @@ public class CameraIrisHandler extends CameraRequestHandler {
     String speed = request.getParameter("speed");
     Boolean succes = true;
     try {
-      setIris(irisCam, autoOn, setPos, speed);
+      succes = setIris(irisCam, autoOn, setPos, speed);
     } catch (CameraConnectionException e) {
       getLogger().log("Cannot connect to camera: " + irisCam.getId(), LogEvent.Type.WARNING);
       succes = false;
@@ -53,16 +53,17 @@ public class CameraIrisHandler extends CameraRequestHandler {
   }
 
   /**
-   * Sets the iris of the supplied camera.
+   * Sets the iris of the supplied camera, a movement with a speed is not waited for.
    * @param iriscam   An IrisCamera
    * @param autoOn    The autoOn parameter
    * @param setPos    The setPos parameter
    * @param speed     The speed of the focus movement.
+   * @return false if the movement failed already, true otherwise.
    * @throws CameraConnectionException if the camera cannot be reached.
    * @throws CameraBusyException        If the camera is busy.
    */
-  private void setIris(IrisCamera iriscam,
-                       String autoOn, String setPos, String speed)
+  private boolean setIris(IrisCamera iriscam,
+                          String autoOn, String setPos, String speed)
           throws CameraConnectionException, CameraBusyException {
     if (autoOn != null) {
       boolean autoOnBool = Boolean.parseBoolean(autoOn);
@@ -71,8 +72,9 @@ public class CameraIrisHandler extends CameraRequestHandler {
     if (setPos != null) {
       iriscam.setIrisPosition(Integer.parseInt(setPos));
     } else if (speed != null) {
-      iriscam.moveIris(Integer.parseInt(speed));
+      return accept(iriscam.moveIrisAsync(Integer.parseInt(speed)), iriscam.getId());
     }
+    return true;
   }
 
   @Override
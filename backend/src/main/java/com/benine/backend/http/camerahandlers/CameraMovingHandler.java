@@ -33,7 +33,7 @@ public class CameraMovingHandler extends CameraRequestHandler {
     MovingCamera movingCam = (MovingCamera) getCameraController().getCameraById(camID);
     Boolean succes = true;
     try {
-      move(movingCam, request);
+      succes = move(movingCam, request);
     } catch (MalformedURIException e) {
       getLogger().log("Malformed URI: " + request.getRequestURI(), LogEvent.Type.WARNING);
       succes = false;
@@ -52,14 +52,15 @@ public class CameraMovingHandler extends CameraRequestHandler {
   }
 
   /**
-   * Moves the camera.
+   * Moves the camera, a relative move is not waited for.
    * @param movingCam     a MovingCamera object.
    * @param request to move the camera.
+   * @return false if the move failed already, true otherwise.
    * @throws MalformedURIException      If the url contains the wrong parameters.
    * @throws CameraConnectionException  If the camera cannot be reached.
    * @throws CameraBusyException        If the camera is busy.
    */
-  public void move(MovingCamera movingCam, Request request)
+  public boolean move(MovingCamera movingCam, Request request)
           throws MalformedURIException, CameraConnectionException, CameraBusyException {
     
     String moveType = request.getParameter("moveType");
@@ -73,13 +74,13 @@ public class CameraMovingHandler extends CameraRequestHandler {
 
     switch (moveType) {
       case "relative": {
-        movingCam.move(Integer.parseInt(pan), Integer.parseInt(tilt));
-        break;
+        return accept(movingCam.moveAsync(Integer.parseInt(pan), Integer.parseInt(tilt)),
+            movingCam.getId());
       }
       case "absolute": {
         Position pos = new Position(Integer.parseInt(pan), Integer.parseInt(tilt));
         movingCam.moveTo(pos, Integer.parseInt(panSpeed), Integer.parseInt(tiltSpeed));
-        break;
+        return true;
       }
       default: {
         throw new MalformedURIException("Invalid value for moveType");
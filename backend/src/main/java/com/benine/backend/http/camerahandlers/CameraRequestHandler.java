@@ -1,7 +1,10 @@
 package com.benine.backend.http.camerahandlers;
 
+import com.benine.backend.Config;
+import com.benine.backend.LogEvent;
 import com.benine.backend.Logger;
 import com.benine.backend.camera.Camera;
+import com.benine.backend.camera.CameraBusyException;
 import com.benine.backend.camera.CameraController;
 import com.benine.backend.http.HTTPServer;
 import com.benine.backend.http.RequestHandler;
@@ -11,6 +14,8 @@ import com.benine.backend.video.StreamReader;
 
 import org.eclipse.jetty.server.Request;
 
+import java.awt.Dimension;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -18,6 +23,12 @@ import java.util.regex.Pattern;
  * Handles all requests requiring the camera ID.
  */
 public abstract class CameraRequestHandler extends RequestHandler {
+
+  /**
+   * Largest width and height of a resized image, larger requested sizes are scaled down.
+   */
+  static final int MAX_WIDTH = 1920;
+  static final int MAX_HEIGHT = 1080;
   
   private Logger logger;
   
@@ -27,6 +38,8 @@ public abstract class CameraRequestHandler extends RequestHandler {
   
   private Boolean streamCompression;
 
+  private Config config;
+
   /**
    * CameraRequest handler for the httpserver.
    * @param httpserver to construct the cameraHandler for.
@@ -36,7 +49,8 @@ public abstract class CameraRequestHandler extends RequestHandler {
     logger = httpserver.getLogger();
     cameraController = httpserver.getCameraController();
     streamController = httpserver.getStreamController();
-    streamCompression = httpserver.getConfig().getValue("stream_compression").equals("true");
+    config = httpserver.getConfig();
+    streamCompression = config.getValue("stream_compression").equals("true");
   }
 
   /**
@@ -72,19 +86,45 @@ public abstract class CameraRequestHandler extends RequestHandler {
   }
   
   /**
-   * Get the stream reader of the camera with camID.
+   * Acquires the stream reader of the camera with camID, connecting to the stream if needed.
+   * A reader that is acquired should be released with releaseStreamReader.
    * @param camID of the stream to find.
-   * @return the right streamreader.
+   * @return the right streamreader, null if no stream is available.
    */
-  public StreamReader getStreamReader(int camID) {
+  public StreamReader acquireStreamReader(int camID) {
     try {
-      return streamController.getStreamReader(camID);
+      return streamController.acquireStreamReader(camID);
     } catch (StreamNotAvailableException e) {
       getLogger().log("No stream available for this camera.", e);
     }
     return null;
   }
+
+  /**
+   * Releases the stream reader of the camera with camID.
+   * @param camID of the stream to release.
+   */
+  public void releaseStreamReader(int camID) {
+    streamController.releaseStreamReader(camID);
+  }
   
+  /**
+   * Accepts a command to a camera without waiting for it, logging it if it fails.
+   * @param command The future of the command.
+   * @param camID   The id of the camera.
+   * @return false if the command failed already, true otherwise.
+   */
+  protected boolean accept(CompletableFuture<Void> command, int camID) {
+    command.whenComplete((result, failure) -> {
+      if (failure instanceof CameraBusyException) {
+        getLogger().log("Trying to move busy camera with id: " + camID, LogEvent.Type.WARNING);
+      } else if (failure != null) {
+        getLogger().log("Cannot connect to camera: " + camID, LogEvent.Type.WARNING);
+      }
+    });
+    return !command.isCompletedExceptionally();
+  }
+
   public Logger getLogger() {
     return logger;
   }
@@ -97,4 +137,22 @@ public abstract class CameraRequestHandler extends RequestHandler {
     return streamCompression;
   }
 
+  protected Config getConfig() {
+    return config;
+  }
+
+  /**
+   * Scales a requested image size down to fit within MAX_WIDTH by MAX_HEIGHT,
+   * keeping its aspect ratio, so a client cannot make the server allocate large images.
+   * @param width   The requested width, larger than 0.
+   * @param height  The requested height, larger than 0.
+   * @return The size to resize to, the requested size if it fits.
+   */
+  static Dimension fitMaximumSize(int width, int height) {
+    double scale = Math.min(1,
+        Math.min((double) MAX_WIDTH / width, (double) MAX_HEIGHT / height));
+    return new Dimension(Math.min(MAX_WIDTH, Math.max(1, (int) Math.round(width * scale))),
+        Math.min(MAX_HEIGHT, Math.max(1, (int) Math.round(height * scale))));
+  }
+
 }
@@ -0,0 +1,199 @@
+package com.benine.backend.http.camerahandlers;
+
+import com.benine.backend.camera.Camera;
+import com.benine.backend.http.HTTPServer;
+import com.benine.backend.video.SharedFrameResizer;
+import com.benine.backend.video.StreamReader;
+import com.benine.backend.video.StreamType;
+import com.benine.backend.video.VideoFrame;
+import org.eclipse.jetty.server.Request;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Class responsible for handling the /camera/id/snapshot.jpg route.
+ * Serves the last received frame of a stream from memory, tagged with its sequence number,
+ * so clients polling the snapshot only download frames they have not seen yet.
+ * Resized snapshots are scaled down to at most MAX_WIDTH by MAX_HEIGHT pixels,
+ * keeping the requested aspect ratio.
+ */
+public class CameraSnapshotHandler extends CameraRequestHandler {
+
+  /**
+   * Maximum amount of sizes for which a resizer is kept.
+   */
+  private static final int MAX_RESIZERS = 16;
+
+  /**
+   * Identifies this run of the server in the entity tags, because the sequence numbers
+   * of the frames start at 0 again when the server restarts.
+   */
+  private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+  /**
+   * Resizers of the requested sizes, (camera id and size, resizer).
+   * The least recently used resizer is removed when there are too many.
+   */
+  private final Map<String, SharedFrameResizer> resizers;
+
+  /**
+   * Constructs the handler for the snapshots /camera/id/snapshot.jpg.
+   * @param httpserver to construct this handler for.
+   */
+  public CameraSnapshotHandler(HTTPServer httpserver) {
+    super(httpserver);
+    this.resizers = new LinkedHashMap<String, SharedFrameResizer>(MAX_RESIZERS, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, SharedFrameResizer> eldest) {
+        return size() > MAX_RESIZERS;
+      }
+    };
+  }
+
+  @Override
+  public void handle(String s, Request request, HttpServletRequest req, HttpServletResponse res)
+          throws IOException, ServletException {
+
+    int camID = getCameraId(request);
+    String width = request.getParameter("width");
+    String height = request.getParameter("height");
+
+    StreamReader streamReader = acquireStreamReader(camID);
+
+    request.setHandled(true);
+
+    try {
+      if (streamReader == null) {
+        res.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        return;
+      }
+
+      VideoFrame frame = streamReader.getFrameBuffer().getLatest();
+      if (frame == null) {
+        res.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        return;
+      }
+
+      SharedFrameResizer resizer = selectResizer(camID, width, height);
+      String etag = getETag(frame, resizer);
+
+      res.setHeader("ETag", etag);
+      res.setHeader("Cache-Control", "no-cache");
+
+      if (matches(request.getHeader("If-None-Match"), etag)) {
+        res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return;
+      }
+
+      if (resizer != null) {
+        frame = resizer.resize(frame);
+      }
+      writeFrame(res, frame);
+    } finally {
+      if (streamReader != null) {
+        releaseStreamReader(camID);
+      }
+    }
+  }
+
+  /**
+   * Returns the resizer of the requested size, scaled down to fit the maximum size.
+   * @param camID   The id of the camera.
+   * @param width   The requested width.
+   * @param height  The requested height.
+   * @return A SharedFrameResizer, null if the snapshot should not be resized.
+   */
+  private SharedFrameResizer selectResizer(int camID, String width, String height) {
+    if (!isStreamCompression() || width == null || height == null) {
+      return null;
+    }
+    int requestedWidth;
+    int requestedHeight;
+    try {
+      requestedWidth = Integer.parseInt(width);
+      requestedHeight = Integer.parseInt(height);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    if (requestedWidth <= 0 || requestedHeight <= 0) {
+      return null;
+    }
+    Dimension size = fitMaximumSize(requestedWidth, requestedHeight);
+
+    String key = camID + "/" + size.width + "x" + size.height;
+    synchronized (resizers) {
+      return resizers.computeIfAbsent(key,
+          k -> new SharedFrameResizer(size.width, size.height));
+    }
+  }
+
+  /**
+   * Creates the entity tag of a snapshot from the run of the server and the sequence number
+   * of the frame.
+   * @param frame     The frame of the snapshot.
+   * @param resizer   The resizer of the snapshot, null if not resized.
+   * @return The quoted entity tag.
+   */
+  private String getETag(VideoFrame frame, SharedFrameResizer resizer) {
+    StringBuilder etag = new StringBuilder("\"").append(EPOCH).append('-')
+        .append(frame.getSequence());
+
+    if (resizer != null) {
+      etag.append('-').append(resizer.getWidth()).append('x').append(resizer.getHeight());
+    }
+    return etag.append('"').toString();
+  }
+
+  /**
+   * Returns if an If-None-Match header matches the entity tag of the snapshot.
+   * The header is a list of entity tags, weak tags are compared without their W/ prefix.
+   * @param ifNoneMatch The value of the header, null if it is not sent.
+   * @param etag        The quoted entity tag of the snapshot.
+   * @return true if the client has the snapshot already.
+   */
+  private boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Writes the image of a frame to the response.
+   * @param res   The response to write to.
+   * @param frame The frame to write.
+   * @throws IOException If the response cannot be written.
+   */
+  private void writeFrame(HttpServletResponse res, VideoFrame frame) throws IOException {
+    res.setStatus(HttpServletResponse.SC_OK);
+    res.setContentType("image/jpeg");
+    res.setContentLength(frame.getImageLength());
+
+    ServletOutputStream out = res.getOutputStream();
+    frame.writeImageTo(out);
+    out.flush();
+  }
+
+  @Override
+  boolean isAllowed(Camera cam) {
+    return cam.getStreamType() == StreamType.MJPEG;
+  }
+}
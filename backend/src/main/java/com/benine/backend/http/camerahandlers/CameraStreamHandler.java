@@ -11,53 +11,121 @@ import com.benine.backend.video.StreamReader;
 import com.benine.backend.video.StreamType;
 import org.eclipse.jetty.server.Request;
 
+import java.awt.Dimension;
 import java.io.IOException;
-import java.io.PipedInputStream;
+import java.util.concurrent.Executor;
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
 import javax.servlet.ServletException;
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
  * Class responsible for handling the /camera/ route.
+ * The streams are sent with asynchronous non-blocking I/O, so no thread is held per viewer.
+ * New viewers are refused with 503 Service Unavailable when the server sends the maximum
+ * amount of streams. A viewer which received no frame within the stall timeout is ended.
  */
 public class CameraStreamHandler extends CameraRequestHandler {
-  
+
+  /**
+   * Default amount of frames queued for a client before frames are dropped.
+   */
+  private static final int DEFAULT_QUEUE_SIZE = 2;
+
+  /**
+   * Amount of frames queued for a client before frames are dropped.
+   */
+  private int queueSize;
+
+  /**
+   * Largest width of a stream which is shown as a tile.
+   */
+  private static final int TILE_WIDTH = 320;
+
+  /**
+   * Default frame rate of streams resized to tile size.
+   */
+  private static final int DEFAULT_TILE_FPS = 10;
+
+  /**
+   * Default frames per second of full size, resized and tile streams, 0 is unlimited.
+   */
+  private int fullFrameRate;
+  private int resizedFrameRate;
+  private int tileFrameRate;
+
+  /**
+   * Seconds after which a refused viewer may try again.
+   */
+  private static final String RETRY_AFTER = "5";
+
+  /**
+   * Default time in milliseconds a viewer should receive a frame within.
+   */
+  private static final long DEFAULT_STALL_TIMEOUT = 5000;
+
+  private final long stallTimeout;
+
+  private final HTTPServer httpserver;
+
+  private final Executor streamExecutor;
+
   /**
    * Constructs the handler for the streams /camera/id/mjpeg.
    * @param httpserver to construct this handler for.
    */
   public CameraStreamHandler(HTTPServer httpserver) {
     super(httpserver);
+    queueSize = getConfig().getInt("stream_viewer_queue", DEFAULT_QUEUE_SIZE);
+    fullFrameRate = getConfig().getInt("stream_fps_full", 0);
+    resizedFrameRate = getConfig().getInt("stream_fps_resized", 0);
+    tileFrameRate = getConfig().getInt("stream_fps_tile", DEFAULT_TILE_FPS);
+    stallTimeout = getConfig().getLong("stream_stall_timeout", DEFAULT_STALL_TIMEOUT);
+    this.httpserver = httpserver;
+    streamExecutor = httpserver.getStreamExecutor();
   }
 
   @Override
   public void handle(String s, Request request, HttpServletRequest req, HttpServletResponse res)
           throws IOException, ServletException {
 
-    int camID = getCameraId(request);
-    String width = request.getParameter("width");
-    String height = request.getParameter("height");
+    if (request.getDispatcherType() == DispatcherType.ASYNC) {
+      // A stream dispatched again on its timeout, the writer continues in the new context.
+      request.setHandled(true);
+      request.startAsync();
+      return;
+    }
 
-    StreamReader streamReader = getStreamReader(camID);
+    int camID = getCameraId(request);
+    StreamReader streamReader = acquireStreamReader(camID);
 
     request.setHandled(true);
 
     // We need an MJPEG streamreader to stream MJPEG.
-    if (streamReader instanceof MJPEGStreamReader) {
-      MJPEGStreamReader streamReaderMJPEG = (MJPEGStreamReader) streamReader;
-      StreamDistributer distributer = selectDistributer(streamReader, width, height);
+    if (!(streamReader instanceof MJPEGStreamReader)) {
+      res.setStatus(HttpServletResponse.SC_NOT_FOUND);
+      if (streamReader != null) {
+        releaseStreamReader(camID);
+      }
+      return;
+    }
 
-      // Set the headers
-      setHeaders(streamReaderMJPEG, res);
+    if (!httpserver.acquireStream()) {
+      getLogger().log("Refused client " + request.getRemoteAddr() + " of MJPEG stream " + camID
+              + ", too many streams.", LogEvent.Type.WARNING);
+      releaseStreamReader(camID);
+      res.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      res.setHeader("Retry-After", RETRY_AFTER);
+      return;
+    }
 
-      // Stream to the client
-      res.setStatus(HttpServletResponse.SC_OK);
-      stream(request, res, distributer);
+    StreamDistributer distributer = selectDistributer(streamReader,
+            request.getParameter("width"), request.getParameter("height"));
+    distributer.setQueueSize(queueSize);
+    distributer.setFrameRate(selectFrameRate(distributer, request.getParameter("fps")));
 
-    } else {
-      res.setStatus(HttpServletResponse.SC_NOT_FOUND);
-    }
+    stream(request, res, (MJPEGStreamReader) streamReader, distributer);
   }
 
   /**
@@ -67,31 +135,58 @@ public class CameraStreamHandler extends CameraRequestHandler {
    * @param width   The width of the image.
    * @param height  The height of the image.
    * @return  A ResizableStreamDistributer if valid width and height, else a StreamDistributer.
+   *          Sizes larger than MAX_WIDTH by MAX_HEIGHT are scaled down keeping the aspect ratio.
    */
   private StreamDistributer selectDistributer(StreamReader reader, String width, String height) {
     if (isStreamCompression() && validateResizeArguments(width, height)) {
-      int w = Integer.parseInt(width);
-      int h = Integer.parseInt(height);
+      Dimension size = fitMaximumSize(Integer.parseInt(width), Integer.parseInt(height));
 
-      return new ResizableStreamDistributer(reader, w, h);
+      return new ResizableStreamDistributer(reader, size.width, size.height);
     } else {
       return new StreamDistributer(reader);
     }
 
   }
 
+  /**
+   * Selects the frame rate of a stream, the requested rate if valid,
+   * else the default rate of the resolution tier of the distributer.
+   *
+   * @param distributer The distributer of the stream.
+   * @param fps         The requested frames per second.
+   * @return The frames per second, 0 if unlimited.
+   */
+  private double selectFrameRate(StreamDistributer distributer, String fps) {
+    if (fps != null) {
+      try {
+        double requested = Double.parseDouble(fps);
+        if (requested > 0) {
+          return requested;
+        }
+      } catch (NumberFormatException e) {
+        getLogger().log("Invalid fps " + fps + " requested, using the default.",
+                LogEvent.Type.INFO);
+      }
+    }
+
+    if (!(distributer instanceof ResizableStreamDistributer)) {
+      return fullFrameRate;
+    } else if (((ResizableStreamDistributer) distributer).getWidth() <= TILE_WIDTH) {
+      return tileFrameRate;
+    } else {
+      return resizedFrameRate;
+    }
+  }
+
   /**
    * Validates the resize arguments.
    * @param width   Width argument.
    * @param height  Height argument.
-   * @return True if valid, false otherwise.
+   * @return True if both are positive numbers, false otherwise.
    */
   private boolean validateResizeArguments(String width, String height) {
     try {
-      Integer.parseInt(width);
-      Integer.parseInt(height);
-
-      return true;
+      return Integer.parseInt(width) > 0 && Integer.parseInt(height) > 0;
     } catch (NumberFormatException e) {
       return false;
     }
@@ -119,29 +214,57 @@ public class CameraStreamHandler extends CameraRequestHandler {
   }
 
   /**
-   * Streams to the response.
+   * Starts streaming to the response, the stream continues until the client disconnects.
+   * Once the client disconnected, finish should be called.
    * @param request       The request object.
    * @param res           The response to write to.
+   * @param reader        The MJPEG stream reader of the stream.
    * @param distributer   The streamdistributer delivering the stream.
    */
-  private void stream(Request request, HttpServletResponse res, StreamDistributer distributer) {
+  void stream(Request request, HttpServletResponse res, MJPEGStreamReader reader,
+              StreamDistributer distributer) {
     int camID = getCameraId(request);
+    String client = request.getRemoteAddr();
 
-    byte[] bytes = new byte[8192];
-    int bytesRead;
-
-    try (PipedInputStream in = new PipedInputStream(distributer.getStream());
-         ServletOutputStream os = res.getOutputStream()) {
+    // Set the headers
+    setHeaders(reader, res);
 
-      while ((bytesRead = in.read(bytes)) != -1) {
-        os.write(bytes, 0, bytesRead);
-        os.flush();
-      }
+    // Stream to the client
+    AsyncContext async = request.startAsync();
+    try {
+      new AsyncStreamWriter(distributer, async, res.getOutputStream(), streamExecutor,
+          stallTimeout, () -> finish(client, camID, distributer)).start();
     } catch (IOException e) {
-      getLogger().log("Client "
-              + request.getRemoteAddr()
-              + " disconnected from MJPEG stream "
-              + camID, LogEvent.Type.INFO);
+      distributer.deregister();
+      async.complete();
+      finish(client, camID, distributer);
     }
   }
+
+  /**
+   * Returns the executor writing new frames to the viewers.
+   * @return The executor.
+   */
+  Executor getStreamExecutor() {
+    return streamExecutor;
+  }
+
+  /**
+   * Releases the stream of a client which disconnected.
+   * Should be called once for every stream started.
+   * @param client        The address of the client.
+   * @param camID         The id of the camera streamed.
+   * @param distributer   The streamdistributer which delivered the stream.
+   */
+  void finish(String client, int camID, StreamDistributer distributer) {
+    getLogger().log("Client "
+            + client
+            + " disconnected from MJPEG stream "
+            + camID
+            + " after " + distributer.getSentFrames() + " frames, "
+            + distributer.getSkippedFrames() + " frames skipped, "
+            + distributer.getDroppedFrames() + " frames dropped.", LogEvent.Type.INFO);
+    releaseStreamReader(camID);
+    httpserver.releaseStream();
+  }
 }
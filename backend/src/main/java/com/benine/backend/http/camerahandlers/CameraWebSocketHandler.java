@@ -0,0 +1,101 @@
+package com.benine.backend.http.camerahandlers;
+
+import com.benine.backend.LogEvent;
+import com.benine.backend.http.HTTPServer;
+import com.benine.backend.video.MJPEGStreamReader;
+import com.benine.backend.video.StreamDistributer;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.websocket.server.WebSocketServerFactory;
+
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Class responsible for handling the /camera/id/ws route.
+ * Upgrades the request to a WebSocket and pushes the frames of the MJPEG stream as binary
+ * messages, see WebSocketStreamWriter. The width, height and fps parameters are the same as
+ * those of the MJPEG stream.
+ */
+public class CameraWebSocketHandler extends CameraStreamHandler {
+
+  /**
+   * Default amount of frames sent to a client without acknowledgement.
+   */
+  private static final int DEFAULT_WINDOW = 2;
+
+  private final int window;
+
+  /**
+   * Time in milliseconds the window of a client may stay full before it is closed.
+   */
+  private final int ackTimeout;
+
+  private final WebSocketServerFactory factory;
+
+  /**
+   * Constructs the handler for the WebSocket streams /camera/id/ws.
+   * @param httpserver to construct this handler for.
+   */
+  public CameraWebSocketHandler(HTTPServer httpserver) {
+    this(httpserver, new WebSocketServerFactory());
+  }
+
+  /**
+   * Constructs the handler for the WebSocket streams using a factory.
+   * @param httpserver to construct this handler for.
+   * @param factory    The factory upgrading the requests, managed by this handler.
+   */
+  CameraWebSocketHandler(HTTPServer httpserver, WebSocketServerFactory factory) {
+    super(httpserver);
+    this.window = getConfig().getInt("stream_ws_window", DEFAULT_WINDOW);
+    this.ackTimeout = getConfig().getInt("stream_ws_ack_timeout",
+        (int) WebSocketStreamWriter.DEFAULT_ACK_TIMEOUT);
+    this.factory = factory;
+    addBean(factory);
+  }
+
+  @Override
+  public void handle(String s, Request request, HttpServletRequest req, HttpServletResponse res)
+          throws IOException, ServletException {
+    if (!factory.isUpgradeRequest(req, res)) {
+      request.setHandled(true);
+      res.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+    super.handle(s, request, req, res);
+  }
+
+  /**
+   * Upgrades the request to a WebSocket sending the stream.
+   * @param request       The request object.
+   * @param res           The response to write the handshake to.
+   * @param reader        The MJPEG stream reader of the stream.
+   * @param distributer   The streamdistributer delivering the stream.
+   */
+  @Override
+  void stream(Request request, HttpServletResponse res, MJPEGStreamReader reader,
+              StreamDistributer distributer) {
+    int camID = getCameraId(request);
+    String client = request.getRemoteAddr();
+
+    // The acknowledgements limit the frames in flight, so only the newest frame is kept.
+    distributer.setQueueSize(1);
+    WebSocketStreamWriter writer = new WebSocketStreamWriter(distributer, window, ackTimeout,
+            getStreamExecutor(), () -> finish(client, camID, distributer));
+
+    boolean accepted = false;
+    try {
+      accepted = factory.acceptWebSocket((upgradeRequest, upgradeResponse) -> writer, request,
+          res);
+    } catch (IOException e) {
+      getLogger().log("WebSocket handshake with client " + client + " failed.",
+              LogEvent.Type.INFO);
+    }
+
+    if (!accepted) {
+      writer.onWebSocketError(null);
+    }
+  }
+}
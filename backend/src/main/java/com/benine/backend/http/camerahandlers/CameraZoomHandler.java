@@ -39,7 +39,7 @@ public class CameraZoomHandler extends CameraRequestHandler {
     Boolean succes = true;
     
     try {
-      zoom(zoomingCam, zoomType, zoom);
+      succes = zoom(zoomingCam, zoomType, zoom);
     } catch (MalformedURIException e) {
       getLogger().log("Malformed URI: " + request.getRequestURI(), LogEvent.Type.WARNING);
       succes = false;
@@ -55,21 +55,23 @@ public class CameraZoomHandler extends CameraRequestHandler {
   }
 
   /**
-   * Zooms the camera.
+   * Zooms the camera, a relative zoom is not waited for.
    * @param zoomingCam  A ZoomingCamera.
    * @param zoomType    The type of zooming operation.
    * @param zoom        The zoom value.
+   * @return false if the zoom failed already, true otherwise.
    * @throws MalformedURIException      If there is an error in the request.
    * @throws CameraConnectionException  If the camera cannot be reached.
    * @throws CameraBusyException        If the camera is busy.
    */
-  private void zoom(ZoomingCamera zoomingCam, String zoomType, String zoom)
+  private boolean zoom(ZoomingCamera zoomingCam, String zoomType, String zoom)
           throws MalformedURIException, CameraConnectionException, CameraBusyException {
 
     if (zoom != null && zoomType.equals("relative")) {
-      zoomingCam.zoom(Integer.parseInt(zoom));
+      return accept(zoomingCam.zoomAsync(Integer.parseInt(zoom)), zoomingCam.getId());
     } else if (zoom != null && zoomType.equals("absolute")) {
       zoomingCam.zoomTo(Integer.parseInt(zoom));
+      return true;
     } else {
       throw new MalformedURIException("Invalid Zoom parameters");
     }
@@ -0,0 +1,267 @@
+package com.benine.backend.http.camerahandlers;
+
+import com.benine.backend.video.StreamDistributer;
+import com.benine.backend.video.VideoFrame;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends the frames of a distributer to a WebSocket client as binary messages.
+ * Every message starts with the sequence number of the frame and its capture time in
+ * nanoseconds since the epoch, both as 8 byte big endian numbers, followed by the JPEG image.
+ * The message is created once per frame and shared by all clients, see VideoFrame.getMessage.
+ * The client acknowledges a frame by sending its sequence number as a text message.
+ * At most window frames are sent without acknowledgement, frames published in the meantime
+ * are dropped so a slow client receives the newest frame once it catches up.
+ * A client whose window stays full for longer than the acknowledgement timeout is closed.
+ */
+public class WebSocketStreamWriter implements WebSocketListener {
+
+  /**
+   * Default time in milliseconds the window may stay full before the client is closed.
+   */
+  static final long DEFAULT_ACK_TIMEOUT = 10000;
+
+  private final StreamDistributer distributer;
+
+  /**
+   * Maximum amount of frames sent without acknowledgement.
+   */
+  private final int window;
+
+  /**
+   * Time in nanoseconds the window may stay full before the client is closed.
+   */
+  private final long ackTimeout;
+
+  private final Executor executor;
+
+  /**
+   * Called once when the client disconnected.
+   */
+  private final Runnable onComplete;
+
+  /**
+   * Sequence numbers of the frames sent and not acknowledged yet, oldest first.
+   */
+  private final Deque<Long> unacknowledged;
+
+  /**
+   * Size of unacknowledged, read without locking by the thread reading the stream.
+   */
+  private volatile int unacknowledgedCount;
+
+  /**
+   * The time, as returned by System.nanoTime, the window became full, 0 if it is not full.
+   */
+  private volatile long windowFullSince;
+
+  /**
+   * True while sending is scheduled on the executor.
+   */
+  private final AtomicBoolean scheduled;
+
+  private final AtomicBoolean completed;
+
+  private volatile Session session;
+
+  /**
+   * Creates a writer for a stream.
+   * @param distributer The distributer of the frames sent to the client.
+   * @param window      The maximum amount of frames sent without acknowledgement.
+   * @param executor    The executor sending new frames.
+   * @param onComplete  Called once the client disconnected.
+   */
+  public WebSocketStreamWriter(StreamDistributer distributer, int window, Executor executor,
+                               Runnable onComplete) {
+    this(distributer, window, DEFAULT_ACK_TIMEOUT, executor, onComplete);
+  }
+
+  /**
+   * Creates a writer for a stream.
+   * @param distributer The distributer of the frames sent to the client.
+   * @param window      The maximum amount of frames sent without acknowledgement.
+   * @param ackTimeout  The time in milliseconds the window may stay full.
+   * @param executor    The executor sending new frames.
+   * @param onComplete  Called once the client disconnected.
+   */
+  public WebSocketStreamWriter(StreamDistributer distributer, int window, long ackTimeout,
+                               Executor executor, Runnable onComplete) {
+    this.distributer = distributer;
+    this.window = Math.max(1, window);
+    this.ackTimeout = TimeUnit.MILLISECONDS.toNanos(ackTimeout);
+    this.executor = executor;
+    this.onComplete = onComplete;
+    this.unacknowledged = new ArrayDeque<>();
+    this.scheduled = new AtomicBoolean(false);
+    this.completed = new AtomicBoolean(false);
+  }
+
+  @Override
+  public void onWebSocketConnect(Session session) {
+    this.session = session;
+    distributer.setFrameListener(this::frameAvailable);
+    send();
+  }
+
+  /**
+   * Handles an acknowledgement, which also acknowledges all frames sent before it.
+   * Messages which are not a sequence number of an unacknowledged frame are ignored.
+   * @param message The sequence number of the received frame.
+   */
+  @Override
+  public void onWebSocketText(String message) {
+    long sequence;
+    try {
+      sequence = Long.parseLong(message.trim());
+    } catch (NumberFormatException e) {
+      return;
+    }
+    acknowledge(sequence);
+    send();
+  }
+
+  @Override
+  public void onWebSocketBinary(byte[] payload, int offset, int length) {
+    // The client only sends acknowledgements as text.
+  }
+
+  @Override
+  public void onWebSocketClose(int statusCode, String reason) {
+    complete();
+  }
+
+  @Override
+  public void onWebSocketError(Throwable cause) {
+    complete();
+  }
+
+  /**
+   * Removes a frame and all frames sent before it from the unacknowledged frames.
+   * @param sequence The sequence number of the frame.
+   */
+  private synchronized void acknowledge(long sequence) {
+    if (unacknowledged.contains(sequence)) {
+      long removed;
+      do {
+        removed = unacknowledged.removeFirst();
+      } while (removed != sequence);
+      unacknowledgedCount = unacknowledged.size();
+      windowFullSince = 0;
+    }
+  }
+
+  /**
+   * Sends new frames until the window is full or no new frame is available.
+   */
+  private synchronized void send() {
+    while (!completed.get() && session != null && unacknowledged.size() < window) {
+      VideoFrame frame = distributer.poll();
+      if (frame == null) {
+        return;
+      }
+      unacknowledged.addLast(frame.getSequence());
+      unacknowledgedCount = unacknowledged.size();
+      if (unacknowledgedCount >= window) {
+        windowFullSince = System.nanoTime();
+      }
+      session.getRemote().sendBytes(frame.getMessage(), new FrameCallback(frame));
+    }
+  }
+
+  /**
+   * Called by the distributer on a new frame, schedules sending it if the window allows.
+   * Closes the client if its window has been full for longer than the acknowledgement timeout.
+   */
+  private void frameAvailable() {
+    long fullSince = windowFullSince;
+    if (fullSince != 0 && System.nanoTime() - fullSince > ackTimeout) {
+      close(StatusCode.POLICY_VIOLATION, "Frames not acknowledged");
+      return;
+    }
+    if (unacknowledgedCount < window && scheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(() -> {
+          scheduled.set(false);
+          send();
+        });
+      } catch (RejectedExecutionException e) {
+        close(StatusCode.SERVER_ERROR, "Stream ended");
+      }
+    }
+  }
+
+  /**
+   * Closes the connection, used when frames can no longer be sent.
+   * @param statusCode  The WebSocket status code.
+   * @param reason      The reason sent to the client.
+   */
+  private void close(int statusCode, String reason) {
+    Session session = this.session;
+    if (session != null) {
+      session.close(statusCode, reason);
+    }
+    complete();
+  }
+
+  /**
+   * Stops distributing, only the first call has effect.
+   */
+  private void complete() {
+    if (completed.compareAndSet(false, true)) {
+      distributer.deregister();
+      onComplete.run();
+    }
+  }
+
+  /**
+   * Returns the amount of frames sent and not acknowledged yet.
+   * @return The amount of frames.
+   */
+  public int getUnacknowledged() {
+    return unacknowledgedCount;
+  }
+
+  /**
+   * Returns if the client has disconnected.
+   * @return true if completed, false if still streaming.
+   */
+  public boolean isCompleted() {
+    return completed.get();
+  }
+
+  /**
+   * Records a frame as sent once it has been written, closes the connection if it failed.
+   */
+  private class FrameCallback implements WriteCallback {
+
+    private final VideoFrame frame;
+
+    /**
+     * Creates a callback for a frame.
+     * @param frame The frame being written.
+     */
+    FrameCallback(VideoFrame frame) {
+      this.frame = frame;
+    }
+
+    @Override
+    public void writeSuccess() {
+      distributer.recordSentFrame(frame);
+    }
+
+    @Override
+    public void writeFailed(Throwable cause) {
+      close(StatusCode.SERVER_ERROR, "Stream ended");
+    }
+  }
+}
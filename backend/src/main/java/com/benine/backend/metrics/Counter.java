@@ -0,0 +1,55 @@
+package com.benine.backend.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only increases, such as the amount of received frames.
+ */
+public class Counter extends Metric {
+
+  private final LongAdder count;
+
+  /**
+   * Creates a new counter starting at 0.
+   * @param name    The name of the counter.
+   * @param help    The description of the counter.
+   * @param labels  The formatted labels of the counter.
+   */
+  Counter(String name, String help, String labels) {
+    super(name, help, labels);
+    this.count = new LongAdder();
+  }
+
+  /**
+   * Increases the counter by one.
+   */
+  public void inc() {
+    count.increment();
+  }
+
+  /**
+   * Increases the counter.
+   * @param amount The amount to add, should not be negative.
+   */
+  public void add(long amount) {
+    count.add(amount);
+  }
+
+  /**
+   * Returns the value of the counter.
+   * @return The count.
+   */
+  public long get() {
+    return count.sum();
+  }
+
+  @Override
+  String getType() {
+    return "counter";
+  }
+
+  @Override
+  void write(StringBuilder out) {
+    writeSample(out, "", null, Long.toString(get()));
+  }
+}
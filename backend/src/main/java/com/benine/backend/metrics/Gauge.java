@@ -0,0 +1,54 @@
+package com.benine.backend.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A value that goes up and down, such as the amount of viewers of a stream.
+ */
+public class Gauge extends Metric {
+
+  private final LongAdder value;
+
+  /**
+   * Creates a new gauge starting at 0.
+   * @param name    The name of the gauge.
+   * @param help    The description of the gauge.
+   * @param labels  The formatted labels of the gauge.
+   */
+  Gauge(String name, String help, String labels) {
+    super(name, help, labels);
+    this.value = new LongAdder();
+  }
+
+  /**
+   * Increases the gauge by one.
+   */
+  public void inc() {
+    value.increment();
+  }
+
+  /**
+   * Decreases the gauge by one.
+   */
+  public void dec() {
+    value.decrement();
+  }
+
+  /**
+   * Returns the value of the gauge.
+   * @return The value.
+   */
+  public long get() {
+    return value.sum();
+  }
+
+  @Override
+  String getType() {
+    return "gauge";
+  }
+
+  @Override
+  void write(StringBuilder out) {
+    writeSample(out, "", null, Long.toString(get()));
+  }
+}
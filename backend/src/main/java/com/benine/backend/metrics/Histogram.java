@@ -0,0 +1,148 @@
+package com.benine.backend.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of observed values over fixed buckets, such as the time to parse a frame.
+ * Observing a value does not allocate, percentiles are estimated from the buckets.
+ */
+public class Histogram extends Metric {
+
+  /**
+   * The upper bounds of the buckets in increasing order, without the infinite bucket.
+   */
+  private final double[] bounds;
+
+  /**
+   * The amount of observations per bucket, the last bucket is infinite.
+   */
+  private final LongAdder[] buckets;
+
+  private final DoubleAdder sum;
+
+  /**
+   * Creates a new empty histogram.
+   * @param name    The name of the histogram.
+   * @param help    The description of the histogram.
+   * @param labels  The formatted labels of the histogram.
+   * @param bounds  The upper bounds of the buckets in increasing order.
+   */
+  Histogram(String name, String help, String labels, double[] bounds) {
+    super(name, help, labels);
+    this.bounds = Arrays.copyOf(bounds, bounds.length);
+    this.buckets = new LongAdder[bounds.length + 1];
+    this.sum = new DoubleAdder();
+
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Creates bucket bounds which grow by a constant factor.
+   * @param start   The upper bound of the first bucket.
+   * @param factor  The factor between two bounds, larger than 1.
+   * @param count   The amount of buckets.
+   * @return The bucket bounds.
+   */
+  public static double[] exponentialBuckets(double start, double factor, int count) {
+    double[] bounds = new double[count];
+    double bound = start;
+
+    for (int i = 0; i < count; i++) {
+      bounds[i] = bound;
+      bound *= factor;
+    }
+    return bounds;
+  }
+
+  /**
+   * Records a value.
+   * @param value The observed value.
+   */
+  public void observe(double value) {
+    int index = Arrays.binarySearch(bounds, value);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    buckets[index].increment();
+    sum.add(value);
+  }
+
+  /**
+   * Records a duration in seconds.
+   * @param nanos The duration in nanoseconds.
+   */
+  public void observeNanos(long nanos) {
+    observe(nanos / 1e9);
+  }
+
+  /**
+   * Returns the amount of observations.
+   * @return The count.
+   */
+  public long getCount() {
+    long count = 0;
+    for (LongAdder bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  /**
+   * Returns the sum of all observed values.
+   * @return The sum.
+   */
+  public double getSum() {
+    return sum.sum();
+  }
+
+  /**
+   * Estimates a percentile, by interpolating within the bucket containing it.
+   * @param percentile The percentile between 0 and 100.
+   * @return The estimated value, 0 if nothing is observed, the largest bound if
+   *         the percentile lies in the infinite bucket.
+   */
+  public double getPercentile(double percentile) {
+    long[] counts = new long[buckets.length];
+    long total = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    double rank = total * percentile / 100;
+    long below = 0;
+    for (int i = 0; i < bounds.length; i++) {
+      if (counts[i] > 0 && below + counts[i] >= rank) {
+        double lower = i == 0 ? 0 : bounds[i - 1];
+        return lower + (bounds[i] - lower) * (rank - below) / counts[i];
+      }
+      below += counts[i];
+    }
+    return bounds.length == 0 ? 0 : bounds[bounds.length - 1];
+  }
+
+  @Override
+  String getType() {
+    return "histogram";
+  }
+
+  @Override
+  void write(StringBuilder out) {
+    long cumulative = 0;
+    for (int i = 0; i < bounds.length; i++) {
+      cumulative += buckets[i].sum();
+      writeSample(out, "_bucket", "le=\"" + bounds[i] + "\"", Long.toString(cumulative));
+    }
+    cumulative += buckets[bounds.length].sum();
+    writeSample(out, "_bucket", "le=\"+Inf\"", Long.toString(cumulative));
+    writeSample(out, "_sum", null, Double.toString(getSum()));
+    writeSample(out, "_count", null, Long.toString(cumulative));
+  }
+}
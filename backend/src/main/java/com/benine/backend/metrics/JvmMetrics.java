@@ -0,0 +1,63 @@
+package com.benine.backend.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Registers the resource use of the server process, so the cost of a load can be
+ * read from the same metrics as the load itself.
+ */
+public final class JvmMetrics {
+
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private static final double MILLIS_PER_SECOND = 1e3;
+
+  /**
+   * Only contains static methods.
+   */
+  private JvmMetrics() {
+  }
+
+  /**
+   * Registers the CPU time, memory, thread and garbage collection metrics of the JVM.
+   * @param registry The registry to register the metrics in.
+   */
+  public static void register(MetricRegistry registry) {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    registry.counter("process_cpu_seconds_total", "CPU time used by the server process.",
+            JvmMetrics::getProcessCpuSeconds);
+    registry.gauge("jvm_memory_bytes_used", "Memory used by the JVM.",
+        () -> memory.getHeapMemoryUsage().getUsed(), "area", "heap");
+    registry.gauge("jvm_memory_bytes_used", "Memory used by the JVM.",
+        () -> memory.getNonHeapMemoryUsage().getUsed(), "area", "nonheap");
+    registry.gauge("jvm_memory_bytes_committed", "Memory committed by the JVM.",
+        () -> memory.getHeapMemoryUsage().getCommitted(), "area", "heap");
+    registry.gauge("jvm_memory_bytes_max", "Maximum memory of the JVM, -1 if unlimited.",
+        () -> memory.getHeapMemoryUsage().getMax(), "area", "heap");
+    registry.gauge("jvm_threads_current", "Live threads of the JVM.", threads::getThreadCount);
+
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      registry.counter("jvm_gc_collection_seconds_total", "Time spent in garbage collection.",
+          () -> gc.getCollectionTime() / MILLIS_PER_SECOND, "gc", gc.getName());
+    }
+  }
+
+  /**
+   * Returns the CPU time used by this process.
+   * @return The CPU time in seconds, -1 if not supported by the JVM.
+   */
+  static double getProcessCpuSeconds() {
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    if (os instanceof com.sun.management.OperatingSystemMXBean) {
+      long nanos = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+      return nanos < 0 ? -1 : nanos / NANOS_PER_SECOND;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,87 @@
+package com.benine.backend.metrics;
+
+/**
+ * A single metric with a name and labels, written in the Prometheus text format.
+ */
+public abstract class Metric {
+
+  private final String name;
+
+  private final String help;
+
+  /**
+   * The labels formatted as name="value" pairs separated by commas, empty if none.
+   */
+  private final String labels;
+
+  /**
+   * Creates a new metric.
+   * @param name    The name of the metric.
+   * @param help    The description of the metric.
+   * @param labels  The formatted labels of the metric.
+   */
+  Metric(String name, String help, String labels) {
+    this.name = name;
+    this.help = help;
+    this.labels = labels;
+  }
+
+  /**
+   * Returns the Prometheus type of this metric.
+   * @return The type, for example counter.
+   */
+  abstract String getType();
+
+  /**
+   * Writes the samples of this metric.
+   * @param out The builder to write to.
+   */
+  abstract void write(StringBuilder out);
+
+  /**
+   * Writes a single sample of this metric.
+   * @param out         The builder to write to.
+   * @param suffix      The suffix of the sample name, empty for none.
+   * @param extraLabel  A label added to the labels of the metric, null for none.
+   * @param value       The value of the sample.
+   */
+  void writeSample(StringBuilder out, String suffix, String extraLabel, String value) {
+    out.append(name).append(suffix);
+
+    if (!labels.isEmpty() || extraLabel != null) {
+      out.append('{').append(labels);
+      if (extraLabel != null) {
+        if (!labels.isEmpty()) {
+          out.append(',');
+        }
+        out.append(extraLabel);
+      }
+      out.append('}');
+    }
+    out.append(' ').append(value).append('\n');
+  }
+
+  /**
+   * Returns the name of this metric.
+   * @return The name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the description of this metric.
+   * @return The help text.
+   */
+  public String getHelp() {
+    return help;
+  }
+
+  /**
+   * Returns the labels of this metric.
+   * @return The formatted labels, empty if none.
+   */
+  public String getLabels() {
+    return labels;
+  }
+}
@@ -0,0 +1,164 @@
+package com.benine.backend.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Contains all metrics of the server, and writes them in the Prometheus text format.
+ * Metrics are created on first use, asking for the same name and labels again
+ * returns the existing metric.
+ */
+public class MetricRegistry {
+
+  /**
+   * The metrics by name and labels, sorted so metrics with the same name are adjacent.
+   */
+  private final Map<String, Metric> metrics;
+
+  /**
+   * Creates an empty MetricRegistry.
+   */
+  public MetricRegistry() {
+    this.metrics = new ConcurrentSkipListMap<>();
+  }
+
+  /**
+   * Returns the counter with a name and labels, creating it if needed.
+   * @param name    The name of the counter.
+   * @param help    The description of the counter.
+   * @param labels  Pairs of label names and values.
+   * @return The Counter.
+   */
+  public Counter counter(String name, String help, String... labels) {
+    String formatted = formatLabels(labels);
+    return (Counter) getOrCreate(name, formatted, new Counter(name, help, formatted));
+  }
+
+  /**
+   * Registers a counter whose value is read from a supplier, if not registered yet.
+   * @param name    The name of the counter.
+   * @param help    The description of the counter.
+   * @param value   The supplier of the value, which should only increase.
+   * @param labels  Pairs of label names and values.
+   * @return The SampledMetric.
+   */
+  public SampledMetric counter(String name, String help, DoubleSupplier value,
+                               String... labels) {
+    return sampled(name, help, "counter", value, labels);
+  }
+
+  /**
+   * Returns the gauge with a name and labels, creating it if needed.
+   * @param name    The name of the gauge.
+   * @param help    The description of the gauge.
+   * @param labels  Pairs of label names and values.
+   * @return The Gauge.
+   */
+  public Gauge gauge(String name, String help, String... labels) {
+    String formatted = formatLabels(labels);
+    return (Gauge) getOrCreate(name, formatted, new Gauge(name, help, formatted));
+  }
+
+  /**
+   * Registers a gauge whose value is read from a supplier, if not registered yet.
+   * @param name    The name of the gauge.
+   * @param help    The description of the gauge.
+   * @param value   The supplier of the value.
+   * @param labels  Pairs of label names and values.
+   * @return The SampledMetric.
+   */
+  public SampledMetric gauge(String name, String help, DoubleSupplier value, String... labels) {
+    return sampled(name, help, "gauge", value, labels);
+  }
+
+  /**
+   * Registers a metric whose value is read from a supplier, if not registered yet.
+   * @param name    The name of the metric.
+   * @param help    The description of the metric.
+   * @param type    The Prometheus type of the metric.
+   * @param value   The supplier of the value.
+   * @param labels  Pairs of label names and values.
+   * @return The SampledMetric.
+   */
+  private SampledMetric sampled(String name, String help, String type, DoubleSupplier value,
+                                String... labels) {
+    String formatted = formatLabels(labels);
+    return (SampledMetric) getOrCreate(name, formatted,
+            new SampledMetric(name, help, formatted, type, value));
+  }
+
+  /**
+   * Returns the histogram with a name and labels, creating it if needed.
+   * @param name    The name of the histogram.
+   * @param help    The description of the histogram.
+   * @param bounds  The upper bounds of the buckets, used when the histogram is created.
+   * @param labels  Pairs of label names and values.
+   * @return The Histogram.
+   */
+  public Histogram histogram(String name, String help, double[] bounds, String... labels) {
+    String formatted = formatLabels(labels);
+    return (Histogram) getOrCreate(name, formatted,
+            new Histogram(name, help, formatted, bounds));
+  }
+
+  /**
+   * Returns the registered metric, registering the new metric if there is none.
+   * @param name    The name of the metric.
+   * @param labels  The formatted labels of the metric.
+   * @param metric  The metric to register if there is none.
+   * @return The registered Metric.
+   */
+  private Metric getOrCreate(String name, String labels, Metric metric) {
+    Metric registered = metrics.computeIfAbsent(name + '{' + labels, key -> metric);
+
+    if (registered.getClass() != metric.getClass()
+            || !registered.getType().equals(metric.getType())) {
+      throw new IllegalArgumentException("Metric " + name + " is already registered as "
+              + registered.getType());
+    }
+    return registered;
+  }
+
+  /**
+   * Formats label pairs as name="value", escaping the values.
+   * @param labels  Pairs of label names and values.
+   * @return The formatted labels.
+   */
+  private static String formatLabels(String... labels) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels should be pairs of names and values");
+    }
+
+    StringBuilder out = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (i > 0) {
+        out.append(',');
+      }
+      out.append(labels[i]).append("=\"").append(labels[i + 1].replace("\\", "\\\\")
+              .replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes all metrics in the Prometheus text exposition format.
+   * @return The metrics as text.
+   */
+  public String scrape() {
+    StringBuilder out = new StringBuilder();
+    String previous = null;
+
+    for (Metric metric : metrics.values()) {
+      if (!metric.getName().equals(previous)) {
+        out.append("# HELP ").append(metric.getName()).append(' ')
+                .append(metric.getHelp()).append('\n');
+        out.append("# TYPE ").append(metric.getName()).append(' ')
+                .append(metric.getType()).append('\n');
+        previous = metric.getName();
+      }
+      metric.write(out);
+    }
+    return out.toString();
+  }
+}
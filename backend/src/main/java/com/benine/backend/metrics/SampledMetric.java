@@ -0,0 +1,46 @@
+package com.benine.backend.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A metric whose value is read from a supplier when the metrics are scraped,
+ * for values which are already kept elsewhere, such as the memory use of the JVM.
+ */
+public class SampledMetric extends Metric {
+
+  private final String type;
+
+  private final DoubleSupplier value;
+
+  /**
+   * Creates a new sampled metric.
+   * @param name    The name of the metric.
+   * @param help    The description of the metric.
+   * @param labels  The formatted labels of the metric.
+   * @param type    The Prometheus type, gauge or counter.
+   * @param value   The supplier of the value.
+   */
+  SampledMetric(String name, String help, String labels, String type, DoubleSupplier value) {
+    super(name, help, labels);
+    this.type = type;
+    this.value = value;
+  }
+
+  /**
+   * Returns the current value of the metric.
+   * @return The value.
+   */
+  public double get() {
+    return value.getAsDouble();
+  }
+
+  @Override
+  String getType() {
+    return type;
+  }
+
+  @Override
+  void write(StringBuilder out) {
+    writeSample(out, "", null, Double.toString(get()));
+  }
+}
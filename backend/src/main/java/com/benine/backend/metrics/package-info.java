@@ -0,0 +1,4 @@
+/**
+ * Package containing the counters and histograms exported on the /metrics endpoint.
+ */
+package com.benine.backend.metrics;
@@ -13,7 +13,6 @@ import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
@@ -203,10 +202,13 @@ public abstract class Preset {
     File path = getNewImagePath(folder);
 
     VideoFrame snapShot = streamReader.getSnapShot();
+    if (snapShot == null) {
+      throw new StreamNotAvailableException(getCameraId(), "No frame received from the stream.");
+    }
     MJPEGFrameResizer resizer = new MJPEGFrameResizer(width, height);
     snapShot = resizer.resize(snapShot);
 
-    BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(snapShot.getImage()));
+    BufferedImage bufferedImage = ImageIO.read(snapShot.getImageStream());
     ImageIO.write(bufferedImage, "jpg", path);
 
     PresetController presetController = ServerController.getInstance().getPresetController();
@@ -101,7 +101,12 @@ public class PresetController {
   public void createImage(Preset preset) {
     StreamReader streamReader;
     try {
-      streamReader = streamController.getStreamReader(preset.getCameraId());
+      streamReader = streamController.acquireStreamReader(preset.getCameraId());
+    } catch (StreamNotAvailableException e) {
+      logger.log("Stream is not available for creating image.", e);
+      return;
+    }
+    try {
       String imagePath = config.getValue("imagepath")
                           .replaceAll("/", Matcher.quoteReplacement(File.separator));
       int width = Integer.parseInt(config.getValue("preset_image_width"));
@@ -114,6 +119,8 @@ public class PresetController {
       logger.log("Image could not be saved.", e);
     } catch (SQLException e) {
       logger.log("Image could not be saved in database.", e);
+    } finally {
+      streamController.releaseStreamReader(preset.getCameraId());
     }
   }
   
@@ -0,0 +1,268 @@
+package com.benine.backend.video;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ring buffer of video frames with a single producer and multiple consumers.
+ * Every consumer reads the frames with its own cursor, when a consumer falls
+ * too far behind the oldest frames are dropped for that consumer.
+ * Consumers can either wait for new frames or be notified by a listener.
+ */
+public class FrameBuffer {
+
+  /**
+   * The slots of the ring, every slot contains the frame and its sequence number.
+   */
+  private final AtomicReferenceArray<Entry> slots;
+
+  private final int capacity;
+
+  /**
+   * Sequence number of the last published frame, -1 if nothing is published yet.
+   */
+  private final AtomicLong head;
+
+  /**
+   * Advances a phase on every published frame, consumers wait on it for new frames.
+   */
+  private final Phaser published;
+
+  /**
+   * Listeners notified on the thread of the producer after every published frame.
+   */
+  private final List<Runnable> listeners;
+
+  /**
+   * Creates a new FrameBuffer.
+   * @param capacity The amount of frames kept in the buffer.
+   */
+  public FrameBuffer(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity of a FrameBuffer should be at least 1");
+    }
+    this.capacity = capacity;
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.head = new AtomicLong(-1);
+    this.published = new Phaser(1);
+    this.listeners = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * Publishes a frame to all consumers, overwriting the oldest frame.
+   * Should only be called by the single producer of this buffer.
+   * @param frame The VideoFrame to publish.
+   */
+  public void publish(VideoFrame frame) {
+    long sequence = head.get() + 1;
+
+    slots.set(index(sequence), new Entry(sequence, frame));
+    head.set(sequence);
+    published.arrive();
+
+    for (Runnable listener : listeners) {
+      listener.run();
+    }
+  }
+
+  /**
+   * Adds a listener which is notified after every published frame.
+   * The listener runs on the thread of the producer, so it should return quickly.
+   * @param listener The listener to add.
+   */
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Removes a listener.
+   * @param listener The listener to remove.
+   */
+  public void removeListener(Runnable listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Returns the last published frame.
+   * @return The last published VideoFrame, null if there is none.
+   */
+  public VideoFrame getLatest() {
+    long sequence = head.get();
+
+    if (sequence < 0) {
+      return null;
+    }
+    return slots.get(index(sequence)).frame;
+  }
+
+  /**
+   * Returns the sequence number of the last published frame.
+   * @return The sequence number, -1 if no frame has been published.
+   */
+  public long getSequence() {
+    return head.get();
+  }
+
+  /**
+   * Returns the amount of frames this buffer can hold.
+   * @return The capacity.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Creates a new cursor for a consumer, starting at the last published frame.
+   * @return A Cursor object.
+   */
+  public Cursor subscribe() {
+    return new Cursor(Math.max(0, head.get()));
+  }
+
+  /**
+   * Returns the slot index of a sequence number.
+   * @param sequence The sequence number.
+   * @return The index in the slots array.
+   */
+  private int index(long sequence) {
+    return (int) (sequence % capacity);
+  }
+
+  /**
+   * A frame together with the sequence number it was published under.
+   */
+  private static final class Entry {
+
+    private final long sequence;
+    private final VideoFrame frame;
+
+    /**
+     * Creates a new entry.
+     * @param sequence The sequence number.
+     * @param frame    The frame.
+     */
+    private Entry(long sequence, VideoFrame frame) {
+      this.sequence = sequence;
+      this.frame = frame;
+    }
+  }
+
+  /**
+   * Read position of a single consumer in the buffer.
+   * A cursor should only be used by one thread.
+   */
+  public final class Cursor {
+
+    /**
+     * Sequence number of the next frame to read.
+     */
+    private long next;
+
+    /**
+     * Maximum amount of frames this cursor may lag behind the last published frame.
+     */
+    private int maxLag;
+
+    /**
+     * Amount of frames skipped by this cursor.
+     */
+    private long dropped;
+
+    /**
+     * Creates a cursor.
+     * @param next The sequence number of the first frame to read.
+     */
+    private Cursor(long next) {
+      this.next = next;
+      this.maxLag = capacity;
+      this.dropped = 0;
+    }
+
+    /**
+     * Returns the next frame if it is available.
+     * If the cursor lags too far behind, it skips the intermediate frames.
+     * @return The next VideoFrame, or null if no new frame is available.
+     */
+    public VideoFrame poll() {
+      while (true) {
+        long last = head.get();
+        if (next > last) {
+          return null;
+        }
+
+        if (last - next >= maxLag) {
+          skipTo(last - maxLag + 1);
+        }
+
+        Entry entry = slots.get(index(next));
+        if (entry.sequence == next) {
+          next++;
+          return entry.frame;
+        }
+        // The producer overwrote the slot while reading, skip ahead.
+        skipTo(entry.sequence - capacity + 1);
+      }
+    }
+
+    /**
+     * Moves the cursor forward, counting the skipped frames as dropped.
+     * @param sequence The sequence number to move to.
+     */
+    private void skipTo(long sequence) {
+      dropped += sequence - next;
+      next = sequence;
+    }
+
+    /**
+     * Returns the next frame, waiting for it to be published if needed.
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout.
+     * @return The next VideoFrame, or null if no frame was published within the timeout.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public VideoFrame next(long timeout, TimeUnit unit) throws InterruptedException {
+      int phase = published.getPhase();
+      VideoFrame frame = poll();
+
+      if (frame == null) {
+        try {
+          published.awaitAdvanceInterruptibly(phase, timeout, unit);
+        } catch (TimeoutException e) {
+          return null;
+        }
+        frame = poll();
+      }
+      return frame;
+    }
+
+    /**
+     * Sets the maximum amount of frames this cursor may lag behind.
+     * When the cursor lags further behind, the older frames are dropped.
+     * @param frames Amount of frames, limited between 1 and the capacity of the buffer.
+     */
+    public void setMaxLag(int frames) {
+      this.maxLag = Math.max(1, Math.min(capacity, frames));
+    }
+
+    /**
+     * Returns the maximum amount of frames this cursor may lag behind.
+     * @return Amount of frames.
+     */
+    public int getMaxLag() {
+      return maxLag;
+    }
+
+    /**
+     * Returns the amount of frames this cursor skipped because it fell behind.
+     * @return Amount of dropped frames.
+     */
+    public long getDroppedFrames() {
+      return dropped;
+    }
+  }
+}
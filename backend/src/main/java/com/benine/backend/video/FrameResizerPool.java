@@ -0,0 +1,110 @@
+package com.benine.backend.video;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of the resizers of a single stream, one for every requested size.
+ * Resizers are reference counted and removed when the last distributer releases them.
+ */
+public class FrameResizerPool {
+
+  private final Map<String, PooledResizer> resizers;
+
+  /**
+   * The metrics the resize times are recorded in, null if not recorded.
+   */
+  private StreamMetrics metrics;
+
+  /**
+   * Creates an empty FrameResizerPool.
+   */
+  public FrameResizerPool() {
+    this.resizers = new HashMap<>();
+  }
+
+  /**
+   * Sets the metrics the resizers created from now on record their resize times in.
+   * @param metrics The StreamMetrics of the stream.
+   */
+  public synchronized void setMetrics(StreamMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Returns the resizer for a size, creating it if nobody is using this size yet.
+   * Every acquired resizer should be released when it is no longer used.
+   * @param width   Width to resize to.
+   * @param height  Height to resize to.
+   * @return A resizer shared by everyone acquiring the same size.
+   */
+  public synchronized SharedFrameResizer acquire(int width, int height) {
+    String key = getKey(width, height);
+    PooledResizer pooled = resizers.get(key);
+
+    if (pooled == null) {
+      SharedFrameResizer resizer = new SharedFrameResizer(width, height);
+      if (metrics != null) {
+        resizer.setResizeTime(metrics.getResizeTime());
+      }
+      pooled = new PooledResizer(resizer);
+      resizers.put(key, pooled);
+    }
+    pooled.references++;
+
+    return pooled.resizer;
+  }
+
+  /**
+   * Releases a resizer, removing it from the pool if it is no longer used.
+   * @param width   Width of the released resizer.
+   * @param height  Height of the released resizer.
+   */
+  public synchronized void release(int width, int height) {
+    String key = getKey(width, height);
+    PooledResizer pooled = resizers.get(key);
+
+    if (pooled != null) {
+      pooled.references--;
+      if (pooled.references <= 0) {
+        resizers.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Returns the amount of different sizes currently in use.
+   * @return The amount of resizers in the pool.
+   */
+  public synchronized int size() {
+    return resizers.size();
+  }
+
+  /**
+   * Returns the key of a size in the pool.
+   * @param width   The width.
+   * @param height  The height.
+   * @return A String identifying the size.
+   */
+  private String getKey(int width, int height) {
+    return width + "x" + height;
+  }
+
+  /**
+   * A resizer together with the amount of distributers using it.
+   */
+  private static final class PooledResizer {
+
+    private final SharedFrameResizer resizer;
+    private int references;
+
+    /**
+     * Creates a new PooledResizer without references.
+     * @param resizer The shared resizer.
+     */
+    private PooledResizer(SharedFrameResizer resizer) {
+      this.resizer = resizer;
+      this.references = 0;
+    }
+  }
+}
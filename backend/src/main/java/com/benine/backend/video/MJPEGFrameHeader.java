@@ -1,50 +1,174 @@
 package com.benine.backend.video;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
 /**
+ * Immutable header of a MJPEG frame.
+ * The header is serialized once on creation, so it can be written to every client without
+ * creating garbage.
+ * Frames read from a camera carry their sequence number and capture time in the
+ * X-Frame-Seq and X-Capture-Time fields of the header.
  * Created on 01-06-16.
  */
 public class MJPEGFrameHeader {
 
-  private int contentlength;
-  private String boundary;
-  private String contenttype;
+  private final int contentlength;
+  private final String boundary;
+  private final String contenttype;
+  private final long sequence;
+  private final long captureTime;
+
+  /**
+   * The serialized header.
+   */
+  private final byte[] bytes;
 
   private static final String MJPEG_BOUNDARY = "--BOUNDARY";
   private static final String CONTENT_TYPE = "image/jpeg";
 
+  private static final byte[] CONTENT_LENGTH =
+          "content-length:".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * The serialized header up to the value of the content length.
+   */
+  private static final byte[] PREFIX = (MJPEG_BOUNDARY + "\nContent-Type: " + CONTENT_TYPE
+          + "\nContent-Length: ").getBytes(StandardCharsets.US_ASCII);
+
+  private static final byte[] SUFFIX = "\n\n".getBytes(StandardCharsets.US_ASCII);
+
+  private static final String FRAME_SEQ = "\nX-Frame-Seq: ";
+  private static final String CAPTURE_TIME = "\nX-Capture-Time: ";
+
   /**
    * Creates a frameheader object from a bytestream header.
    * @param header Header in bytes.
    */
   public MJPEGFrameHeader(byte[] header) {
-    String headerString = new String(header, StandardCharsets.UTF_8);
+    this(header, 0, header.length);
+  }
+
+  /**
+   * Creates a frameheader object from a part of a byte array, without copying it.
+   * @param header Array containing the header.
+   * @param offset Position of the header in the array.
+   * @param length Length of the header in bytes.
+   */
+  public MJPEGFrameHeader(byte[] header, int offset, int length) {
+    this(getContentLength(header, offset, offset + length));
+  }
+
+  /**
+   * Creates a frameheader object for an image.
+   * @param contentLength The length of the image in bytes.
+   */
+  public MJPEGFrameHeader(int contentLength) {
+    this(contentLength, -1, 0);
+  }
 
+  /**
+   * Creates a frameheader object for a frame read from a camera.
+   * @param contentLength The length of the image in bytes.
+   * @param sequence      The sequence number of the frame, -1 if unknown.
+   * @param captureTime   The time the frame was received in nanoseconds since the epoch.
+   */
+  public MJPEGFrameHeader(int contentLength, long sequence, long captureTime) {
     this.boundary = MJPEG_BOUNDARY;
     this.contenttype = CONTENT_TYPE;
-    this.contentlength = getContentLength(headerString);
-
+    this.contentlength = contentLength;
+    this.sequence = sequence;
+    this.captureTime = captureTime;
+    this.bytes = serialize(contentLength, sequence, captureTime);
   }
 
   /**
    * Looks for the Content-Length: tag in the header, and extracts the value.
+   * The name of the tag is matched case insensitive.
    *
-   * @param header A header string.
-   * @return 0 if content-length not found, else content length.
-   */
-  private int getContentLength(String header) {
-    Pattern contentLength = Pattern.compile("Content-Length: \\d+");
-    Matcher matcher = contentLength.matcher(header);
-
-    // On a match, remove all non-digits and parse it to an integer.
-    if (matcher.find()) {
-      return Integer.parseInt(matcher.group().replaceAll("[^0-9]", ""));
-    } else {
-      return -1;
+   * @param header Array containing the header.
+   * @param start  Position of the header.
+   * @param end    Position after the header.
+   * @return -1 if content-length not found, else content length.
+   */
+  private static int getContentLength(byte[] header, int start, int end) {
+    int last = end - CONTENT_LENGTH.length;
+
+    for (int i = start; i <= last; i++) {
+      if (matchesIgnoreCase(header, i, CONTENT_LENGTH)) {
+        return parseNumber(header, i + CONTENT_LENGTH.length, end);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks if the bytes at a position match a lower case ASCII tag, ignoring the case.
+   * @param header    The header bytes.
+   * @param position  The position in the header.
+   * @param tag       The lower case tag.
+   * @return true if the tag matches, false otherwise.
+   */
+  private static boolean matchesIgnoreCase(byte[] header, int position, byte[] tag) {
+    for (int i = 0; i < tag.length; i++) {
+      int b = header[position + i];
+      if (b >= 'A' && b <= 'Z') {
+        b += 'a' - 'A';
+      }
+      if (b != tag[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses the decimal number at a position, skipping leading spaces.
+   * @param header    The header bytes.
+   * @param position  The position of the number.
+   * @param end       Position after the header.
+   * @return The number, -1 if there is no valid number.
+   */
+  private static int parseNumber(byte[] header, int position, int end) {
+    int i = position;
+    while (i < end && (header[i] == ' ' || header[i] == '\t')) {
+      i++;
+    }
+
+    int start = i;
+    long value = 0;
+    while (i < end && header[i] >= '0' && header[i] <= '9') {
+      value = value * 10 + (header[i] - '0');
+      if (value > Integer.MAX_VALUE) {
+        return -1;
+      }
+      i++;
     }
+
+    return i == start ? -1 : (int) value;
+  }
+
+  /**
+   * Serializes the header, the frame fields are only included for a known sequence number.
+   * @param contentLength The content length.
+   * @param sequence      The sequence number.
+   * @param captureTime   The capture time.
+   * @return The header in bytes.
+   */
+  private static byte[] serialize(int contentLength, long sequence, long captureTime) {
+    String fields = Integer.toString(contentLength);
+    if (sequence >= 0) {
+      fields += FRAME_SEQ + sequence + CAPTURE_TIME + captureTime;
+    }
+    byte[] length = fields.getBytes(StandardCharsets.US_ASCII);
+    byte[] header = Arrays.copyOf(PREFIX, PREFIX.length + length.length + SUFFIX.length);
+
+    System.arraycopy(length, 0, header, PREFIX.length, length.length);
+    System.arraycopy(SUFFIX, 0, header, PREFIX.length + length.length, SUFFIX.length);
+
+    return header;
   }
 
   /**
@@ -52,17 +176,32 @@ public class MJPEGFrameHeader {
    * @return a String representation of the header.
    */
   public String getString() {
-    StringBuilder builder = new StringBuilder(128);
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Returns a copy of the serialized header.
+   * @return The header in bytes.
+   */
+  public byte[] getBytes() {
+    return Arrays.copyOf(bytes, bytes.length);
+  }
 
-    builder.append(boundary);
-    builder.append('\n');
-    builder.append("Content-Type: " + contenttype);
-    builder.append('\n');
-    builder.append("Content-Length: " + contentlength);
-    builder.append('\n');
-    builder.append('\n');
+  /**
+   * Returns the length of the serialized header.
+   * @return The length in bytes.
+   */
+  public int getLength() {
+    return bytes.length;
+  }
 
-    return builder.toString();
+  /**
+   * Writes the serialized header to an outputstream.
+   * @param out The outputstream to write to.
+   * @throws IOException If the outputstream cannot be written.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(bytes);
   }
 
   /**
@@ -81,7 +220,41 @@ public class MJPEGFrameHeader {
     return this.boundary;
   }
 
-  public void setContentLength(int length) {
-    this.contentlength = length;
+  /**
+   * Returns the sequence number of the frame.
+   * @return The sequence number, -1 if unknown.
+   */
+  public long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Returns the time the frame was received.
+   * @return The capture time in nanoseconds since the epoch, 0 if unknown.
+   */
+  public long getCaptureTime() {
+    return this.captureTime;
+  }
+
+  /**
+   * Returns a header with another content length.
+   * @param length The new content length.
+   * @return This header if the length is the same, else a new MJPEGFrameHeader.
+   */
+  public MJPEGFrameHeader withContentLength(int length) {
+    if (length == contentlength) {
+      return this;
+    }
+    return new MJPEGFrameHeader(length, sequence, captureTime);
+  }
+
+  /**
+   * Returns a header with a sequence number and capture time.
+   * @param sequence    The sequence number of the frame.
+   * @param captureTime The capture time in nanoseconds since the epoch.
+   * @return A new MJPEGFrameHeader.
+   */
+  public MJPEGFrameHeader withFrameInfo(long sequence, long captureTime) {
+    return new MJPEGFrameHeader(contentlength, sequence, captureTime);
   }
 }
@@ -0,0 +1,239 @@
+package com.benine.backend.video;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Parses MJPEG frames from a stream of bytes.
+ * The bytes are read in bulk into a reusable buffer, which is scanned for the
+ * JPEG start and end markers. Every part header ends at the start marker of its image,
+ * the image is sliced out by its Content-Length, or up to its end marker if unknown.
+ */
+public class MJPEGFrameParser {
+
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+
+  /**
+   * Largest frame the buffer grows to, larger frames are discarded.
+   */
+  private static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+  private static final byte MARKER = (byte) 0xFF;
+  private static final byte START_OF_IMAGE = (byte) 0xD8;
+  private static final byte END_OF_IMAGE = (byte) 0xD9;
+
+  private byte[] buffer;
+
+  /**
+   * Position of the first byte of the current part.
+   */
+  private int start;
+
+  /**
+   * Position after the last byte in the buffer.
+   */
+  private int end;
+
+  /**
+   * Position from which the current marker search continues, so no byte is scanned twice.
+   */
+  private int scanned;
+
+  /**
+   * Position of the start of image marker of the current part, -1 if not found yet.
+   */
+  private int imageStart;
+
+  /**
+   * Content length of the current part, -1 if not found yet or unknown.
+   */
+  private int contentLength;
+
+  /**
+   * Header of the current part, null if the start of the image is not found yet.
+   */
+  private MJPEGFrameHeader header;
+
+  /**
+   * Creates a new MJPEGFrameParser.
+   */
+  public MJPEGFrameParser() {
+    this.buffer = new byte[INITIAL_CAPACITY];
+    reset();
+  }
+
+  /**
+   * Discards all buffered bytes.
+   */
+  public void reset() {
+    start = 0;
+    end = 0;
+    startPart();
+  }
+
+  /**
+   * Starts parsing a new part at the current start position.
+   */
+  private void startPart() {
+    scanned = start;
+    imageStart = -1;
+    contentLength = -1;
+    header = null;
+  }
+
+  /**
+   * Reads from the input stream until a complete frame is parsed.
+   * @param in The stream to read.
+   * @return The next VideoFrame.
+   * @throws IOException If the stream cannot be read or has ended.
+   */
+  public VideoFrame readFrame(InputStream in) throws IOException {
+    VideoFrame frame = nextFrame();
+
+    while (frame == null) {
+      ensureCapacity(1);
+      int read = in.read(buffer, end, buffer.length - end);
+      if (read < 0) {
+        throw new EOFException("MJPEG stream ended");
+      }
+      end += read;
+      frame = nextFrame();
+    }
+    return frame;
+  }
+
+  /**
+   * Adds bytes to the buffer, frames can be taken out with nextFrame.
+   * @param bytes  The bytes to add.
+   * @param offset The offset of the bytes.
+   * @param length The amount of bytes.
+   */
+  public void feed(byte[] bytes, int offset, int length) {
+    ensureCapacity(length);
+    System.arraycopy(bytes, offset, buffer, end, length);
+    end += length;
+  }
+
+  /**
+   * Adds the remaining bytes of a buffer, frames can be taken out with nextFrame.
+   * @param bytes The buffer containing the bytes to add.
+   */
+  public void feed(ByteBuffer bytes) {
+    int length = bytes.remaining();
+
+    ensureCapacity(length);
+    bytes.get(buffer, end, length);
+    end += length;
+  }
+
+  /**
+   * Returns the next frame from the buffered bytes.
+   * @return The next VideoFrame, or null if no complete frame is buffered yet.
+   */
+  public VideoFrame nextFrame() {
+    if (header == null && !findHeader()) {
+      return null;
+    }
+
+    int imageEnd;
+    if (contentLength > 0) {
+      imageEnd = imageStart + contentLength;
+      if (imageEnd > end) {
+        return null;
+      }
+    } else {
+      int marker = indexOf(END_OF_IMAGE, Math.max(scanned, imageStart + 2));
+      if (marker < 0) {
+        return null;
+      }
+      imageEnd = marker + 2;
+    }
+
+    VideoFrame frame = new VideoFrame(header.withContentLength(imageEnd - imageStart),
+            Arrays.copyOfRange(buffer, imageStart, imageEnd));
+    start = imageEnd;
+    startPart();
+
+    return frame;
+  }
+
+  /**
+   * Looks for the start of the image of the current part and parses the header before it.
+   * @return true if the header is found, false if more bytes are needed.
+   */
+  private boolean findHeader() {
+    int marker = indexOf(START_OF_IMAGE, scanned);
+    if (marker < 0) {
+      return false;
+    }
+
+    header = new MJPEGFrameHeader(buffer, start, marker - start);
+    imageStart = marker;
+    contentLength = header.getContentlength();
+    scanned = marker + 2;
+    return true;
+  }
+
+  /**
+   * Returns the position of the first JPEG marker of a type in the buffer.
+   * When not found, the search continues after the scanned bytes on the next call.
+   * @param type   The second byte of the marker.
+   * @param from   The position to start searching.
+   * @return The position of the marker, -1 if not found.
+   */
+  private int indexOf(byte type, int from) {
+    byte[] bytes = buffer;
+    int last = end - 1;
+
+    for (int i = from; i < last; i++) {
+      if (bytes[i] == MARKER && bytes[i + 1] == type) {
+        return i;
+      }
+    }
+
+    scanned = Math.max(from, last);
+    return -1;
+  }
+
+  /**
+   * Makes room for bytes after the end of the buffer,
+   * by moving the current part to the front or growing the buffer.
+   * @param length The amount of bytes to make room for.
+   */
+  private void ensureCapacity(int length) {
+    if (end + length <= buffer.length) {
+      return;
+    }
+
+    int shift = start;
+    int used = end - start;
+
+    if (used + length > MAX_FRAME_SIZE) {
+      // No valid frame fits, skip the buffered bytes.
+      reset();
+      shift = 0;
+      used = 0;
+    }
+
+    byte[] target = buffer;
+    if (used + length > buffer.length) {
+      int capacity = buffer.length;
+      while (used + length > capacity) {
+        capacity *= 2;
+      }
+      target = new byte[capacity];
+    }
+
+    System.arraycopy(buffer, start, target, 0, used);
+    buffer = target;
+    start -= shift;
+    end -= shift;
+    scanned -= shift;
+    if (imageStart >= 0) {
+      imageStart -= shift;
+    }
+  }
+}
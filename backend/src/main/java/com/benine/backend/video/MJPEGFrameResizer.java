@@ -1,17 +1,44 @@
 package com.benine.backend.video;
 
-import java.awt.*;
+import com.benine.backend.metrics.Histogram;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 /**
- * Created on 01-06-16.
+ * Resizes the JPEG images of video frames.
+ * Power of two reductions are done while decoding by subsampling the source,
+ * so only the remaining factor has to be scaled. The JPEG reader, writer and
+ * images are reused for every frame, so a resizer should not be used by
+ * multiple threads at the same time.
  */
 public class MJPEGFrameResizer {
 
+  /**
+   * Default JPEG quality of the resized images.
+   */
+  public static final float DEFAULT_QUALITY = 0.75f;
+
+  /**
+   * Largest subsampling factor used while decoding.
+   */
+  private static final int MAX_SUBSAMPLING = 8;
+
   /**
    * Width this resizer should resize to.
    */
@@ -22,14 +49,90 @@ public class MJPEGFrameResizer {
    */
   private int height;
 
+  private ImageReader reader;
+
+  private ImageWriter writer;
+
+  private ImageWriteParam writeParam;
+
+  /**
+   * Image the subsampled source is decoded into, reused while the source size does not change.
+   */
+  private BufferedImage decoded;
+
+  /**
+   * Image of the requested size the decoded image is scaled into.
+   */
+  private BufferedImage resized;
+
+  private ByteArrayOutputStream buffer;
+
+  /**
+   * Histogram the resize times are recorded in, null if not recorded.
+   */
+  private volatile Histogram resizeTime;
+
   /**
    * Constructor for an MJPEGFrameResizer.
    * @param width     Width to resize to.
    * @param height    Height to resize to.
    */
   public MJPEGFrameResizer(int width, int height) {
+    this(width, height, DEFAULT_QUALITY);
+  }
+
+  /**
+   * Constructor for an MJPEGFrameResizer.
+   * @param width     Width to resize to.
+   * @param height    Height to resize to.
+   * @param quality   JPEG quality of the resized images, between 0 and 1.
+   */
+  public MJPEGFrameResizer(int width, int height, float quality) {
     this.width = width;
     this.height = height;
+    this.reader = getFirst(ImageIO.getImageReadersByFormatName("jpeg"));
+    this.writer = getFirst(ImageIO.getImageWritersByFormatName("jpeg"));
+    this.writeParam = writer.getDefaultWriteParam();
+    this.writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+    this.writeParam.setCompressionQuality(Math.max(0, Math.min(1, quality)));
+    this.buffer = new ByteArrayOutputStream();
+  }
+
+  /**
+   * Returns the first element of an iterator over the available image readers or writers.
+   * @param iterator  The iterator.
+   * @param <T>       The type of the elements.
+   * @return The first element.
+   */
+  private static <T> T getFirst(Iterator<T> iterator) {
+    if (!iterator.hasNext()) {
+      throw new IllegalStateException("No JPEG support available in ImageIO.");
+    }
+    return iterator.next();
+  }
+
+  /**
+   * Sets the histogram in which the time of every resize is recorded.
+   * @param resizeTime The Histogram to record in, null to not record.
+   */
+  public void setResizeTime(Histogram resizeTime) {
+    this.resizeTime = resizeTime;
+  }
+
+  /**
+   * Returns the width the frames are resized to.
+   * @return The width in pixels.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the height the frames are resized to.
+   * @return The height in pixels.
+   */
+  public int getHeight() {
+    return height;
   }
 
   /**
@@ -38,44 +141,106 @@ public class MJPEGFrameResizer {
    * @return The updated MJPEGVideoFrame.
    */
   public VideoFrame resize(VideoFrame frame) {
-    byte[] resizedImage = rescaleImage(frame.getImage());
-    MJPEGFrameHeader resizedHeader = new MJPEGFrameHeader(frame.getHeaderBytes());
-    resizedHeader.setContentLength(resizedImage.length);
-
-    return new VideoFrame(resizedHeader, resizedImage);
+    long start = System.nanoTime();
+    byte[] resizedImage = rescaleImage(frame);
+    if (resizeTime != null) {
+      resizeTime.observeNanos(System.nanoTime() - start);
+    }
+    return new VideoFrame(frame.getHeader().withContentLength(resizedImage.length), resizedImage);
   }
 
   /**
    * Resizes the image.
-   * @param image The byte array to resize.
+   * @param frame The frame containing the image to resize.
    * @return If an error occurs, a non-resized image, else a resized image.
    */
-  private byte[] rescaleImage(byte[] image) {
-    try {
-      BufferedImage inputimg = ImageIO.read(new ByteArrayInputStream(image));
+  private synchronized byte[] rescaleImage(VideoFrame frame) {
+    try (ImageInputStream in = new MemoryCacheImageInputStream(frame.getImageStream())) {
+      reader.setInput(in, true, true);
+
+      BufferedImage source = decode(reader.getWidth(0), reader.getHeight(0));
+
+      if (source.getWidth() != width || source.getHeight() != height) {
+        source = scale(source);
+      }
+      return encode(source);
+
+    } catch (IOException | RuntimeException e) {
+      return frame.getImage();
+    } finally {
+      reader.setInput(null);
+    }
+  }
+
+  /**
+   * Decodes the image, subsampling it by the largest power of two
+   * which keeps it at least as large as the requested size.
+   * @param sourceWidth   Width of the source image.
+   * @param sourceHeight  Height of the source image.
+   * @return The decoded image.
+   * @throws IOException If the image cannot be decoded.
+   */
+  private BufferedImage decode(int sourceWidth, int sourceHeight) throws IOException {
+    int subsampling = 1;
+    while (subsampling < MAX_SUBSAMPLING
+            && sourceWidth / (subsampling * 2) >= width
+            && sourceHeight / (subsampling * 2) >= height) {
+      subsampling *= 2;
+    }
 
-      // Convert input image to a faster color model.
-      BufferedImage img = new BufferedImage(inputimg.getWidth(), inputimg.getHeight(),
-              BufferedImage.TYPE_INT_RGB);
+    int decodedWidth = (sourceWidth + subsampling - 1) / subsampling;
+    int decodedHeight = (sourceHeight + subsampling - 1) / subsampling;
 
-      img.getGraphics().drawImage(inputimg, 0, 0, null);
+    ImageReadParam param = reader.getDefaultReadParam();
+    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
 
-      BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-      Graphics2D graphics = resized.createGraphics();
+    ImageTypeSpecifier type = reader.getImageTypes(0).next();
+    if (decoded == null
+            || decoded.getWidth() != decodedWidth
+            || decoded.getHeight() != decodedHeight
+            || !type.getColorModel().equals(decoded.getColorModel())) {
+      decoded = type.createBufferedImage(decodedWidth, decodedHeight);
+    }
+    param.setDestination(decoded);
 
-      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-              RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    return reader.read(0, param);
+  }
 
-      graphics.drawImage(img, 0, 0, width, height, 0, 0, img.getWidth(), img.getHeight(), null);
-      graphics.dispose();
+  /**
+   * Scales an image to the requested size using bicubic interpolation.
+   * @param image The image to scale.
+   * @return The scaled image.
+   */
+  private BufferedImage scale(BufferedImage image) {
+    if (resized == null) {
+      resized = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+    }
 
-      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-      ImageIO.write(resized, "jpg", buffer);
+    Graphics2D graphics = resized.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+            RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    graphics.drawImage(image, 0, 0, width, height, 0, 0, image.getWidth(), image.getHeight(), null);
+    graphics.dispose();
 
-      return buffer.toByteArray();
+    return resized;
+  }
 
-    } catch (IOException e) {
-      return image;
+  /**
+   * Encodes an image as JPEG.
+   * @param image The image to encode.
+   * @return The JPEG bytes.
+   * @throws IOException If the image cannot be encoded.
+   */
+  private byte[] encode(BufferedImage image) throws IOException {
+    buffer.reset();
+
+    try (ImageOutputStream out = new MemoryCacheImageOutputStream(buffer)) {
+      writer.setOutput(out);
+      writer.write(null, new IIOImage(image, null, null), writeParam);
+    } finally {
+      writer.setOutput(null);
     }
+
+    return buffer.toByteArray();
   }
 }
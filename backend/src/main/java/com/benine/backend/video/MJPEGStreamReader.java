@@ -1,185 +1,106 @@
 package com.benine.backend.video;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * StreamReader for Motion JPEG streams.
+ * The reader is fed the bytes of the stream by the stream ingestor.
+ * Every frame is stamped with its sequence number and the time it was received.
  */
 public class MJPEGStreamReader extends StreamReader {
 
   private String boundary;
 
-  private VideoFrame snapshot;
+  private volatile VideoFrame snapshot;
 
-  /**
-   * Creates a new MJPEGStreamReader.
-   *
-   * @param stream A stream object.
-   * @throws IOException StreamReader does not have a valid stream, rendering the object useless.
-   */
-  public MJPEGStreamReader(Stream stream) throws IOException {
-    super(stream);
-
-    this.snapshot = null;
-
-    setMJPEGBoundary();
-    processStream();
-  }
-
-  /**
-   * Sets the MJPEG boundary by parsing the first header.
-   */
-  private void setMJPEGBoundary() {
-    try {
-      this.boundary = new MJPEGFrameHeader(getHeader()).getBoundary();
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
-  }
+  private MJPEGFrameParser parser;
 
   /**
-   * Processes a stream by fetching an image
-   * from the stream and updating the snapshot if possible.
+   * Sequence number of the next frame.
    */
-  public void processStream() {
-    try {
-      MJPEGFrameHeader header = new MJPEGFrameHeader(getHeader());
-      VideoFrame frame = new VideoFrame(header, getImage(header));
-
-      sendToDistributers(frame);
-      snapshot = frame;
-
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
-  }
+  private long nextSequence;
 
   /**
-   * Notify the observers about the header and the image.
-   * @param frame The VideoFrame to send to the distributers.
+   * Creates a new MJPEGStreamReader which is fed the bytes of the stream.
    */
-  private void sendToDistributers(VideoFrame frame) {
-    setChanged();
-    notifyObservers(frame);
+  public MJPEGStreamReader() {
+    this(0);
   }
 
   /**
-   * Peeks into the next amount of bytes and returns them.
-   *
-   * @param amount The amount of bytes to check.
-   * @return An int[] array containing the checked bytes in order.
-   * @throws IOException when the next bytes cannot be read from the stream.
+   * Creates a new MJPEGStreamReader which is fed the bytes of the stream,
+   * continuing the sequence numbers of an earlier reader of the same camera.
+   * @param firstSequence The sequence number of the first frame.
    */
-  private int[] checkNextBytes(int amount) throws IOException {
-    int[] byteArray = new int[amount];
-    BufferedInputStream bufferedStream = getBufferedStream();
+  public MJPEGStreamReader(long firstSequence) {
+    super();
 
-    bufferedStream.mark(amount);
-    for (int i = 0; i < amount; i++) {
-      byteArray[i] = bufferedStream.read();
-    }
-    bufferedStream.reset();
-
-    return byteArray;
+    this.nextSequence = firstSequence;
+    this.snapshot = null;
+    this.parser = new MJPEGFrameParser();
+    this.boundary = new MJPEGFrameHeader(0).getBoundary();
   }
 
   /**
-   * Checks the next 2 bytes and checks if they are the JPEG header (FF D8).
-   *
-   * @return true if header, false if not header.
-   * @throws IOException when the next bytes cannot be read from the stream.
+   * Parses the received bytes of the stream and publishes the completed frames.
+   * @param bytes The received bytes.
+   * @return The amount of completed frames.
    */
-  private boolean isJPEGHeader() throws IOException {
-    int[] byteArray = checkNextBytes(2);
-    return byteArray[0] == 255 && byteArray[1] == 216;
-  }
+  public int feed(ByteBuffer bytes) {
+    getMetrics().getBytesReceived().add(bytes.remaining());
 
-  /**
-   * Checks the next 2 bytes and checks if they are the JPEG trailer (FF D9).
-   *
-   * @return true if trailer, false if not trailer.
-   * @throws IOException when the next bytes cannot be read from the stream.
-   */
-  private boolean isJPEGTrailer() throws IOException {
-    int[] byteArray = checkNextBytes(2);
-    return byteArray[0] == 255 && byteArray[1] == 217;
+    long start = System.nanoTime();
+    int frames = parse(bytes);
+    getMetrics().getParseTime().observeNanos(System.nanoTime() - start);
+
+    return frames;
   }
 
   /**
-   * Fetches the header and gets the jpeg file according to the content length.
-   * @param   header A string representation of the header belonging to the image.
-   * @return  a byte[] representing the image.
-   * @throws IOException when an error occurs fetching the header or reading the jpeg image.
+   * Parses the bytes and publishes the completed frames.
+   * @param bytes The received bytes.
+   * @return The amount of completed frames.
    */
-  private byte[] getImage(MJPEGFrameHeader header) throws IOException {
-    int contentLength = header.getContentlength();
+  private int parse(ByteBuffer bytes) {
+    parser.feed(bytes);
 
-    if (contentLength != -1) {
-      return readJPEG(contentLength);
-    } else {
-      return readJPEG();
+    int frames = 0;
+    VideoFrame frame = parser.nextFrame();
+    while (frame != null) {
+      sendToDistributers(frame);
+      frames++;
+      frame = parser.nextFrame();
     }
+    return frames;
   }
 
   /**
-   * Reads JPEG bytes if the content length is known.
-   * This is more efficent than looking for the trailer.
-   * @param contentLength Amount of bytes to read.
-   * @return A byte[] containing the jpeg bytes.
-   * @throws IOException If the bufferedstream cannot be read.
+   * Discards the partially received frame, used when the stream is reconnected.
    */
-  private byte[] readJPEG(int contentLength) throws IOException {
-    byte[] image = new byte[contentLength];
-
-    int offset = 0;
-    int readByte;
-
-    for (int i = 0; i < contentLength; i++) {
-      readByte = getBufferedStream().read(image, offset, contentLength - offset);
-      offset += readByte;
-    }
-
-    return image;
+  public void reset() {
+    parser.reset();
   }
 
   /**
-   * Reads JPEG bytes by reading until the JPEGTrailer is found.
-   * @return A byte[] containing the jpeg bytes.
-   * @throws IOException If the bufferedstream cannot be read.
+   * Stamps the frame with its sequence number and capture time,
+   * and publishes it to the distributers.
+   * @param frame The VideoFrame to send to the distributers.
    */
-  private byte[] readJPEG() throws IOException {
-    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
-    BufferedInputStream bufferedStream = getBufferedStream();
-
-    while (!isJPEGTrailer()) {
-      jpeg.write(bufferedStream.read());
-    }
+  private void sendToDistributers(VideoFrame frame) {
+    VideoFrame stamped = frame.withFrameInfo(nextSequence++, VideoFrame.currentTimeNanos());
 
-    jpeg.close();
-    return jpeg.toByteArray();
+    getMetrics().getFramesReceived().inc();
+    snapshot = stamped;
+    getFrameBuffer().publish(stamped);
   }
 
   /**
-   * Returns a byte representation of the header.
-   *
-   * @return Byte representation of the header.
-   * @throws IOException if the header cannot be read from the buffered stream.
+   * Returns the sequence number the next frame will get.
+   * @return The next sequence number.
    */
-  private byte[] getHeader() throws IOException {
-    ByteArrayOutputStream header = new ByteArrayOutputStream(128);
-    BufferedInputStream bufferedStream = getBufferedStream();
-
-    while (!isJPEGHeader()) {
-      // If stream has not ended, add to header stream.
-      if (bufferedStream.available() != 0) {
-        header.write(bufferedStream.read());
-      }
-    }
-
-    header.close();
-    return header.toByteArray();
+  public long getNextSequence() {
+    return nextSequence;
   }
 
   /**
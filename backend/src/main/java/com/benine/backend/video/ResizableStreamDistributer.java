@@ -1,33 +1,63 @@
 package com.benine.backend.video;
 
-import java.util.Observable;
-
 /**
  * This class can distribute a stream read by StreamReader.
+ * The frames are resized by a resizer shared with all distributers of the same size.
  */
 public class ResizableStreamDistributer extends StreamDistributer {
 
   private MJPEGFrameResizer resizer;
 
+  private FrameResizerPool pool;
+
+  private int width;
+
+  private int height;
+
   /**
    * Creates a new StreamDistributer object from a StreamReader.
-   * It provides an outputstream and registrers the distributer to the reader.
+   * It subscribes the distributer to the frames of the reader.
    * @param reader  A StreamReader object.
    * @param width   The width to resize to.
    * @param height  The height to resize to.
    */
   public ResizableStreamDistributer(StreamReader reader, int width, int height) {
     super(reader);
-    this.resizer = new MJPEGFrameResizer(width, height);
+    this.pool = reader.getResizerPool();
+    this.width = width;
+    this.height = height;
+    this.resizer = pool.acquire(width, height);
   }
 
   @Override
-  public void update(Observable o, Object arg) {
-    if (arg instanceof VideoFrame) {
-      VideoFrame argument = (VideoFrame) arg;
+  protected VideoFrame convert(VideoFrame frame) {
+    return resizer.resize(frame);
+  }
+
+  /**
+   * Returns the width the frames are resized to.
+   * @return The width in pixels.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the height the frames are resized to.
+   * @return The height in pixels.
+   */
+  public int getHeight() {
+    return height;
+  }
 
-      VideoFrame frame = resizer.resize(argument);
-      writeVideoFrame(frame);
+  /**
+   * Deregistres this distributer and releases its resizer.
+   */
+  @Override
+  public synchronized void deregister() {
+    if (isRunning()) {
+      super.deregister();
+      pool.release(width, height);
     }
   }
 
@@ -0,0 +1,56 @@
+package com.benine.backend.video;
+
+/**
+ * Resizer shared by all distributers requesting the same size of a stream.
+ * It remembers the last resized frames, so every frame is only resized once.
+ */
+public class SharedFrameResizer extends MJPEGFrameResizer {
+
+  /**
+   * Amount of resized frames remembered, enough for distributers lagging a few frames behind.
+   */
+  private static final int CACHED_FRAMES = 4;
+
+  private final VideoFrame[] sources;
+
+  private final VideoFrame[] results;
+
+  /**
+   * Index in the cache of the next frame to store.
+   */
+  private int next;
+
+  /**
+   * Constructor for a SharedFrameResizer.
+   * @param width     Width to resize to.
+   * @param height    Height to resize to.
+   */
+  public SharedFrameResizer(int width, int height) {
+    super(width, height);
+    this.sources = new VideoFrame[CACHED_FRAMES];
+    this.results = new VideoFrame[CACHED_FRAMES];
+    this.next = 0;
+  }
+
+  /**
+   * Resizes the frame, or returns the earlier result if this frame has already been resized.
+   * @param frame An MJPEGVideoFrame.
+   * @return The resized MJPEGVideoFrame.
+   */
+  @Override
+  public synchronized VideoFrame resize(VideoFrame frame) {
+    for (int i = 0; i < CACHED_FRAMES; i++) {
+      if (sources[i] == frame) {
+        return results[i];
+      }
+    }
+
+    VideoFrame resized = super.resize(frame);
+
+    sources[next] = frame;
+    results[next] = resized;
+    next = (next + 1) % CACHED_FRAMES;
+
+    return resized;
+  }
+}
@@ -0,0 +1,218 @@
+package com.benine.backend.video;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection to the MJPEG stream of a camera, which is only read while it has subscribers.
+ * The stream is connected when the first subscriber acquires it and disconnected
+ * when it has had no subscribers for the idle timeout.
+ */
+public class StreamConnection {
+
+  /**
+   * Time in milliseconds the first subscriber waits for the first frame.
+   */
+  private static final long FIRST_FRAME_TIMEOUT = 5000;
+
+  private final String streamLink;
+
+  private final StreamIngestor ingestor;
+
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * Time in milliseconds the stream stays connected without subscribers.
+   */
+  private final long idleTimeout;
+
+  private final StreamMetrics metrics;
+
+  /**
+   * The reader and connection, volatile so the state can be read without waiting for
+   * a subscriber connecting the stream.
+   */
+  private volatile MJPEGStreamReader reader;
+
+  private volatile StreamIngestor.Connection connection;
+
+  private int subscribers;
+
+  /**
+   * Sequence number of the next frame, kept over reconnects so the numbers keep increasing.
+   */
+  private long nextSequence;
+
+  private ScheduledFuture<?> disconnect;
+
+  /**
+   * Creates a new StreamConnection, it does not connect to the stream yet.
+   * @param streamLink  The url of the MJPEG stream.
+   * @param ingestor    The ingestor reading the stream.
+   * @param scheduler   The scheduler used to disconnect idle streams.
+   * @param idleTimeout Time in milliseconds the stream stays connected without subscribers.
+   */
+  public StreamConnection(String streamLink, StreamIngestor ingestor,
+                          ScheduledExecutorService scheduler, long idleTimeout) {
+    this(streamLink, ingestor, scheduler, idleTimeout, new StreamMetrics());
+  }
+
+  /**
+   * Creates a new StreamConnection, it does not connect to the stream yet.
+   * @param streamLink  The url of the MJPEG stream.
+   * @param ingestor    The ingestor reading the stream.
+   * @param scheduler   The scheduler used to disconnect idle streams.
+   * @param idleTimeout Time in milliseconds the stream stays connected without subscribers.
+   * @param metrics     The metrics of the stream, kept over reconnects.
+   */
+  public StreamConnection(String streamLink, StreamIngestor ingestor,
+                          ScheduledExecutorService scheduler, long idleTimeout,
+                          StreamMetrics metrics) {
+    this.streamLink = streamLink;
+    this.ingestor = ingestor;
+    this.scheduler = scheduler;
+    this.idleTimeout = idleTimeout;
+    this.metrics = metrics;
+    this.subscribers = 0;
+  }
+
+  /**
+   * Subscribes to the stream, connecting to it if it is not connected.
+   * While the stream has not received a frame yet, it waits a limited time for the first
+   * frame, without blocking the other methods of this connection.
+   * Every call should be followed by a call to release when the reader is no longer used.
+   * @return The StreamReader reading the stream.
+   * @throws IOException If the stream cannot be read.
+   */
+  public StreamReader acquire() throws IOException {
+    MJPEGStreamReader acquired;
+    synchronized (this) {
+      cancelDisconnect();
+
+      if (reader == null) {
+        MJPEGStreamReader newReader = new MJPEGStreamReader(nextSequence);
+        newReader.setMetrics(metrics);
+        connection = ingestor.connect(streamLink, newReader);
+        reader = newReader;
+      }
+      subscribers++;
+      acquired = reader;
+    }
+
+    awaitFirstFrame(acquired);
+    return acquired;
+  }
+
+  /**
+   * Waits until a reader has received its first frame, or the timeout has passed.
+   * @param reader The reader.
+   */
+  private void awaitFirstFrame(MJPEGStreamReader reader) {
+    FrameBuffer buffer = reader.getFrameBuffer();
+    if (buffer.getSequence() >= 0) {
+      return;
+    }
+    try {
+      buffer.subscribe().next(FIRST_FRAME_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Unsubscribes from the stream, the last subscriber schedules the disconnect.
+   */
+  public synchronized void release() {
+    if (subscribers == 0) {
+      return;
+    }
+    subscribers--;
+
+    if (subscribers == 0) {
+      if (idleTimeout > 0) {
+        disconnect = scheduler.schedule(this::disconnectIfIdle, idleTimeout,
+                TimeUnit.MILLISECONDS);
+      } else {
+        disconnect();
+      }
+    }
+  }
+
+  /**
+   * Disconnects the stream if nobody subscribed to it since the disconnect was scheduled.
+   */
+  private synchronized void disconnectIfIdle() {
+    if (subscribers == 0) {
+      disconnect();
+    }
+  }
+
+  /**
+   * Stops reading and closes the connection to the stream.
+   */
+  public synchronized void disconnect() {
+    cancelDisconnect();
+
+    if (reader != null) {
+      connection.close();
+      nextSequence = reader.getNextSequence();
+
+      reader = null;
+      connection = null;
+    }
+  }
+
+  /**
+   * Cancels the scheduled disconnect, if any.
+   */
+  private void cancelDisconnect() {
+    if (disconnect != null) {
+      disconnect.cancel(false);
+      disconnect = null;
+    }
+  }
+
+  /**
+   * Returns if the stream is being read.
+   * @return true if connected, false otherwise.
+   */
+  public boolean isConnected() {
+    return reader != null;
+  }
+
+  /**
+   * Returns the health of the stream.
+   * @return IDLE if not connected, else the StreamState of the connection.
+   */
+  public StreamState getState() {
+    StreamIngestor.Connection current = connection;
+    StreamState state = current == null ? null : current.getState();
+    return state == null ? StreamState.IDLE : state;
+  }
+
+  /**
+   * Returns the amount of subscribers of this stream.
+   * @return Amount of subscribers.
+   */
+  public synchronized int getSubscribers() {
+    return subscribers;
+  }
+
+  /**
+   * Returns the metrics of the stream.
+   * @return The StreamMetrics of this stream.
+   */
+  public StreamMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Returns the url of the stream.
+   * @return The stream link.
+   */
+  public String getStreamLink() {
+    return streamLink;
+  }
+}
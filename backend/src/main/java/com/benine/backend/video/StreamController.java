@@ -1,67 +1,124 @@
 package com.benine.backend.video;
 
+import com.benine.backend.ServerController;
 import com.benine.backend.camera.Camera;
 import com.benine.backend.camera.SimpleCamera;
 import com.benine.backend.camera.ipcameracontrol.IPCamera;
+import com.benine.backend.metrics.MetricRegistry;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Defines a class controlling all streams.
+ * Streams are only connected while they are acquired by a viewer or preset.
  */
 public class StreamController {
 
   /**
-   * Contains all StreamReader objects.
+   * Default time in milliseconds a stream stays connected without subscribers.
    */
-  private Map<Integer, StreamReader> streams;
+  private static final long DEFAULT_IDLE_TIMEOUT = 30000;
+
+  /**
+   * Default time in milliseconds without frames after which a stream reconnects.
+   */
+  private static final long DEFAULT_STALL_TIMEOUT = 5000;
+
+  /**
+   * Contains the stream connections of all cameras with a stream.
+   */
+  private Map<Integer, StreamConnection> streams;
+
+  /**
+   * Disconnects the streams which are no longer used.
+   */
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Reads the connected streams.
+   */
+  private StreamIngestor ingestor;
+
+  private long idleTimeout;
+
   /**
-   * Contains the threads on which the streams are running.
+   * Contains the metrics of the streams.
    */
-  private Map<Integer, Thread> threads;
+  private MetricRegistry metricRegistry;
 
   /**
    * Constructor for a StreamController.
    */
   public StreamController() {
-    this(new HashMap<>(), new HashMap<>());
+    this(ServerController.getInstance());
+  }
+
+  /**
+   * Constructor for a StreamController configured by the server controller.
+   * @param serverController The server controller providing the logger, config and metrics.
+   */
+  private StreamController(ServerController serverController) {
+    this(new ConcurrentHashMap<>(),
+            new StreamIngestor(serverController.getLogger(), serverController.getConfig()
+                    .getLong("stream_stall_timeout", DEFAULT_STALL_TIMEOUT)),
+            serverController.getConfig().getLong("stream_idle_timeout", DEFAULT_IDLE_TIMEOUT),
+            serverController.getMetricRegistry());
+  }
+
+  /**
+   * Constructor for a StreamController with metrics which are not exported.
+   * @param streams     Map for camera id, stream connection
+   * @param ingestor    The ingestor reading the streams.
+   * @param idleTimeout Time in milliseconds a stream stays connected without subscribers.
+   */
+  public StreamController(Map<Integer, StreamConnection> streams, StreamIngestor ingestor,
+                          long idleTimeout) {
+    this(streams, ingestor, idleTimeout, new MetricRegistry());
   }
 
   /**
    * Constructor for a StreamController.
-   * @param streams Map for integer, thread
-   * @param threads Map for integer, thread
+   * @param streams     Map for camera id, stream connection
+   * @param ingestor    The ingestor reading the streams.
+   * @param idleTimeout Time in milliseconds a stream stays connected without subscribers.
+   * @param metricRegistry The registry the metrics of the streams are created in.
    */
-  public StreamController(Map<Integer, StreamReader> streams, Map<Integer, Thread> threads) {
+  public StreamController(Map<Integer, StreamConnection> streams, StreamIngestor ingestor,
+                          long idleTimeout, MetricRegistry metricRegistry) {
     this.streams = streams;
-    this.threads = threads;
+    this.ingestor = ingestor;
+    this.idleTimeout = idleTimeout;
+    this.metricRegistry = metricRegistry;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "StreamController");
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   /**
    * Adds a camera to the Map containing all streams if there is a stream available.
+   * The stream is not connected until it is acquired.
    * @param cam a Camera object.
    */
   public void addCamera(Camera cam) {
-    StreamReader stream = createStream(cam);
+    StreamConnection stream = createStream(cam);
 
     if (stream != null) {
-      Thread thread = new Thread(stream);
-
       streams.put(cam.getId(), stream);
-      threads.put(cam.getId(), thread);
-
-      thread.start();
     }
   }
 
   /**
-   * Creates a stream from a camera.
+   * Creates a stream connection for a camera.
    * @param cam a Camera object.
-   * @return a StreamReader if a stream is available, null otherwise.
+   * @return a StreamConnection if a stream is available, null otherwise.
    */
-  private StreamReader createStream(Camera cam) {
+  private StreamConnection createStream(Camera cam) {
     String streamLink = getStreamLink(cam);
     StreamType type = cam.getStreamType();
 
@@ -69,16 +126,12 @@ public class StreamController {
       type = StreamType.UNKNOWN;
     }
 
-    try {
-      switch (type) {
-        case MJPEG: return new MJPEGStreamReader(new Stream(streamLink));
-        default: return null;
-      }
-    } catch (IOException e) {
-      e.printStackTrace();
-      return null;
+    switch (type) {
+      case MJPEG:
+        return new StreamConnection(streamLink, ingestor, scheduler, idleTimeout,
+                new StreamMetrics(metricRegistry, Integer.toString(cam.getId())));
+      default: return null;
     }
-
   }
 
   /**
@@ -99,16 +152,66 @@ public class StreamController {
   }
 
   /**
-   * Returns the streamreader belonging to a camera.
+   * Returns the streamreader belonging to a camera, connecting to the stream if needed.
+   * Every reader acquired should be released with releaseStreamReader.
    * @param camId The identifier of the camera.
    * @return  A StreamReader object.
    * @throws StreamNotAvailableException if there is no stream available for a given camera.
    */
-  public StreamReader getStreamReader(int camId) throws StreamNotAvailableException {
-    if (streams.containsKey(camId)) {
-      return streams.get(camId);
-    } else {
+  public StreamReader acquireStreamReader(int camId) throws StreamNotAvailableException {
+    StreamConnection stream = streams.get(camId);
+
+    if (stream == null) {
       throw new StreamNotAvailableException(camId, "No stream associated with this camera.");
     }
+
+    try {
+      return stream.acquire();
+    } catch (IOException e) {
+      throw new StreamNotAvailableException(camId, "Stream could not be read.");
+    }
+  }
+
+  /**
+   * Releases a streamreader acquired with acquireStreamReader.
+   * The stream is disconnected when it is not acquired again within the idle timeout.
+   * @param camId The identifier of the camera.
+   */
+  public void releaseStreamReader(int camId) {
+    StreamConnection stream = streams.get(camId);
+
+    if (stream != null) {
+      stream.release();
+    }
+  }
+
+  /**
+   * Returns if the stream of a camera is connected.
+   * @param camId The identifier of the camera.
+   * @return true if the stream is being read, false otherwise.
+   */
+  public boolean isConnected(int camId) {
+    StreamConnection stream = streams.get(camId);
+
+    return stream != null && stream.isConnected();
+  }
+
+  /**
+   * Returns the health of the stream of a camera.
+   * @param camId The identifier of the camera.
+   * @return The StreamState of the stream, null if the camera has no stream.
+   */
+  public StreamState getStreamState(int camId) {
+    StreamConnection stream = streams.get(camId);
+
+    return stream == null ? null : stream.getState();
+  }
+
+  /**
+   * Disconnects all streams.
+   */
+  public void stop() {
+    streams.values().forEach(StreamConnection::disconnect);
+    ingestor.stop();
   }
 }
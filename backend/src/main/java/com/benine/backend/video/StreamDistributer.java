@@ -1,58 +1,257 @@
 package com.benine.backend.video;
 
 import java.io.IOException;
-import java.io.PipedOutputStream;
-import java.util.Observable;
-import java.util.Observer;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class can distribute a stream read by StreamReader.
+ * It reads the frames from the FrameBuffer of the reader with its own cursor.
+ * The frames are either written to its outputstream by distribute on the thread of the caller,
+ * or polled without waiting when a frame listener reports a new frame.
  */
-public class StreamDistributer implements Observer {
+public class StreamDistributer {
+
+  /**
+   * Time to wait for a new frame before checking if this distributer is still running.
+   */
+  private static final long FRAME_TIMEOUT = 1000;
 
   /**
    * The outputstream to write to the HTTP endpoint.
    */
-  private PipedOutputStream outputStream;
+  private OutputStream outputStream;
+
+  private FrameBuffer frameBuffer;
+
+  private FrameBuffer.Cursor cursor;
+
+  /**
+   * Listener notified of new frames, null if none.
+   */
+  private Runnable frameListener;
+
+  private volatile boolean running;
+
+  /**
+   * Amount of frames written to the outputstream.
+   */
+  private long sentFrames;
+
+  /**
+   * Amount of frames not sent to limit the frame rate.
+   */
+  private long skippedFrames;
 
-  private Observable reader;
+  /**
+   * Minimal time between two sent frames in nanoseconds, 0 if the frame rate is not limited.
+   */
+  private long frameInterval;
+
+  /**
+   * Time in nanoseconds from which the next frame may be sent.
+   */
+  private long nextFrameTime;
+
+  private StreamMetrics metrics;
+
+  /**
+   * Amount of dropped frames already recorded in the metrics.
+   */
+  private long recordedDropped;
 
   /**
    * Creates a new StreamDistributer object from a StreamReader.
-   * It provides an outputstream and registrers the distributer to the reader.
+   * It subscribes the distributer to the frames of the reader.
    * @param reader  A StreamReader object.
    */
   public StreamDistributer(StreamReader reader) {
-    outputStream = new PipedOutputStream();
-    this.reader = reader;
-    reader.addObserver(this);
+    this.frameBuffer = reader.getFrameBuffer();
+    this.cursor = frameBuffer.subscribe();
+    this.running = true;
+    this.sentFrames = 0;
+    this.skippedFrames = 0;
+    this.frameInterval = 0;
+    this.metrics = reader.getMetrics();
+    this.recordedDropped = 0;
+
+    metrics.getViewers().inc();
+  }
+
+  /**
+   * Sets the amount of frames that may be queued for this distributer.
+   * When the client falls further behind, the intermediate frames are dropped,
+   * so a slow client always receives the most recent frames.
+   * @param frames Amount of frames, 1 only sends the newest frame.
+   */
+  public void setQueueSize(int frames) {
+    cursor.setMaxLag(frames);
+  }
+
+  /**
+   * Limits the amount of frames sent to the client per second.
+   * Frames arriving faster are skipped before they are resized or written.
+   * @param fps Frames per second, 0 or less to send every frame.
+   */
+  public void setFrameRate(double fps) {
+    if (fps > 0) {
+      frameInterval = (long) (TimeUnit.SECONDS.toNanos(1) / fps);
+    } else {
+      frameInterval = 0;
+    }
+  }
+
+  /**
+   * Returns the maximum amount of frames sent to the client per second.
+   * @return Frames per second, 0 if every frame is sent.
+   */
+  public double getFrameRate() {
+    if (frameInterval == 0) {
+      return 0;
+    }
+    return (double) TimeUnit.SECONDS.toNanos(1) / frameInterval;
   }
 
-  @Override
-  public void update(Observable o, Object arg) {
-    if (arg instanceof VideoFrame) {
-      writeVideoFrame((VideoFrame) arg);
+  /**
+   * Writes the frames of the reader to the outputstream until deregistered.
+   * @throws IOException          If the outputstream cannot be written.
+   * @throws InterruptedException If the thread is interrupted while waiting for a frame.
+   */
+  public void distribute() throws IOException, InterruptedException {
+    while (running) {
+      VideoFrame frame = cursor.next(FRAME_TIMEOUT, TimeUnit.MILLISECONDS);
+
+      if (frame != null && accept(frame)) {
+        writeVideoFrame(frame);
+      }
     }
   }
 
+  /**
+   * Returns the next frame to send without waiting for it.
+   * Frames which are not due according to the frame rate are skipped.
+   * The returned frame is converted for the client, but not recorded as sent.
+   * @return The VideoFrame to send, null if there is no new frame to send.
+   */
+  public VideoFrame poll() {
+    VideoFrame frame = cursor.poll();
+
+    while (frame != null) {
+      if (accept(frame)) {
+        return convert(frame);
+      }
+      frame = cursor.poll();
+    }
+    return null;
+  }
+
+  /**
+   * Sets the listener notified after a new frame is published to the stream,
+   * it runs on the thread reading the stream so it should return quickly.
+   * The listener is removed when this distributer is deregistered.
+   * @param listener The listener, replacing the previous listener.
+   */
+  public synchronized void setFrameListener(Runnable listener) {
+    if (frameListener != null) {
+      frameBuffer.removeListener(frameListener);
+    }
+    frameListener = listener;
+    if (running) {
+      frameBuffer.addListener(listener);
+    }
+  }
+
+  /**
+   * Records the dropped frames and decides if a frame should be sent.
+   * @param frame The frame read from the buffer.
+   * @return true if the frame should be sent, false if it is skipped.
+   */
+  private boolean accept(VideoFrame frame) {
+    recordDroppedFrames();
+    if (isFrameDue()) {
+      return true;
+    }
+    skippedFrames++;
+    metrics.getFramesSkipped().inc();
+    return false;
+  }
+
+  /**
+   * Records the frames the cursor dropped since the last call in the metrics.
+   */
+  private void recordDroppedFrames() {
+    long dropped = cursor.getDroppedFrames();
+
+    if (dropped > recordedDropped) {
+      metrics.getFramesDropped().add(dropped - recordedDropped);
+      recordedDropped = dropped;
+    }
+  }
+
+  /**
+   * Returns if the next frame may be sent according to the frame rate,
+   * and schedules the frame after it if so.
+   * @return true if the frame should be sent, false if it should be skipped.
+   */
+  private boolean isFrameDue() {
+    if (frameInterval == 0) {
+      return true;
+    }
+
+    long now = System.nanoTime();
+    if (sentFrames > 0 && now - nextFrameTime < 0) {
+      return false;
+    }
+
+    // Schedule from the previous due time so the rate does not drift,
+    // unless the stream stalled for longer than a frame.
+    nextFrameTime += frameInterval;
+    if (sentFrames == 0 || now - nextFrameTime >= 0) {
+      nextFrameTime = now + frameInterval;
+    }
+    return true;
+  }
+
+  /**
+   * Converts a frame of the stream to the frame sent to the client.
+   * @param frame The frame of the stream.
+   * @return The frame to send, the same frame if it is not converted.
+   */
+  protected VideoFrame convert(VideoFrame frame) {
+    return frame;
+  }
+
   /**
    * Writes a videoframe to the outputstream.
    * @param frame A VideoFrame object.
+   * @throws IOException If the outputstream cannot be written.
    */
-  public void writeVideoFrame(VideoFrame frame) {
-    try {
-      outputStream.write(frame.getHeaderBytes());
-      outputStream.write(frame.getImage());
-    } catch (IOException e) {
-      deregister();
+  public void writeVideoFrame(VideoFrame frame) throws IOException {
+    VideoFrame converted = convert(frame);
+    converted.writeTo(outputStream);
+    outputStream.flush();
+
+    recordSentFrame(converted);
+  }
+
+  /**
+   * Records a frame which has been written to the client.
+   * @param frame The frame as it was sent.
+   */
+  public void recordSentFrame(VideoFrame frame) {
+    sentFrames++;
+    metrics.getFramesSent().inc();
+    metrics.getBytesSent().add(frame.getHeader().getLength() + frame.getImageLength());
+    if (frame.getCaptureTime() > 0) {
+      metrics.getViewerLag().observeNanos(VideoFrame.currentTimeNanos() - frame.getCaptureTime());
     }
   }
 
   /**
    * Returns the output stream.
-   * @return  The output stream bytes which can be sent by an HTTP endpoint.
+   * @return  The output stream the frames are written to, null if not set.
    */
-  public PipedOutputStream getStream() {
+  public OutputStream getStream() {
     return outputStream;
   }
 
@@ -60,16 +259,61 @@ public class StreamDistributer implements Observer {
    * Sets the output stream.
    * @param stream An outputstream to write to.
    */
-  public void setStream(PipedOutputStream stream) {
+  public void setStream(OutputStream stream) {
     this.outputStream = stream;
   }
 
+  /**
+   * Returns the amount of frames written to the client.
+   * @return Amount of sent frames.
+   */
+  public long getSentFrames() {
+    return sentFrames;
+  }
+
+  /**
+   * Returns the amount of frames skipped to limit the frame rate.
+   * @return Amount of skipped frames.
+   */
+  public long getSkippedFrames() {
+    return skippedFrames;
+  }
 
   /**
-   * Deregistres this distributer from a streamreader.
+   * Returns the amount of frames dropped because the client fell behind.
+   * @return Amount of dropped frames.
    */
-  public void deregister() {
-    reader.deleteObserver(this);
+  public long getDroppedFrames() {
+    return cursor.getDroppedFrames();
+  }
+
+  /**
+   * Returns if the client of this distributer could not keep up with the stream.
+   * @return true if frames have been dropped for the client.
+   */
+  public boolean isSlowConsumer() {
+    return getDroppedFrames() > 0;
+  }
+
+  /**
+   * Returns if this distributer is still distributing.
+   * @return true if distributing, false if deregistered.
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Deregistres this distributer, it stops distributing after the current frame.
+   */
+  public synchronized void deregister() {
+    if (running) {
+      running = false;
+      metrics.getViewers().dec();
+      if (frameListener != null) {
+        frameBuffer.removeListener(frameListener);
+      }
+    }
   }
 
 }
@@ -0,0 +1,370 @@
+package com.benine.backend.video;
+
+import com.benine.backend.LogEvent;
+import com.benine.backend.Logger;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpResponseException;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reads the MJPEG streams of all cameras with one non-blocking HTTP client.
+ * The connections share a selector and a small thread pool, the received bytes are
+ * fed to the reader of the stream as they arrive, so no thread is needed per stream.
+ * Lost and stalled connections are reestablished with a jittered exponential backoff,
+ * so cameras that went down together do not retry in lockstep.
+ */
+public class StreamIngestor {
+
+  /**
+   * Amount of selectors of the HTTP client. Every selector holds a thread of the pool,
+   * so the client does not use its default of one per two processors.
+   */
+  private static final int SELECTORS = 1;
+
+  /**
+   * Maximum amount of threads handling the received bytes of all streams.
+   */
+  private static final int MAX_THREADS = 8;
+
+  /**
+   * Delay before the first reconnect, doubled on every failed attempt.
+   */
+  private static final long INITIAL_RECONNECT_DELAY = 1000;
+
+  private static final long MAX_RECONNECT_DELAY = 60000;
+
+  private static final long CONNECT_TIMEOUT = 5000;
+
+  /**
+   * Amount of failed connection attempts in a row after which a stream is down.
+   */
+  private static final int DOWN_AFTER_FAILURES = 3;
+
+  /**
+   * Time after which a connection without received bytes is closed.
+   */
+  private static final long IDLE_TIMEOUT = 10000;
+
+  private final HttpClient client;
+
+  private final Logger logger;
+
+  /**
+   * Time in milliseconds without frames after which a connection is reestablished.
+   */
+  private final long stallTimeout;
+
+  /**
+   * Creates a new StreamIngestor, the HTTP client is started on the first connection.
+   * @param logger        The logger to log the connection events to.
+   * @param stallTimeout  Time in milliseconds without frames after which a stream reconnects.
+   */
+  public StreamIngestor(Logger logger, long stallTimeout) {
+    this(logger, stallTimeout, SELECTORS);
+  }
+
+  /**
+   * Creates a new StreamIngestor with an amount of selectors.
+   * The thread pool holds a thread for every selector next to the threads handling the bytes.
+   * @param logger        The logger to log the connection events to.
+   * @param stallTimeout  Time in milliseconds without frames after which a stream reconnects.
+   * @param selectors     The amount of selectors of the HTTP client.
+   */
+  StreamIngestor(Logger logger, long stallTimeout, int selectors) {
+    this.logger = logger;
+    this.stallTimeout = stallTimeout;
+    this.client = new HttpClient(new HttpClientTransportOverHTTP(selectors), null);
+
+    QueuedThreadPool threads = new QueuedThreadPool(selectors + MAX_THREADS, selectors + 1);
+    threads.setName("StreamIngestor");
+    threads.setDaemon(true);
+    client.setExecutor(threads);
+    client.setConnectTimeout(CONNECT_TIMEOUT);
+  }
+
+  /**
+   * Connects to a stream and feeds its bytes to a reader until the connection is closed.
+   * When the connection ends or stalls, it reconnects after a backoff delay.
+   * @param url     The url of the MJPEG stream.
+   * @param reader  The reader the bytes of the stream are fed to.
+   * @return The connection to the stream.
+   * @throws IOException If the client cannot be started or the url is invalid.
+   */
+  public Connection connect(String url, MJPEGStreamReader reader) throws IOException {
+    URI uri;
+    try {
+      uri = new URI(url);
+    } catch (URISyntaxException e) {
+      throw new IOException("Invalid stream url " + url, e);
+    }
+    if (uri.getHost() == null) {
+      throw new IOException("Invalid stream url " + url);
+    }
+    start();
+
+    Connection connection = new Connection(uri, reader);
+    connection.open();
+    connection.scheduleStallCheck();
+    return connection;
+  }
+
+  /**
+   * Returns the delay before the next connection attempt.
+   * The delay doubles with every failure up to a maximum, and a random half of it
+   * is left out so the attempts of different streams spread out.
+   * @param failures Amount of failed attempts in a row, at least 1.
+   * @return The delay in milliseconds.
+   */
+  static long getReconnectDelay(int failures) {
+    int doublings = Math.min(failures - 1, 16);
+    long delay = Math.min(MAX_RECONNECT_DELAY, INITIAL_RECONNECT_DELAY << doublings);
+    long half = delay / 2;
+
+    return half + ThreadLocalRandom.current().nextLong(half + 1);
+  }
+
+  /**
+   * Starts the HTTP client if it is not started yet.
+   * @throws IOException If the client cannot be started.
+   */
+  private synchronized void start() throws IOException {
+    if (client.isStarted()) {
+      return;
+    }
+    try {
+      client.start();
+    } catch (Exception e) {
+      throw new IOException("Could not start the stream client", e);
+    }
+  }
+
+  /**
+   * Stops the HTTP client, closing all connections.
+   */
+  public synchronized void stop() {
+    try {
+      client.stop();
+    } catch (Exception e) {
+      logger.log("Could not stop the stream client", e);
+    }
+  }
+
+  /**
+   * Connection to a single stream, which reconnects until it is closed.
+   */
+  public class Connection {
+
+    private final URI url;
+
+    private final MJPEGStreamReader reader;
+
+    private boolean closed;
+
+    private Request request;
+
+    private volatile StreamState state;
+
+    /**
+     * Amount of failed connection attempts since the last received frame.
+     */
+    private int failures;
+
+    /**
+     * Time in nanoseconds of the last received frame or connection attempt.
+     */
+    private volatile long lastFrame;
+
+    private Scheduler.Task stallCheck;
+
+    /**
+     * Creates a connection, it is not opened yet.
+     * @param url     The url of the stream.
+     * @param reader  The reader the bytes are fed to.
+     */
+    Connection(URI url, MJPEGStreamReader reader) {
+      this.url = url;
+      this.reader = reader;
+      this.closed = false;
+      this.state = StreamState.CONNECTING;
+      this.failures = 0;
+    }
+
+    /**
+     * Sends the request for the stream, the response is handled on the client threads.
+     */
+    private synchronized void open() {
+      if (closed) {
+        return;
+      }
+      reader.reset();
+      lastFrame = System.nanoTime();
+
+      request = client.newRequest(url).idleTimeout(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+      request.send(new Response.Listener.Adapter() {
+        @Override
+        public void onHeaders(Response response) {
+          if (response.getStatus() != HttpStatus.OK_200) {
+            response.abort(new HttpResponseException("Stream " + url + " responded with "
+                    + response.getStatus(), response));
+          }
+        }
+
+        @Override
+        public void onContent(Response response, ByteBuffer content) {
+          if (reader.feed(content) > 0) {
+            frameReceived();
+          }
+        }
+
+        @Override
+        public void onComplete(Result result) {
+          connectionEnded(result);
+        }
+      });
+    }
+
+    /**
+     * Marks the stream as live when a frame is received.
+     */
+    private void frameReceived() {
+      lastFrame = System.nanoTime();
+
+      if (state != StreamState.LIVE) {
+        synchronized (this) {
+          failures = 0;
+          setState(StreamState.LIVE);
+        }
+      }
+    }
+
+    /**
+     * Schedules a reconnect when the response has ended, unless the connection is closed.
+     * @param result The result of the request.
+     */
+    private synchronized void connectionEnded(Result result) {
+      request = null;
+      if (closed) {
+        return;
+      }
+      failures++;
+
+      if (failures >= DOWN_AFTER_FAILURES) {
+        setState(StreamState.DOWN);
+      } else if (state == StreamState.LIVE) {
+        setState(StreamState.DEGRADED);
+      }
+
+      client.getScheduler().schedule(this::open, getReconnectDelay(failures),
+              TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Changes the state, logging the change.
+     * @param newState The new state.
+     */
+    private void setState(StreamState newState) {
+      if (newState == state) {
+        return;
+      }
+      StreamState oldState = state;
+      state = newState;
+
+      switch (newState) {
+        case LIVE:
+          logger.log("Stream " + url + " is live.", LogEvent.Type.INFO);
+          break;
+        case DOWN:
+          logger.log("Stream " + url + " is down, " + failures
+                  + " connection attempts failed.", LogEvent.Type.WARNING);
+          break;
+        default:
+          logger.log("Stream " + url + " went from " + oldState.getName() + " to "
+                  + newState.getName() + ".", LogEvent.Type.WARNING);
+      }
+    }
+
+    /**
+     * Schedules the next check if the stream has stalled.
+     */
+    private synchronized void scheduleStallCheck() {
+      if (!closed && stallTimeout > 0) {
+        stallCheck = client.getScheduler().schedule(this::checkStall, stallTimeout,
+                TimeUnit.MILLISECONDS);
+      }
+    }
+
+    /**
+     * Aborts the current request if no frame arrived within the stall timeout,
+     * which ends the response and reconnects.
+     */
+    private void checkStall() {
+      synchronized (this) {
+        long idle = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFrame);
+
+        if (request != null && idle >= stallTimeout) {
+          if (state == StreamState.LIVE) {
+            logger.log("No frames received from stream " + url + " for " + idle
+                    + " ms, reconnecting.", LogEvent.Type.WARNING);
+          }
+          request.abort(new TimeoutException("Stream " + url + " stalled"));
+        }
+      }
+      scheduleStallCheck();
+    }
+
+    /**
+     * Closes the connection to the stream, it does not reconnect afterwards.
+     */
+    public synchronized void close() {
+      closed = true;
+
+      if (stallCheck != null) {
+        stallCheck.cancel();
+        stallCheck = null;
+      }
+
+      if (request != null) {
+        request.abort(new IOException("Stream " + url + " closed"));
+        request = null;
+      }
+    }
+
+    /**
+     * Returns if this connection is closed.
+     * @return true if closed, false otherwise.
+     */
+    public synchronized boolean isClosed() {
+      return closed;
+    }
+
+    /**
+     * Returns the health of the connection.
+     * @return The StreamState of the connection.
+     */
+    public StreamState getState() {
+      return state;
+    }
+
+    /**
+     * Returns the url of the stream.
+     * @return The stream url.
+     */
+    public String getUrl() {
+      return url.toString();
+    }
+  }
+}
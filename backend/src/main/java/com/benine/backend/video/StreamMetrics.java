@@ -0,0 +1,111 @@
+package com.benine.backend.video;
+
+import com.benine.backend.metrics.Counter;
+import com.benine.backend.metrics.Gauge;
+import com.benine.backend.metrics.Histogram;
+import com.benine.backend.metrics.MetricRegistry;
+
+/**
+ * The metrics of the stream of a single camera, from receiving the bytes
+ * to writing the frames to the viewers.
+ */
+public class StreamMetrics {
+
+  /**
+   * Bucket bounds in seconds for processing times, from 0.1 ms to about 3 s.
+   */
+  private static final double[] PROCESSING_BUCKETS = Histogram.exponentialBuckets(0.0001, 2, 16);
+
+  /**
+   * Bucket bounds in seconds for the age of frames written to viewers, from 1 ms to about 16 s.
+   */
+  private static final double[] LAG_BUCKETS = Histogram.exponentialBuckets(0.001, 2, 15);
+
+  private final Counter framesReceived;
+  private final Counter bytesReceived;
+  private final Histogram parseTime;
+  private final Histogram resizeTime;
+  private final Gauge viewers;
+  private final Counter framesSent;
+  private final Counter bytesSent;
+  private final Counter framesSkipped;
+  private final Counter framesDropped;
+  private final Histogram viewerLag;
+
+  /**
+   * Creates metrics which are not exported, for streams without a camera.
+   */
+  public StreamMetrics() {
+    this(new MetricRegistry(), "");
+  }
+
+  /**
+   * Creates the metrics of the stream of a camera in a registry.
+   * @param registry  The registry to create the metrics in.
+   * @param camera    The identifier of the camera.
+   */
+  public StreamMetrics(MetricRegistry registry, String camera) {
+    framesReceived = registry.counter("stream_frames_received_total",
+            "Frames received from the camera.", "camera", camera);
+    bytesReceived = registry.counter("stream_bytes_received_total",
+            "Bytes received from the camera.", "camera", camera);
+    parseTime = registry.histogram("stream_parse_seconds",
+            "Time to parse the frames out of a received chunk.", PROCESSING_BUCKETS,
+            "camera", camera);
+    resizeTime = registry.histogram("stream_resize_seconds",
+            "Time to resize a frame.", PROCESSING_BUCKETS, "camera", camera);
+    viewers = registry.gauge("stream_viewers",
+            "Clients currently receiving the stream.", "camera", camera);
+    framesSent = registry.counter("stream_frames_sent_total",
+            "Frames written to viewers.", "camera", camera);
+    bytesSent = registry.counter("stream_bytes_sent_total",
+            "Bytes written to viewers.", "camera", camera);
+    framesSkipped = registry.counter("stream_frames_skipped_total",
+            "Frames not sent to limit the frame rate of viewers.", "camera", camera);
+    framesDropped = registry.counter("stream_frames_dropped_total",
+            "Frames dropped because viewers fell behind.", "camera", camera);
+    viewerLag = registry.histogram("stream_viewer_lag_seconds",
+            "Time between receiving a frame and writing it to a viewer.", LAG_BUCKETS,
+            "camera", camera);
+  }
+
+  public Counter getFramesReceived() {
+    return framesReceived;
+  }
+
+  public Counter getBytesReceived() {
+    return bytesReceived;
+  }
+
+  public Histogram getParseTime() {
+    return parseTime;
+  }
+
+  public Histogram getResizeTime() {
+    return resizeTime;
+  }
+
+  public Gauge getViewers() {
+    return viewers;
+  }
+
+  public Counter getFramesSent() {
+    return framesSent;
+  }
+
+  public Counter getBytesSent() {
+    return bytesSent;
+  }
+
+  public Counter getFramesSkipped() {
+    return framesSkipped;
+  }
+
+  public Counter getFramesDropped() {
+    return framesDropped;
+  }
+
+  public Histogram getViewerLag() {
+    return viewerLag;
+  }
+}
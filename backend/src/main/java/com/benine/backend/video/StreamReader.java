@@ -1,55 +1,64 @@
 package com.benine.backend.video;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.util.Observable;
 
-public abstract class StreamReader extends Observable implements Runnable {
+/**
+ * Reads a camera stream which is fed to it, publishing its frames to a frame buffer.
+ */
+public abstract class StreamReader {
 
-  private BufferedInputStream bufferedStream;
+  /**
+   * Amount of frames kept for the distributers of this reader.
+   */
+  private static final int BUFFERED_FRAMES = 8;
+
+  private FrameBuffer frameBuffer;
+
+  private FrameResizerPool resizerPool;
 
-  private Stream stream;
+  private StreamMetrics metrics;
 
   /**
-   * Constructor for a new StreamReader object.
-   * @param stream The stream to create the streamreader for.
-   * @throws IOException if there is an error getting the stream, rendering the object useless.
+   * Constructor for a StreamReader, the bytes of the stream are pushed to it.
    */
-  public StreamReader(Stream stream) throws IOException {
-    this.stream = stream;
-    this.bufferedStream = new BufferedInputStream(stream.getInputStream());
+  protected StreamReader() {
+    this.frameBuffer = new FrameBuffer(BUFFERED_FRAMES);
+    this.resizerPool = new FrameResizerPool();
+    this.metrics = new StreamMetrics();
   }
 
   /**
-   * Should return a valid image snapshot.
-   * @throws IOException when the image cannot be read from a buffer.
+   * Returns the buffer the frames of this reader are published to.
+   * @return  a FrameBuffer object.
    */
-  @Override
-  public void run() {
-    while (!Thread.interrupted()) {
-      processStream();
-    }
+  public FrameBuffer getFrameBuffer() {
+    return this.frameBuffer;
   }
 
   /**
-   * Processes the stream.
+   * Returns the pool of resizers shared by the distributers of this reader.
+   * @return  a FrameResizerPool object.
    */
-  public abstract void processStream();
-
-  public BufferedInputStream getBufferedStream() {
-    return this.bufferedStream;
+  public FrameResizerPool getResizerPool() {
+    return this.resizerPool;
   }
 
-  public void setBufferedStream(BufferedInputStream bufferedStream) {
-    this.bufferedStream = bufferedStream;
+  /**
+   * Returns the metrics of the stream read by this reader.
+   * @return  a StreamMetrics object.
+   */
+  public StreamMetrics getMetrics() {
+    return this.metrics;
   }
 
   /**
-   * Returns the stream to which this streamreader is connected.
-   * @return  a Stream object.
+   * Sets the metrics of the stream, also used by the resizers and distributers of this reader.
+   * Should be set before the reader is used.
+   * @param metrics The StreamMetrics of the stream.
    */
-  public Stream getStream() {
-    return this.stream;
+  public void setMetrics(StreamMetrics metrics) {
+    this.metrics = metrics;
+    this.resizerPool.setMetrics(metrics);
   }
 
   /**
@@ -0,0 +1,35 @@
+package com.benine.backend.video;
+
+/**
+ * Health of the connection to the stream of a camera.
+ */
+public enum StreamState {
+  /**
+   * Not connected, because nobody is watching the stream.
+   */
+  IDLE,
+  /**
+   * Connecting to the stream, no frame has been received yet.
+   */
+  CONNECTING,
+  /**
+   * Frames are being received.
+   */
+  LIVE,
+  /**
+   * The connection was lost or stalled and is being reestablished.
+   */
+  DEGRADED,
+  /**
+   * Reconnecting failed several times in a row, retrying with a longer delay.
+   */
+  DOWN;
+
+  /**
+   * Returns the name of the state as used in JSON.
+   * @return The lower case name.
+   */
+  public String getName() {
+    return name().toLowerCase();
+  }
+}
@@ -1,46 +1,173 @@
 package com.benine.backend.video;
 
-import java.nio.charset.StandardCharsets;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Created on 01-06-16.
+ * Immutable frame of a video stream.
+ * A single instance is shared by every distributer of a stream,
+ * so the image bytes are never modified after construction.
  */
 public class VideoFrame {
 
+  /**
+   * Difference between the epoch time and System.nanoTime in nanoseconds,
+   * so capture times are precise and comparable between machines.
+   */
+  private static final long EPOCH_OFFSET =
+          TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+
+  /**
+   * Length of the sequence number and capture time before the image in a message.
+   */
+  public static final int MESSAGE_INFO_LENGTH = 16;
+
   /**
    * Header as a byte stream.
    */
-  private MJPEGFrameHeader header;
+  private final MJPEGFrameHeader header;
 
   /**
    * Image as a byte stream.
    */
-  private byte[] image;
+  private final byte[] image;
+
+  /**
+   * The message of this frame, created once when it is first requested.
+   */
+  private volatile ByteBuffer message;
 
   /**
    * Constructor for a VideoFrame.
+   * The frame takes ownership of the image array, it should not be modified afterwards.
    * @param header The HTTP header.
    * @param image  The Image in bytes.
    */
   public VideoFrame(MJPEGFrameHeader header, byte[] image) {
     this.header = header;
-    this.image = Arrays.copyOf(image, image.length);
+    this.image = image;
+  }
+
+  /**
+   * Returns the current time on the clock of the capture times.
+   * @return The time in nanoseconds since the epoch.
+   */
+  public static long currentTimeNanos() {
+    return System.nanoTime() + EPOCH_OFFSET;
   }
 
   public MJPEGFrameHeader getHeader() {
     return this.header;
   }
 
+  /**
+   * Returns the sequence number of this frame in the stream of its camera.
+   * @return The sequence number, -1 if unknown.
+   */
+  public long getSequence() {
+    return header.getSequence();
+  }
+
+  /**
+   * Returns the time this frame was received from the camera.
+   * @return The capture time in nanoseconds since the epoch, 0 if unknown.
+   */
+  public long getCaptureTime() {
+    return header.getCaptureTime();
+  }
+
+  /**
+   * Returns this frame stamped with a sequence number and capture time,
+   * sharing the image bytes.
+   * @param sequence    The sequence number of the frame.
+   * @param captureTime The capture time in nanoseconds since the epoch.
+   * @return A new VideoFrame.
+   */
+  public VideoFrame withFrameInfo(long sequence, long captureTime) {
+    return new VideoFrame(header.withFrameInfo(sequence, captureTime), image);
+  }
+
+  /**
+   * Returns a copy of the image bytes.
+   * Use getImageStream or writeTo to read the image without copying it.
+   * @return A byte[] containing the image.
+   */
   public byte[] getImage() {
     return Arrays.copyOf(image, image.length);
   }
 
+  /**
+   * Returns a read-only view on the image bytes.
+   * @return A read-only ByteBuffer containing the image.
+   */
+  public ByteBuffer getImageBuffer() {
+    return ByteBuffer.wrap(image).asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns the frame as a message, the sequence number and the capture time as 8 byte big
+   * endian numbers followed by the image.
+   * The message is created once and shared by all callers, each gets its own read-only view.
+   * @return A read-only ByteBuffer containing the message.
+   */
+  public ByteBuffer getMessage() {
+    ByteBuffer created = message;
+    if (created == null) {
+      created = ByteBuffer.allocate(MESSAGE_INFO_LENGTH + image.length);
+      created.putLong(getSequence());
+      created.putLong(getCaptureTime());
+      created.put(image);
+      created.flip();
+      message = created;
+    }
+    return created.asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns an inputstream reading the image bytes.
+   * @return An InputStream containing the image.
+   */
+  public InputStream getImageStream() {
+    return new ByteArrayInputStream(image);
+  }
+
+  /**
+   * Returns the length of the image in bytes.
+   * @return The image length.
+   */
+  public int getImageLength() {
+    return image.length;
+  }
+
+  /**
+   * Returns the serialized header.
+   * @return A byte[] containing the header.
+   */
   public byte[] getHeaderBytes() {
-    return header.getString().getBytes(StandardCharsets.UTF_8);
+    return header.getBytes();
   }
 
-  public void setImage(byte[] image) {
-    this.image = Arrays.copyOf(image, image.length);
+  /**
+   * Writes the header and the image to an outputstream, without copying the image.
+   * @param out The outputstream to write to.
+   * @throws IOException If the outputstream cannot be written.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    header.writeTo(out);
+    out.write(image);
+  }
+
+  /**
+   * Writes only the image to an outputstream, without copying it.
+   * @param out The outputstream to write to.
+   * @throws IOException If the outputstream cannot be written.
+   */
+  public void writeImageTo(OutputStream out) throws IOException {
+    out.write(image);
   }
 }
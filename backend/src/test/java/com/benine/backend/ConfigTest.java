@@ -4,6 +4,7 @@ import com.benine.backend.Config;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 /**
  * Test class used to test the Config class.
@@ -52,4 +53,45 @@ public class ConfigTest {
     cfg1.addAttribute("Username", "Test123456");
     Assert.assertNotEquals(cfg1, cfg2);
   }
+
+  @Test
+  public final void testGetInt() {
+    Config cfg = new Config();
+    cfg.addAttribute("Threads", " 12 ");
+    Assert.assertEquals(12, cfg.getInt("Threads", 4));
+  }
+
+  @Test
+  public final void testGetIntMissing() {
+    Assert.assertEquals(4, new Config().getInt("Threads", 4));
+  }
+
+  @Test
+  public final void testGetIntInvalid() {
+    Config cfg = new Config();
+    cfg.addAttribute("Threads", "twelve");
+    Assert.assertEquals(4, cfg.getInt("Threads", 4));
+  }
+
+  @Test
+  public final void testGetLong() {
+    Config cfg = new Config();
+    cfg.addAttribute("Timeout", "5000000000");
+    Assert.assertEquals(5000000000L, cfg.getLong("Timeout", 1000));
+  }
+
+  @Test
+  public final void testGetLongInvalid() {
+    Config cfg = new Config();
+    cfg.addAttribute("Timeout", "");
+    Assert.assertEquals(1000, cfg.getLong("Timeout", 1000));
+  }
+
+  @Test
+  public final void testGetLongMocked() {
+    Config cfg = Mockito.mock(Config.class);
+    Mockito.when(cfg.getValue("Timeout")).thenReturn("200");
+    Assert.assertEquals(200, cfg.getLong("Timeout", 1000));
+    Assert.assertEquals(1000, cfg.getLong("Interval", 1000));
+  }
 }
@@ -1,9 +1,11 @@
 package com.benine.backend.camera;
 
 import com.benine.backend.ServerController;
+import com.benine.backend.camera.ipcameracontrol.IPCamera;
 import com.benine.backend.database.MySQLDatabase;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,9 +13,15 @@ import org.junit.Test;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -84,9 +92,8 @@ public class CameraControllerTest {
   
   @Test
   public void testGetCamerasJSONException() throws Exception {
-    Camera cam1 = mock(SimpleCamera.class);
-    when(cam1.toJSON()).thenThrow(new CameraConnectionException("camera test exception", -1));
-    when(cam1.getId()).thenReturn(1);
+    Camera cam1 = spy(new SimpleCamera());
+    doThrow(new CameraConnectionException("camera test exception", -1)).when(cam1).toJSON();
     controller.addCamera(cam1);
     
     String actualJSON = controller.getCamerasJSON();
@@ -94,6 +101,7 @@ public class CameraControllerTest {
     JSONObject jsonCamera = new JSONObject();
     jsonCamera.put("unavailable", true);
     jsonCamera.put("id", 1);
+    jsonCamera.put("streamstate", "idle");
     ar.add(jsonCamera);
     JSONObject obj = new JSONObject();
     obj.put("cameras", ar);
@@ -101,6 +109,160 @@ public class CameraControllerTest {
     Assert.assertEquals(expectedJSON, actualJSON);
   }
 
+  /**
+   * Creates a camera responding with its JSON after a delay.
+   * @param id      The id in the JSON of the camera.
+   * @param delay   The delay in milliseconds.
+   * @return The camera.
+   */
+  private Camera createSlowCamera(String id, long delay) throws Exception {
+    Camera camera = mock(SimpleCamera.class);
+    JSONObject json = new JSONObject();
+    json.put("id", id);
+    when(camera.toJSON()).thenAnswer(invocation -> {
+      Thread.sleep(delay);
+      return json;
+    });
+    return camera;
+  }
+
+  /**
+   * Returns the JSON of the cameras in the camera listing.
+   * @return The JSON array of the cameras.
+   */
+  private JSONArray getCamerasArray() throws Exception {
+    return (JSONArray) ((JSONObject) new JSONParser().parse(controller.getCamerasJSON()))
+        .get("cameras");
+  }
+
+  @Test
+  public void testGetCamerasJSONConcurrently() throws Exception {
+    controller.addCamera(createSlowCamera("cam1JSON", 150));
+    controller.addCamera(createSlowCamera("cam2JSON", 150));
+
+    long start = System.nanoTime();
+    JSONArray cameras = getCamerasArray();
+
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(290));
+    assertEquals("cam1JSON", ((JSONObject) cameras.get(0)).get("id"));
+    assertEquals("cam2JSON", ((JSONObject) cameras.get(1)).get("id"));
+  }
+
+  @Test
+  public void testGetCamerasJSONDeadline() throws Exception {
+    Camera slowCamera = createSlowCamera("cam1JSON", 1000);
+    when(slowCamera.getId()).thenReturn(-1);
+    controller.addCamera(slowCamera);
+    controller.addCamera(createSlowCamera("cam2JSON", 0));
+
+    long start = System.nanoTime();
+    JSONArray cameras = getCamerasArray();
+
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(900));
+    JSONObject unavailable = new JSONObject();
+    unavailable.put("id", -1L);
+    unavailable.put("unavailable", true);
+    assertEquals(unavailable, cameras.get(0));
+    assertEquals("cam2JSON", ((JSONObject) cameras.get(1)).get("id"));
+  }
+
+  @Test
+  public void testGetCamerasJSONStale() throws Exception {
+    Camera camera = mock(SimpleCamera.class);
+    JSONObject json = new JSONObject();
+    json.put("id", "cam1JSON");
+    when(camera.toJSON()).thenReturn(json).thenAnswer(invocation -> {
+      Thread.sleep(1000);
+      return json;
+    });
+    controller.addCamera(camera);
+    getCamerasArray();
+
+    JSONObject stale = (JSONObject) getCamerasArray().get(0);
+    assertEquals("cam1JSON", stale.get("id"));
+    assertEquals(true, stale.get("stale"));
+    Assert.assertNull(stale.get("unavailable"));
+  }
+
+  @Test
+  public void testGetCamerasJSONSlowCameraAskedOnce() throws Exception {
+    Camera camera = createSlowCamera("cam1JSON", 1000);
+    controller.addCamera(camera);
+
+    getCamerasArray();
+    getCamerasArray();
+    verify(camera, times(1)).toJSON();
+  }
+
+  /**
+   * Makes an IP camera respond to the commands reading its state.
+   * @param camera    The camera.
+   * @param position  The response to the position command.
+   */
+  private void setStateResponses(IPCamera camera, String position) throws Exception {
+    doReturn(position).when(camera).sendCommand("aw_ptz?cmd=%23APC&res=1");
+    doReturn("gz655").when(camera).sendCommand("aw_ptz?cmd=%23GZ&res=1");
+    doReturn("gfA42").when(camera).sendCommand("aw_ptz?cmd=%23GF&res=1");
+    doReturn("giA420").when(camera).sendCommand("aw_ptz?cmd=%23GI&res=1");
+    doReturn("d11").when(camera).sendCommand("aw_ptz?cmd=%23D1&res=1");
+    doReturn("d31").when(camera).sendCommand("aw_ptz?cmd=%23D3&res=1");
+  }
+
+  @Test
+  public void testGetCamerasJSONIPCameraRefreshed() throws Exception {
+    IPCamera camera = spy(new IPCamera("127.0.0.1", controller));
+    setStateResponses(camera, "aPC80008000");
+    controller.addCamera(camera);
+    camera.refreshState();
+
+    JSONObject json = (JSONObject) getCamerasArray().get(0);
+    Assert.assertEquals(true, json.get("autofocus"));
+    Assert.assertNull(json.get("stale"));
+  }
+
+  @Test
+  public void testGetCamerasJSONIPCameraRefreshFailed() throws Exception {
+    IPCamera camera = spy(new IPCamera("127.0.0.1", controller));
+    setStateResponses(camera, "aPC80008000");
+    controller.addCamera(camera);
+    camera.refreshState();
+    setStateResponses(camera, "error");
+    try {
+      camera.refreshState();
+      Assert.fail();
+    } catch (CameraConnectionException e) {
+      Assert.assertTrue(camera.isStateFailed());
+    }
+
+    JSONObject json = (JSONObject) getCamerasArray().get(0);
+    Assert.assertEquals(true, json.get("autofocus"));
+    Assert.assertEquals(true, json.get("stale"));
+    Assert.assertNull(json.get("unavailable"));
+  }
+
+  @Test
+  public void testGetCamerasJSONStreamState() throws Exception {
+    Camera cam1 = new SimpleCamera();
+    controller.addCamera(cam1);
+
+    JSONObject json = (JSONObject) ((JSONArray) ((JSONObject) new JSONParser()
+            .parse(controller.getCamerasJSON())).get("cameras")).get(0);
+
+    Assert.assertEquals("idle", json.get("streamstate"));
+  }
+
+  @Test
+  public void testGetCamerasJSONStreamStateNotShared() throws Exception {
+    Camera camera = spy(new SimpleCamera());
+    JSONObject json = new JSONObject();
+    json.put("id", "cam1JSON");
+    doReturn(json).when(camera).toJSON();
+    controller.addCamera(camera);
+
+    Assert.assertEquals("idle", ((JSONObject) getCamerasArray().get(0)).get("streamstate"));
+    Assert.assertNull(json.get("streamstate"));
+  }
+
   @Test
   public void testGetCamerasInUse() {
     Camera cam1 = mock(SimpleCamera.class);
@@ -53,6 +53,12 @@ public class CameraFactoryProducerTest {
     camFactoryProducer.getFactory("simplecamera").createCamera(3);
   }
   
+  @Test(expected = InvalidCameraTypeException.class)
+  public void testCreateSimulatedCameraFactoryNotSpecifiedValue()
+          throws InvalidCameraTypeException {
+    camFactoryProducer.getFactory("simulatedcamera").createCamera(1);
+  }
+  
   @Test(expected = InvalidCameraTypeException.class)
   public void testCreateNonExcistingFactory() throws InvalidCameraTypeException {
     camFactoryProducer.getFactory("non");
@@ -0,0 +1,177 @@
+package com.benine.backend.camera.ipcameracontrol;
+
+import com.benine.backend.camera.CameraBusyException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class to test the command queue of a camera.
+ */
+public class CameraCommandQueueTest {
+
+  private CameraCommandQueue queue;
+
+  @Before
+  public void setUp() {
+    queue = new CameraCommandQueue();
+  }
+
+  @Test
+  public void testResult() throws Exception {
+    assertEquals("aPC80008000", queue.submit(() -> "aPC80008000").get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testException() throws Exception {
+    CameraBusyException exception = new CameraBusyException("Busy", 1);
+    CompletableFuture<String> future = queue.submit(() -> {
+      throw exception;
+    });
+    try {
+      future.get(1, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      assertEquals(exception, e.getCause());
+    }
+    assertTrue(future.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testOneCallAtATime() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Integer> order = new CopyOnWriteArrayList<>();
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      int call = i;
+      futures.add(queue.submit(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        order.add(call);
+        Thread.yield();
+        running.decrementAndGet();
+        return call;
+      }));
+    }
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+    assertEquals(1, maxRunning.get());
+    for (int i = 0; i < 20; i++) {
+      assertEquals(i, (int) order.get(i));
+    }
+  }
+
+  @Test
+  public void testQueuedWhileRunning() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    queue.submit(() -> {
+      started.countDown();
+      return awaitLatch(release);
+    });
+    started.await(1, TimeUnit.SECONDS);
+    CompletableFuture<String> second = queue.submit(() -> "second");
+
+    assertFalse(second.isDone());
+    assertEquals(1, queue.getQueued());
+    release.countDown();
+    assertEquals("second", second.get(1, TimeUnit.SECONDS));
+    assertEquals(0, queue.getQueued());
+  }
+
+  @Test
+  public void testCancelledNotRun() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> order = new CopyOnWriteArrayList<>();
+    queue.submit(() -> {
+      started.countDown();
+      return awaitLatch(release);
+    });
+    started.await(1, TimeUnit.SECONDS);
+    CompletableFuture<Boolean> cancelled = queue.submit(() -> order.add("cancelled"));
+    cancelled.cancel(false);
+    CompletableFuture<Boolean> next = queue.submit(() -> order.add("next"));
+
+    release.countDown();
+    next.get(1, TimeUnit.SECONDS);
+    assertEquals("[next]", order.toString());
+    assertEquals(0, queue.getQueued());
+  }
+
+  @Test
+  public void testBackgroundAfterOtherCalls() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch refreshStarted = new CountDownLatch(1);
+    CountDownLatch refreshRelease = new CountDownLatch(1);
+    List<String> order = new CopyOnWriteArrayList<>();
+    queue.submit(() -> {
+      started.countDown();
+      return awaitLatch(release);
+    });
+    started.await(1, TimeUnit.SECONDS);
+    queue.submitBackground(() -> {
+      order.add("refresh1");
+      refreshStarted.countDown();
+      return awaitLatch(refreshRelease);
+    });
+    CompletableFuture<Boolean> refresh2 = queue.submitBackground(() -> order.add("refresh2"));
+    queue.submit(() -> order.add("command1"));
+
+    assertEquals(3, queue.getQueued());
+    release.countDown();
+    refreshStarted.await(1, TimeUnit.SECONDS);
+    queue.submit(() -> order.add("command2"));
+    refreshRelease.countDown();
+    refresh2.get(1, TimeUnit.SECONDS);
+    assertEquals("[command1, refresh1, command2, refresh2]", order.toString());
+  }
+
+  @Test
+  public void testSubmittedByQueuedCall() throws Exception {
+    CompletableFuture<Boolean> future = queue.submit(() -> {
+      assertTrue(queue.isCurrent());
+      return queue.submit(() -> "inner").isDone();
+    });
+    assertTrue(future.get(1, TimeUnit.SECONDS));
+    assertFalse(queue.isCurrent());
+  }
+
+  @Test
+  public void testRejected() throws Exception {
+    queue = new CameraCommandQueue(runnable -> {
+      throw new RejectedExecutionException();
+    });
+    CompletableFuture<String> future = queue.submit(() -> "rejected");
+
+    assertTrue(future.isCompletedExceptionally());
+    assertEquals(0, queue.getQueued());
+  }
+
+  /**
+   * Blocks until a latch is released.
+   * @param latch The latch.
+   * @return true once released.
+   */
+  private boolean awaitLatch(CountDownLatch latch) {
+    try {
+      return latch.await(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
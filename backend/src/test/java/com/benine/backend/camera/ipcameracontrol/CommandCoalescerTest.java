@@ -0,0 +1,122 @@
+package com.benine.backend.camera.ipcameracontrol;
+
+import com.benine.backend.camera.CameraConnectionException;
+import com.benine.backend.camera.ipcameracontrol.CommandCoalescer.Axis;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class to test the coalescing of camera commands.
+ */
+public class CommandCoalescerTest {
+
+  private CameraCommandQueue queue;
+  private CommandCoalescer coalescer;
+  private List<String> sent;
+
+  @Before
+  public void setUp() {
+    queue = new CameraCommandQueue();
+    coalescer = new CommandCoalescer(queue, 200);
+    sent = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * Submits a command recording its name when it is sent.
+   * @param axis  The axis of the command.
+   * @param name  The name recorded when the command is sent.
+   * @return The future of the command.
+   */
+  private CompletableFuture<Void> submit(Axis axis, String name) {
+    return coalescer.submit(axis, () -> sent.add(name));
+  }
+
+  @Test
+  public void testFirstCommandImmediately() throws Exception {
+    long start = System.nanoTime();
+    submit(Axis.ZOOM, "zoom").get(1, TimeUnit.SECONDS);
+
+    assertEquals(1, sent.size());
+    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+  }
+
+  @Test
+  public void testInterval() throws Exception {
+    submit(Axis.ZOOM, "zoom1").get(1, TimeUnit.SECONDS);
+    long start = System.nanoTime();
+    submit(Axis.ZOOM, "zoom2").get(1, TimeUnit.SECONDS);
+
+    assertEquals(2, sent.size());
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+  }
+
+  @Test
+  public void testLatestCommandPerAxisSent() throws Exception {
+    submit(Axis.PAN_TILT, "move1").get(1, TimeUnit.SECONDS);
+    CompletableFuture<Void> move2 = submit(Axis.PAN_TILT, "move2");
+    CompletableFuture<Void> move3 = submit(Axis.PAN_TILT, "move3");
+    CompletableFuture<Void> stop = submit(Axis.PAN_TILT, "stop");
+
+    assertTrue(move2.isDone());
+    assertTrue(move3.isDone());
+    stop.get(1, TimeUnit.SECONDS);
+    assertEquals("[move1, stop]", sent.toString());
+  }
+
+  @Test
+  public void testAxesNotReplaced() throws Exception {
+    submit(Axis.PAN_TILT, "move").get(1, TimeUnit.SECONDS);
+    CompletableFuture<Void> zoom = submit(Axis.ZOOM, "zoom");
+    CompletableFuture<Void> focus = submit(Axis.FOCUS, "focus");
+
+    CompletableFuture.allOf(zoom, focus).get(1, TimeUnit.SECONDS);
+    assertEquals("[move, zoom, focus]", sent.toString());
+  }
+
+  @Test
+  public void testException() throws Exception {
+    CameraConnectionException exception = new CameraConnectionException("Unreachable", 1);
+    CompletableFuture<Void> future = coalescer.submit(Axis.ZOOM, () -> {
+      throw exception;
+    });
+    try {
+      future.get(1, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      assertEquals(exception, e.getCause());
+    }
+    assertTrue(future.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testSendsAfterException() throws Exception {
+    coalescer.submit(Axis.ZOOM, () -> {
+      throw new CameraConnectionException("Unreachable", 1);
+    });
+    submit(Axis.ZOOM, "zoom").get(1, TimeUnit.SECONDS);
+    assertEquals(1, sent.size());
+  }
+
+  @Test
+  public void testSubmittedByQueuedCall() throws Exception {
+    submit(Axis.ZOOM, "zoom1").get(1, TimeUnit.SECONDS);
+    boolean done = queue.submit(() -> submit(Axis.ZOOM, "zoom2").isDone())
+        .get(1, TimeUnit.SECONDS);
+
+    assertTrue(done);
+    assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void testGetInterval() {
+    assertEquals(200, coalescer.getInterval());
+  }
+}
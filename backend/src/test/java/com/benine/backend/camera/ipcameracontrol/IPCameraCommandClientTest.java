@@ -0,0 +1,114 @@
+package com.benine.backend.camera.ipcameracontrol;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.Assert.assertEquals;
+
+public class IPCameraCommandClientTest {
+
+  private Server server;
+  private IPCameraCommandClient client;
+  private List<Integer> clientPorts = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    server = new Server();
+    ServerConnector connector = new ServerConnector(server, 1, 1);
+    connector.setHost("127.0.0.1");
+    server.addConnector(connector);
+    server.setHandler(new CameraHandler());
+    server.start();
+
+    client = new IPCameraCommandClient("127.0.0.1:" + connector.getLocalPort(), 1000, 200);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.stop();
+  }
+
+  @Test
+  public void testSend() throws IOException {
+    assertEquals("aPC80008000", client.send("aw_ptz?cmd=%23APC&res=1"));
+  }
+
+  @Test
+  public void testMultipleLines() throws IOException {
+    assertEquals("MAC=8C-C1-21-F0-46-C9 NAME=AW-HE130", client.send("getinfo?FILE=1"));
+  }
+
+  @Test
+  public void testKeepAlive() throws IOException {
+    client.send("aw_ptz?cmd=%23APC&res=1");
+    client.send("aw_ptz?cmd=%23APC&res=1");
+    client.send("getinfo?FILE=1");
+
+    assertEquals(3, clientPorts.size());
+    assertEquals(clientPorts.get(0), clientPorts.get(2));
+  }
+
+  @Test(expected = IOException.class)
+  public void testErrorStatus() throws IOException {
+    client.send("unknown");
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadTimeout() throws IOException {
+    client.send("slow");
+  }
+
+  @Test(expected = IOException.class)
+  public void testNoCamera() throws Exception {
+    server.stop();
+    client.send("aw_ptz?cmd=%23APC&res=1");
+  }
+
+  /**
+   * Responds like a camera, recording the port of the client of every request.
+   */
+  private class CameraHandler extends AbstractHandler {
+
+    @Override
+    public void handle(String target, Request request, HttpServletRequest req,
+                       HttpServletResponse res) throws IOException {
+      request.setHandled(true);
+      clientPorts.add(request.getRemotePort());
+
+      if (target.equals("/cgi-bin/aw_ptz") && "#APC".equals(request.getParameter("cmd"))) {
+        res.getWriter().print("aPC80008000");
+      } else if (target.equals("/cgi-bin/getinfo")) {
+        // Written in parts, so the response is chunked.
+        res.getWriter().print("MAC=8C-C1-21-F0-46-C9\r\n");
+        res.flushBuffer();
+        res.getWriter().print("NAME=AW-HE130\r\n");
+      } else if (target.equals("/cgi-bin/slow")) {
+        sleep();
+      } else {
+        res.sendError(HttpServletResponse.SC_NOT_FOUND);
+      }
+    }
+
+    /**
+     * Responds later than the read timeout of the client.
+     */
+    private void sleep() {
+      try {
+        Thread.sleep(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
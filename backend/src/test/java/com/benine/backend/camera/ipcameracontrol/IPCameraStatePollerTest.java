@@ -0,0 +1,79 @@
+package com.benine.backend.camera.ipcameracontrol;
+
+import com.benine.backend.camera.Camera;
+import com.benine.backend.camera.SimpleCamera;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class to test the background polling of the state of IP cameras.
+ */
+public class IPCameraStatePollerTest {
+
+  private IPCamera camera1 = mock(IPCamera.class);
+  private IPCamera camera2 = mock(IPCamera.class);
+  private SimpleCamera simpleCamera = mock(SimpleCamera.class);
+  private List<Camera> cameras = Arrays.asList(camera1, simpleCamera, camera2);
+  private IPCameraStatePoller poller;
+
+  @Before
+  public void setUp() {
+    when(camera1.refreshStateAsync()).thenReturn(new CompletableFuture<>());
+    when(camera2.refreshStateAsync()).thenReturn(new CompletableFuture<>());
+    poller = new IPCameraStatePoller(() -> cameras, 50);
+  }
+
+  @After
+  public void tearDown() {
+    poller.stop();
+  }
+
+  @Test
+  public void testPoll() {
+    poller.poll();
+    verify(camera1).refreshStateAsync();
+    verify(camera2).refreshStateAsync();
+  }
+
+  @Test
+  public void testStart() {
+    poller.start();
+    assertTrue(poller.isPolling());
+    verify(camera1, timeout(1000).atLeast(2)).refreshStateAsync();
+    verify(camera2, timeout(1000).atLeast(2)).refreshStateAsync();
+  }
+
+  @Test
+  public void testStop() throws InterruptedException {
+    poller.start();
+    verify(camera1, timeout(1000)).refreshStateAsync();
+    poller.stop();
+    assertFalse(poller.isPolling());
+
+    Thread.sleep(100);
+    int polls = mockingDetails(camera1).getInvocations().size();
+    Thread.sleep(150);
+    verify(camera1, atLeast(1)).refreshStateAsync();
+    assertEquals(polls, mockingDetails(camera1).getInvocations().size());
+  }
+
+  @Test
+  public void testGetInterval() {
+    assertEquals(50, poller.getInterval());
+  }
+}
@@ -18,8 +18,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -36,13 +41,12 @@ public class IpcameraTest extends BasicCameraTest {
   
   @Before
   public final void setUp() throws InvalidCameraTypeException {
-    camera = spy(new IPCamera("test", cameraController));
-    busyCamera = spy(new IPCamera("test", cameraController));
-    busyCamera.setBusy(true);
-
     when(config.getValue("IPCameraTimeOut")).thenReturn("2");
     when(cameraController.getConfig()).thenReturn(config);
     when(cameraController.getLogger()).thenReturn(logger);
+    busyCamera = spy(new IPCamera("test", cameraController));
+    busyCamera.setBusy(true);
+
     camera = spy(new IPCamera("test", cameraController));
     ServerController.setConfigPath("resources" + File.separator + "configs" + File.separator + "maintest.conf");
   }
@@ -50,6 +54,15 @@ public class IpcameraTest extends BasicCameraTest {
   public void setCameraBehaviour(String cmd, String response) throws IpcameraConnectionException {
     doReturn(response).when(camera).sendCommand("aw_ptz?cmd=%23" + cmd + "&res=1");
   }
+
+  public void setStateBehaviour() throws IpcameraConnectionException {
+    setCameraBehaviour("APC", "aPC80008000");
+    setCameraBehaviour("GZ", "gz655");
+    setCameraBehaviour("GF", "gfA42");
+    setCameraBehaviour("GI", "giA420");
+    setCameraBehaviour("D1", "d11");
+    setCameraBehaviour("D3", "d31");
+  }
   
   @Test
   public final void testGetMACAddress() throws CameraConnectionException, IOException {
@@ -91,6 +104,32 @@ public class IpcameraTest extends BasicCameraTest {
     Mockito.verify(camera).sendCommand("aw_ptz?cmd=%23PTS0199&res=1");
   }
   
+  @Test
+  public final void testMoveAsync() throws Exception {
+    setCameraBehaviour("PTS5050", "pTS5050");
+    camera.moveAsync(50, 50).get(1, TimeUnit.SECONDS);
+    Mockito.verify(camera).sendCommand("aw_ptz?cmd=%23PTS5050&res=1");
+  }
+
+  @Test
+  public final void testMoveAsyncFails() throws Exception {
+    setCameraBehaviour("PTS5050", "error");
+    CompletableFuture<Void> future = camera.moveAsync(50, 50);
+    try {
+      future.get(1, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IpcameraConnectionException);
+    }
+    assertTrue(future.isCompletedExceptionally());
+  }
+
+  @Test
+  public final void testSubmit() throws Exception {
+    setCameraBehaviour("APC", "aPC80008000");
+    Position pos = camera.submit(camera::getPosition).get(1, TimeUnit.SECONDS);
+    assertEquals(180, pos.getTilt(), 0.000001);
+  }
+
   @Test
   public final void testGetPosition() throws CameraConnectionException {
     setCameraBehaviour("APC", "aPC80008000");
@@ -189,8 +228,8 @@ public class IpcameraTest extends BasicCameraTest {
   
   @Test
   public final void testGetJSON() throws CameraConnectionException, CameraBusyException{
-    setCameraBehaviour("D1", "d11");
-    setCameraBehaviour("D3", "d31");
+    setStateBehaviour();
+    camera.refreshState();
     JSONObject json = new JSONObject();
     json.put("id", -1);
     json.put("inuse", false);
@@ -205,6 +244,98 @@ public class IpcameraTest extends BasicCameraTest {
     assertEquals(json, camera.toJSON());
   }
   
+  @Test
+  public final void testGetJSONRefreshFailed() throws CameraConnectionException {
+    setStateBehaviour();
+    camera.refreshState();
+    JSONObject json = camera.toJSON();
+    setCameraBehaviour("APC", "error");
+    try {
+      camera.refreshState();
+    } catch (IpcameraConnectionException e) {
+      Assert.assertNotNull(camera.getState());
+      Assert.assertFalse(camera.isStateAvailable());
+    }
+    assertTrue(camera.isStateFailed());
+    assertEquals(json, camera.toJSON());
+  }
+
+  @Test
+  public final void testRefreshState() throws Exception {
+    setStateBehaviour();
+    IPCameraState state = camera.refreshStateAsync().get(1, TimeUnit.SECONDS);
+
+    assertEquals(new ZoomPosition(0, 180, 256), state.getPosition());
+    assertEquals(new FocusValue(1261, true), state.getFocus());
+    assertEquals(new IrisValue(1261, true), state.getIris());
+    assertEquals(state, camera.getState());
+    assertTrue(camera.isStateAvailable());
+  }
+
+  @Test
+  public final void testRefreshStateReadsCamera() throws Exception {
+    setStateBehaviour();
+    camera.refreshState();
+    camera.refreshState();
+    verify(camera, times(2)).sendCommand("aw_ptz?cmd=%23D1&res=1");
+  }
+
+  @Test
+  public final void testRefreshStateStopsAfterFailure() throws Exception {
+    setStateBehaviour();
+    doThrow(new IpcameraConnectionException("test exception", 0))
+        .when(camera).sendCommand("aw_ptz?cmd=%23APC&res=1");
+    try {
+      camera.refreshState();
+      Assert.fail();
+    } catch (IpcameraConnectionException e) {
+      assertEquals("test exception", e.getMessage());
+    }
+    verify(camera, never()).sendCommand("aw_ptz?cmd=%23D1&res=1");
+    Assert.assertFalse(camera.isStateAvailable());
+  }
+
+  @Test
+  public final void testRefreshStateAsyncShared() throws Exception {
+    setStateBehaviour();
+    CompletableFuture<IPCameraState> refresh = camera.refreshStateAsync();
+
+    assertTrue(refresh == camera.refreshStateAsync() || refresh.isDone());
+    refresh.get(1, TimeUnit.SECONDS);
+  }
+
+  @Test(expected = IpcameraConnectionException.class)
+  public final void testCommandTimeout() throws Exception {
+    when(config.getValue("camera_command_timeout")).thenReturn("100");
+    camera = spy(new IPCamera("test", cameraController));
+    doAnswer(invocation -> {
+      Thread.sleep(1000);
+      return "pTS5050";
+    }).when(camera).sendControlCommand("%23PTS5050");
+
+    camera.move(50, 50);
+  }
+
+  @Test
+  public final void testCommandTimeoutNotSentLater() throws Exception {
+    when(config.getValue("camera_command_timeout")).thenReturn("100");
+    camera = spy(new IPCamera("test", cameraController));
+    doAnswer(invocation -> {
+      Thread.sleep(500);
+      return "fS50";
+    }).when(camera).sendControlCommand("%23F50");
+    doReturn("pTS4040").when(camera).sendControlCommand("%23PTS4040");
+
+    // The focus movement holds the queue, so the move times out before it is sent.
+    camera.moveFocusAsync(50);
+    try {
+      camera.move(40, 40);
+      Assert.fail();
+    } catch (IpcameraConnectionException e) {
+      verify(camera, after(800).never()).sendControlCommand("%23PTS4040");
+    }
+  }
+
   @Test
   public final void testCreatePreset() throws CameraConnectionException, CameraBusyException{
     setCameraBehaviour("APC", "aPC80008000");
@@ -293,7 +424,9 @@ public class IpcameraTest extends BasicCameraTest {
 
   @Override
   public BasicCamera getCamera() {
-    return new IPCamera("test", mock(CameraController.class));
+    CameraController controller = mock(CameraController.class);
+    when(controller.getConfig()).thenReturn(new Config());
+    return new IPCamera("test", controller);
   }
 
 }
@@ -0,0 +1,68 @@
+package com.benine.backend.camera.simulator;
+
+import com.benine.backend.video.MJPEGFrameHeader;
+import com.benine.backend.video.VideoFrame;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the recorded streams replayed by simulated camera's.
+ */
+public class MJPEGFixtureTest {
+
+  @Test
+  public void testLoadStream() throws IOException {
+    MJPEGFixture fixture = MJPEGFixture.load(new File("resources/test/testmjpeg.mjpg"), 0, 0);
+    assertTrue(fixture.size() > 1);
+  }
+
+  @Test
+  public void testLoadImage() throws IOException {
+    MJPEGFixture fixture = MJPEGFixture.load(new File("resources/test/firstframe.jpg"), 0, 0);
+    assertEquals(1, fixture.size());
+    assertEquals(new File("resources/test/firstframe.jpg").length(),
+            fixture.getFrame(0).getImageLength());
+  }
+
+  @Test
+  public void testLoadResized() throws IOException {
+    File file = new File("resources/test/firstframe.jpg");
+    MJPEGFixture fixture = MJPEGFixture.load(file, 64, 36);
+    assertTrue(fixture.getFrame(0).getImageLength() < file.length());
+  }
+
+  @Test(expected = IOException.class)
+  public void testLoadMissing() throws IOException {
+    MJPEGFixture.load(new File("resources/test/missing.mjpg"), 0, 0);
+  }
+
+  @Test(expected = IOException.class)
+  public void testLoadNoFrames() throws IOException {
+    MJPEGFixture.load(new File("resources/test/ipcameraInfoTest.txt"), 0, 0);
+  }
+
+  @Test
+  public void testLoops() {
+    List<VideoFrame> frames = new ArrayList<>();
+    frames.add(new VideoFrame(new MJPEGFrameHeader(1), new byte[1]));
+    frames.add(new VideoFrame(new MJPEGFrameHeader(2), new byte[2]));
+    MJPEGFixture fixture = new MJPEGFixture(frames);
+
+    assertSame(frames.get(0), fixture.getFrame(0));
+    assertSame(frames.get(1), fixture.getFrame(3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmpty() {
+    new MJPEGFixture(Arrays.asList());
+  }
+}
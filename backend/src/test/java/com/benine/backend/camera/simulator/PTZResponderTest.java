@@ -0,0 +1,87 @@
+package com.benine.backend.camera.simulator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Test class for the responder to the aw_ptz commands of a simulated camera.
+ */
+public class PTZResponderTest {
+
+  private PTZResponder responder;
+
+  @Before
+  public void setUp() {
+    responder = new PTZResponder();
+  }
+
+  @Test
+  public void testMoveTo() {
+    assertEquals("aPS80002AAD1D2", responder.respond("#APS80002AAD1D2"));
+    assertEquals("aPC80002AAD", responder.respond("#APC"));
+  }
+
+  @Test
+  public void testMoveToOutOfRange() {
+    responder.respond("#APSFFFF00001D2");
+    assertEquals("aPCD2F71C74", responder.respond("#APC"));
+  }
+
+  @Test
+  public void testMove() throws InterruptedException {
+    assertEquals("pTS9950", responder.respond("#PTS9950"));
+    Thread.sleep(20);
+    assertEquals("pTS5050", responder.respond("#PTS5050"));
+    assertNotEquals("aPC80002AAD", responder.respond("#APC"));
+  }
+
+  @Test
+  public void testZoom() {
+    assertEquals("axz800", responder.respond("#AXZ800"));
+    assertEquals("gz800", responder.respond("#GZ"));
+    assertEquals("zS50", responder.respond("#Z50"));
+    assertEquals("gz800", responder.respond("#GZ"));
+  }
+
+  @Test
+  public void testFocus() {
+    assertEquals("axfA00", responder.respond("#AXFA00"));
+    assertEquals("gfA00", responder.respond("#GF"));
+    assertEquals("fS50", responder.respond("#F50"));
+  }
+
+  @Test
+  public void testIris() {
+    assertEquals("axi600", responder.respond("#AXI600"));
+    assertEquals("gi6001", responder.respond("#GI"));
+  }
+
+  @Test
+  public void testAutoFocus() {
+    assertEquals("d11", responder.respond("#D1"));
+    assertEquals("d10", responder.respond("#D10"));
+    assertEquals("d10", responder.respond("#D1"));
+  }
+
+  @Test
+  public void testAutoIris() {
+    assertEquals("d30", responder.respond("#D30"));
+    assertEquals("d30", responder.respond("#D3"));
+    assertEquals("gi8000", responder.respond("#GI"));
+  }
+
+  @Test
+  public void testUnknownCommand() {
+    assertEquals("er1", responder.respond("#XYZ"));
+  }
+
+  @Test
+  public void testInvalidCommand() {
+    assertEquals("er1", responder.respond("#APSZZ"));
+    assertEquals("er1", responder.respond("APC"));
+    assertEquals("er1", responder.respond(null));
+  }
+}
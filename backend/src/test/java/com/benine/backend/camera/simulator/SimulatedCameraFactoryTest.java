@@ -0,0 +1,144 @@
+package com.benine.backend.camera.simulator;
+
+import com.benine.backend.Config;
+import com.benine.backend.Logger;
+import com.benine.backend.camera.CameraConnectionException;
+import com.benine.backend.camera.CameraController;
+import com.benine.backend.camera.InvalidCameraTypeException;
+import com.benine.backend.camera.Position;
+import com.benine.backend.camera.ipcameracontrol.IPCamera;
+import com.benine.backend.video.MJPEGFrameParser;
+import com.benine.backend.video.VideoFrame;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the factory of IP camera's connected to simulated camera's.
+ */
+public class SimulatedCameraFactoryTest {
+
+  private SimulatedCameraFactory factory;
+  private CameraController cameraController = mock(CameraController.class);
+  private Config config = mock(Config.class);
+  private Logger logger = mock(Logger.class);
+
+  @Before
+  public void setUp() {
+    when(config.getValue("IPCameraTimeOut")).thenReturn("0");
+    when(config.getValue("camera_1_fixture")).thenReturn("resources/test/testmjpeg.mjpg");
+    when(config.getValue("camera_1_fps")).thenReturn("50");
+    when(config.getValue("simulator_fixture")).thenReturn("resources/test/firstframe.jpg");
+    when(config.getValue("camera_3_fixture")).thenReturn("resources/test/missing.mjpg");
+    when(config.getValue("camera_4_fixture")).thenReturn("resources/test/firstframe.jpg");
+    when(config.getValue("camera_4_resolution")).thenReturn("large");
+    when(cameraController.getConfig()).thenReturn(config);
+    when(cameraController.getLogger()).thenReturn(logger);
+    factory = new SimulatedCameraFactory(cameraController);
+  }
+
+  @After
+  public void tearDown() {
+    factory.stop();
+  }
+
+  @Test
+  public void testCreateCamera() throws InvalidCameraTypeException {
+    IPCamera camera = factory.createCamera(1);
+    assertTrue(camera.getIpaddress().startsWith("127.0.0.1:"));
+  }
+
+  @Test
+  public void testCamerasHaveOwnAddress() throws InvalidCameraTypeException {
+    assertNotEquals(factory.createCamera(1).getIpaddress(),
+            factory.createCamera(2).getIpaddress());
+  }
+
+  @Test
+  public void testStream() throws InvalidCameraTypeException, IOException {
+    IPCamera camera = factory.createCamera(1);
+    URLConnection con = new URL(camera.getStreamLink()).openConnection();
+    MJPEGFrameParser parser = new MJPEGFrameParser();
+
+    try (InputStream in = con.getInputStream()) {
+      assertTrue(con.getContentType().startsWith("multipart/x-mixed-replace"));
+      VideoFrame first = parser.readFrame(in);
+      VideoFrame second = parser.readFrame(in);
+      assertTrue(first.getImageLength() > 0);
+      assertTrue(second.getImageLength() > 0);
+    }
+  }
+
+  @Test
+  public void testStreamDefaultFixture() throws InvalidCameraTypeException, IOException {
+    IPCamera camera = factory.createCamera(2);
+    URLConnection con = new URL(camera.getStreamLink()).openConnection();
+    byte[] image = Files.readAllBytes(new File("resources/test/firstframe.jpg").toPath());
+
+    try (InputStream in = con.getInputStream()) {
+      assertArrayEquals(image, new MJPEGFrameParser().readFrame(in).getImage());
+    }
+  }
+
+  @Test
+  public void testCommands() throws Exception {
+    IPCamera camera = factory.createCamera(1);
+
+    camera.moveTo(new Position(20, 40), 30, 1);
+    Position position = camera.getPosition();
+    assertEquals(20, position.getPan(), 0);
+    assertEquals(40, position.getTilt(), 0);
+
+    camera.zoomTo(1000);
+    assertEquals(1000, camera.getZoom());
+    camera.setAutoFocusOn(false);
+    assertEquals(false, camera.isAutoFocusOn());
+  }
+
+  @Test
+  public void testMacAddress() throws InvalidCameraTypeException, CameraConnectionException {
+    assertEquals("02-00-00-00-00-01", factory.createCamera(1).getMacAddress());
+    assertEquals("02-00-00-00-01-2C", SimulatedCameraFactory.getMacAddress(300));
+  }
+
+  @Test(expected = InvalidCameraTypeException.class)
+  public void testMissingFixture() throws InvalidCameraTypeException {
+    factory.createCamera(3);
+  }
+
+  @Test(expected = InvalidCameraTypeException.class)
+  public void testInvalidResolution() throws InvalidCameraTypeException {
+    factory.createCamera(4);
+  }
+
+  @Test(expected = InvalidCameraTypeException.class)
+  public void testNoFixture() throws InvalidCameraTypeException {
+    when(config.getValue("simulator_fixture")).thenReturn(null);
+    factory.createCamera(5);
+  }
+
+  @Test
+  public void testParseResolution() {
+    assertArrayEquals(new int[] {640, 360}, SimulatedCameraFactory.parseResolution("640X360"));
+    assertArrayEquals(new int[] {0, 0}, SimulatedCameraFactory.parseResolution(null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseNegativeFps() {
+    SimulatedCameraFactory.parseFps("-1");
+  }
+}
@@ -0,0 +1,117 @@
+package com.benine.backend.http;
+
+import com.benine.backend.Config;
+import com.benine.backend.Logger;
+import com.benine.backend.ServerController;
+import com.benine.backend.camera.CameraController;
+import com.benine.backend.camera.ipcameracontrol.IPCamera;
+import com.benine.backend.metrics.MetricRegistry;
+import com.benine.backend.video.MJPEGFrameHeader;
+import com.benine.backend.video.MJPEGStreamReader;
+import com.benine.backend.video.StreamController;
+import com.benine.backend.video.StreamType;
+import com.benine.backend.video.VideoFrame;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streams MJPEG through a running server, routed by the CameraInfoHandler.
+ */
+public class HTTPServerStreamTest {
+
+  private ServerController serverController = mock(ServerController.class);
+  private Config config = mock(Config.class);
+  private StreamController streamController = mock(StreamController.class);
+  private MJPEGStreamReader streamReader = new MJPEGStreamReader();
+  private HTTPServer httpServer;
+
+  private byte[] image = {1, 2, 3, 4};
+
+  @Before
+  public void setUp() throws Exception {
+    CameraController cameraController = mock(CameraController.class);
+    IPCamera camera = mock(IPCamera.class);
+    when(camera.getStreamType()).thenReturn(StreamType.MJPEG);
+    when(cameraController.getCameraById(1)).thenReturn(camera);
+    when(streamController.acquireStreamReader(1)).thenReturn(streamReader);
+
+    when(config.getValue("stream_compression")).thenReturn("false");
+    when(config.getValue("stream_stall_timeout")).thenReturn("500");
+    when(serverController.getConfig()).thenReturn(config);
+    when(serverController.getLogger()).thenReturn(mock(Logger.class));
+    when(serverController.getMetricRegistry()).thenReturn(new MetricRegistry());
+    when(serverController.getCameraController()).thenReturn(cameraController);
+    when(serverController.getStreamController()).thenReturn(streamController);
+    httpServer = new HTTPServer(0, serverController);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    httpServer.destroy();
+  }
+
+  @Test
+  public void testStreamOutlivesStallTimeout() throws Exception {
+    int port = ((ServerConnector) httpServer.getServer().getConnectors()[0]).getLocalPort();
+    HttpURLConnection connection = (HttpURLConnection)
+        new URL("http://localhost:" + port + "/camera/1/mjpeg").openConnection();
+    connection.setReadTimeout(5000);
+
+    // Frames keep arriving for longer than the stall timeout, so the stream continues.
+    AtomicBoolean publishing = new AtomicBoolean(true);
+    Thread camera = new Thread(() -> {
+      while (publishing.get()) {
+        publish();
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    });
+    camera.start();
+
+    int length = 0;
+    try (InputStream in = connection.getInputStream()) {
+      assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+      long end = System.currentTimeMillis() + 1500;
+      while (System.currentTimeMillis() < end) {
+        assertTrue(in.read() >= 0);
+        length++;
+      }
+      verify(streamController, never()).releaseStreamReader(1);
+
+      // No frame arrives within the stall timeout, so the stream ends.
+      publishing.set(false);
+      camera.join();
+      while (in.read() >= 0) {
+        length++;
+      }
+    }
+    assertTrue(length > 0);
+    verify(streamController, timeout(5000)).releaseStreamReader(1);
+  }
+
+  /**
+   * Publishes a frame to the stream of the camera.
+   */
+  private void publish() {
+    streamReader.getFrameBuffer().publish(
+        new VideoFrame(new MJPEGFrameHeader(image.length), image));
+  }
+}
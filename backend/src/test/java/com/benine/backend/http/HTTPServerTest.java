@@ -0,0 +1,106 @@
+package com.benine.backend.http;
+
+import com.benine.backend.Config;
+import com.benine.backend.Logger;
+import com.benine.backend.ServerController;
+import com.benine.backend.metrics.MetricRegistry;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HTTPServerTest {
+
+  private ServerController serverController = mock(ServerController.class);
+  private Config config = mock(Config.class);
+  private MetricRegistry registry = new MetricRegistry();
+  private HTTPServer httpServer;
+
+  @Before
+  public void setUp() throws Exception {
+    when(serverController.getConfig()).thenReturn(config);
+    when(serverController.getLogger()).thenReturn(mock(Logger.class));
+    when(serverController.getMetricRegistry()).thenReturn(registry);
+    when(config.getValue("stream_compression")).thenReturn("true");
+    when(config.getValue("http_threads_min")).thenReturn("4");
+    when(config.getValue("http_threads_max")).thenReturn("50");
+    when(config.getValue("http_acceptors")).thenReturn("1");
+    when(config.getValue("http_selectors")).thenReturn(" 2 ");
+    when(config.getValue("http_idle_timeout")).thenReturn("15000");
+    when(config.getValue("http_output_buffer_size")).thenReturn("8192");
+    when(config.getValue("stream_threads")).thenReturn("2");
+    when(config.getValue("stream_viewers_max")).thenReturn("2");
+    httpServer = new HTTPServer(0, serverController);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    httpServer.destroy();
+  }
+
+  @Test
+  public void testThreadPool() {
+    QueuedThreadPool threads = (QueuedThreadPool) httpServer.getServer().getThreadPool();
+    assertEquals(4, threads.getMinThreads());
+    assertEquals(50, threads.getMaxThreads());
+    assertEquals(15000, threads.getIdleTimeout());
+  }
+
+  @Test
+  public void testConnector() {
+    ServerConnector connector = (ServerConnector) httpServer.getServer().getConnectors()[0];
+    assertEquals(1, connector.getAcceptors());
+    assertEquals(2, connector.getSelectorManager().getSelectorCount());
+    assertEquals(15000, connector.getIdleTimeout());
+    assertEquals(8192, connector.getConnectionFactory(HttpConnectionFactory.class)
+            .getHttpConfiguration().getOutputBufferSize());
+  }
+
+  @Test
+  public void testDefaults() throws Exception {
+    when(config.getValue("http_threads_max")).thenReturn("many");
+    HTTPServer defaults = new HTTPServer(0, serverController);
+    try {
+      QueuedThreadPool threads = (QueuedThreadPool) defaults.getServer().getThreadPool();
+      assertEquals(200, threads.getMaxThreads());
+    } finally {
+      defaults.destroy();
+    }
+  }
+
+  @Test
+  public void testStreamLimit() {
+    assertTrue(httpServer.acquireStream());
+    assertTrue(httpServer.acquireStream());
+    assertFalse(httpServer.acquireStream());
+    httpServer.releaseStream();
+    assertTrue(httpServer.acquireStream());
+  }
+
+  @Test
+  public void testStreamExecutor() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    httpServer.getStreamExecutor().execute(done::countDown);
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testMetrics() {
+    String scrape = registry.scrape();
+    assertTrue(scrape.contains("http_threads_max 50.0\n"));
+    assertTrue(scrape.contains("http_streams_max 2.0\n"));
+    httpServer.acquireStream();
+    assertTrue(registry.scrape().contains("http_streams_active 1.0\n"));
+  }
+}
@@ -0,0 +1,119 @@
+package com.benine.backend.http;
+
+import com.benine.backend.Config;
+import com.benine.backend.Logger;
+import com.benine.backend.ServerController;
+import com.benine.backend.camera.CameraController;
+import com.benine.backend.camera.ipcameracontrol.IPCamera;
+import com.benine.backend.metrics.MetricRegistry;
+import com.benine.backend.video.MJPEGFrameHeader;
+import com.benine.backend.video.MJPEGStreamReader;
+import com.benine.backend.video.StreamController;
+import com.benine.backend.video.StreamType;
+import com.benine.backend.video.VideoFrame;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streams frames over a WebSocket through a running server, routed by the CameraInfoHandler.
+ */
+public class HTTPServerWebSocketTest {
+
+  private ServerController serverController = mock(ServerController.class);
+  private Config config = mock(Config.class);
+  private StreamController streamController = mock(StreamController.class);
+  private MJPEGStreamReader streamReader = new MJPEGStreamReader();
+  private BlockingQueue<ByteBuffer> messages = new LinkedBlockingQueue<>();
+  private HTTPServer httpServer;
+  private WebSocketClient client;
+
+  private byte[] image = {1, 2, 3, 4};
+
+  @Before
+  public void setUp() throws Exception {
+    CameraController cameraController = mock(CameraController.class);
+    IPCamera camera = mock(IPCamera.class);
+    when(camera.getStreamType()).thenReturn(StreamType.MJPEG);
+    when(cameraController.getCameraById(1)).thenReturn(camera);
+    when(streamController.acquireStreamReader(1)).thenReturn(streamReader);
+
+    when(config.getValue("stream_compression")).thenReturn("false");
+    when(config.getValue("stream_ws_window")).thenReturn("1");
+    when(serverController.getConfig()).thenReturn(config);
+    when(serverController.getLogger()).thenReturn(mock(Logger.class));
+    when(serverController.getMetricRegistry()).thenReturn(new MetricRegistry());
+    when(serverController.getCameraController()).thenReturn(cameraController);
+    when(serverController.getStreamController()).thenReturn(streamController);
+    httpServer = new HTTPServer(0, serverController);
+
+    client = new WebSocketClient();
+    client.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.stop();
+    httpServer.destroy();
+  }
+
+  @Test
+  public void testReceiveAndAcknowledge() throws Exception {
+    int port = ((ServerConnector) httpServer.getServer().getConnectors()[0]).getLocalPort();
+    Session session = client.connect(new WebSocketAdapter() {
+      @Override
+      public void onWebSocketBinary(byte[] payload, int offset, int length) {
+        messages.add(ByteBuffer.wrap(payload, offset, length));
+      }
+    }, URI.create("ws://localhost:" + port + "/camera/1/ws")).get(5, TimeUnit.SECONDS);
+
+    publish(1);
+    ByteBuffer message = messages.poll(5, TimeUnit.SECONDS);
+    assertNotNull(message);
+    assertEquals(1, message.getLong());
+    message.getLong();
+    byte[] received = new byte[message.remaining()];
+    message.get(received);
+    assertArrayEquals(image, received);
+
+    // The window of one frame is full until the frame is acknowledged.
+    publish(2);
+    assertNull(messages.poll(200, TimeUnit.MILLISECONDS));
+
+    session.getRemote().sendString("1");
+    message = messages.poll(5, TimeUnit.SECONDS);
+    assertNotNull(message);
+    assertEquals(2, message.getLong());
+
+    session.close();
+    verify(streamController, timeout(5000)).releaseStreamReader(1);
+  }
+
+  /**
+   * Publishes a frame to the stream of the camera.
+   * @param sequence The sequence number of the frame.
+   */
+  private void publish(long sequence) {
+    streamReader.getFrameBuffer().publish(
+        new VideoFrame(new MJPEGFrameHeader(image.length), image).withFrameInfo(sequence, 0));
+  }
+}
@@ -0,0 +1,36 @@
+package com.benine.backend.http;
+
+import com.benine.backend.camera.CameraBusyException;
+import com.benine.backend.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.mockito.Mockito.*;
+
+public class MetricsHandlerTest extends RequestHandlerTest {
+
+  private MetricRegistry registry = new MetricRegistry();
+
+  @Override
+  public RequestHandler supplyHandler() {
+    when(httpserver.getMetricRegistry()).thenReturn(registry);
+    return new MetricsHandler(httpserver);
+  }
+
+  @Before
+  public void initialize() throws IOException, CameraBusyException {
+    super.initialize();
+    registry.counter("frames_total", "Frames.").inc();
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    verify(httpresponseMock).setContentType("text/plain; version=0.0.4; charset=utf-8");
+    verify(out).write(registry.scrape());
+    verify(requestMock).setHandled(true);
+  }
+}
@@ -0,0 +1,228 @@
+package com.benine.backend.http.camerahandlers;
+
+import com.benine.backend.video.FrameBuffer;
+import com.benine.backend.video.MJPEGFrameHeader;
+import com.benine.backend.video.StreamDistributer;
+import com.benine.backend.video.StreamMetrics;
+import com.benine.backend.video.StreamReader;
+import com.benine.backend.video.VideoFrame;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.ServletOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncStreamWriterTest {
+
+  private FrameBuffer buffer;
+  private StreamDistributer distributer;
+  private AsyncContext async;
+  private ServletOutputStream out;
+  private AtomicInteger completed;
+  private AsyncStreamWriter writer;
+
+  private byte[] image = {1, 2, 3, 4};
+  private MJPEGFrameHeader header = new MJPEGFrameHeader(image.length);
+  private VideoFrame frame = new VideoFrame(header, image);
+
+  @Before
+  public void setUp() {
+    StreamReader reader = mock(StreamReader.class);
+    buffer = new FrameBuffer(4);
+    when(reader.getFrameBuffer()).thenReturn(buffer);
+    when(reader.getMetrics()).thenReturn(new StreamMetrics());
+    distributer = new StreamDistributer(reader);
+
+    async = mock(AsyncContext.class);
+    out = mock(ServletOutputStream.class);
+    when(out.isReady()).thenReturn(true);
+    completed = new AtomicInteger();
+    writer = new AsyncStreamWriter(distributer, async, out, Runnable::run, 1000,
+        completed::incrementAndGet);
+  }
+
+  @Test
+  public void testStart() {
+    writer.start();
+    verify(async).setTimeout(1000);
+    verify(async).addListener(writer);
+    verify(out).setWriteListener(writer);
+  }
+
+  @Test
+  public void testWriteFrame() throws IOException {
+    buffer.publish(frame);
+    writer.onWritePossible();
+
+    InOrder order = inOrder(out);
+    order.verify(out).write(header.getBytes());
+    order.verify(out).write(image);
+    order.verify(out).flush();
+    assertEquals(1, distributer.getSentFrames());
+  }
+
+  @Test
+  public void testWaitsUntilReady() throws IOException {
+    when(out.isReady()).thenReturn(true, false);
+    buffer.publish(frame);
+    writer.onWritePossible();
+
+    verify(out).write(header.getBytes());
+    verify(out, never()).write(image);
+
+    when(out.isReady()).thenReturn(true);
+    writer.onWritePossible();
+    verify(out).write(image);
+    verify(out).flush();
+  }
+
+  @Test
+  public void testResumesOnNewFrame() throws IOException {
+    writer.start();
+    writer.onWritePossible();
+    verify(out, never()).write(any(byte[].class));
+
+    buffer.publish(frame);
+    verify(out).write(image);
+    buffer.publish(frame);
+    verify(out, times(2)).write(image);
+  }
+
+  @Test
+  public void testNotResumedWhileWriting() throws IOException {
+    writer.start();
+    when(out.isReady()).thenReturn(false);
+    buffer.publish(frame);
+    buffer.publish(frame);
+
+    verify(out, never()).write(any(byte[].class));
+  }
+
+  @Test
+  public void testError() {
+    writer.start();
+    writer.onError(new IOException());
+    writer.onError(new IOException());
+
+    assertTrue(writer.isCompleted());
+    assertFalse(distributer.isRunning());
+    verify(async).complete();
+    assertEquals(1, completed.get());
+  }
+
+  @Test
+  public void testWriteFailure() throws IOException {
+    writer.start();
+    writer.onWritePossible();
+    doThrow(new IOException()).when(out).write(any(byte[].class));
+
+    buffer.publish(frame);
+    assertTrue(writer.isCompleted());
+    verify(async).complete();
+  }
+
+  @Test
+  public void testRejected() throws IOException {
+    writer = new AsyncStreamWriter(distributer, async, out, runnable -> {
+      throw new RejectedExecutionException();
+    }, 1000, completed::incrementAndGet);
+    writer.start();
+    writer.onWritePossible();
+
+    buffer.publish(frame);
+    assertTrue(writer.isCompleted());
+    assertEquals(1, completed.get());
+  }
+
+  @Test
+  public void testTimeoutWithoutFrames() {
+    writer.start();
+    writer.onTimeout(new AsyncEvent(async));
+
+    assertTrue(writer.isCompleted());
+    assertFalse(distributer.isRunning());
+    verify(async).complete();
+    verify(async, never()).dispatch();
+    assertEquals(1, completed.get());
+  }
+
+  @Test
+  public void testTimeoutAfterFrame() throws IOException {
+    writer.start();
+    buffer.publish(frame);
+    writer.onWritePossible();
+    writer.onTimeout(new AsyncEvent(async));
+
+    assertFalse(writer.isCompleted());
+    verify(async).dispatch();
+
+    // No frame was sent since the previous timeout.
+    writer.onTimeout(new AsyncEvent(async));
+    assertTrue(writer.isCompleted());
+    verify(async).complete();
+  }
+
+  @Test
+  public void testStartAsync() {
+    AsyncContext next = mock(AsyncContext.class);
+    writer.start();
+    writer.onStartAsync(new AsyncEvent(next));
+
+    verify(next).setTimeout(1000);
+    verify(next).addListener(writer);
+    writer.onError(new IOException());
+    verify(next).complete();
+    verify(async, never()).complete();
+  }
+
+  @Test
+  public void testStartAsyncAfterEnd() {
+    AsyncContext next = mock(AsyncContext.class);
+    writer.start();
+    doThrow(new IllegalStateException()).when(async).complete();
+    writer.onError(new IOException());
+    writer.onStartAsync(new AsyncEvent(next));
+
+    verify(next).complete();
+    assertEquals(1, completed.get());
+  }
+
+  @Test
+  public void testCompletedByContainer() {
+    writer.start();
+    writer.onComplete(new AsyncEvent(async));
+    writer.onError(new AsyncEvent(async));
+
+    assertTrue(writer.isCompleted());
+    assertFalse(distributer.isRunning());
+    verify(async, never()).complete();
+    assertEquals(1, completed.get());
+  }
+
+  @Test
+  public void testAsyncError() {
+    writer.start();
+    writer.onError(new AsyncEvent(async, new IOException()));
+
+    assertTrue(writer.isCompleted());
+    verify(async).complete();
+    assertEquals(1, completed.get());
+  }
+}
@@ -10,6 +10,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Mockito.*;
 
@@ -29,6 +30,7 @@ public class CameraFocusHandlerTest extends CameraRequestHandlerTest {
   public void initialize() throws IOException, CameraBusyException {
     super.initialize();
     when(cameraController.getCameraById(42)).thenReturn(cam);
+    when(cam.moveFocusAsync(anyInt())).thenReturn(CompletableFuture.completedFuture(null));
   }
 
   @Test
@@ -58,7 +60,7 @@ public class CameraFocusHandlerTest extends CameraRequestHandlerTest {
 
     getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
 
-    verify(cam).moveFocus(5);
+    verify(cam).moveFocusAsync(5);
     verify(requestMock).setHandled(true);
   }
 
@@ -10,6 +10,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
@@ -30,6 +31,7 @@ public class CameraIrisHandlerTest extends CameraRequestHandlerTest {
   public void initialize() throws IOException, CameraBusyException {
     super.initialize();
     when(cameraController.getCameraById(42)).thenReturn(cam);
+    when(cam.moveIrisAsync(anyInt())).thenReturn(CompletableFuture.completedFuture(null));
   }
 
   @Test
@@ -118,7 +120,7 @@ public class CameraIrisHandlerTest extends CameraRequestHandlerTest {
 
     getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
 
-    verify(cam).moveIris(5);
+    verify(cam).moveIrisAsync(5);
     verify(requestMock).setHandled(true);
   }
 }
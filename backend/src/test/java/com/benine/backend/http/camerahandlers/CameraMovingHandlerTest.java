@@ -11,6 +11,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
@@ -32,6 +33,7 @@ public class CameraMovingHandlerTest extends CameraRequestHandlerTest{
   public void initialize() throws IOException, CameraBusyException {
     super.initialize();
     when(cameraController.getCameraById(42)).thenReturn(cam);
+    when(cam.moveAsync(anyInt(), anyInt())).thenReturn(CompletableFuture.completedFuture(null));
   }
 
   @Test
@@ -66,7 +68,28 @@ public class CameraMovingHandlerTest extends CameraRequestHandlerTest{
 
     getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
 
-    verify(cam).move(eq(1), eq(2));
+    verify(cam).moveAsync(eq(1), eq(2));
+    verify(requestMock).setHandled(true);
+  }
+
+  @Test
+  public void testMoveRelativeFailed() throws Exception {
+    setPath("/42/move?pan=1&tilt=2&moveType=relative&panSpeed=3&tiltSpeed=4");
+
+    MultiMap<String> parameters = new MultiMap<>();
+    parameters.add("pan", "1");
+    parameters.add("tilt", "2");
+    parameters.add("moveType", "relative");
+    parameters.add("panSpeed", "3");
+    parameters.add("tiltSpeed", "4");
+    setParameters(parameters);
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    future.completeExceptionally(new CameraBusyException("test exception", 42));
+    when(cam.moveAsync(1, 2)).thenReturn(future);
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    verify(out).write("{\"succes\":\"false\"}");
     verify(requestMock).setHandled(true);
   }
   
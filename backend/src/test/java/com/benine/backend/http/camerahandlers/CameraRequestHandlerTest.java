@@ -5,6 +5,8 @@ import org.junit.Test;
 
 import com.benine.backend.http.RequestHandlerTest;
 
+import java.awt.Dimension;
+
 /**
  * Created on 22-05-16.
  */
@@ -37,4 +39,17 @@ public abstract class CameraRequestHandlerTest extends RequestHandlerTest {
     Assert.assertEquals("test", route);
   }
 
+  @Test
+  public void testFitMaximumSizeSmaller() {
+    Assert.assertEquals(new Dimension(640, 480), CameraRequestHandler.fitMaximumSize(640, 480));
+  }
+
+  @Test
+  public void testFitMaximumSizeKeepsAspectRatio() {
+    Assert.assertEquals(new Dimension(1920, 1080),
+        CameraRequestHandler.fitMaximumSize(3840, 2160));
+    Assert.assertEquals(new Dimension(304, 1080),
+        CameraRequestHandler.fitMaximumSize(1080, 3840));
+  }
+
 }
@@ -0,0 +1,205 @@
+package com.benine.backend.http.camerahandlers;
+
+import com.benine.backend.camera.CameraBusyException;
+import com.benine.backend.camera.ipcameracontrol.IPCamera;
+import com.benine.backend.video.MJPEGStreamReader;
+import com.benine.backend.video.StreamNotAvailableException;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.mockito.Mockito.*;
+
+public class CameraSnapshotHandlerTest extends CameraRequestHandlerTest {
+
+  IPCamera cam = mock(IPCamera.class);
+
+  MJPEGStreamReader streamReader;
+  byte[] stream;
+  ByteArrayOutputStream written;
+
+  @Override
+  public CameraRequestHandler supplyHandler() {
+    return new CameraSnapshotHandler(httpserver);
+  }
+
+  @Before
+  public void initialize() throws IOException, CameraBusyException {
+    super.initialize();
+    when(cameraController.getCameraById(42)).thenReturn(cam);
+
+    stream = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test"
+            + File.separator + "testmjpeg.mjpg"));
+    streamReader = new MJPEGStreamReader();
+    streamReader.feed(ByteBuffer.wrap(stream));
+
+    written = new ByteArrayOutputStream();
+    when(httpresponseMock.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        written.write(b);
+      }
+    });
+
+    try {
+      when(streamController.acquireStreamReader(42)).thenReturn(streamReader);
+    } catch (StreamNotAvailableException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Test
+  public void testSnapshot() throws Exception {
+    setPath("/42/snapshot.jpg");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    verify(httpresponseMock).setStatus(HttpServletResponse.SC_OK);
+    verify(httpresponseMock).setContentType("image/jpeg");
+    Assert.assertArrayEquals(streamReader.getSnapShot().getImage(), written.toByteArray());
+    verify(streamController).releaseStreamReader(42);
+  }
+
+  @Test
+  public void testNotModified() throws Exception {
+    setPath("/42/snapshot.jpg");
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+    verify(httpresponseMock).setHeader(eq("ETag"), etag.capture());
+
+    when(requestMock.getHeader("If-None-Match")).thenReturn(etag.getValue());
+    written.reset();
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    verify(httpresponseMock).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    Assert.assertEquals(0, written.size());
+  }
+
+  /**
+   * Returns the entity tag of the snapshot sent by the handler.
+   * @return The entity tag.
+   */
+  private String getSentETag() {
+    ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+    verify(httpresponseMock).setHeader(eq("ETag"), etag.capture());
+    return etag.getValue();
+  }
+
+  @Test
+  public void testNotModifiedList() throws Exception {
+    setPath("/42/snapshot.jpg");
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    String ifNoneMatch = "\"other\", W/" + getSentETag();
+    when(requestMock.getHeader("If-None-Match")).thenReturn(ifNoneMatch);
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    verify(httpresponseMock).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+  }
+
+  @Test
+  public void testModifiedOtherETag() throws Exception {
+    setPath("/42/snapshot.jpg");
+    when(requestMock.getHeader("If-None-Match")).thenReturn("\"2\"");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    verify(httpresponseMock).setStatus(HttpServletResponse.SC_OK);
+    Assert.assertNotEquals("\"2\"", getSentETag());
+  }
+
+  @Test
+  public void testModifiedAfterNewFrame() throws Exception {
+    setPath("/42/snapshot.jpg");
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+    verify(httpresponseMock).setHeader(eq("ETag"), etag.capture());
+
+    streamReader.feed(ByteBuffer.wrap(stream));
+    when(requestMock.getHeader("If-None-Match")).thenReturn(etag.getValue());
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    verify(httpresponseMock, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+  }
+
+  @Test
+  public void testResized() throws Exception {
+    setPath("/42/snapshot.jpg");
+    when(requestMock.getParameter("width")).thenReturn("64");
+    when(requestMock.getParameter("height")).thenReturn("48");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+    verify(httpresponseMock).setHeader(eq("ETag"), etag.capture());
+    Assert.assertTrue(etag.getValue().endsWith("-64x48\""));
+    Assert.assertTrue(written.size() < streamReader.getSnapShot().getImageLength());
+  }
+
+  @Test
+  public void testResizedToMaximum() throws Exception {
+    setPath("/42/snapshot.jpg");
+    when(requestMock.getParameter("width")).thenReturn("100000");
+    when(requestMock.getParameter("height")).thenReturn("100000");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    Assert.assertTrue(getSentETag().endsWith("-" + CameraSnapshotHandler.MAX_HEIGHT + "x"
+        + CameraSnapshotHandler.MAX_HEIGHT + "\""));
+  }
+
+  @Test
+  public void testResizedKeepsAspectRatio() throws Exception {
+    setPath("/42/snapshot.jpg");
+    when(requestMock.getParameter("width")).thenReturn("3840");
+    when(requestMock.getParameter("height")).thenReturn("1080");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    Assert.assertTrue(getSentETag().endsWith("-1920x540\""));
+  }
+
+  @Test
+  public void testNoFrame() throws Exception {
+    setPath("/42/snapshot.jpg");
+    when(streamController.acquireStreamReader(42)).thenReturn(new MJPEGStreamReader());
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    verify(httpresponseMock).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+  }
+
+  @Test
+  public void testNoStream() throws Exception {
+    setPath("/42/snapshot.jpg");
+    when(streamController.acquireStreamReader(42))
+            .thenThrow(new StreamNotAvailableException(42, "No stream"));
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    verify(httpresponseMock).setStatus(HttpServletResponse.SC_NOT_FOUND);
+    verify(streamController, never()).releaseStreamReader(42);
+  }
+}
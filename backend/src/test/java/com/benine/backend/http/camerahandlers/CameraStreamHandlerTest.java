@@ -3,16 +3,24 @@ package com.benine.backend.http.camerahandlers;
 import com.benine.backend.camera.CameraBusyException;
 import com.benine.backend.camera.ipcameracontrol.IPCamera;
 import com.benine.backend.http.camerahandlers.CameraStreamHandler;
+import com.benine.backend.video.FrameResizerPool;
 import com.benine.backend.video.MJPEGStreamReader;
-import com.benine.backend.video.Stream;
 import com.benine.backend.video.StreamNotAvailableException;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
 
 import static org.mockito.Mockito.*;
 
@@ -23,9 +31,8 @@ public class CameraStreamHandlerTest extends CameraRequestHandlerTest {
 
   IPCamera cam = mock(IPCamera.class);
 
-  Stream stream;
   MJPEGStreamReader streamReader;
-  Thread streamReaderThread;
+  AsyncContext async = mock(AsyncContext.class);
 
   @Override
   public CameraRequestHandler supplyHandler() {
@@ -34,20 +41,19 @@ public class CameraStreamHandlerTest extends CameraRequestHandlerTest {
 
   @Before
   public void initialize() throws IOException, CameraBusyException {
+    when(httpserver.getStreamExecutor()).thenReturn(Runnable::run);
+    when(httpserver.acquireStream()).thenReturn(true);
     super.initialize();
+    when(requestMock.startAsync()).thenReturn(async);
     when(cameraController.getCameraById(42)).thenReturn(cam);
 
-    stream = mock(Stream.class);
-    when(stream.getInputStream()).thenReturn(new BufferedInputStream(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg")));
-
-    streamReader = new MJPEGStreamReader(stream);
+    streamReader = new MJPEGStreamReader();
+    streamReader.feed(ByteBuffer.wrap(IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"))));
     //when(streamReader.getBoundary()).thenReturn("--testBoundary");
 
     doThrow(new IOException()).when(httpresponseMock).getOutputStream();
     try {
-      when(streamController.getStreamReader(42)).thenReturn(streamReader);
-      streamReaderThread = new Thread(streamReader);
-      streamReaderThread.start();
+      when(streamController.acquireStreamReader(42)).thenReturn(streamReader);
     } catch (StreamNotAvailableException e) {
       e.printStackTrace();
     }
@@ -94,4 +100,111 @@ public class CameraStreamHandlerTest extends CameraRequestHandlerTest {
     verify(httpresponseMock).setHeader("Expires", "Thu, 01 Dec 1994 16:00:00 GMT");
   }
 
+  @Test
+  public void testMJPEGInvalidFrameRate() throws Exception {
+    setPath("/42/mjpeg");
+    when(requestMock.getParameter("fps")).thenReturn("fast");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(httpresponseMock).setContentType("multipart/x-mixed-replace;boundary=" + streamReader.getBoundary());
+  }
+
+  @Test
+  public void testStreamCompletes() throws Exception {
+    setPath("/42/mjpeg");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(async).complete();
+    verify(streamController).releaseStreamReader(42);
+    verify(httpserver).releaseStream();
+  }
+
+  @Test
+  public void testResizedToMaximum() throws Exception {
+    FrameResizerPool pool = spyResizerPool();
+    setPath("/42/mjpeg");
+    when(requestMock.getParameter("width")).thenReturn("3840");
+    when(requestMock.getParameter("height")).thenReturn("1080");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(pool).acquire(1920, 540);
+  }
+
+  @Test
+  public void testResizeInvalidSize() throws Exception {
+    FrameResizerPool pool = spyResizerPool();
+    setPath("/42/mjpeg");
+    when(requestMock.getParameter("width")).thenReturn("0");
+    when(requestMock.getParameter("height")).thenReturn("1080");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(pool, never()).acquire(anyInt(), anyInt());
+  }
+
+  /**
+   * Streams a reader of which the resizers are taken from a spied pool.
+   * @return The spied pool.
+   */
+  private FrameResizerPool spyResizerPool() throws StreamNotAvailableException {
+    MJPEGStreamReader reader = spy(streamReader);
+    FrameResizerPool pool = spy(new FrameResizerPool());
+    doReturn(pool).when(reader).getResizerPool();
+    when(streamController.acquireStreamReader(42)).thenReturn(reader);
+    return pool;
+  }
+
+  @Test
+  public void testStreamRejected() throws Exception {
+    when(httpserver.acquireStream()).thenReturn(false);
+    setPath("/42/mjpeg");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(httpresponseMock).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(httpresponseMock).setHeader("Retry-After", "5");
+    verify(httpresponseMock, never()).setContentType(anyString());
+    verify(requestMock, never()).startAsync();
+    verify(streamController).releaseStreamReader(42);
+    verify(httpserver, never()).releaseStream();
+  }
+
+  @Test
+  public void testNoStream() throws Exception {
+    when(streamController.acquireStreamReader(42)).thenReturn(null);
+    setPath("/42/mjpeg");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(httpresponseMock).setStatus(HttpServletResponse.SC_NOT_FOUND);
+    verify(requestMock, never()).startAsync();
+    verify(streamController, never()).releaseStreamReader(42);
+  }
+
+  @Test
+  public void testViewerGoneBeforeFrames() throws Exception {
+    doReturn(mock(ServletOutputStream.class)).when(httpresponseMock).getOutputStream();
+    setPath("/42/mjpeg");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(async).setTimeout(5000);
+    ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+    verify(async).addListener(listener.capture());
+    verify(httpserver, never()).releaseStream();
+
+    // No frame was sent before the client disconnected, so the request times out.
+    listener.getValue().onTimeout(new AsyncEvent(async));
+    verify(async).complete();
+    verify(streamController).releaseStreamReader(42);
+    verify(httpserver).releaseStream();
+  }
+
+  @Test
+  public void testStreamDispatchedAgain() throws Exception {
+    when(requestMock.getDispatcherType()).thenReturn(DispatcherType.ASYNC);
+    setPath("/42/mjpeg");
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(requestMock).setHandled(true);
+    verify(requestMock).startAsync();
+    verify(streamController, never()).acquireStreamReader(42);
+    verify(httpserver, never()).acquireStream();
+  }
 }
@@ -0,0 +1,88 @@
+package com.benine.backend.http.camerahandlers;
+
+import com.benine.backend.camera.CameraBusyException;
+import com.benine.backend.camera.ipcameracontrol.IPCamera;
+import com.benine.backend.video.MJPEGStreamReader;
+import com.benine.backend.video.StreamNotAvailableException;
+import org.eclipse.jetty.websocket.server.WebSocketServerFactory;
+import org.eclipse.jetty.websocket.servlet.WebSocketCreator;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class CameraWebSocketHandlerTest extends CameraRequestHandlerTest {
+
+  private WebSocketServerFactory factory = mock(WebSocketServerFactory.class);
+  private MJPEGStreamReader streamReader = new MJPEGStreamReader();
+
+  @Override
+  public CameraRequestHandler supplyHandler() {
+    return new CameraWebSocketHandler(httpserver, factory);
+  }
+
+  @Before
+  public void initialize() throws IOException, CameraBusyException {
+    when(httpserver.getStreamExecutor()).thenReturn(Runnable::run);
+    when(httpserver.acquireStream()).thenReturn(true);
+    super.initialize();
+    when(cameraController.getCameraById(42)).thenReturn(mock(IPCamera.class));
+    when(factory.isUpgradeRequest(any(HttpServletRequest.class), any(HttpServletResponse.class)))
+        .thenReturn(true);
+    try {
+      when(streamController.acquireStreamReader(42)).thenReturn(streamReader);
+    } catch (StreamNotAvailableException e) {
+      e.printStackTrace();
+    }
+    setPath("/42/ws");
+  }
+
+  @Test
+  public void testNotUpgrade() throws Exception {
+    when(factory.isUpgradeRequest(any(HttpServletRequest.class), any(HttpServletResponse.class)))
+        .thenReturn(false);
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(httpresponseMock).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+    verify(streamController, never()).acquireStreamReader(42);
+  }
+
+  @Test
+  public void testUpgrade() throws Exception {
+    ArgumentCaptor<WebSocketCreator> creator = ArgumentCaptor.forClass(WebSocketCreator.class);
+    when(factory.acceptWebSocket(creator.capture(), eq(requestMock), eq(httpresponseMock)))
+        .thenReturn(true);
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    assertTrue(creator.getValue().createWebSocket(null, null) instanceof WebSocketStreamWriter);
+    verify(requestMock, never()).startAsync();
+    verify(streamController, never()).releaseStreamReader(42);
+    verify(httpserver, never()).releaseStream();
+  }
+
+  @Test
+  public void testUpgradeFailed() throws Exception {
+    when(factory.acceptWebSocket(any(WebSocketCreator.class), eq(requestMock),
+        eq(httpresponseMock))).thenReturn(false);
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(streamController).releaseStreamReader(42);
+    verify(httpserver).releaseStream();
+  }
+
+  @Test
+  public void testUpgradeRefused() throws Exception {
+    when(httpserver.acquireStream()).thenReturn(false);
+
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+    verify(httpresponseMock).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(factory, never()).acceptWebSocket(any(WebSocketCreator.class),
+        any(HttpServletRequest.class), any(HttpServletResponse.class));
+  }
+}
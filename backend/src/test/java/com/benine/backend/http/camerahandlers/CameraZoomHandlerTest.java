@@ -10,6 +10,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Mockito.*;
 
@@ -29,6 +30,18 @@ public class CameraZoomHandlerTest extends CameraRequestHandlerTest {
   public void initialize() throws IOException, CameraBusyException {
     super.initialize();
     when(cameraController.getCameraById(42)).thenReturn(cam);
+    when(cam.zoomAsync(anyInt())).thenReturn(CompletableFuture.completedFuture(null));
+  }
+
+  /**
+   * Creates the future of a command which failed.
+   * @param exception The exception of the command.
+   * @return The failed future.
+   */
+  private CompletableFuture<Void> failed(Exception exception) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    future.completeExceptionally(exception);
+    return future;
   }
 
   @Test
@@ -57,7 +70,22 @@ public class CameraZoomHandlerTest extends CameraRequestHandlerTest {
     setParameters(parameters);
     getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
 
-    verify(cam).zoom(2);
+    verify(cam).zoomAsync(2);
+    verify(requestMock).setHandled(true);
+  }
+
+  @Test
+  public void testZoomRelativeNotWaited() throws Exception {
+    setPath("/42/zoom?zoomType=relative&zoom=2");
+
+    MultiMap<String> parameters = new MultiMap<>();
+    parameters.add("zoomType", "relative");
+    parameters.add("zoom", "2");
+    when(cam.zoomAsync(2)).thenReturn(new CompletableFuture<>());
+    setParameters(parameters);
+    getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
+
+    verify(out).write("{\"succes\":\"true\"}");
     verify(requestMock).setHandled(true);
   }
   
@@ -69,7 +97,7 @@ public class CameraZoomHandlerTest extends CameraRequestHandlerTest {
     parameters.add("zoomType", "relative");
     parameters.add("zoom", "2");
     Exception exception = new CameraConnectionException("connection exception occured", 42);
-    doThrow(exception).when(cam).zoom(2);
+    when(cam.zoomAsync(2)).thenReturn(failed(exception));
     setParameters(parameters);
     getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
 
@@ -86,7 +114,7 @@ public class CameraZoomHandlerTest extends CameraRequestHandlerTest {
     parameters.add("zoomType", "relative");
     parameters.add("zoom", "2");
     Exception exception = new CameraBusyException("connection exception occured", 42);
-    doThrow(exception).when(cam).zoom(2);
+    when(cam.zoomAsync(2)).thenReturn(failed(exception));
     setParameters(parameters);
     getHandler().handle(target, requestMock, httprequestMock, httpresponseMock);
 
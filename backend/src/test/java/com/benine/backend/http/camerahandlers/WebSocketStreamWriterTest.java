@@ -0,0 +1,191 @@
+package com.benine.backend.http.camerahandlers;
+
+import com.benine.backend.video.FrameBuffer;
+import com.benine.backend.video.MJPEGFrameHeader;
+import com.benine.backend.video.StreamDistributer;
+import com.benine.backend.video.StreamMetrics;
+import com.benine.backend.video.StreamReader;
+import com.benine.backend.video.VideoFrame;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WebSocketStreamWriterTest {
+
+  private FrameBuffer buffer;
+  private StreamDistributer distributer;
+  private Session session;
+  private RemoteEndpoint remote;
+  private AtomicInteger completed;
+  private WebSocketStreamWriter writer;
+
+  private byte[] image = {1, 2, 3, 4};
+
+  @Before
+  public void setUp() {
+    StreamReader reader = mock(StreamReader.class);
+    buffer = new FrameBuffer(4);
+    when(reader.getFrameBuffer()).thenReturn(buffer);
+    when(reader.getMetrics()).thenReturn(new StreamMetrics());
+    distributer = new StreamDistributer(reader);
+
+    session = mock(Session.class);
+    remote = mock(RemoteEndpoint.class);
+    when(session.getRemote()).thenReturn(remote);
+    completed = new AtomicInteger();
+    writer = new WebSocketStreamWriter(distributer, 2, Runnable::run,
+        completed::incrementAndGet);
+  }
+
+  private VideoFrame createFrame(long sequence) {
+    return new VideoFrame(new MJPEGFrameHeader(image.length, sequence, 1000 + sequence), image);
+  }
+
+  @Test
+  public void testMessage() {
+    ByteBuffer message = createFrame(7).getMessage();
+
+    assertEquals(VideoFrame.MESSAGE_INFO_LENGTH + image.length, message.remaining());
+    assertEquals(7, message.getLong());
+    assertEquals(1007, message.getLong());
+    assertEquals(1, message.get());
+  }
+
+  @Test
+  public void testMessageShared() {
+    VideoFrame frame = createFrame(7);
+    ByteBuffer first = frame.getMessage();
+    first.getLong();
+    ByteBuffer second = frame.getMessage();
+
+    assertEquals(VideoFrame.MESSAGE_INFO_LENGTH + image.length, second.remaining());
+    assertEquals(7, second.getLong());
+    assertTrue(first.isReadOnly());
+  }
+
+  @Test
+  public void testSendOnConnect() {
+    buffer.publish(createFrame(1));
+    writer.onWebSocketConnect(session);
+
+    verify(remote).sendBytes(any(ByteBuffer.class), any(WriteCallback.class));
+    assertEquals(1, writer.getUnacknowledged());
+  }
+
+  @Test
+  public void testWindowFull() {
+    writer.onWebSocketConnect(session);
+    buffer.publish(createFrame(1));
+    buffer.publish(createFrame(2));
+    buffer.publish(createFrame(3));
+
+    verify(remote, times(2)).sendBytes(any(ByteBuffer.class), any(WriteCallback.class));
+    assertEquals(2, writer.getUnacknowledged());
+  }
+
+  @Test
+  public void testAcknowledge() {
+    writer.onWebSocketConnect(session);
+    buffer.publish(createFrame(1));
+    buffer.publish(createFrame(2));
+    buffer.publish(createFrame(3));
+
+    writer.onWebSocketText("2");
+    verify(remote, times(3)).sendBytes(any(ByteBuffer.class), any(WriteCallback.class));
+    assertEquals(1, writer.getUnacknowledged());
+  }
+
+  @Test
+  public void testInvalidAcknowledgement() {
+    writer.onWebSocketConnect(session);
+    buffer.publish(createFrame(1));
+
+    writer.onWebSocketText("ack");
+    writer.onWebSocketText("5");
+    assertEquals(1, writer.getUnacknowledged());
+  }
+
+  @Test
+  public void testSentFrameRecorded() {
+    ArgumentCaptor<WriteCallback> callback = ArgumentCaptor.forClass(WriteCallback.class);
+    writer.onWebSocketConnect(session);
+    buffer.publish(createFrame(1));
+
+    verify(remote).sendBytes(any(ByteBuffer.class), callback.capture());
+    callback.getValue().writeSuccess();
+    assertEquals(1, distributer.getSentFrames());
+  }
+
+  @Test
+  public void testWriteFailed() {
+    ArgumentCaptor<WriteCallback> callback = ArgumentCaptor.forClass(WriteCallback.class);
+    writer.onWebSocketConnect(session);
+    buffer.publish(createFrame(1));
+
+    verify(remote).sendBytes(any(ByteBuffer.class), callback.capture());
+    callback.getValue().writeFailed(new Exception());
+    verify(session).close(anyInt(), anyString());
+    assertTrue(writer.isCompleted());
+  }
+
+  @Test
+  public void testAckTimeout() throws InterruptedException {
+    writer = new WebSocketStreamWriter(distributer, 2, 50, Runnable::run,
+        completed::incrementAndGet);
+    writer.onWebSocketConnect(session);
+    buffer.publish(createFrame(1));
+    buffer.publish(createFrame(2));
+    buffer.publish(createFrame(3));
+    verify(session, never()).close(anyInt(), anyString());
+
+    Thread.sleep(100);
+    buffer.publish(createFrame(4));
+    verify(session).close(anyInt(), anyString());
+    assertTrue(writer.isCompleted());
+  }
+
+  @Test
+  public void testAckTimeoutAfterAcknowledge() throws InterruptedException {
+    writer = new WebSocketStreamWriter(distributer, 2, 50, Runnable::run,
+        completed::incrementAndGet);
+    writer.onWebSocketConnect(session);
+    buffer.publish(createFrame(1));
+    buffer.publish(createFrame(2));
+
+    Thread.sleep(100);
+    writer.onWebSocketText("1");
+    buffer.publish(createFrame(3));
+    verify(session, never()).close(anyInt(), anyString());
+    assertFalse(writer.isCompleted());
+  }
+
+  @Test
+  public void testClose() {
+    writer.onWebSocketConnect(session);
+    writer.onWebSocketClose(1000, "bye");
+    writer.onWebSocketError(new Exception());
+
+    assertEquals(1, completed.get());
+    assertFalse(distributer.isRunning());
+    buffer.publish(createFrame(1));
+    verify(remote, never()).sendBytes(any(ByteBuffer.class), any(WriteCallback.class));
+  }
+}
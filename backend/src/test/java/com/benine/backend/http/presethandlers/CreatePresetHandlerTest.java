@@ -11,16 +11,16 @@ import com.benine.backend.camera.ipcameracontrol.IrisValue;
 import com.benine.backend.preset.IPCameraPreset;
 import com.benine.backend.preset.Preset;
 import com.benine.backend.video.MJPEGStreamReader;
-import com.benine.backend.video.Stream;
 import com.benine.backend.video.StreamNotAvailableException;
+import org.apache.commons.io.IOUtils;
 import org.eclipse.jetty.util.MultiMap;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -34,7 +34,6 @@ public class CreatePresetHandlerTest extends PresetRequestHandlerTest {
   private IPCamera ipcamera;
   private SimpleCamera simpleCamera;
   private Preset preset;
-  private Stream stream;
   private MJPEGStreamReader streamReader;
   private Set<String> tags;
 
@@ -50,16 +49,14 @@ public class CreatePresetHandlerTest extends PresetRequestHandlerTest {
     simpleCamera = mock(SimpleCamera.class);
     when(cameraController.getCameraById(1)).thenReturn(ipcamera);
     when(cameraController.getCameraById(2)).thenReturn(simpleCamera);
-    stream = mock(Stream.class);
-    when(stream.getInputStream()).thenReturn(new BufferedInputStream(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg")));
-
-    streamReader = new MJPEGStreamReader(stream);
+    streamReader = new MJPEGStreamReader();
+    streamReader.feed(ByteBuffer.wrap(IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"))));
     tags = new HashSet<>(Arrays.asList("violin", "piano"));
     
 
     try {
-      when(streamController.getStreamReader(1)).thenReturn(streamReader);
-      when(streamController.getStreamReader(2)).thenReturn(streamReader);
+      when(streamController.acquireStreamReader(1)).thenReturn(streamReader);
+      when(streamController.acquireStreamReader(2)).thenReturn(streamReader);
       when(ipcamera.getFocusPosition()).thenReturn(33);
       when(ipcamera.getIrisPosition()).thenReturn(50);
       when(ipcamera.getPosition()).thenReturn(new Position(0, 0));
@@ -12,17 +12,17 @@ import com.benine.backend.camera.ipcameracontrol.IrisValue;
 
 import com.benine.backend.preset.IPCameraPreset;
 import com.benine.backend.video.MJPEGStreamReader;
-import com.benine.backend.video.Stream;
 import com.benine.backend.video.StreamNotAvailableException;
 import org.eclipse.jetty.util.MultiMap;
 import org.junit.Assert;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -36,7 +36,6 @@ public class EditPresetHandlerTest extends PresetRequestHandlerTest {
 
   private IPCamera ipcamera= mock(IPCamera.class);
   private IPCameraPreset preset;
-  private Stream stream;
   private MJPEGStreamReader streamReader;
   private Set<String> tags;
   
@@ -51,10 +50,8 @@ public class EditPresetHandlerTest extends PresetRequestHandlerTest {
     super.initialize();
     
     when(cameraController.getCameraById(1)).thenReturn(ipcamera);
-    stream = mock(Stream.class);
-    when(stream.getInputStream()).thenReturn(new BufferedInputStream(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg")));
-
-    streamReader = new MJPEGStreamReader(stream);
+    streamReader = new MJPEGStreamReader();
+    streamReader.feed(ByteBuffer.wrap(IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"))));
     tags = new HashSet<>(Arrays.asList("violin", "piano"));
 
     preset = new IPCameraPreset(new ZoomPosition(0,0, 100), new FocusValue(33, true), new IrisValue(50,true), 1);
@@ -64,7 +61,7 @@ public class EditPresetHandlerTest extends PresetRequestHandlerTest {
 
     when(presetController.getPresetById(1)).thenReturn(preset);
     try {
-      when(streamController.getStreamReader(1)).thenReturn(streamReader);
+      when(streamController.acquireStreamReader(1)).thenReturn(streamReader);
     } catch (StreamNotAvailableException e) {
       e.printStackTrace();
     }
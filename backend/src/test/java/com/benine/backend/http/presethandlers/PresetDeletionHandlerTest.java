@@ -14,16 +14,16 @@ import com.benine.backend.camera.ipcameracontrol.IrisValue;
 import com.benine.backend.preset.IPCameraPreset;
 import com.benine.backend.preset.Preset;
 import com.benine.backend.video.MJPEGStreamReader;
-import com.benine.backend.video.Stream;
 import com.benine.backend.video.StreamNotAvailableException;
+import org.apache.commons.io.IOUtils;
 import org.eclipse.jetty.util.MultiMap;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -36,7 +36,6 @@ public class PresetDeletionHandlerTest extends PresetRequestHandlerTest {
   private IPCamera ipcamera;
   private SimpleCamera simpleCamera;
   private Preset preset;
-  private Stream stream;
   private MJPEGStreamReader streamReader;
   private Set<String> tags;
 
@@ -50,15 +49,13 @@ public class PresetDeletionHandlerTest extends PresetRequestHandlerTest {
     super.initialize();
     ipcamera = mock(IPCamera.class);
     simpleCamera = mock(SimpleCamera.class);
-    stream = mock(Stream.class);
-    when(stream.getInputStream()).thenReturn(new BufferedInputStream(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg")));
-
-    streamReader = new MJPEGStreamReader(stream);
+    streamReader = new MJPEGStreamReader();
+    streamReader.feed(ByteBuffer.wrap(IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"))));
     tags = new HashSet<>(Arrays.asList("violin", "piano"));
 
     try {
-      when(streamController.getStreamReader(1)).thenReturn(streamReader);
-      when(streamController.getStreamReader(2)).thenReturn(streamReader);
+      when(streamController.acquireStreamReader(1)).thenReturn(streamReader);
+      when(streamController.acquireStreamReader(2)).thenReturn(streamReader);
       when(ipcamera.getFocusPosition()).thenReturn(40);
       when(ipcamera.getIrisPosition()).thenReturn(50);
       when(ipcamera.getPosition()).thenReturn(new ZoomPosition(0, 0, 0));
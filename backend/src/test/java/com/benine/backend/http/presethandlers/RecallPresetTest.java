@@ -8,16 +8,16 @@ import com.benine.backend.http.presethandlers.RecallPresetHandler;
 import com.benine.backend.preset.IPCameraPreset;
 import com.benine.backend.preset.Preset;
 import com.benine.backend.video.MJPEGStreamReader;
-import com.benine.backend.video.Stream;
 import com.benine.backend.video.StreamNotAvailableException;
+import org.apache.commons.io.IOUtils;
 import org.eclipse.jetty.util.MultiMap;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import javax.servlet.ServletException;
 
@@ -27,7 +27,6 @@ public class RecallPresetTest extends PresetRequestHandlerTest {
 
   private IPCamera ipcamera;
   private Preset preset;
-  private Stream stream;
   private MJPEGStreamReader streamReader;
 
   @Override
@@ -40,13 +39,11 @@ public class RecallPresetTest extends PresetRequestHandlerTest {
     super.initialize();
     ipcamera = mock(IPCamera.class);
     when(cameraController.getCameraById(1)).thenReturn(ipcamera);
-    stream = mock(Stream.class);
-    when(stream.getInputStream()).thenReturn(new BufferedInputStream(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg")));
-
-    streamReader = new MJPEGStreamReader(stream);
+    streamReader = new MJPEGStreamReader();
+    streamReader.feed(ByteBuffer.wrap(IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"))));
 
     try {
-      when(streamController.getStreamReader(1)).thenReturn(streamReader);
+      when(streamController.acquireStreamReader(1)).thenReturn(streamReader);
       when(ipcamera.getFocusPosition()).thenReturn(33);
       when(ipcamera.getIrisPosition()).thenReturn(50);
       when(ipcamera.getPosition()).thenReturn(new Position(0, 0));
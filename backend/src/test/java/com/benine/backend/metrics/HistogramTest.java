@@ -0,0 +1,75 @@
+package com.benine.backend.metrics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HistogramTest {
+
+  private Histogram histogram;
+
+  @Before
+  public void init() {
+    histogram = new MetricRegistry().histogram("test_seconds", "Test.",
+            new double[] {1, 2, 4});
+  }
+
+  @Test
+  public void testEmpty() {
+    Assert.assertEquals(0, histogram.getCount());
+    Assert.assertEquals(0, histogram.getPercentile(50), 0);
+  }
+
+  @Test
+  public void testObserve() {
+    histogram.observe(0.5);
+    histogram.observe(3);
+
+    Assert.assertEquals(2, histogram.getCount());
+    Assert.assertEquals(3.5, histogram.getSum(), 0.0001);
+  }
+
+  @Test
+  public void testObserveNanos() {
+    histogram.observeNanos(1500000000L);
+
+    Assert.assertEquals(1.5, histogram.getSum(), 0.0001);
+  }
+
+  @Test
+  public void testPercentile() {
+    for (int i = 0; i < 4; i++) {
+      histogram.observe(0.5);
+    }
+    for (int i = 0; i < 4; i++) {
+      histogram.observe(1.5);
+    }
+
+    Assert.assertEquals(1, histogram.getPercentile(50), 0.0001);
+    Assert.assertEquals(1.5, histogram.getPercentile(75), 0.0001);
+    Assert.assertEquals(2, histogram.getPercentile(100), 0.0001);
+  }
+
+  @Test
+  public void testPercentileInfiniteBucket() {
+    histogram.observe(10);
+
+    Assert.assertEquals(4, histogram.getPercentile(99), 0);
+  }
+
+  @Test
+  public void testBoundIsInclusive() {
+    histogram.observe(2);
+
+    StringBuilder out = new StringBuilder();
+    histogram.write(out);
+    Assert.assertTrue(out.toString().contains("test_seconds_bucket{le=\"2.0\"} 1\n"));
+    Assert.assertTrue(out.toString().contains("test_seconds_bucket{le=\"1.0\"} 0\n"));
+  }
+
+  @Test
+  public void testExponentialBuckets() {
+    Assert.assertArrayEquals(new double[] {1, 2, 4, 8},
+            Histogram.exponentialBuckets(1, 2, 4), 0);
+  }
+}
@@ -0,0 +1,103 @@
+package com.benine.backend.metrics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricRegistryTest {
+
+  private MetricRegistry registry;
+
+  @Before
+  public void init() {
+    registry = new MetricRegistry();
+  }
+
+  @Test
+  public void testSameCounter() {
+    Assert.assertSame(registry.counter("frames_total", "Frames.", "camera", "1"),
+            registry.counter("frames_total", "Frames.", "camera", "1"));
+  }
+
+  @Test
+  public void testOtherLabels() {
+    Assert.assertNotSame(registry.counter("frames_total", "Frames.", "camera", "1"),
+            registry.counter("frames_total", "Frames.", "camera", "2"));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testOtherType() {
+    registry.counter("viewers", "Viewers.");
+    registry.gauge("viewers", "Viewers.");
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testSampledOtherClass() {
+    registry.gauge("viewers", "Viewers.");
+    registry.gauge("viewers", "Viewers.", () -> 1);
+  }
+
+  @Test
+  public void testScrapeSampled() {
+    registry.gauge("heap_bytes", "Heap.", () -> 42, "area", "heap");
+    Assert.assertEquals("# HELP heap_bytes Heap.\n# TYPE heap_bytes gauge\n"
+            + "heap_bytes{area=\"heap\"} 42.0\n", registry.scrape());
+  }
+
+  @Test
+  public void testJvmMetrics() {
+    JvmMetrics.register(registry);
+    String scrape = registry.scrape();
+    Assert.assertTrue(scrape.contains("# TYPE process_cpu_seconds_total counter\n"));
+    Assert.assertTrue(scrape.contains("jvm_memory_bytes_used{area=\"heap\"} "));
+    Assert.assertTrue(JvmMetrics.getProcessCpuSeconds() > 0);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testUnpairedLabels() {
+    registry.counter("frames_total", "Frames.", "camera");
+  }
+
+  @Test
+  public void testScrapeCounter() {
+    registry.counter("frames_total", "Frames.", "camera", "1").add(5);
+    registry.counter("frames_total", "Frames.", "camera", "2").inc();
+
+    Assert.assertEquals("# HELP frames_total Frames.\n"
+            + "# TYPE frames_total counter\n"
+            + "frames_total{camera=\"1\"} 5\n"
+            + "frames_total{camera=\"2\"} 1\n", registry.scrape());
+  }
+
+  @Test
+  public void testScrapeGauge() {
+    Gauge gauge = registry.gauge("viewers", "Viewers.");
+    gauge.inc();
+    gauge.inc();
+    gauge.dec();
+
+    Assert.assertEquals("# HELP viewers Viewers.\n"
+            + "# TYPE viewers gauge\n"
+            + "viewers 1\n", registry.scrape());
+  }
+
+  @Test
+  public void testScrapeHistogram() {
+    registry.histogram("parse_seconds", "Parse time.", new double[] {0.5},
+            "camera", "1").observe(0.25);
+
+    Assert.assertEquals("# HELP parse_seconds Parse time.\n"
+            + "# TYPE parse_seconds histogram\n"
+            + "parse_seconds_bucket{camera=\"1\",le=\"0.5\"} 1\n"
+            + "parse_seconds_bucket{camera=\"1\",le=\"+Inf\"} 1\n"
+            + "parse_seconds_sum{camera=\"1\"} 0.25\n"
+            + "parse_seconds_count{camera=\"1\"} 1\n", registry.scrape());
+  }
+
+  @Test
+  public void testEscapeLabels() {
+    registry.counter("frames_total", "Frames.", "camera", "a\"b").inc();
+
+    Assert.assertTrue(registry.scrape().contains("frames_total{camera=\"a\\\"b\"} 1\n"));
+  }
+}
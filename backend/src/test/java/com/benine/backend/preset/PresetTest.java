@@ -5,10 +5,12 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.benine.backend.video.MJPEGFrameHeader;
 import com.benine.backend.video.StreamNotAvailableException;
 import com.benine.backend.video.StreamReader;
 import com.benine.backend.video.VideoFrame;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -165,7 +167,8 @@ public abstract class PresetTest {
     VideoFrame videoFrame = mock(VideoFrame.class);
     byte[] image = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "firstframe.jpg"));
     when(videoFrame.getImage()).thenReturn(image);
-    when(videoFrame.getHeaderBytes()).thenReturn(image);
+    when(videoFrame.getImageStream()).thenAnswer(invocation -> new ByteArrayInputStream(image));
+    when(videoFrame.getHeader()).thenReturn(new MJPEGFrameHeader(image.length));
     when(streamReader.getSnapShot()).thenReturn(videoFrame);
     preset.createImage(streamReader, "resources" + File.separator + "test" + File.separator, 160, 90);
     File path = new File("resources" + File.separator + "test" + File.separator + preset.getImage());
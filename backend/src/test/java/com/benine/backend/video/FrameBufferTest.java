@@ -0,0 +1,145 @@
+package com.benine.backend.video;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FrameBufferTest {
+
+  private FrameBuffer buffer;
+
+  @Before
+  public void init() {
+    buffer = new FrameBuffer(3);
+  }
+
+  private VideoFrame createFrame(int value) {
+    byte[] image = {(byte) value};
+    return new VideoFrame(new MJPEGFrameHeader(image), image);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testInvalidCapacity() {
+    new FrameBuffer(0);
+  }
+
+  @Test
+  public void testEmptyBuffer() {
+    Assert.assertNull(buffer.getLatest());
+    Assert.assertEquals(-1, buffer.getSequence());
+    Assert.assertNull(buffer.subscribe().poll());
+  }
+
+  @Test
+  public void testGetLatest() {
+    VideoFrame frame = createFrame(1);
+    buffer.publish(createFrame(0));
+    buffer.publish(frame);
+
+    Assert.assertSame(frame, buffer.getLatest());
+    Assert.assertEquals(1, buffer.getSequence());
+  }
+
+  @Test
+  public void testSubscribeStartsAtLatest() {
+    VideoFrame frame = createFrame(1);
+    buffer.publish(createFrame(0));
+    buffer.publish(frame);
+
+    FrameBuffer.Cursor cursor = buffer.subscribe();
+
+    Assert.assertSame(frame, cursor.poll());
+    Assert.assertNull(cursor.poll());
+  }
+
+  @Test
+  public void testCursorsReadIndependently() {
+    FrameBuffer.Cursor first = buffer.subscribe();
+    FrameBuffer.Cursor second = buffer.subscribe();
+    VideoFrame frame = createFrame(0);
+    buffer.publish(frame);
+
+    Assert.assertSame(frame, first.poll());
+    Assert.assertSame(frame, second.poll());
+  }
+
+  @Test
+  public void testDropOldest() {
+    FrameBuffer.Cursor cursor = buffer.subscribe();
+    VideoFrame[] frames = new VideoFrame[5];
+    for (int i = 0; i < frames.length; i++) {
+      frames[i] = createFrame(i);
+      buffer.publish(frames[i]);
+    }
+
+    Assert.assertSame(frames[2], cursor.poll());
+    Assert.assertSame(frames[3], cursor.poll());
+    Assert.assertSame(frames[4], cursor.poll());
+    Assert.assertNull(cursor.poll());
+    Assert.assertEquals(2, cursor.getDroppedFrames());
+  }
+
+  @Test
+  public void testMaxLagDropsIntermediateFrames() {
+    FrameBuffer.Cursor cursor = buffer.subscribe();
+    cursor.setMaxLag(1);
+    VideoFrame last = createFrame(2);
+    buffer.publish(createFrame(0));
+    buffer.publish(createFrame(1));
+    buffer.publish(last);
+
+    Assert.assertSame(last, cursor.poll());
+    Assert.assertEquals(2, cursor.getDroppedFrames());
+  }
+
+  @Test
+  public void testMaxLagLimitedByCapacity() {
+    FrameBuffer.Cursor cursor = buffer.subscribe();
+    cursor.setMaxLag(10);
+    Assert.assertEquals(3, cursor.getMaxLag());
+    cursor.setMaxLag(0);
+    Assert.assertEquals(1, cursor.getMaxLag());
+  }
+
+  @Test
+  public void testNoDroppedFramesWhenKeepingUp() {
+    FrameBuffer.Cursor cursor = buffer.subscribe();
+    for (int i = 0; i < 10; i++) {
+      buffer.publish(createFrame(i));
+      Assert.assertNotNull(cursor.poll());
+    }
+    Assert.assertEquals(0, cursor.getDroppedFrames());
+  }
+
+  @Test
+  public void testNextTimeout() throws InterruptedException {
+    Assert.assertNull(buffer.subscribe().next(10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testNextWaitsForFrame() throws InterruptedException {
+    FrameBuffer.Cursor cursor = buffer.subscribe();
+    VideoFrame frame = createFrame(0);
+    Thread producer = new Thread(() -> buffer.publish(frame));
+    producer.start();
+
+    Assert.assertSame(frame, cursor.next(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testListener() {
+    AtomicInteger published = new AtomicInteger();
+    Runnable listener = published::incrementAndGet;
+    buffer.addListener(listener);
+
+    buffer.publish(createFrame(0));
+    buffer.publish(createFrame(1));
+    buffer.removeListener(listener);
+    buffer.publish(createFrame(2));
+
+    Assert.assertEquals(2, published.get());
+  }
+}
@@ -0,0 +1,58 @@
+package com.benine.backend.video;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FrameResizerPoolTest {
+
+  private FrameResizerPool pool;
+
+  @Before
+  public void init() {
+    pool = new FrameResizerPool();
+  }
+
+  @Test
+  public void testAcquireSameSizeShared() {
+    SharedFrameResizer first = pool.acquire(246, 144);
+    SharedFrameResizer second = pool.acquire(246, 144);
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, pool.size());
+  }
+
+  @Test
+  public void testAcquireDifferentSizes() {
+    SharedFrameResizer first = pool.acquire(246, 144);
+    SharedFrameResizer second = pool.acquire(640, 360);
+
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals(2, pool.size());
+  }
+
+  @Test
+  public void testReleaseLastReference() {
+    pool.acquire(246, 144);
+    pool.acquire(246, 144);
+
+    pool.release(246, 144);
+    Assert.assertEquals(1, pool.size());
+    pool.release(246, 144);
+    Assert.assertEquals(0, pool.size());
+  }
+
+  @Test
+  public void testReleaseUnknownSize() {
+    pool.release(246, 144);
+    Assert.assertEquals(0, pool.size());
+  }
+
+  @Test
+  public void testAcquireAfterRelease() {
+    SharedFrameResizer first = pool.acquire(246, 144);
+    pool.release(246, 144);
+
+    Assert.assertNotSame(first, pool.acquire(246, 144));
+  }
+}
@@ -0,0 +1,106 @@
+package com.benine.backend.video;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class MJPEGFrameHeaderTest {
+
+  private MJPEGFrameHeader parse(String header) {
+    return new MJPEGFrameHeader(header.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testContentLength() {
+    Assert.assertEquals(29507, parse("--myboundary\r\nContent-Type: image/jpeg\r\n"
+            + "Content-Length: 29507\r\n\r\n").getContentlength());
+  }
+
+  @Test
+  public void testContentLengthIgnoreCase() {
+    Assert.assertEquals(42, parse("--b\r\ncontent-length:42\r\n\r\n").getContentlength());
+  }
+
+  @Test
+  public void testNoContentLength() {
+    Assert.assertEquals(-1, parse("--b\r\nContent-Type: image/jpeg\r\n\r\n").getContentlength());
+  }
+
+  @Test
+  public void testInvalidContentLength() {
+    Assert.assertEquals(-1, parse("Content-Length: abc\r\n").getContentlength());
+  }
+
+  @Test
+  public void testContentLengthTooLarge() {
+    Assert.assertEquals(-1, parse("Content-Length: 99999999999\r\n").getContentlength());
+  }
+
+  @Test
+  public void testContentLengthAtEnd() {
+    Assert.assertEquals(12, parse("Content-Length: 12").getContentlength());
+  }
+
+  @Test
+  public void testPartOfArray() {
+    byte[] bytes = "xxContent-Length: 123456".getBytes(StandardCharsets.US_ASCII);
+
+    Assert.assertEquals(123, new MJPEGFrameHeader(bytes, 2, 19).getContentlength());
+  }
+
+  @Test
+  public void testGetString() {
+    Assert.assertEquals("--BOUNDARY\nContent-Type: image/jpeg\nContent-Length: 10\n\n",
+            new MJPEGFrameHeader(10).getString());
+  }
+
+  @Test
+  public void testGetStringFrameInfo() {
+    Assert.assertEquals("--BOUNDARY\nContent-Type: image/jpeg\nContent-Length: 10\n"
+            + "X-Frame-Seq: 3\nX-Capture-Time: 42\n\n",
+            new MJPEGFrameHeader(10, 3, 42).getString());
+  }
+
+  @Test
+  public void testWithFrameInfo() {
+    MJPEGFrameHeader header = new MJPEGFrameHeader(10).withFrameInfo(3, 42);
+
+    Assert.assertEquals(3, header.getSequence());
+    Assert.assertEquals(42, header.getCaptureTime());
+    Assert.assertEquals(10, header.getContentlength());
+  }
+
+  @Test
+  public void testWithContentLengthKeepsFrameInfo() {
+    MJPEGFrameHeader header = new MJPEGFrameHeader(10, 3, 42).withContentLength(20);
+
+    Assert.assertEquals(3, header.getSequence());
+    Assert.assertEquals(42, header.getCaptureTime());
+  }
+
+  @Test
+  public void testWriteTo() throws IOException {
+    MJPEGFrameHeader header = new MJPEGFrameHeader(10);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    header.writeTo(out);
+
+    Assert.assertArrayEquals(header.getBytes(), out.toByteArray());
+  }
+
+  @Test
+  public void testBoundary() {
+    Assert.assertEquals("--BOUNDARY", new MJPEGFrameHeader(10).getBoundary());
+  }
+
+  @Test
+  public void testWithContentLength() {
+    MJPEGFrameHeader header = new MJPEGFrameHeader(10);
+
+    Assert.assertSame(header, header.withContentLength(10));
+    Assert.assertEquals(20, header.withContentLength(20).getContentlength());
+    Assert.assertEquals(10, header.getContentlength());
+  }
+}
@@ -0,0 +1,139 @@
+package com.benine.backend.video;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class MJPEGFrameParserTest {
+
+  private MJPEGFrameParser parser;
+  private byte[] stream;
+  private byte[] firstframe;
+  private byte[] secondframe;
+
+  @Before
+  public void init() throws IOException {
+    parser = new MJPEGFrameParser();
+    stream = readResource("testmjpeg.mjpg");
+    firstframe = readResource("firstframe.jpg");
+    secondframe = readResource("secondframe.jpg");
+  }
+
+  private byte[] readResource(String name) throws IOException {
+    return IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + name));
+  }
+
+  @Test
+  public void testReadFrames() throws IOException {
+    ByteArrayInputStream in = new ByteArrayInputStream(stream);
+
+    Assert.assertArrayEquals(firstframe, parser.readFrame(in).getImage());
+    Assert.assertArrayEquals(secondframe, parser.readFrame(in).getImage());
+    Assert.assertNotNull(parser.readFrame(in));
+  }
+
+  @Test
+  public void testContentLength() throws IOException {
+    VideoFrame frame = parser.readFrame(new ByteArrayInputStream(stream));
+
+    Assert.assertEquals(firstframe.length, frame.getHeader().getContentlength());
+  }
+
+  @Test (expected = EOFException.class)
+  public void testStreamEnded() throws IOException {
+    ByteArrayInputStream in = new ByteArrayInputStream(stream);
+
+    for (int i = 0; i < 4; i++) {
+      parser.readFrame(in);
+    }
+  }
+
+  @Test
+  public void testNoCompleteFrame() {
+    parser.feed(stream, 0, 1000);
+
+    Assert.assertNull(parser.nextFrame());
+  }
+
+  @Test
+  public void testFeedInChunks() {
+    int frames = 0;
+    for (int offset = 0; offset < stream.length; offset += 997) {
+      parser.feed(stream, offset, Math.min(997, stream.length - offset));
+
+      VideoFrame frame = parser.nextFrame();
+      while (frame != null) {
+        frames++;
+        frame = parser.nextFrame();
+      }
+    }
+
+    Assert.assertEquals(3, frames);
+  }
+
+  @Test
+  public void testWithoutContentLength() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write("--myboundary\r\nContent-Type: image/jpeg\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+    bytes.write(firstframe);
+    bytes.write("\r\n--myboundary\r\nContent-Type: image/jpeg\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+    bytes.write(secondframe);
+    ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+
+    Assert.assertArrayEquals(firstframe, parser.readFrame(in).getImage());
+    Assert.assertArrayEquals(secondframe, parser.readFrame(in).getImage());
+  }
+
+  @Test
+  public void testGarbageBeforeFrame() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(new byte[] {1, 2, (byte) 0xFF, 3, (byte) 0xFF});
+    bytes.write(stream);
+
+    Assert.assertArrayEquals(firstframe,
+            parser.readFrame(new ByteArrayInputStream(bytes.toByteArray())).getImage());
+  }
+
+  @Test
+  public void testLargeFrame() throws IOException {
+    byte[] image = new byte[200 * 1024];
+    image[0] = (byte) 0xFF;
+    image[1] = (byte) 0xD8;
+    image[image.length - 2] = (byte) 0xFF;
+    image[image.length - 1] = (byte) 0xD9;
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write("--myboundary\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+    bytes.write(image);
+
+    Assert.assertArrayEquals(image,
+            parser.readFrame(new ByteArrayInputStream(bytes.toByteArray())).getImage());
+  }
+
+  @Test
+  public void testReset() {
+    parser.feed(stream, 0, 1000);
+    parser.reset();
+    parser.feed(stream, 0, stream.length);
+
+    Assert.assertArrayEquals(firstframe, parser.nextFrame().getImage());
+  }
+
+  @Test
+  public void testFeedByteBuffer() {
+    parser.feed(ByteBuffer.wrap(stream));
+
+    Assert.assertArrayEquals(firstframe, parser.nextFrame().getImage());
+    Assert.assertArrayEquals(secondframe, parser.nextFrame().getImage());
+  }
+}
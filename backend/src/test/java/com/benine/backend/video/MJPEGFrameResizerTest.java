@@ -0,0 +1,72 @@
+package com.benine.backend.video;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+public class MJPEGFrameResizerTest {
+
+  private VideoFrame frame;
+
+  @Before
+  public void init() throws IOException {
+    byte[] image = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "firstframe.jpg"));
+    frame = new VideoFrame(new MJPEGFrameHeader(new byte[0]), image);
+  }
+
+  @Test
+  public void testResizeSubsampled() throws IOException {
+    BufferedImage image = ImageIO.read(new MJPEGFrameResizer(160, 90).resize(frame).getImageStream());
+
+    Assert.assertEquals(160, image.getWidth());
+    Assert.assertEquals(90, image.getHeight());
+  }
+
+  @Test
+  public void testResizeNotPowerOfTwo() throws IOException {
+    BufferedImage image = ImageIO.read(new MJPEGFrameResizer(300, 200).resize(frame).getImageStream());
+
+    Assert.assertEquals(300, image.getWidth());
+    Assert.assertEquals(200, image.getHeight());
+  }
+
+  @Test
+  public void testResizeReused() throws IOException {
+    MJPEGFrameResizer resizer = new MJPEGFrameResizer(320, 180);
+    resizer.resize(frame);
+    BufferedImage image = ImageIO.read(resizer.resize(frame).getImageStream());
+
+    Assert.assertEquals(320, image.getWidth());
+    Assert.assertEquals(180, image.getHeight());
+  }
+
+  @Test
+  public void testContentLengthUpdated() {
+    VideoFrame resized = new MJPEGFrameResizer(160, 90).resize(frame);
+
+    Assert.assertEquals(resized.getImageLength(), resized.getHeader().getContentlength());
+  }
+
+  @Test
+  public void testLowerQualitySmaller() {
+    VideoFrame low = new MJPEGFrameResizer(320, 180, 0.1f).resize(frame);
+    VideoFrame high = new MJPEGFrameResizer(320, 180, 0.9f).resize(frame);
+
+    Assert.assertTrue(low.getImageLength() < high.getImageLength());
+  }
+
+  @Test
+  public void testInvalidImageNotResized() {
+    VideoFrame invalid = new VideoFrame(frame.getHeader(), new byte[] {1, 2, 3});
+
+    Assert.assertArrayEquals(new byte[] {1, 2, 3},
+            new MJPEGFrameResizer(160, 90).resize(invalid).getImage());
+  }
+}
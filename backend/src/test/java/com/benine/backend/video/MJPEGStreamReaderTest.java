@@ -5,20 +5,19 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.imageio.ImageIO;
 
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
-
 public class MJPEGStreamReaderTest {
 
-  private Stream stream = mock(Stream.class);
   private MJPEGStreamReader mjpegstream;
   private byte[] firstframe;
   private byte[] secondframe;
@@ -26,9 +25,6 @@ public class MJPEGStreamReaderTest {
   @Before
   public void init() {
     try {
-      when(stream.getInputStream()).thenReturn(new BufferedInputStream(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg")));
-      mjpegstream = new MJPEGStreamReader(stream);
-
       firstframe = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "firstframe.jpg"));
       secondframe = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "secondframe.jpg"));
 
@@ -37,85 +33,134 @@ public class MJPEGStreamReaderTest {
     }
   }
 
-  @Test
-  public void testInitialSnapshotCorrect() throws IOException {
+  /**
+   * Feeds a recorded stream to a new reader.
+   * @param name  The name of the recorded stream in the test resources.
+   * @return The frames published by the reader, in order.
+   */
+  private List<VideoFrame> readFrames(String name) throws IOException {
+    byte[] bytes = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + name));
+    mjpegstream = new MJPEGStreamReader();
+    FrameBuffer.Cursor cursor = mjpegstream.getFrameBuffer().subscribe();
+    mjpegstream.feed(ByteBuffer.wrap(bytes));
+
+    List<VideoFrame> frames = new ArrayList<>();
+    for (VideoFrame frame = cursor.poll(); frame != null; frame = cursor.poll()) {
+      frames.add(frame);
+    }
+    return frames;
+  }
+
+  /**
+   * Decodes and encodes a JPEG image, so images can be compared.
+   * @param image The JPEG image.
+   * @return The encoded image.
+   */
+  private byte[] reencode(byte[] image) throws IOException {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    ImageIO.write(ImageIO.read(new ByteArrayInputStream(firstframe)), "jpg", baos);
+    ImageIO.write(ImageIO.read(new ByteArrayInputStream(image)), "jpg", baos);
     baos.flush();
-    byte[] expected = baos.toByteArray();
-    baos.close();
+    return baos.toByteArray();
+  }
 
-    baos = new ByteArrayOutputStream();
-    ImageIO.write(ImageIO.read(new ByteArrayInputStream(mjpegstream.getSnapShot().getImage())), "jpg", baos);
-    baos.flush();
-    byte[] actual = baos.toByteArray();
-    baos.close();
+  @Test
+  public void testFirstFrameCorrect() throws IOException {
+    List<VideoFrame> frames = readFrames("testmjpeg.mjpg");
 
-    Assert.assertArrayEquals(expected, actual);
+    Assert.assertArrayEquals(reencode(firstframe), reencode(frames.get(0).getImage()));
   }
 
   @Test
-  public void testSecondSnapshotCorrect() throws IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    ImageIO.write(ImageIO.read(new ByteArrayInputStream(secondframe)), "jpg", baos);
-    baos.flush();
-    byte[] expected = baos.toByteArray();
-    baos.close();
+  public void testSecondFrameCorrect() throws IOException {
+    List<VideoFrame> frames = readFrames("testmjpeg.mjpg");
 
-    // Check if second frame is correct.
-    // First frame is read on construction.
-    mjpegstream.processStream();
+    Assert.assertArrayEquals(reencode(secondframe), reencode(frames.get(1).getImage()));
+  }
 
-    baos = new ByteArrayOutputStream();
-    ImageIO.write(ImageIO.read(new ByteArrayInputStream(mjpegstream.getSnapShot().getImage())), "jpg", baos);
-    baos.flush();
-    byte[] actual = baos.toByteArray();
-    baos.close();
+  @Test
+  public void testFirstIncorrectHeader() throws IOException {
+    List<VideoFrame> frames = readFrames("testmjpeg_incorrect.mjpg");
 
-    Assert.assertArrayEquals(expected, actual);
+    Assert.assertArrayEquals(reencode(firstframe), reencode(frames.get(0).getImage()));
   }
 
   @Test
-  public void testFirstIncorrectHeader() throws IOException {
-    when(stream.getInputStream()).thenReturn(new BufferedInputStream(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg_incorrect.mjpg")));
-    mjpegstream = new MJPEGStreamReader(stream);
+  public void testFirstNoHeaderNextImage() throws IOException {
+    List<VideoFrame> frames = readFrames("testmjpeg_incorrect.mjpg");
 
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    ImageIO.write(ImageIO.read(new ByteArrayInputStream(firstframe)), "jpg", baos);
-    baos.flush();
-    byte[] expected = baos.toByteArray();
-    baos.close();
+    Assert.assertArrayEquals(reencode(secondframe), reencode(frames.get(1).getImage()));
+  }
 
-    baos = new ByteArrayOutputStream();
-    ImageIO.write(ImageIO.read(new ByteArrayInputStream(mjpegstream.getSnapShot().getImage())), "jpg", baos);
-    baos.flush();
-    byte[] actual = baos.toByteArray();
-    baos.close();
+  @Test
+  public void testSequence() throws IOException {
+    List<VideoFrame> frames = readFrames("testmjpeg.mjpg");
 
-    Assert.assertArrayEquals(expected, actual);
+    Assert.assertEquals(0, frames.get(0).getSequence());
+    Assert.assertEquals(1, frames.get(1).getSequence());
+    Assert.assertEquals(frames.size(), mjpegstream.getNextSequence());
   }
 
   @Test
-  public void testFirstNoHeaderNextImage() throws IOException {
-    when(stream.getInputStream()).thenReturn(new BufferedInputStream(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg_incorrect.mjpg")));
-    mjpegstream = new MJPEGStreamReader(stream);
+  public void testCaptureTime() throws IOException {
+    long before = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - 1000);
+    readFrames("testmjpeg.mjpg");
+    long after = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() + 1000);
 
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    ImageIO.write(ImageIO.read(new ByteArrayInputStream(secondframe)), "jpg", baos);
-    baos.flush();
-    byte[] expected = baos.toByteArray();
-    baos.close();
+    long captureTime = mjpegstream.getSnapShot().getCaptureTime();
+    Assert.assertTrue(captureTime > before && captureTime < after);
+  }
 
-    mjpegstream.processStream();
+  @Test
+  public void testFirstSequence() throws IOException {
+    byte[] bytes = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"));
+    MJPEGStreamReader reader = new MJPEGStreamReader(10);
+    reader.feed(ByteBuffer.wrap(bytes));
 
-    baos = new ByteArrayOutputStream();
-    ImageIO.write(ImageIO.read(new ByteArrayInputStream(mjpegstream.getSnapShot().getImage())), "jpg", baos);
-    baos.flush();
-    byte[] actual = baos.toByteArray();
-    baos.close();
+    Assert.assertEquals(12, reader.getSnapShot().getSequence());
+  }
 
-    Assert.assertArrayEquals(expected, actual);
+  @Test
+  public void testFeed() throws IOException {
+    byte[] bytes = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"));
+    MJPEGStreamReader reader = new MJPEGStreamReader();
+
+    reader.feed(ByteBuffer.wrap(bytes, 0, 40000));
+    Assert.assertArrayEquals(firstframe, reader.getSnapShot().getImage());
+
+    reader.feed(ByteBuffer.wrap(bytes, 40000, bytes.length - 40000));
+    Assert.assertEquals(3, reader.getFrameBuffer().getSequence() + 1);
   }
 
-}
+  @Test
+  public void testFeedMetrics() throws IOException {
+    byte[] bytes = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"));
+    MJPEGStreamReader reader = new MJPEGStreamReader();
+    StreamMetrics metrics = new StreamMetrics();
+    reader.setMetrics(metrics);
+
+    reader.feed(ByteBuffer.wrap(bytes));
 
+    Assert.assertEquals(3, metrics.getFramesReceived().get());
+    Assert.assertEquals(bytes.length, metrics.getBytesReceived().get());
+    Assert.assertEquals(1, metrics.getParseTime().getCount());
+  }
+
+  @Test
+  public void testResizeMetrics() throws IOException {
+    byte[] bytes = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"));
+    MJPEGStreamReader reader = new MJPEGStreamReader();
+    StreamMetrics metrics = new StreamMetrics();
+    reader.setMetrics(metrics);
+    reader.feed(ByteBuffer.wrap(bytes));
+
+    reader.getResizerPool().acquire(64, 48).resize(reader.getSnapShot());
+
+    Assert.assertEquals(1, metrics.getResizeTime().getCount());
+  }
+
+  @Test
+  public void testPushBoundary() {
+    Assert.assertEquals("--BOUNDARY", new MJPEGStreamReader().getBoundary());
+  }
+
+}
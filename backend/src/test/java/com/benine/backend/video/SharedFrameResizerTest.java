@@ -0,0 +1,44 @@
+package com.benine.backend.video;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+public class SharedFrameResizerTest {
+
+  private SharedFrameResizer resizer;
+  private VideoFrame frame;
+
+  @Before
+  public void init() throws IOException {
+    byte[] image = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "firstframe.jpg"));
+    frame = new VideoFrame(new MJPEGFrameHeader(new byte[0]), image);
+    resizer = new SharedFrameResizer(160, 90);
+  }
+
+  @Test
+  public void testResize() throws IOException {
+    VideoFrame resized = resizer.resize(frame);
+
+    Assert.assertEquals(160, ImageIO.read(resized.getImageStream()).getWidth());
+    Assert.assertEquals(90, ImageIO.read(resized.getImageStream()).getHeight());
+  }
+
+  @Test
+  public void testSameFrameResizedOnce() {
+    Assert.assertSame(resizer.resize(frame), resizer.resize(frame));
+  }
+
+  @Test
+  public void testOtherFrameResizedAgain() {
+    VideoFrame other = new VideoFrame(frame.getHeader(), frame.getImage());
+
+    Assert.assertNotSame(resizer.resize(frame), resizer.resize(other));
+  }
+}
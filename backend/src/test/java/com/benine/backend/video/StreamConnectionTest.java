@@ -0,0 +1,176 @@
+package com.benine.backend.video;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class StreamConnectionTest {
+
+  private ScheduledExecutorService scheduler;
+  private ScheduledFuture<?> future;
+  private StreamIngestor ingestor;
+  private StreamIngestor.Connection ingestion;
+  private StreamConnection connection;
+
+  @Before
+  public void init() throws Exception {
+    scheduler = mock(ScheduledExecutorService.class);
+    future = mock(ScheduledFuture.class);
+    doReturn(future).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+    ingestor = mock(StreamIngestor.class);
+    ingestion = mock(StreamIngestor.Connection.class);
+    doAnswer(invocation -> {
+      MJPEGStreamReader reader = (MJPEGStreamReader) invocation.getArguments()[1];
+      reader.getFrameBuffer().publish(new VideoFrame(new MJPEGFrameHeader(1), new byte[] {1}));
+      return ingestion;
+    }).when(ingestor).connect(anyString(), any(MJPEGStreamReader.class));
+
+    connection = new StreamConnection("http://localhost/stream", ingestor, scheduler, 1000);
+  }
+
+  @Test
+  public void testNotConnected() throws Exception {
+    Assert.assertFalse(connection.isConnected());
+    verify(ingestor, never()).connect(anyString(), any(MJPEGStreamReader.class));
+  }
+
+  @Test
+  public void testAcquire() throws Exception {
+    Assert.assertTrue(connection.acquire() instanceof MJPEGStreamReader);
+    Assert.assertTrue(connection.isConnected());
+    Assert.assertEquals(1, connection.getSubscribers());
+    verify(ingestor).connect(any(String.class), any(MJPEGStreamReader.class));
+  }
+
+  @Test
+  public void testStateIdle() throws Exception {
+    Assert.assertEquals(StreamState.IDLE, connection.getState());
+  }
+
+  @Test
+  public void testStateConnected() throws Exception {
+    doReturn(StreamState.DEGRADED).when(ingestion).getState();
+    connection.acquire();
+
+    Assert.assertEquals(StreamState.DEGRADED, connection.getState());
+  }
+
+  @Test
+  public void testAcquireSharedReader() throws Exception {
+    Assert.assertSame(connection.acquire(), connection.acquire());
+
+    verify(ingestor).connect(anyString(), any(MJPEGStreamReader.class));
+    Assert.assertEquals(2, connection.getSubscribers());
+  }
+
+  @Test
+  public void testReleaseStaysConnectedWithSubscribers() throws Exception {
+    connection.acquire();
+    connection.acquire();
+    connection.release();
+
+    Assert.assertTrue(connection.isConnected());
+    verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+  }
+
+  @Test
+  public void testReleaseSchedulesDisconnect() throws Exception {
+    connection.acquire();
+    connection.release();
+
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).schedule(task.capture(), anyLong(), any(TimeUnit.class));
+    Assert.assertTrue(connection.isConnected());
+
+    task.getValue().run();
+
+    Assert.assertFalse(connection.isConnected());
+    verify(ingestion).close();
+  }
+
+  @Test
+  public void testAcquireCancelsDisconnect() throws Exception {
+    connection.acquire();
+    connection.release();
+    connection.acquire();
+
+    verify(future).cancel(false);
+    verify(ingestor).connect(anyString(), any(MJPEGStreamReader.class));
+  }
+
+  @Test
+  public void testReleaseWithoutSubscribers() {
+    connection.release();
+
+    Assert.assertEquals(0, connection.getSubscribers());
+    verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+  }
+
+  @Test
+  public void testReconnectAfterDisconnect() throws Exception {
+    connection.acquire();
+    connection.disconnect();
+    connection.acquire();
+
+    verify(ingestor, times(2)).connect(anyString(), any(MJPEGStreamReader.class));
+  }
+
+  @Test
+  public void testSequenceContinuesAfterReconnect() throws Exception {
+    byte[] bytes = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"));
+    MJPEGStreamReader reader = (MJPEGStreamReader) connection.acquire();
+    reader.feed(ByteBuffer.wrap(bytes));
+    connection.disconnect();
+
+    reader = (MJPEGStreamReader) connection.acquire();
+    Assert.assertEquals(3, reader.getNextSequence());
+  }
+
+  @Test
+  public void testNotBlockedWhileConnecting() throws Exception {
+    doReturn(ingestion).when(ingestor).connect(anyString(), any(MJPEGStreamReader.class));
+    doReturn(StreamState.CONNECTING).when(ingestion).getState();
+    Thread subscriber = new Thread(() -> {
+      try {
+        connection.acquire();
+      } catch (Exception e) {
+        Assert.fail(e.toString());
+      }
+    });
+    subscriber.start();
+    ArgumentCaptor<MJPEGStreamReader> reader = ArgumentCaptor.forClass(MJPEGStreamReader.class);
+    verify(ingestor, timeout(1000)).connect(anyString(), reader.capture());
+
+    long start = System.nanoTime();
+    Assert.assertEquals(StreamState.CONNECTING, connection.getState());
+    Assert.assertEquals(1, connection.getSubscribers());
+    connection.release();
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000));
+    Assert.assertTrue(subscriber.isAlive());
+
+    reader.getValue().getFrameBuffer().publish(new VideoFrame(new MJPEGFrameHeader(1), new byte[] {1}));
+    subscriber.join(1000);
+    Assert.assertFalse(subscriber.isAlive());
+  }
+}
@@ -1,11 +1,18 @@
 package com.benine.backend.video;
 
 import com.benine.backend.camera.Camera;
+import com.benine.backend.camera.SimpleCamera;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 
 /**
  * Created on 18-05-16.
@@ -13,37 +20,106 @@ import java.util.HashMap;
 public class StreamControllerTest {
 
   private StreamController controller;
-  private HashMap<Integer, Thread> threads;
-  private HashMap<Integer, StreamReader> streams;
+  private Map<Integer, StreamConnection> streams;
+  private StreamIngestor ingestor;
+  private StreamIngestor.Connection ingestion;
 
   @Before
-  public void init() {
-    threads = Mockito.mock(HashMap.class);
+  public void init() throws Exception {
     streams = Mockito.mock(HashMap.class);
+    ingestor = Mockito.mock(StreamIngestor.class);
+    ingestion = Mockito.mock(StreamIngestor.Connection.class);
+    doAnswer(invocation -> {
+      MJPEGStreamReader reader = (MJPEGStreamReader) invocation.getArguments()[1];
+      reader.getFrameBuffer().publish(new VideoFrame(new MJPEGFrameHeader(1), new byte[] {1}));
+      return ingestion;
+    }).when(ingestor).connect(anyString(), any(MJPEGStreamReader.class));
 
-    controller = new StreamController(streams, threads);
+    controller = new StreamController(streams, ingestor, 0);
   }
 
   @Test
-  public void testAddCameraWithoutStreamThread() {
+  public void testAddCameraWithoutStream() {
     Camera cam = Mockito.mock(Camera.class);
 
     controller.addCamera(cam);
 
-    Mockito.verifyZeroInteractions(threads);
+    Mockito.verifyZeroInteractions(streams);
   }
 
   @Test
-  public void testAddCameraWithoutStreamStream() {
-    Camera cam = Mockito.mock(Camera.class);
+  public void testAddCameraNotConnected() throws Exception {
+    controller = new StreamController(new HashMap<>(), ingestor, 0);
+    controller.addCamera(createCamera());
 
-    controller.addCamera(cam);
+    Assert.assertFalse(controller.isConnected(1));
+  }
 
-    Mockito.verifyZeroInteractions(streams);
+  @Test
+  public void testStreamStateIdle() throws Exception {
+    controller = new StreamController(new HashMap<>(), ingestor, 0);
+    controller.addCamera(createCamera());
+
+    Assert.assertEquals(StreamState.IDLE, controller.getStreamState(1));
+  }
+
+  @Test
+  public void testStreamStateWithoutStream() throws Exception {
+    controller = new StreamController(new HashMap<>(), ingestor, 0);
+
+    Assert.assertNull(controller.getStreamState(1));
+  }
+
+  @Test
+  public void testAcquireConnects() throws Exception {
+    controller = new StreamController(new HashMap<>(), ingestor, 0);
+    controller.addCamera(createCamera());
+
+    Assert.assertNotNull(controller.acquireStreamReader(1));
+    Assert.assertTrue(controller.isConnected(1));
+
+    controller.releaseStreamReader(1);
+  }
+
+  @Test
+  public void testReleaseDisconnects() throws Exception {
+    controller = new StreamController(new HashMap<>(), ingestor, 0);
+    controller.addCamera(createCamera());
+
+    controller.acquireStreamReader(1);
+    controller.releaseStreamReader(1);
+
+    Assert.assertFalse(controller.isConnected(1));
+    Mockito.verify(ingestion).close();
+  }
+
+  @Test
+  public void testStop() throws Exception {
+    controller = new StreamController(new HashMap<>(), ingestor, 0);
+    controller.addCamera(createCamera());
+    controller.acquireStreamReader(1);
+
+    controller.stop();
+
+    Assert.assertFalse(controller.isConnected(1));
+    Mockito.verify(ingestor).stop();
+  }
+
+  @Test
+  public void testReleaseUnknownCamera() {
+    controller.releaseStreamReader(42);
+    Assert.assertFalse(controller.isConnected(42));
   }
 
   @Test (expected = StreamNotAvailableException.class)
   public void testGetSnapshotNotAvailable() throws StreamNotAvailableException {
-    controller.getStreamReader(42);
+    controller.acquireStreamReader(42);
+  }
+
+  private Camera createCamera() throws Exception {
+    SimpleCamera cam = new SimpleCamera();
+    cam.setId(1);
+    cam.setStreamLink("http://localhost/stream");
+    return cam;
   }
 }
@@ -1,26 +1,33 @@
 package com.benine.backend.video;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.PipedOutputStream;
 
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class StreamDistributerTest {
 
-  private Stream stream;
   private StreamReader reader;
   private StreamDistributer distributer;
   private PipedOutputStream testStream;
+  private FrameBuffer buffer;
+  private StreamMetrics metrics;
 
   @Before
   public void init() throws IOException {
     reader = mock(StreamReader.class);
-    stream = new Stream(new File("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg").toURI().toURL().toString());
+    buffer = new FrameBuffer(4);
+    when(reader.getFrameBuffer()).thenReturn(buffer);
+    metrics = new StreamMetrics();
+    when(reader.getMetrics()).thenReturn(metrics);
 
     testStream = mock(PipedOutputStream.class);
     distributer = new StreamDistributer(reader);
@@ -29,21 +36,169 @@ public class StreamDistributerTest {
 
   @Test
   public void testConstructor() throws IOException {
-    Mockito.verify(reader).addObserver(distributer);
+    Mockito.verify(reader).getFrameBuffer();
+    Assert.assertTrue(distributer.isRunning());
+    Assert.assertFalse(distributer.isSlowConsumer());
   }
 
   @Test
-  public void testUpdate() throws IOException {
+  public void testWriteVideoFrame() throws IOException {
     byte[] image = {1, 2, 3, 4};
     VideoFrame test = new VideoFrame(new MJPEGFrameHeader(image), image);
-    distributer.update(reader, test);
+    distributer.writeVideoFrame(test);
 
     Mockito.verify(testStream).write(image);
   }
 
+  @Test
+  public void testDistribute() throws Exception {
+    byte[] image = {1, 2, 3, 4};
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), image));
+    doAnswer(invocation -> {
+      distributer.deregister();
+      return null;
+    }).when(testStream).write(image);
+
+    distributer.distribute();
+
+    Mockito.verify(testStream).write(image);
+  }
+
+  @Test
+  public void testSlowConsumerDropsFrames() throws Exception {
+    byte[] image = {1, 2, 3, 4};
+    distributer.setQueueSize(1);
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), new byte[] {0}));
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), image));
+    doAnswer(invocation -> {
+      distributer.deregister();
+      return null;
+    }).when(testStream).write(image);
+
+    distributer.distribute();
+
+    Assert.assertEquals(1, distributer.getSentFrames());
+    Assert.assertEquals(1, distributer.getDroppedFrames());
+    Assert.assertEquals(1, metrics.getFramesDropped().get());
+    Assert.assertTrue(distributer.isSlowConsumer());
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    byte[] image = {1, 2, 3, 4};
+    VideoFrame frame = new VideoFrame(new MJPEGFrameHeader(image.length), image)
+            .withFrameInfo(0, VideoFrame.currentTimeNanos());
+    buffer.publish(frame);
+    doAnswer(invocation -> {
+      distributer.deregister();
+      return null;
+    }).when(testStream).write(image);
+
+    Assert.assertEquals(1, metrics.getViewers().get());
+    distributer.distribute();
+
+    Assert.assertEquals(1, metrics.getFramesSent().get());
+    Assert.assertEquals(frame.getHeader().getLength() + image.length,
+            metrics.getBytesSent().get());
+    Assert.assertEquals(1, metrics.getViewerLag().getCount());
+    Assert.assertEquals(0, metrics.getViewers().get());
+  }
+
+  @Test
+  public void testDeregisterTwice() {
+    distributer.deregister();
+    distributer.deregister();
+
+    Assert.assertEquals(0, metrics.getViewers().get());
+  }
+
+  @Test
+  public void testFrameRate() {
+    distributer.setFrameRate(4);
+    Assert.assertEquals(4, distributer.getFrameRate(), 0.01);
+  }
+
+  @Test
+  public void testFrameRateUnlimited() {
+    distributer.setFrameRate(4);
+    distributer.setFrameRate(0);
+    Assert.assertEquals(0, distributer.getFrameRate(), 0);
+  }
+
+  @Test
+  public void testFrameRateSkipsFrames() throws Exception {
+    byte[] image = {1, 2, 3, 4};
+    distributer.setFrameRate(0.1);
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), image));
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), new byte[] {0}));
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), new byte[] {1}));
+
+    Thread thread = new Thread(() -> {
+      try {
+        distributer.distribute();
+      } catch (IOException | InterruptedException e) {
+        Assert.fail();
+      }
+    });
+    thread.start();
+    Thread.sleep(100);
+    distributer.deregister();
+    thread.join();
+
+    Mockito.verify(testStream).write(image);
+    Assert.assertEquals(1, distributer.getSentFrames());
+    Assert.assertEquals(2, distributer.getSkippedFrames());
+  }
+
+  @Test (expected = IOException.class)
+  public void testDistributeClientDisconnected() throws Exception {
+    byte[] image = {1, 2, 3, 4};
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), image));
+    doThrow(new IOException()).when(testStream).write(image);
+
+    distributer.distribute();
+  }
+
   @Test
   public void testDeregister() throws IOException {
     distributer.deregister();
-    Mockito.verify(reader).deleteObserver(distributer);
+    Assert.assertFalse(distributer.isRunning());
+  }
+
+  @Test
+  public void testPoll() {
+    byte[] image = {1, 2, 3, 4};
+    Assert.assertNull(distributer.poll());
+
+    VideoFrame frame = new VideoFrame(new MJPEGFrameHeader(image), image);
+    buffer.publish(frame);
+    Assert.assertSame(frame, distributer.poll());
+    Assert.assertNull(distributer.poll());
+  }
+
+  @Test
+  public void testPollSkipsFrames() {
+    byte[] image = {1, 2, 3, 4};
+    distributer.setFrameRate(0.1);
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), image));
+    distributer.recordSentFrame(distributer.poll());
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), image));
+
+    Assert.assertNull(distributer.poll());
+    Assert.assertEquals(1, distributer.getSentFrames());
+    Assert.assertEquals(1, distributer.getSkippedFrames());
+  }
+
+  @Test
+  public void testFrameListener() {
+    byte[] image = {1, 2, 3, 4};
+    Runnable listener = mock(Runnable.class);
+    distributer.setFrameListener(listener);
+
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), image));
+    distributer.deregister();
+    buffer.publish(new VideoFrame(new MJPEGFrameHeader(image), image));
+
+    Mockito.verify(listener).run();
   }
 }
@@ -0,0 +1,166 @@
+package com.benine.backend.video;
+
+import com.benine.backend.Logger;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.mockito.Mockito.mock;
+
+public class StreamIngestorTest {
+
+  private Server server;
+  private String url;
+  private StreamIngestor ingestor;
+  private byte[] stream;
+  private byte[] firstframe;
+
+  @Before
+  public void init() throws Exception {
+    stream = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "testmjpeg.mjpg"));
+    firstframe = IOUtils.toByteArray(new FileInputStream("resources" + File.separator + "test" + File.separator + "firstframe.jpg"));
+
+    server = new Server(0);
+    server.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request request, HttpServletRequest req,
+                         HttpServletResponse res) throws IOException {
+        request.setHandled(true);
+        if (target.equals("/stream")) {
+          res.setContentType("multipart/x-mixed-replace;boundary=myboundary");
+          res.getOutputStream().write(stream);
+        } else if (target.equals("/stall")) {
+          res.getOutputStream().write(stream);
+          res.flushBuffer();
+          try {
+            Thread.sleep(5000);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        } else {
+          res.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        }
+      }
+    });
+    server.start();
+    url = "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+
+    ingestor = new StreamIngestor(mock(Logger.class), 500);
+  }
+
+  @After
+  public void stop() throws Exception {
+    ingestor.stop();
+    server.stop();
+  }
+
+  @Test
+  public void testReceivesFrames() throws Exception {
+    MJPEGStreamReader reader = new MJPEGStreamReader();
+    FrameBuffer.Cursor cursor = reader.getFrameBuffer().subscribe();
+
+    ingestor.connect(url + "/stream", reader);
+
+    VideoFrame frame = cursor.next(5, TimeUnit.SECONDS);
+    Assert.assertArrayEquals(firstframe, frame.getImage());
+    Assert.assertNotNull(reader.getSnapShot());
+  }
+
+  @Test
+  public void testReceivesFramesWithManySelectors() throws Exception {
+    ingestor.stop();
+    ingestor = new StreamIngestor(mock(Logger.class), 500, 16);
+    MJPEGStreamReader reader = new MJPEGStreamReader();
+    FrameBuffer.Cursor cursor = reader.getFrameBuffer().subscribe();
+
+    ingestor.connect(url + "/stream", reader);
+
+    Assert.assertNotNull(cursor.next(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testNotFound() throws Exception {
+    MJPEGStreamReader reader = new MJPEGStreamReader();
+
+    StreamIngestor.Connection connection = ingestor.connect(url + "/other", reader);
+
+    Assert.assertNull(reader.getFrameBuffer().subscribe().next(500, TimeUnit.MILLISECONDS));
+    connection.close();
+  }
+
+  @Test
+  public void testNotFoundStaysConnecting() throws Exception {
+    StreamIngestor.Connection connection = ingestor.connect(url + "/other",
+            new MJPEGStreamReader());
+
+    Thread.sleep(200);
+    Assert.assertEquals(StreamState.CONNECTING, connection.getState());
+    connection.close();
+  }
+
+  @Test
+  public void testLive() throws Exception {
+    StreamIngestor.Connection connection = ingestor.connect(url + "/stall",
+            new MJPEGStreamReader());
+
+    Assert.assertTrue(awaitState(connection, StreamState.LIVE));
+    connection.close();
+  }
+
+  @Test
+  public void testStallDegrades() throws Exception {
+    StreamIngestor.Connection connection = ingestor.connect(url + "/stall",
+            new MJPEGStreamReader());
+
+    Assert.assertTrue(awaitState(connection, StreamState.LIVE));
+    Assert.assertTrue(awaitState(connection, StreamState.DEGRADED));
+    connection.close();
+  }
+
+  @Test
+  public void testReconnectDelay() throws Exception {
+    long expected = 1000;
+    for (int failures = 1; failures < 40; failures++) {
+      long delay = StreamIngestor.getReconnectDelay(failures);
+      Assert.assertTrue(delay >= expected / 2);
+      Assert.assertTrue(delay <= expected);
+      expected = Math.min(expected * 2, 60000);
+    }
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    StreamIngestor.Connection connection = ingestor.connect(url + "/stream",
+            new MJPEGStreamReader());
+
+    connection.close();
+
+    Assert.assertTrue(connection.isClosed());
+  }
+
+  @Test (expected = IOException.class)
+  public void testInvalidUrl() throws Exception {
+    ingestor.connect("", new MJPEGStreamReader());
+  }
+
+  private boolean awaitState(StreamIngestor.Connection connection, StreamState state)
+          throws InterruptedException {
+    for (int i = 0; i < 100 && connection.getState() != state; i++) {
+      Thread.sleep(50);
+    }
+    return connection.getState() == state;
+  }
+}
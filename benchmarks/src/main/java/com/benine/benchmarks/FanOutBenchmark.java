@@ -0,0 +1,118 @@
+package com.benine.benchmarks;
+
+import com.benine.backend.video.FrameBuffer;
+import com.benine.backend.video.MJPEGFrameHeader;
+import com.benine.backend.video.MJPEGStreamReader;
+import com.benine.backend.video.StreamDistributer;
+import com.benine.backend.video.VideoFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures distributing a frame to a number of viewers of the same stream.
+ * Every operation publishes one frame, after which every distributer polls it
+ * like the asynchronous stream writer does and writes it to a discarding outputstream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanOutBenchmark {
+
+  /**
+   * The amount of viewers of the stream.
+   */
+  @Param({"1", "8", "32"})
+  public int subscribers;
+
+  private FrameBuffer buffer;
+
+  private StreamDistributer[] distributers;
+
+  private VideoFrame frame;
+
+  private OutputStream out;
+
+  private long sequence;
+
+  /**
+   * Creates the subscribers of a stream.
+   * @param blackhole Consumes the written bytes.
+   * @throws IOException If the fixture cannot be read.
+   */
+  @Setup
+  public void setup(Blackhole blackhole) throws IOException {
+    byte[] image = Fixtures.load(Fixtures.FRAME);
+    frame = new VideoFrame(new MJPEGFrameHeader(image.length), image);
+
+    MJPEGStreamReader reader = new MJPEGStreamReader();
+    buffer = reader.getFrameBuffer();
+    distributers = new StreamDistributer[subscribers];
+
+    out = new OutputStream() {
+      @Override
+      public void write(int b) {
+        blackhole.consume(b);
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) {
+        blackhole.consume(bytes);
+      }
+    };
+
+    for (int i = 0; i < subscribers; i++) {
+      distributers[i] = new StreamDistributer(reader);
+      distributers[i].setStream(out);
+    }
+  }
+
+  /**
+   * Stops the distributers.
+   */
+  @TearDown
+  public void tearDown() {
+    for (StreamDistributer distributer : distributers) {
+      distributer.deregister();
+    }
+  }
+
+  /**
+   * Publishes a frame and writes it to every subscriber.
+   * @return The amount of written frames.
+   * @throws IOException If a frame cannot be written.
+   */
+  @Benchmark
+  public int distribute() throws IOException {
+    buffer.publish(frame.withFrameInfo(sequence++, VideoFrame.currentTimeNanos()));
+
+    int written = 0;
+    for (int i = 0; i < subscribers; i++) {
+      VideoFrame next = distributers[i].poll();
+      if (next != null) {
+        next.writeTo(out);
+        out.flush();
+        distributers[i].recordSentFrame(next);
+        written++;
+      }
+    }
+    return written;
+  }
+}
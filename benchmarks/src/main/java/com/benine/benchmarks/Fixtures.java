@@ -0,0 +1,60 @@
+package com.benine.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Pattern;
+
+/**
+ * Loads the recorded MJPEG streams and images the benchmarks are fed with.
+ * The fixtures are read from the test resources of the backend, another directory
+ * can be set with the benchmark.fixtures system property.
+ */
+public final class Fixtures {
+
+  private static final String DIRECTORY = System.getProperty("benchmark.fixtures",
+          ".." + File.separator + "backend" + File.separator + "resources"
+                  + File.separator + "test");
+
+  /**
+   * Recorded stream of a camera, with a Content-Length in every part header.
+   */
+  public static final String STREAM = "testmjpeg.mjpg";
+
+  /**
+   * Single JPEG image from the recorded stream.
+   */
+  public static final String FRAME = "firstframe.jpg";
+
+  private static final Pattern CONTENT_LENGTH =
+          Pattern.compile("Content-Length: *\\d+\\r?\\n", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Utility class, not instantiated.
+   */
+  private Fixtures() {
+  }
+
+  /**
+   * Reads a fixture.
+   * @param name The file name of the fixture.
+   * @return The bytes of the fixture.
+   * @throws IOException If the fixture cannot be read.
+   */
+  public static byte[] load(String name) throws IOException {
+    return Files.readAllBytes(new File(DIRECTORY, name).toPath());
+  }
+
+  /**
+   * Removes the Content-Length lines from the part headers of a stream,
+   * like cameras which only mark the end of an image with the JPEG end marker.
+   * @param stream The recorded stream.
+   * @return The stream without Content-Length headers.
+   */
+  public static byte[] withoutContentLength(byte[] stream) {
+    String text = new String(stream, StandardCharsets.ISO_8859_1);
+
+    return CONTENT_LENGTH.matcher(text).replaceAll("").getBytes(StandardCharsets.ISO_8859_1);
+  }
+}
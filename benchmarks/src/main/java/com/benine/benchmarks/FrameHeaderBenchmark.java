@@ -0,0 +1,55 @@
+package com.benine.benchmarks;
+
+import com.benine.backend.video.MJPEGFrameHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing the part header of a frame received from a camera,
+ * and creating the header of a frame sent to the viewers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameHeaderBenchmark {
+
+  /**
+   * Part header as sent by the cameras.
+   */
+  private final byte[] header = ("--myboundary\r\nContent-Type: image/jpeg\r\n"
+          + "Content-Length: 29507\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+  private long sequence;
+
+  /**
+   * Parses the Content-Length of a received header.
+   * @return The parsed header.
+   */
+  @Benchmark
+  public MJPEGFrameHeader parse() {
+    return new MJPEGFrameHeader(header);
+  }
+
+  /**
+   * Creates and serializes the header of a stamped frame.
+   * @return The created header.
+   */
+  @Benchmark
+  public MJPEGFrameHeader stamp() {
+    sequence++;
+    return new MJPEGFrameHeader(29507, sequence, System.nanoTime());
+  }
+}
@@ -0,0 +1,64 @@
+package com.benine.benchmarks;
+
+import com.benine.backend.video.MJPEGFrameHeader;
+import com.benine.backend.video.MJPEGFrameResizer;
+import com.benine.backend.video.VideoFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resizing a recorded frame to the sizes requested by the frontend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResizeBenchmark {
+
+  /**
+   * The size to resize to, tiles, the preset images and the large view.
+   */
+  @Param({"160x90", "320x180", "640x360", "1280x720"})
+  public String size;
+
+  private VideoFrame frame;
+
+  private MJPEGFrameResizer resizer;
+
+  /**
+   * Loads the frame and creates the resizer.
+   * @throws IOException If the fixture cannot be read.
+   */
+  @Setup
+  public void setup() throws IOException {
+    byte[] image = Fixtures.load(Fixtures.FRAME);
+    frame = new VideoFrame(new MJPEGFrameHeader(image.length), image);
+
+    String[] dimensions = size.split("x");
+    resizer = new MJPEGFrameResizer(Integer.parseInt(dimensions[0]),
+            Integer.parseInt(dimensions[1]));
+  }
+
+  /**
+   * Resizes the frame.
+   * @return The resized frame.
+   */
+  @Benchmark
+  public VideoFrame resize() {
+    return resizer.resize(frame);
+  }
+}
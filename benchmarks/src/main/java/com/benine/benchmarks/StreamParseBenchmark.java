@@ -0,0 +1,75 @@
+package com.benine.benchmarks;
+
+import com.benine.backend.video.MJPEGStreamReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a recorded MJPEG stream into frames, as the stream ingestor feeds it
+ * to the reader in network sized chunks. The score is the time to parse the whole recording.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamParseBenchmark {
+
+  /**
+   * Size of the chunks the stream is fed in, like the buffers of the HTTP client.
+   */
+  private static final int CHUNK_SIZE = 16 * 1024;
+
+  /**
+   * If the part headers contain a Content-Length, otherwise the parser looks for
+   * the end of every image.
+   */
+  @Param({"true", "false"})
+  public boolean contentLength;
+
+  private byte[] stream;
+
+  private MJPEGStreamReader reader;
+
+  /**
+   * Loads the recorded stream.
+   * @throws IOException If the fixture cannot be read.
+   */
+  @Setup
+  public void setup() throws IOException {
+    stream = Fixtures.load(Fixtures.STREAM);
+    if (!contentLength) {
+      stream = Fixtures.withoutContentLength(stream);
+    }
+    reader = new MJPEGStreamReader();
+  }
+
+  /**
+   * Feeds the recording to the reader in chunks.
+   * @return The amount of parsed frames.
+   */
+  @Benchmark
+  public int feed() {
+    int frames = 0;
+
+    for (int offset = 0; offset < stream.length; offset += CHUNK_SIZE) {
+      int length = Math.min(CHUNK_SIZE, stream.length - offset);
+      frames += reader.feed(ByteBuffer.wrap(stream, offset, length));
+    }
+    return frames;
+  }
+}
@@ -0,0 +1,4 @@
+/**
+ * Package containing the JMH benchmarks of the MJPEG streaming pipeline of the backend.
+ */
+package com.benine.benchmarks;
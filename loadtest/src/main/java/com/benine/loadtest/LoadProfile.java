@@ -0,0 +1,181 @@
+package com.benine.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The mix of load generated against the server, read from key=value arguments.
+ * Rates are in requests per second, a rate of 0 disables that kind of request.
+ */
+public class LoadProfile {
+
+  private final Map<String, String> values;
+
+  /**
+   * Creates a profile from key=value arguments, unspecified keys get their default.
+   * @param args The arguments.
+   * @throws IllegalArgumentException If an argument is not a key=value pair.
+   */
+  public LoadProfile(String... args) {
+    this.values = new HashMap<>();
+
+    for (String arg : args) {
+      int split = arg.indexOf('=');
+      if (split <= 0) {
+        throw new IllegalArgumentException("Argument " + arg + " is not a key=value pair");
+      }
+      values.put(arg.substring(0, split).trim(), arg.substring(split + 1).trim());
+    }
+  }
+
+  /**
+   * Returns the base url of the server.
+   * @return The url without a trailing slash.
+   */
+  public String getServer() {
+    return getString("server", "http://localhost:8888").replaceAll("/+$", "");
+  }
+
+  /**
+   * Returns how long the load is generated.
+   * @return The duration in seconds.
+   */
+  public int getDuration() {
+    return getInt("duration", 60);
+  }
+
+  /**
+   * Returns the time over which the viewers are connected, before the measurement starts.
+   * @return The ramp up time in seconds.
+   */
+  public int getRampUp() {
+    return getInt("rampup", 5);
+  }
+
+  /**
+   * Returns the amount of concurrent stream viewers, spread over the cameras.
+   * @return The amount of viewers.
+   */
+  public int getViewers() {
+    return getInt("viewers", 10);
+  }
+
+  /**
+   * Returns the width the viewers request their streams in.
+   * @return The width, 0 for the full size stream.
+   */
+  public int getViewerWidth() {
+    return getInt("width", 0);
+  }
+
+  /**
+   * Returns the height the viewers request their streams in.
+   * @return The height, 0 for the full size stream.
+   */
+  public int getViewerHeight() {
+    return getInt("height", 0);
+  }
+
+  /**
+   * Returns the frame rate the viewers request.
+   * @return The frames per second, 0 for the default of the server.
+   */
+  public int getViewerFps() {
+    return getInt("fps", 0);
+  }
+
+  /**
+   * Returns the rate of requests listing the presets.
+   * @return The requests per second.
+   */
+  public double getPresetPollRate() {
+    return getDouble("presetpolls", 1);
+  }
+
+  /**
+   * Returns the rate of requests moving a camera.
+   * @return The requests per second.
+   */
+  public double getMoveRate() {
+    return getDouble("moves", 0);
+  }
+
+  /**
+   * Returns the rate of requests recalling a preset.
+   * @return The requests per second.
+   */
+  public double getRecallRate() {
+    return getDouble("recalls", 0);
+  }
+
+  /**
+   * Returns the cameras the load is spread over.
+   * @return The camera ids, empty for all cameras of the server.
+   */
+  public List<Integer> getCameras() {
+    return getIds("cameras");
+  }
+
+  /**
+   * Returns the presets which are recalled.
+   * @return The preset ids, empty for all presets of the server.
+   */
+  public List<Integer> getPresets() {
+    return getIds("presets");
+  }
+
+  /**
+   * Returns a value.
+   * @param key           The key of the value.
+   * @param defaultValue  The value if not specified.
+   * @return The value.
+   */
+  private String getString(String key, String defaultValue) {
+    String value = values.get(key);
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Returns an integer value.
+   * @param key           The key of the value.
+   * @param defaultValue  The value if not specified.
+   * @return The value.
+   */
+  private int getInt(String key, int defaultValue) {
+    return Integer.parseInt(getString(key, Integer.toString(defaultValue)));
+  }
+
+  /**
+   * Returns a decimal value.
+   * @param key           The key of the value.
+   * @param defaultValue  The value if not specified.
+   * @return The value.
+   */
+  private double getDouble(String key, double defaultValue) {
+    return Double.parseDouble(getString(key, Double.toString(defaultValue)));
+  }
+
+  /**
+   * Returns a comma separated list of ids.
+   * @param key The key of the list.
+   * @return The ids, empty if not specified.
+   */
+  private List<Integer> getIds(String key) {
+    List<Integer> ids = new ArrayList<>();
+    for (String id : getString(key, "").split(",")) {
+      if (!id.trim().isEmpty()) {
+        ids.add(Integer.parseInt(id.trim()));
+      }
+    }
+    return ids;
+  }
+
+  @Override
+  public String toString() {
+    return getViewers() + " viewers, " + getPresetPollRate() + " preset polls/s, "
+            + getMoveRate() + " moves/s, " + getRecallRate() + " recalls/s for "
+            + getDuration() + " s against " + getServer();
+  }
+}
@@ -0,0 +1,297 @@
+package com.benine.loadtest;
+
+import com.benine.backend.metrics.Histogram;
+import com.benine.backend.metrics.MetricRegistry;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Generates a mix of stream viewers and API requests against a running server,
+ * and reports the throughput and latency of the server and its CPU and heap use.
+ * The mix is specified with key=value arguments, see LoadProfile.
+ */
+public final class LoadTest {
+
+  /**
+   * Buckets of the latency histograms, from half a millisecond up to minutes.
+   */
+  static final double[] LATENCY_BUCKETS = Histogram.exponentialBuckets(0.0005, 1.25, 60);
+
+  private static final int MAX_THREADS = 64;
+
+  private static final double MEGABYTE = 1024 * 1024;
+
+  private final LoadProfile profile;
+
+  private final HttpClient client;
+
+  private final MetricRegistry registry;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final List<StreamViewer> viewers;
+
+  private final List<RequestLoad> loads;
+
+  private final ServerSampler sampler;
+
+  private volatile boolean measuring;
+
+  private long measured;
+
+  /**
+   * Creates a load test, nothing is sent until it is run.
+   * @param profile The load to generate.
+   */
+  public LoadTest(LoadProfile profile) {
+    this.profile = profile;
+    this.registry = new MetricRegistry();
+    this.scheduler = Executors.newScheduledThreadPool(2);
+    this.viewers = new ArrayList<>();
+    this.loads = new ArrayList<>();
+
+    QueuedThreadPool threads = new QueuedThreadPool(MAX_THREADS);
+    threads.setName("LoadTest");
+    threads.setDaemon(true);
+    this.client = new HttpClient();
+    client.setExecutor(threads);
+    client.setMaxConnectionsPerDestination(profile.getViewers() + MAX_THREADS);
+    client.setFollowRedirects(false);
+
+    this.sampler = new ServerSampler(client, profile.getServer());
+  }
+
+  /**
+   * Runs a load test and prints its report.
+   * @param args The key=value arguments of the LoadProfile.
+   * @throws Exception If the load test cannot be run.
+   */
+  public static void main(String[] args) throws Exception {
+    LoadTest test = new LoadTest(new LoadProfile(args));
+    System.out.println("Load: " + test.profile);
+
+    try {
+      test.run();
+    } finally {
+      test.stop();
+    }
+    test.report(System.out);
+  }
+
+  /**
+   * Connects the viewers during the ramp up, then measures the load for its duration.
+   * @throws Exception If the client cannot be started or the server cannot be reached.
+   */
+  public void run() throws Exception {
+    client.start();
+    List<Integer> cameras = getIds(profile.getCameras(), "/camera/", "cameras",
+        profile.getViewers() > 0 || profile.getMoveRate() > 0);
+    final List<Integer> presets = getIds(profile.getPresets(), "/presets/", "presets",
+        profile.getRecallRate() > 0);
+
+    startViewers(cameras);
+    TimeUnit.SECONDS.sleep(profile.getRampUp());
+
+    measuring = true;
+    long start = System.nanoTime();
+    sampler.start(scheduler);
+    addLoad("presets", () -> "/presets/", profile.getPresetPollRate());
+    addLoad("moves", () -> getMovePath(random(cameras)), profile.getMoveRate());
+    addLoad("recalls", () -> "/presets/recallpreset?presetid=" + random(presets),
+            profile.getRecallRate());
+
+    TimeUnit.SECONDS.sleep(profile.getDuration());
+    measuring = false;
+    measured = System.nanoTime() - start;
+  }
+
+  /**
+   * Starts the viewers spread over the cameras and the ramp up time.
+   * @param cameras The ids of the cameras.
+   */
+  private void startViewers(List<Integer> cameras) {
+    long rampUp = TimeUnit.SECONDS.toMillis(profile.getRampUp());
+
+    for (int i = 0; i < profile.getViewers(); i++) {
+      StreamViewer viewer = new StreamViewer(client, getStreamUrl(cameras.get(i % cameras.size())),
+          () -> measuring, registry);
+      viewers.add(viewer);
+      scheduler.schedule(viewer::start, rampUp * i / profile.getViewers(),
+              TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Returns the url of a stream in the size and frame rate of the profile.
+   * @param camera The id of the camera.
+   * @return The url.
+   */
+  private String getStreamUrl(int camera) {
+    String url = profile.getServer() + "/camera/" + camera + "/mjpeg?";
+    if (profile.getViewerWidth() > 0 && profile.getViewerHeight() > 0) {
+      url += "width=" + profile.getViewerWidth() + "&height=" + profile.getViewerHeight() + "&";
+    }
+    if (profile.getViewerFps() > 0) {
+      url += "fps=" + profile.getViewerFps();
+    }
+    return url;
+  }
+
+  /**
+   * Returns the path of a request moving a camera to a random position.
+   * @param camera The id of the camera.
+   * @return The path.
+   */
+  private static String getMovePath(int camera) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return "/camera/" + camera + "/move?moveType=absolute&pan=" + random.nextInt(-170, 170)
+            + "&tilt=" + random.nextInt(0, 90) + "&panSpeed=30&tiltSpeed=2";
+  }
+
+  /**
+   * Picks a random id.
+   * @param ids The ids to pick from.
+   * @return The picked id.
+   */
+  private static int random(List<Integer> ids) {
+    return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+  }
+
+  /**
+   * Starts a load of requests, if its rate is above 0.
+   * @param name  The name of the load.
+   * @param paths Supplies the path of every request.
+   * @param rate  The requests per second.
+   */
+  private void addLoad(String name, Supplier<String> paths, double rate) {
+    if (rate > 0) {
+      RequestLoad load = new RequestLoad(name, client, profile.getServer(), paths, rate,
+              registry);
+      loads.add(load);
+      load.start(scheduler);
+    }
+  }
+
+  /**
+   * Returns the ids of the profile, or all ids on the server if the profile has none.
+   * @param ids       The ids of the profile.
+   * @param path      The path of the list on the server.
+   * @param key       The key of the array containing the objects.
+   * @param required  True if the load needs at least one id.
+   * @return The ids.
+   * @throws Exception If the list cannot be requested, or no ids are found when required.
+   */
+  private List<Integer> getIds(List<Integer> ids, String path, String key, boolean required)
+          throws Exception {
+    if (!ids.isEmpty() || !required) {
+      return ids;
+    }
+    List<Integer> found = getIds(path, key);
+    if (found.isEmpty()) {
+      throw new IllegalStateException("The server has no " + key);
+    }
+    return found;
+  }
+
+  /**
+   * Requests a JSON list from the server and returns the ids of its objects.
+   * @param path  The path of the list.
+   * @param key   The key of the array containing the objects.
+   * @return The ids.
+   * @throws Exception If the list cannot be requested or parsed.
+   */
+  private List<Integer> getIds(String path, String key) throws Exception {
+    String body = client.GET(profile.getServer() + path).getContentAsString();
+    List<Integer> ids = new ArrayList<>();
+
+    try {
+      JSONArray array = (JSONArray) ((JSONObject) new JSONParser().parse(body)).get(key);
+      for (Object object : array) {
+        ids.add(((Number) ((JSONObject) object).get("id")).intValue());
+      }
+    } catch (ParseException | ClassCastException | NullPointerException e) {
+      throw new IOException("Unexpected response from " + path + ": " + body, e);
+    }
+    return ids;
+  }
+
+  /**
+   * Stops all load, closing the streams.
+   * @throws Exception If the client cannot be stopped.
+   */
+  public void stop() throws Exception {
+    measuring = false;
+    loads.forEach(RequestLoad::stop);
+    viewers.forEach(StreamViewer::stop);
+    sampler.stop();
+    scheduler.shutdownNow();
+    client.stop();
+  }
+
+  /**
+   * Prints the results of the load test.
+   * @param out The stream to print to.
+   */
+  public void report(PrintStream out) {
+    double seconds = measured / 1e9;
+    out.printf("Measured %.1f s%n%n", seconds);
+
+    out.printf("%-10s %10s %10s %8s %10s %10s %10s%n", "requests", "count", "req/s", "failed",
+            "p50 ms", "p90 ms", "p99 ms");
+    for (RequestLoad load : loads) {
+      Histogram latency = load.getLatency();
+      out.printf("%-10s %10d %10.1f %8d %10.1f %10.1f %10.1f%n", load.getName(),
+              latency.getCount(), latency.getCount() / seconds, load.getFailures(),
+              toMillis(latency, 50), toMillis(latency, 90), toMillis(latency, 99));
+    }
+
+    if (!viewers.isEmpty()) {
+      long frames = registry.counter("loadtest_frames_total", "Frames received.").get();
+      long bytes = registry.counter("loadtest_bytes_total", "Bytes received.").get();
+      Histogram firstFrame = registry.histogram("loadtest_first_frame_seconds", "",
+              LATENCY_BUCKETS);
+      Histogram gap = registry.histogram("loadtest_frame_gap_seconds", "", LATENCY_BUCKETS);
+
+      out.printf("%nstreams    %d viewers, %.1f fps (%.1f per viewer), %.2f MB/s, "
+              + "%d disconnects%n", viewers.size(), frames / seconds,
+              frames / seconds / viewers.size(), bytes / seconds / MEGABYTE,
+              registry.counter("loadtest_disconnects_total", "").get());
+      out.printf("           first frame p50 %.1f ms, p99 %.1f ms; "
+              + "frame gap p50 %.1f ms, p99 %.1f ms%n", toMillis(firstFrame, 50),
+              toMillis(firstFrame, 99), toMillis(gap, 50), toMillis(gap, 99));
+    }
+
+    if (sampler.hasSamples()) {
+      out.printf("%nserver     CPU %.2f cores average, %.2f peak; heap %.1f MB average, "
+              + "%.1f MB peak; %.0f threads peak%n", sampler.getAverageCpu(),
+              sampler.getMaxCpu(), sampler.getAverageHeap() / MEGABYTE,
+              sampler.getMaxHeap() / MEGABYTE, sampler.getMaxThreads());
+    } else {
+      out.printf("%nserver     no resource metrics available at /metrics%n");
+    }
+  }
+
+  /**
+   * Returns a percentile of a histogram in seconds as milliseconds.
+   * @param histogram   The histogram.
+   * @param percentile  The percentile between 0 and 100.
+   * @return The percentile in milliseconds.
+   */
+  private static double toMillis(Histogram histogram, double percentile) {
+    return histogram.getPercentile(percentile) * 1000;
+  }
+}
@@ -0,0 +1,129 @@
+package com.benine.loadtest;
+
+import com.benine.backend.metrics.Counter;
+import com.benine.backend.metrics.Histogram;
+import com.benine.backend.metrics.MetricRegistry;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Sends one kind of request at a fixed rate and measures the responses.
+ * Requests are sent on schedule whether or not earlier requests have completed,
+ * so a slow server shows up as latency instead of as a lower request rate.
+ */
+public class RequestLoad {
+
+  /**
+   * Time in seconds after which a request fails.
+   */
+  private static final long TIMEOUT = 30;
+
+  private static final String FAILED = "\"succes\":\"false\"";
+
+  private final String name;
+
+  private final HttpClient client;
+
+  private final String server;
+
+  private final Supplier<String> paths;
+
+  private final double rate;
+
+  private final Histogram latency;
+
+  private final Counter failures;
+
+  private ScheduledFuture<?> task;
+
+  /**
+   * Creates a load, it does not send requests until started.
+   * @param name      The name of the load in the report.
+   * @param client    The client to send the requests with.
+   * @param server    The base url of the server.
+   * @param paths     Supplies the path of every request.
+   * @param rate      The requests per second.
+   * @param registry  The registry to record the results in.
+   */
+  public RequestLoad(String name, HttpClient client, String server, Supplier<String> paths,
+                     double rate, MetricRegistry registry) {
+    this.name = name;
+    this.client = client;
+    this.server = server;
+    this.paths = paths;
+    this.rate = rate;
+    this.latency = registry.histogram("loadtest_request_seconds", "Latency of the requests.",
+            LoadTest.LATENCY_BUCKETS, "load", name);
+    this.failures = registry.counter("loadtest_request_failures_total",
+            "Failed requests.", "load", name);
+  }
+
+  /**
+   * Starts sending requests.
+   * @param scheduler The scheduler of the requests.
+   */
+  public void start(ScheduledExecutorService scheduler) {
+    long period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    task = scheduler.scheduleAtFixedRate(this::send, 0, period, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Stops sending requests, requests in progress still complete.
+   */
+  public void stop() {
+    if (task != null) {
+      task.cancel(false);
+    }
+  }
+
+  /**
+   * Sends a request, recording its latency when the response is complete.
+   */
+  private void send() {
+    long start = System.nanoTime();
+
+    client.newRequest(server + paths.get()).timeout(TIMEOUT, TimeUnit.SECONDS)
+            .send(new BufferingResponseListener() {
+              @Override
+              public void onComplete(Result result) {
+                if (result.isFailed() || result.getResponse().getStatus() != HttpStatus.OK_200
+                        || getContentAsString().contains(FAILED)) {
+                  failures.inc();
+                } else {
+                  latency.observeNanos(System.nanoTime() - start);
+                }
+              }
+            });
+  }
+
+  /**
+   * Returns the name of the load.
+   * @return The name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the latency of the successful requests.
+   * @return The Histogram of the latency in seconds.
+   */
+  public Histogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * Returns the amount of failed requests.
+   * @return The amount of failures.
+   */
+  public long getFailures() {
+    return failures.get();
+  }
+}
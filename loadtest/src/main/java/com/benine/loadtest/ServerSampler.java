@@ -0,0 +1,171 @@
+package com.benine.loadtest;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Samples the CPU time, heap and threads of the server from its /metrics endpoint every second.
+ */
+public class ServerSampler {
+
+  private static final long INTERVAL = 1;
+
+  private static final String CPU = "process_cpu_seconds_total";
+  private static final String HEAP = "jvm_memory_bytes_used{area=\"heap\"}";
+  private static final String THREADS = "jvm_threads_current";
+
+  private final HttpClient client;
+
+  private final String url;
+
+  private ScheduledFuture<?> task;
+
+  private int samples;
+
+  private long firstTime;
+  private double firstCpu;
+  private long lastTime;
+  private double lastCpu;
+
+  /**
+   * Highest CPU use between two samples, in cores.
+   */
+  private double maxCpu;
+
+  private double heapSum;
+  private double maxHeap;
+  private double maxThreads;
+
+  /**
+   * Creates a sampler, it does not sample until started.
+   * @param client The client to request the metrics with.
+   * @param server The base url of the server.
+   */
+  public ServerSampler(HttpClient client, String server) {
+    this.client = client;
+    this.url = server + "/metrics/";
+  }
+
+  /**
+   * Starts sampling.
+   * @param scheduler The scheduler of the samples.
+   */
+  public void start(ScheduledExecutorService scheduler) {
+    task = scheduler.scheduleAtFixedRate(this::sample, 0, INTERVAL, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops sampling.
+   */
+  public void stop() {
+    if (task != null) {
+      task.cancel(false);
+    }
+  }
+
+  /**
+   * Requests the metrics of the server and adds them to the samples.
+   */
+  private void sample() {
+    try {
+      ContentResponse response = client.GET(url);
+      if (response.getStatus() == HttpStatus.OK_200) {
+        add(System.nanoTime(), response.getContentAsString());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      // The sample is missing, the next one is taken on schedule.
+    }
+  }
+
+  /**
+   * Adds a sample.
+   * @param time    The time of the sample in nanoseconds.
+   * @param metrics The metrics of the server in the Prometheus text format.
+   */
+  synchronized void add(long time, String metrics) {
+    double cpu = parseSample(metrics, CPU);
+    double heap = parseSample(metrics, HEAP);
+    if (Double.isNaN(cpu) || Double.isNaN(heap)) {
+      return;
+    }
+
+    if (samples == 0) {
+      firstTime = time;
+      firstCpu = cpu;
+    } else {
+      maxCpu = Math.max(maxCpu, (cpu - lastCpu) / toSeconds(time - lastTime));
+    }
+    lastTime = time;
+    lastCpu = cpu;
+    samples++;
+
+    heapSum += heap;
+    maxHeap = Math.max(maxHeap, heap);
+    maxThreads = Math.max(maxThreads, parseSample(metrics, THREADS));
+  }
+
+  /**
+   * Returns the value of a sample in metrics in the Prometheus text format.
+   * @param metrics The metrics.
+   * @param sample  The name and labels of the sample.
+   * @return The value, NaN if the sample is not found.
+   */
+  static double parseSample(String metrics, String sample) {
+    for (String line : metrics.split("\n")) {
+      if (line.startsWith(sample + " ")) {
+        return Double.parseDouble(line.substring(sample.length() + 1).trim());
+      }
+    }
+    return Double.NaN;
+  }
+
+  /**
+   * Converts nanoseconds to seconds.
+   * @param nanos The time in nanoseconds.
+   * @return The time in seconds.
+   */
+  private static double toSeconds(long nanos) {
+    return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+  }
+
+  /**
+   * Returns if enough samples are taken to report the use of the server.
+   * @return true if at least two samples are taken.
+   */
+  public synchronized boolean hasSamples() {
+    return samples > 1;
+  }
+
+  /**
+   * Returns the average CPU use of the server over all samples.
+   * @return The CPU use in cores.
+   */
+  public synchronized double getAverageCpu() {
+    return (lastCpu - firstCpu) / toSeconds(lastTime - firstTime);
+  }
+
+  public synchronized double getMaxCpu() {
+    return maxCpu;
+  }
+
+  public synchronized double getAverageHeap() {
+    return heapSum / samples;
+  }
+
+  public synchronized double getMaxHeap() {
+    return maxHeap;
+  }
+
+  public synchronized double getMaxThreads() {
+    return maxThreads;
+  }
+}
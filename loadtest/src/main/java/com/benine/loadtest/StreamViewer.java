@@ -0,0 +1,148 @@
+package com.benine.loadtest;
+
+import com.benine.backend.metrics.Counter;
+import com.benine.backend.metrics.Histogram;
+import com.benine.backend.metrics.MetricRegistry;
+import com.benine.backend.video.MJPEGFrameParser;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Watches a MJPEG stream like a browser, counting the received frames.
+ * The viewer reconnects when the stream ends until it is stopped.
+ */
+public class StreamViewer extends Response.Listener.Adapter {
+
+  private static final long IDLE_TIMEOUT = 10;
+
+  private static final long RECONNECT_DELAY = 1;
+
+  private final HttpClient client;
+
+  private final String url;
+
+  /**
+   * True while the results are recorded, false during the ramp up.
+   */
+  private final BooleanSupplier measuring;
+
+  private final MJPEGFrameParser parser;
+
+  private final Counter frames;
+  private final Counter bytes;
+  private final Counter disconnects;
+  private final Histogram firstFrame;
+  private final Histogram frameGap;
+
+  private volatile boolean running;
+
+  private Request request;
+
+  private long connected;
+
+  /**
+   * Time in nanoseconds of the last frame, 0 if no frame is received on this connection.
+   */
+  private long lastFrame;
+
+  /**
+   * Creates a viewer, it does not connect until started.
+   * @param client    The client to connect with.
+   * @param url       The url of the stream.
+   * @param measuring Returns if the results should be recorded.
+   * @param registry  The registry to record the results in, shared by all viewers.
+   */
+  public StreamViewer(HttpClient client, String url, BooleanSupplier measuring,
+                      MetricRegistry registry) {
+    this.client = client;
+    this.url = url;
+    this.measuring = measuring;
+    this.parser = new MJPEGFrameParser();
+    this.frames = registry.counter("loadtest_frames_total", "Frames received.");
+    this.bytes = registry.counter("loadtest_bytes_total", "Bytes received.");
+    this.disconnects = registry.counter("loadtest_disconnects_total",
+            "Streams which ended while viewed.");
+    this.firstFrame = registry.histogram("loadtest_first_frame_seconds",
+            "Time from connecting to the first frame.", LoadTest.LATENCY_BUCKETS);
+    this.frameGap = registry.histogram("loadtest_frame_gap_seconds",
+            "Time between two frames of a stream.", LoadTest.LATENCY_BUCKETS);
+  }
+
+  /**
+   * Connects to the stream.
+   */
+  public void start() {
+    running = true;
+    connect();
+  }
+
+  /**
+   * Sends the request for the stream.
+   */
+  private synchronized void connect() {
+    if (!running) {
+      return;
+    }
+    parser.reset();
+    connected = System.nanoTime();
+    lastFrame = 0;
+
+    request = client.newRequest(url).idleTimeout(IDLE_TIMEOUT, TimeUnit.SECONDS);
+    request.send(this);
+  }
+
+  @Override
+  public void onContent(Response response, ByteBuffer content) {
+    if (measuring.getAsBoolean()) {
+      bytes.add(content.remaining());
+    }
+    parser.feed(content);
+
+    while (parser.nextFrame() != null) {
+      frameReceived();
+    }
+  }
+
+  /**
+   * Records the arrival of a frame.
+   */
+  private void frameReceived() {
+    long now = System.nanoTime();
+
+    if (lastFrame == 0) {
+      firstFrame.observeNanos(now - connected);
+    } else if (measuring.getAsBoolean()) {
+      frameGap.observeNanos(now - lastFrame);
+      frames.inc();
+    }
+    lastFrame = now;
+  }
+
+  @Override
+  public void onComplete(Result result) {
+    if (!running) {
+      return;
+    }
+    if (measuring.getAsBoolean()) {
+      disconnects.inc();
+    }
+    client.getScheduler().schedule(this::connect, RECONNECT_DELAY, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Disconnects from the stream.
+   */
+  public synchronized void stop() {
+    running = false;
+    if (request != null) {
+      request.abort(new IOException("Viewer stopped"));
+    }
+  }
+}
@@ -0,0 +1,5 @@
+/**
+ * Package containing a load generator for the HTTP API of a running backend,
+ * which measures the throughput and latency of streams and requests.
+ */
+package com.benine.loadtest;